@@ -16,6 +16,8 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.LoggerFactory.StringLogger;
 import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
+import org.team100.lib.util.SensorSnapshot;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.networktables.NetworkTableInstance;
@@ -37,6 +39,8 @@ public class Robot extends TimedRobot100 {
     private final IntLogger m_log_key_list_size;
     private final StringLogger m_log_active_auton_routine;
     private final DoubleLogger m_log_voltage;
+    private final DoubleLogger m_log_sense_latency;
+    private final DoubleLogger m_log_sense_skew;
     private final JvmLogger m_jvmLogger;
 
     private RobotContainer m_robotContainer;
@@ -51,6 +55,8 @@ public class Robot extends TimedRobot100 {
         m_log_key_list_size = m_robotLogger.intLogger(Level.TRACE, "key list size");
         m_log_active_auton_routine = m_robotLogger.stringLogger(Level.COMP, "active auton routine");
         m_log_voltage = m_robotLogger.doubleLogger(Level.TRACE, "voltage");
+        m_log_sense_latency = m_robotLogger.doubleLogger(Level.COMP, "sense latency (s)");
+        m_log_sense_skew = m_robotLogger.doubleLogger(Level.TRACE, "sense skew (s)");
         m_jvmLogger = new JvmLogger(m_robotLogger);
     }
 
@@ -94,10 +100,17 @@ public class Robot extends TimedRobot100 {
      */
     @Override
     public void robotPeriodic() {
-        // Cache instances hold measurements that we want to keep consistent
+        // Read all the sensors at once, at a predictable time, into a snapshot
+        // that stays consistent for the entire cycle.
+        SensorSnapshot sensors = Sense.sense();
+        m_log_sense_latency.log(sensors.getLatencyS());
+        m_log_sense_skew.log(sensors.getSkewS());
+        // Cache instances hold derived values that we want to keep consistent
         // for an entire cycle, but that we want to forget between cycles, so we
         // reset them all here.
         Memo.resetAll();
+        // Experiment flags also stay consistent for the entire cycle.
+        Experiments.instance.periodic();
         CommandScheduler.getInstance().run();
         m_robotContainer.periodic();
 
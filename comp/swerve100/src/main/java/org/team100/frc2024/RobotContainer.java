@@ -3,6 +3,7 @@ package org.team100.frc2024;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BooleanSupplier;
 
 import org.team100.frc2024.commands.AutonCommand;
@@ -66,6 +67,7 @@ import org.team100.lib.hid.OperatorControlProxy;
 import org.team100.lib.indicator.LEDIndicator;
 import org.team100.lib.localization.AprilTagFieldLayoutWithCorrectOrientation;
 import org.team100.lib.localization.NotePosition24ArrayListener;
+import org.team100.lib.localization.OdometryThread;
 import org.team100.lib.localization.SwerveDrivePoseEstimator100;
 import org.team100.lib.localization.VisionDataProvider24;
 import org.team100.lib.logging.FieldLogger;
@@ -108,6 +110,8 @@ public class RobotContainer implements Glassy {
     // https://www.chiefdelphi.com/t/the-brushless-era-needs-sensible-default-current-limits/461056/51
     private static final double kDriveCurrentLimit = 50;
     private static final double kDriveStatorLimit = 100;
+    /** Odometry runs on its own thread, faster than the main loop. */
+    private static final double kOdometryFrequencyHz = 200;
 
     private final SwerveModuleCollection m_modules;
     private final Command m_auton;
@@ -173,13 +177,24 @@ public class RobotContainer implements Glassy {
 
         final SwerveLocal swerveLocal = new SwerveLocal(driveLog, swerveKinodynamics, m_modules);
 
+        // empty in simulation, where the modules don't have CTRE signals.
+        final Optional<OdometryThread> odometryThread = m_modules
+                .odometrySignals(kOdometryFrequencyHz)
+                .map(signals -> new OdometryThread(
+                        driveLog,
+                        kOdometryFrequencyHz,
+                        signals,
+                        gyro,
+                        poseEstimator));
+
         m_drive = new SwerveDriveSubsystem(
                 fieldLogger,
                 driveLog,
                 gyro,
                 poseEstimator,
                 swerveLocal,
-                visionDataProvider);
+                visionDataProvider,
+                odometryThread);
 
         final NotePosition24ArrayListener noteListener = new NotePosition24ArrayListener(
                 () -> m_drive.getState().pose());
@@ -525,6 +540,9 @@ public class RobotContainer implements Glassy {
                                 new PrintCommand("nothing red goes here"),
                                 new PrintCommand("nothing blue goes here"))),
                 AutonChooser::routine);
+
+        // all the autonomous trajectories exist now, so remember them for next time.
+        m_AutoMaker.saveTrajectories();
     }
 
     public void beforeCommandCycle() {
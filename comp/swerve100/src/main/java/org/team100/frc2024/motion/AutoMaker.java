@@ -1,6 +1,8 @@
 package org.team100.frc2024.motion;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 import org.team100.frc2024.SensorInterface;
 import org.team100.frc2024.commands.ShootPreload;
@@ -20,16 +22,16 @@ import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
-import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingConstraintFactory;
 import org.team100.lib.trajectory.Trajectory100;
-import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectoryCache;
 import org.team100.lib.visualization.TrajectoryVisualization;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
@@ -39,12 +41,14 @@ import edu.wpi.first.wpilibj2.command.WaitCommand;
 
 public class AutoMaker implements Glassy {
     private static final double kIntakeOffset = 0;
+    private static final String kSlow = "slow";
+    private static final String kFast = "fast";
+    private static final String kTrajectoryFile = "trajectories.bin";
 
     private final SwerveDriveSubsystem m_swerve;
     private final DriveTrajectoryFollower m_controller;
     private final SensorInterface m_sensors;
-    private final List<TimingConstraint> m_slow;
-    private final List<TimingConstraint> m_fast;
+    private final TrajectoryCache m_trajectories;
     private final Intake m_intake;
     private final DrumShooter m_shooter;
     private final FeederSubsystem m_feeder;
@@ -72,8 +76,10 @@ public class AutoMaker implements Glassy {
         m_factory = factory;
         m_controller = controller;
         TimingConstraintFactory constraints = new TimingConstraintFactory(swerveKinodynamics);
-        m_slow = constraints.allGood();
-        m_fast = constraints.fast();
+        m_trajectories = new TrajectoryCache(Map.of(
+                kSlow, constraints.allGood(),
+                kFast, constraints.fast()));
+        m_trajectories.load(trajectoryFile());
         kShooterScale = shooterScale;
         m_feeder = feeder;
         m_shooter = shooter;
@@ -86,6 +92,18 @@ public class AutoMaker implements Glassy {
         m_viz = viz;
     }
 
+    /**
+     * Write any trajectories that weren't in the file, so the next boot doesn't
+     * have to make them. Call this after making all the autonomous routines.
+     */
+    public void saveTrajectories() {
+        m_trajectories.save(trajectoryFile());
+    }
+
+    private static Path trajectoryFile() {
+        return Filesystem.getDeployDirectory().toPath().resolve(kTrajectoryFile);
+    }
+
     /** This encodes knowledge about how to approach each field point. */
     private Pose2d getPose(Alliance alliance, FieldPoint2024 point) {
         Translation2d translation = FieldPoint2024.getTranslation(alliance, point);
@@ -143,7 +161,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 betweenHeading,
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -177,7 +195,7 @@ public class AutoMaker implements Glassy {
                 betweenHeading,
                 betweenHeading,
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kSlow);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_factory.goodPIDF(m_log),
                 m_viz);
     }
@@ -197,7 +215,7 @@ public class AutoMaker implements Glassy {
                 new Pose2d(2, 2, new Rotation2d()),
                 new Pose2d(5, 2, new Rotation2d()));
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -206,7 +224,7 @@ public class AutoMaker implements Glassy {
                 new Pose2d(0, 0, Rotation2d.fromDegrees(45)),
                 new Pose2d(1, 1, Rotation2d.fromDegrees(45)));
         List<Rotation2d> headings = List.of(Rotation2d.fromDegrees(0), Rotation2d.fromDegrees(0));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -215,21 +233,21 @@ public class AutoMaker implements Glassy {
                 new Pose2d(5, 2, new Rotation2d(Math.PI)),
                 new Pose2d(2, 2, new Rotation2d(Math.PI)));
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
     public TrajectoryCommand100 tuningTrajectory3() {
         List<Pose2d> waypointsM = List.of(new Pose2d(), new Pose2d());
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
     public TrajectoryCommand100 tuningTrajectory4() {
         List<Pose2d> waypointsM = List.of(new Pose2d(), new Pose2d());
         List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -252,7 +270,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.stageBase(m_log), m_viz);
     }
@@ -280,7 +298,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -305,7 +323,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kSlow);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -331,7 +349,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 heading,
                 heading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kSlow);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -357,7 +375,7 @@ public class AutoMaker implements Glassy {
                 new Rotation2d(begHeading),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kSlow);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -376,7 +394,7 @@ public class AutoMaker implements Glassy {
         List<Rotation2d> headings = List.of(
                 startPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.straightPIDF(m_log), m_viz);
     }
@@ -396,7 +414,7 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(begHeading, endHeading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.straightPIDF(m_log), m_viz);
     }
@@ -415,7 +433,7 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(startPose.getRotation(), endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -435,7 +453,7 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(startPose.getRotation(), endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(
                 m_commandLog,
                 m_swerve,
@@ -459,7 +477,7 @@ public class AutoMaker implements Glassy {
         Rotation2d startHeading = startPose.getRotation();
         Rotation2d endHeading = new Rotation2d(Math.PI);
         List<Rotation2d> headings = List.of(startHeading, endHeading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.newNewPIDF(m_log), m_viz);
     }
@@ -489,7 +507,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 betweenPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = m_trajectories.restToRest(waypointsM, headings, kFast);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
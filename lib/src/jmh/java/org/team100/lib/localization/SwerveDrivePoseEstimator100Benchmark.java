@@ -0,0 +1,94 @@
+package org.team100.lib.localization;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Odometry, every loop, and vision, which replays the odometry since the camera
+ * frame was taken.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveDrivePoseEstimator100Benchmark {
+    private static final double kDtS = 0.02;
+    /** Typical camera latency. */
+    private static final double kVisionDelayS = 0.1;
+    private static final double[] kStateSigma = new double[] { 0.1, 0.1, 0.1 };
+    private static final double[] kVisionSigma = new double[] { 0.5, 0.5, Double.MAX_VALUE };
+
+    private SwerveDrivePoseEstimator100 m_estimator;
+    private double m_timeS;
+    private double m_distanceM;
+
+    /** A new estimator for each iteration, with a full buffer. */
+    @Setup(Level.Iteration)
+    public void setup() {
+        m_timeS = 0;
+        m_distanceM = 0;
+        m_estimator = new SwerveDrivePoseEstimator100(
+                new TestLoggerFactory(new TestPrimitiveLogger()),
+                SwerveKinodynamicsFactory.forTest(),
+                new Rotation2d(),
+                positions(0),
+                new Pose2d(),
+                0);
+        for (int i = 0; i < 100; ++i) {
+            odometry();
+        }
+    }
+
+    @Benchmark
+    public void odometry() {
+        m_timeS += kDtS;
+        m_distanceM += 0.01;
+        m_estimator.put(m_timeS, new Rotation2d(), positions(m_distanceM));
+    }
+
+    /** Each vision update replays the buffer after it. */
+    @Benchmark
+    public void vision() {
+        m_estimator.put(
+                m_timeS - kVisionDelayS,
+                new Pose2d(m_distanceM, 0.01, new Rotation2d()),
+                kStateSigma,
+                kVisionSigma);
+    }
+
+    /** Several cameras at once, replayed once. */
+    @Benchmark
+    public void visionBatch() {
+        m_estimator.put(List.of(
+                new VisionMeasurement(m_timeS - kVisionDelayS,
+                        new Pose2d(m_distanceM, 0.01, new Rotation2d()), kStateSigma, kVisionSigma),
+                new VisionMeasurement(m_timeS - kVisionDelayS - kDtS,
+                        new Pose2d(m_distanceM, -0.01, new Rotation2d()), kStateSigma, kVisionSigma),
+                new VisionMeasurement(m_timeS - kVisionDelayS - 2 * kDtS,
+                        new Pose2d(m_distanceM, 0, new Rotation2d()), kStateSigma, kVisionSigma)));
+    }
+
+    private static SwerveModulePosition100[] positions(double distanceM) {
+        return new SwerveModulePosition100[] {
+                new SwerveModulePosition100(distanceM, Optional.of(new Rotation2d())),
+                new SwerveModulePosition100(distanceM, Optional.of(new Rotation2d())),
+                new SwerveModulePosition100(distanceM, Optional.of(new Rotation2d())),
+                new SwerveModulePosition100(distanceM, Optional.of(new Rotation2d())) };
+    }
+}
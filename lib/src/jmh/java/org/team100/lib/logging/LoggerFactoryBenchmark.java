@@ -0,0 +1,72 @@
+package org.team100.lib.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * The cost of a log call at DEBUG level, with the factory at each level, i.e.
+ * disabled (COMP) or enabled (DEBUG, TRACE). Disabled should be nearly free,
+ * and should allocate nothing.
+ *
+ * This uses the real UDP primitive logger, with nowhere to send, and without
+ * flushing, so it's just the cost of the call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggerFactoryBenchmark {
+    @Param({ "COMP", "DEBUG", "TRACE" })
+    public Level m_level;
+
+    private DoubleLogger m_double;
+    private DoubleArrayLogger m_array;
+    private Pose2dLogger m_pose;
+    private Pose2d m_value;
+
+    @Setup
+    public void setup() {
+        UdpPrimitiveLogger udp = new UdpPrimitiveLogger(x -> {
+        }, x -> {
+        }, true);
+        LoggerFactory logger = new LoggerFactory(() -> m_level, "bench", udp);
+        m_double = logger.doubleLogger(Level.DEBUG, "double");
+        m_array = logger.doubleArrayLogger(Level.DEBUG, "array");
+        m_pose = logger.pose2dLogger(Level.DEBUG, "pose");
+        m_value = new Pose2d(1, 2, new Rotation2d(3));
+    }
+
+    @Benchmark
+    public void doublePrimitive() {
+        m_double.log(m_value.getX());
+    }
+
+    @Benchmark
+    public void doubleSupplier() {
+        m_double.log(() -> m_value.getX());
+    }
+
+    @Benchmark
+    public void doubleArray() {
+        m_array.log(m_value.getX(), m_value.getY(), m_value.getRotation().getRadians());
+    }
+
+    @Benchmark
+    public void pose() {
+        m_pose.log(() -> m_value);
+    }
+}
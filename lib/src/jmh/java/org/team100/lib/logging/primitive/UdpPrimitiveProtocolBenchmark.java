@@ -0,0 +1,62 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding one packet of doubles, per key, in each protocol. The values drift
+ * slowly, like real measurements, which matters for the XOR encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UdpPrimitiveProtocolBenchmark {
+    private static final int kKeys = 100;
+
+    private UdpPrimitiveProtocol m_protocol2;
+    private UdpPrimitiveProtocol3 m_protocol3;
+    private final double[] m_values = new double[kKeys];
+    private final double[] m_previous = new double[kKeys];
+
+    @Setup
+    public void setup() {
+        m_protocol2 = new UdpPrimitiveProtocol();
+        m_protocol3 = new UdpPrimitiveProtocol3();
+        for (int i = 0; i < kKeys; ++i) {
+            m_values[i] = i * 0.1;
+            m_previous[i] = m_values[i];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kKeys)
+    public ByteBuffer protocol2() {
+        m_protocol2.clear();
+        for (int i = 0; i < kKeys; ++i) {
+            m_values[i] += 1e-4;
+            m_protocol2.putDouble(i + 16, m_values[i]);
+        }
+        return m_protocol2.trim();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kKeys)
+    public ByteBuffer protocol3() {
+        m_protocol3.clear();
+        for (int i = 0; i < kKeys; ++i) {
+            m_previous[i] = m_values[i];
+            m_values[i] += 1e-4;
+            m_protocol3.putDouble(i + 16, m_values[i], m_previous[i]);
+        }
+        return m_protocol3.trim();
+    }
+}
@@ -0,0 +1,47 @@
+package org.team100.lib.motion.drivetrain.kinodynamics;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/** Inverse and forward kinematics, each called several times per loop. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveDriveKinematics100Benchmark {
+    private SwerveDriveKinematics100 m_kinematics;
+    private ChassisSpeeds m_speeds;
+    private SwerveModulePosition100[] m_deltas;
+
+    @Setup
+    public void setup() {
+        m_kinematics = SwerveKinodynamicsFactory.forTest().getKinematics();
+        m_speeds = new ChassisSpeeds(1, 0.5, 0.2);
+        m_deltas = new SwerveModulePosition100[] {
+                new SwerveModulePosition100(0.02, Optional.of(new Rotation2d(0.1))),
+                new SwerveModulePosition100(0.021, Optional.of(new Rotation2d(0.1))),
+                new SwerveModulePosition100(0.019, Optional.of(new Rotation2d(0.12))),
+                new SwerveModulePosition100(0.02, Optional.of(new Rotation2d(0.11))) };
+    }
+
+    @Benchmark
+    public SwerveModuleState100[] toSwerveModuleStates() {
+        return m_kinematics.toSwerveModuleStates(m_speeds);
+    }
+
+    @Benchmark
+    public Twist2d toTwist2d() {
+        return m_kinematics.toTwist2d(m_deltas);
+    }
+}
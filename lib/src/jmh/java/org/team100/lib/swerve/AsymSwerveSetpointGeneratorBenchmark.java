@@ -0,0 +1,50 @@
+package org.team100.lib.swerve;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * One setpoint per loop, from a moving setpoint toward a different desired
+ * speed, so the limiters have something to do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AsymSwerveSetpointGeneratorBenchmark {
+    private AsymSwerveSetpointGenerator m_generator;
+    private SwerveSetpoint m_prev;
+    private ChassisSpeeds m_desired;
+
+    @Setup
+    public void setup() {
+        m_generator = new AsymSwerveSetpointGenerator(
+                new TestLoggerFactory(new TestPrimitiveLogger()),
+                SwerveKinodynamicsFactory.limiting());
+        SwerveModuleState100[] states = new SwerveModuleState100[4];
+        for (int i = 0; i < 4; ++i) {
+            states[i] = new SwerveModuleState100(1, Optional.of(new Rotation2d()));
+        }
+        m_prev = new SwerveSetpoint(new ChassisSpeeds(1, 0, 0), states);
+        m_desired = new ChassisSpeeds(0, 1, 0.5);
+    }
+
+    @Benchmark
+    public SwerveSetpoint generateSetpoint() {
+        return m_generator.generateSetpoint(m_prev, m_desired);
+    }
+}
@@ -0,0 +1,46 @@
+package org.team100.lib.timing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.path.Path100;
+import org.team100.lib.path.PathDistanceSampler;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryUtil100;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Time-parameterizing a path, which happens when a trajectory command starts, so
+ * it shows up as a loop overrun.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimingUtilBenchmark {
+    private TimingUtil m_timingUtil;
+    private PathDistanceSampler m_sampler;
+
+    @Setup
+    public void setup() {
+        Path100 path = TrajectoryUtil100.trajectoryFromWaypointsAndHeadings(
+                List.of(new Pose2d(), new Pose2d(3, 1, new Rotation2d(Math.PI / 2))),
+                List.of(new Rotation2d(), new Rotation2d()),
+                0.05, 0.05, 0.1);
+        m_sampler = new PathDistanceSampler(path);
+        m_timingUtil = new TimingUtil(List.of(new ConstantConstraint(2, 2)));
+    }
+
+    @Benchmark
+    public Trajectory100 timeParameterizeTrajectory() {
+        return m_timingUtil.timeParameterizeTrajectory(m_sampler, 0.05, 0, 0);
+    }
+}
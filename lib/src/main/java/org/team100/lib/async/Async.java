@@ -3,4 +3,12 @@ package org.team100.lib.async;
 /** Various ways to execute asynchronous periodic functions. */
 public interface Async {
     void addPeriodic(Runnable runnable, double periodS, String name);
+
+    /**
+     * For functions that block, e.g. I2C reads or NT polls. Backends that can keep
+     * these off the shared threads should override this.
+     */
+    default void addBlockingPeriodic(Runnable runnable, double periodS, String name) {
+        addPeriodic(runnable, periodS, name);
+    }
 }
@@ -1,27 +1,70 @@
 package org.team100.lib.async;
 
 import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.logging.Logging;
+import org.team100.lib.util.Util;
 
+import edu.wpi.first.wpilibj.Preferences;
+
+/**
+ * Makes the Async runner.
+ * 
+ * The runner is made at startup so it's not possible to control with an
+ * experiment. Instead, the backend is chosen by the "Async backend"
+ * preference, which persists on the RoboRIO and can be edited from the
+ * dashboard; the change takes effect at the next restart.
+ */
 public class AsyncFactory {
-    // runner is made at startup so it's not possible to control with an
-    // experiment. instead, these booleans will have to do.
-    private static final boolean USE_TIMED_ROBOT_ASYNC = true;
-    private static final boolean USE_EXECUTOR_ASYNC = false;
+    private static final String kPreference = "Async backend";
+    /** Workers in the POOL backend. */
+    private static final String kPoolPreference = "Async pool threads";
+    private static final int kDefaultPoolThreads = 2;
+
+    public enum Backend {
+        /**
+         * Adds asyncs to the main loop callbacks.
+         * This will slow down the main loop but avoid context-switching.
+         */
+        TIMED_ROBOT,
+        /**
+         * Adds asyncs to a single-threaded java executor.
+         * This avoids loading the main loop with the minimum number of threads.
+         */
+        EXECUTOR,
+        /** Each async gets its own notifier thread. */
+        NOTIFIER,
+        /**
+         * Adds asyncs to a small work-stealing pool, with blocking ones on virtual
+         * threads if possible. The pool size is the "Async pool threads"
+         * preference, at least two.
+         */
+        POOL
+    }
+
+    private static final Backend kDefault = Backend.TIMED_ROBOT;
 
     private final Async runner;
 
+    /** Uses the backend in the preference. */
     public AsyncFactory(TimedRobot100 robot) {
-        if (USE_TIMED_ROBOT_ASYNC) {
-            // Adds asyncs to the main loop callbacks.
-            // This will slow down the main loop but avoid context-switching.
-            runner = new TimedRobotAsync(robot);
-        } else if (USE_EXECUTOR_ASYNC) {
-            // Adds asyncs to a single-threaded java executor.
-            // This avoids loading the main loop with the minimum number of threads.
-            runner = new ExecutorAsync();
-        } else {
-            // Each async gets its own notifier thread.
-            runner = new NotifierAsync();
+        this(robot, preference());
+    }
+
+    public AsyncFactory(TimedRobot100 robot, Backend backend) {
+        switch (backend) {
+            case EXECUTOR:
+                runner = new ExecutorAsync();
+                break;
+            case NOTIFIER:
+                runner = new NotifierAsync();
+                break;
+            case POOL:
+                runner = new PoolAsync(Logging.instance().rootLogger, poolThreads());
+                break;
+            case TIMED_ROBOT:
+            default:
+                runner = new TimedRobotAsync(robot);
+                break;
         }
     }
 
@@ -29,4 +72,24 @@ public class AsyncFactory {
         return runner;
     }
 
+    private static int poolThreads() {
+        Preferences.initInt(kPoolPreference, kDefaultPoolThreads);
+        int threads = Preferences.getInt(kPoolPreference, kDefaultPoolThreads);
+        if (threads < PoolAsync.kMinThreads) {
+            Util.warn(String.format("Async pool needs at least %d threads, not %d",
+                    PoolAsync.kMinThreads, threads));
+        }
+        return threads;
+    }
+
+    private static Backend preference() {
+        Preferences.initString(kPreference, kDefault.name());
+        String name = Preferences.getString(kPreference, kDefault.name());
+        try {
+            return Backend.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            Util.warn(String.format("Unknown async backend %s, using %s", name, kDefault.name()));
+            return kDefault;
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package org.team100.lib.async;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.team100.lib.util.Util;
+
+/** Logs exceptions instead of letting them kill the periodic task. */
+class CrashWrapper implements Runnable {
+    private final Runnable m_runnable;
+
+    CrashWrapper(Runnable runnable) {
+        m_runnable = runnable;
+    }
+
+    @Override
+    public void run() {
+        try {
+            m_runnable.run();
+        } catch (Throwable e) {
+            Util.warn(e.toString());
+            Writer writer = new StringWriter();
+            e.printStackTrace(new PrintWriter(writer));
+            Util.warn(writer.toString());
+        }
+    }
+}
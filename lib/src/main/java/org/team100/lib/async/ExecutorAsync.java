@@ -1,15 +1,8 @@
 package org.team100.lib.async;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.io.Writer;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import org.team100.lib.util.Util;
 
 /**
  * Runs low-priority, timing-insensitive stuff asynchronously.
@@ -30,49 +23,8 @@ public class ExecutorAsync implements Async {
     }
 
     ExecutorAsync() {
+        // There should only ever be one thread.
         m_scheduler = Executors.newSingleThreadScheduledExecutor(
-                new MinPriorityThreads());
-    }
-
-    private static class MinPriorityThreads implements ThreadFactory {
-        private final AtomicInteger id;
-
-        private MinPriorityThreads() {
-            id = new AtomicInteger();
-        }
-
-        /**
-         * Should only ever be called once but just in case, there's an incrementing
-         * id so we can tell what's happening.
-         */
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread thread = new Thread(r);
-            thread.setPriority(1);
-            thread.setDaemon(true);
-            thread.setName("Async Thread " + id.getAndIncrement());
-            return thread;
-        }
-
-    }
-
-    private static class CrashWrapper implements Runnable {
-        private final Runnable m_runnable;
-
-        private CrashWrapper(Runnable runnable) {
-            m_runnable = runnable;
-        }
-
-        @Override
-        public void run() {
-            try {
-                m_runnable.run();
-            } catch (Throwable e) {
-                Util.warn(e.toString());
-                Writer writer = new StringWriter();
-                e.printStackTrace(new PrintWriter(writer));
-                Util.warn(writer.toString());
-            }
-        }
+                new MinPriorityThreads("Async Thread"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package org.team100.lib.async;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Makes daemon threads with the lowest priority. */
+class MinPriorityThreads implements ThreadFactory {
+    private final String m_name;
+    private final AtomicInteger id;
+
+    MinPriorityThreads(String name) {
+        m_name = name;
+        id = new AtomicInteger();
+    }
+
+    /**
+     * There's an incrementing id so we can tell what's happening.
+     */
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setPriority(1);
+        thread.setDaemon(true);
+        thread.setName(m_name + " " + id.getAndIncrement());
+        return thread;
+    }
+}
@@ -0,0 +1,187 @@
+package org.team100.lib.async;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.util.Util;
+
+/**
+ * Runs periodic tasks on a small work-stealing pool.
+ *
+ * A single timer thread does nothing but submit tasks to the pool, and the
+ * pool doesn't need a thread per task. With at least two workers, an idle one
+ * steals the tasks queued behind a slow one, so a slow task delays the others
+ * only if it keeps all the workers busy. If a task is still running when it's
+ * due again, that run is skipped.
+ *
+ * The RoboRIO has two cores, and the workers may share them with the main
+ * loop. They run at minimum priority, so the main loop always wins; the pool
+ * gets whatever the main loop leaves.
+ *
+ * Blocking tasks run on virtual threads, if the JDK has them (21 and later).
+ * Otherwise they run in the pool as managed blockers, so the pool can add a
+ * spare thread while they wait.
+ *
+ * Logs the latency (from due to start) and duration of each task, and the
+ * depth of the pool queue.
+ */
+public class PoolAsync implements Async, Glassy {
+    /** Fewer than two workers would have nothing to steal. */
+    static final int kMinThreads = 2;
+    private static final double kStatsPeriodS = 1.0;
+
+    private final LoggerFactory m_logger;
+    private final ScheduledExecutorService m_timer;
+    private final ForkJoinPool m_pool;
+    /** Virtual threads, if available. */
+    private final Optional<ExecutorService> m_virtual;
+    private final IntLogger m_log_queue_depth;
+    private final IntLogger m_log_active;
+
+    /**
+     * @param threads worker count, at least kMinThreads.
+     */
+    PoolAsync(LoggerFactory parent, int threads) {
+        m_logger = parent.child(this);
+        m_timer = Executors.newSingleThreadScheduledExecutor(
+                new MinPriorityThreads("Async Timer"));
+        m_pool = new ForkJoinPool(
+                Math.max(kMinThreads, threads), PoolAsync::newWorker, null, true);
+        m_virtual = virtualThreads();
+        if (m_virtual.isEmpty())
+            Util.warn("PoolAsync: no virtual threads, blocking tasks will use the pool");
+        m_log_queue_depth = m_logger.intLogger(Level.TRACE, "queue depth");
+        m_log_active = m_logger.intLogger(Level.TRACE, "active threads");
+        long statsPeriodMS = (long) (kStatsPeriodS * 1000);
+        m_timer.scheduleAtFixedRate(
+                this::logStats, statsPeriodMS, statsPeriodMS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Run in t sec and every t sec thereafter. */
+    @Override
+    public void addPeriodic(Runnable runnable, double periodS, String name) {
+        schedule(new Task(new CrashWrapper(runnable), m_pool, name), periodS);
+    }
+
+    @Override
+    public void addBlockingPeriodic(Runnable runnable, double periodS, String name) {
+        Runnable wrapped = new CrashWrapper(runnable);
+        if (m_virtual.isPresent()) {
+            schedule(new Task(wrapped, m_virtual.get(), name), periodS);
+        } else {
+            schedule(new Task(() -> block(wrapped), m_pool, name), periodS);
+        }
+    }
+
+    private void schedule(Task task, double periodS) {
+        long periodMS = (long) (periodS * 1000);
+        m_timer.scheduleAtFixedRate(task::submit, periodMS, periodMS, TimeUnit.MILLISECONDS);
+    }
+
+    private void logStats() {
+        m_log_queue_depth.log((int) (m_pool.getQueuedSubmissionCount() + m_pool.getQueuedTaskCount()));
+        m_log_active.log(m_pool.getActiveThreadCount());
+    }
+
+    private class Task implements Runnable {
+        private final Runnable m_runnable;
+        private final Executor m_executor;
+        private final AtomicBoolean m_running;
+        private final DoubleLogger m_log_latency;
+        private final DoubleLogger m_log_duration;
+        private final IntLogger m_log_skips;
+        /** Written by the timer thread before submitting, read by the worker. */
+        private volatile long m_submitNS;
+        private int m_skips;
+
+        Task(Runnable runnable, Executor executor, String name) {
+            m_runnable = runnable;
+            m_executor = executor;
+            m_running = new AtomicBoolean();
+            m_log_latency = m_logger.doubleLogger(Level.TRACE, "latency (s)/" + name);
+            m_log_duration = m_logger.doubleLogger(Level.TRACE, "duration (s)/" + name);
+            m_log_skips = m_logger.intLogger(Level.TRACE, "skips/" + name);
+        }
+
+        /** Runs on the timer thread. */
+        void submit() {
+            if (!m_running.compareAndSet(false, true)) {
+                // still running from last time
+                m_skips++;
+                m_log_skips.log(m_skips);
+                return;
+            }
+            m_submitNS = System.nanoTime();
+            m_executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            long startNS = System.nanoTime();
+            try {
+                m_runnable.run();
+            } finally {
+                m_running.set(false);
+            }
+            long endNS = System.nanoTime();
+            m_log_latency.log((startNS - m_submitNS) * 1e-9);
+            m_log_duration.log((endNS - startNS) * 1e-9);
+        }
+    }
+
+    /** Lets the pool make a spare thread while the runnable blocks. */
+    private static void block(Runnable runnable) {
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean m_done;
+
+                @Override
+                public boolean block() {
+                    runnable.run();
+                    m_done = true;
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return m_done;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setPriority(1);
+        thread.setName("Async Pool " + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * We build for Java 17, so virtual threads (Java 21) are only available via
+     * reflection.
+     */
+    private static Optional<ExecutorService> virtualThreads() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) m.invoke(null));
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package org.team100.lib.encoder;
 
 import java.util.OptionalDouble;
-import java.util.function.DoubleSupplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
-import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
+import org.team100.lib.util.Sense.Bus;
 
 import edu.wpi.first.wpilibj.AnalogInput;
 import edu.wpi.first.wpilibj.RobotController;
@@ -16,9 +16,10 @@ import edu.wpi.first.wpilibj.RobotController;
  */
 public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
     private final AnalogInput m_input;
-    // CACHES
-    private final DoubleSupplier m_voltage;
-    private final DoubleSupplier m_rail;
+    // SENSORS
+    private final Sense.Group m_sensors;
+    private final Sense.Channel m_voltage;
+    private final Sense.Channel m_rail;
     // LOGGERS
     private final DoubleLogger m_log_voltage;
     private final DoubleLogger m_log_ratio;
@@ -31,8 +32,9 @@ public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
         super(parent, inputOffset, drive);
         LoggerFactory child = parent.child(this);
         m_input = new AnalogInput(channel);
-        m_voltage = Memo.ofDouble(m_input::getVoltage);
-        m_rail = Memo.ofDouble(RobotController::getVoltage5V);
+        m_sensors = Sense.group(Bus.RIO);
+        m_voltage = m_sensors.add(m_input::getVoltage);
+        m_rail = m_sensors.add(RobotController::getVoltage5V);
         child.intLogger(Level.TRACE, "channel").log(m_input::getChannel);
         m_log_voltage = child.doubleLogger(Level.TRACE, "voltage");
         m_log_ratio = child.doubleLogger(Level.TRACE, "ratio");
@@ -50,6 +52,7 @@ public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
 
     @Override
     public void close() {
+        m_sensors.close();
         m_input.close();
     }
 
@@ -62,4 +65,9 @@ public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
         m_log_ratio.log(() -> ratio);
         return OptionalDouble.of(ratio);
     }
+
+    @Override
+    protected OptionalDouble getRatioNow() {
+        return OptionalDouble.of(m_voltage.read() / m_rail.read());
+    }
 }
@@ -10,7 +10,6 @@ import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.OptionalDoubleLogger;
 import org.team100.lib.motion.mechanism.RotaryMechanism;
-import org.team100.lib.util.Memo;
 
 import edu.wpi.first.math.MathUtil;
 
@@ -74,7 +73,6 @@ public class CombinedEncoder implements RotaryPositionSensor {
      * Setting the encoder position is very slow, so just do it once.
      */
     void sync() {
-        Memo.resetAll();
         // Assume the mechanism is stationary at startup, average a few measurements to
         // remove a little bit of noise.
         double sin = 0;
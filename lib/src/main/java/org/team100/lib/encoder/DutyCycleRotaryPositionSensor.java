@@ -1,12 +1,12 @@
 package org.team100.lib.encoder;
 
 import java.util.OptionalDouble;
-import java.util.function.DoubleSupplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
-import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
+import org.team100.lib.util.Sense.Bus;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.wpilibj.DigitalInput;
@@ -21,8 +21,9 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
     private final int m_channel;
     private final DigitalInput m_digitalInput;
     private final DutyCycle m_dutyCycle;
-    // CACHES
-    private final DoubleSupplier m_duty;
+    // SENSORS
+    private final Sense.Group m_sensors;
+    private final Sense.Channel m_duty;
     // LOGGERS
     private final DoubleLogger m_log_duty;
 
@@ -40,13 +41,15 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
         m_channel = channel;
         m_digitalInput = new DigitalInput(channel);
         m_dutyCycle = new DutyCycle(m_digitalInput);
-        m_duty = Memo.ofDouble(m_dutyCycle::getOutput);
+        m_sensors = Sense.group(Bus.RIO);
+        m_duty = m_sensors.add(m_dutyCycle::getOutput);
         m_log_duty = child.doubleLogger(Level.TRACE, "duty cycle");
         child.intLogger(Level.TRACE, "channel").log(() -> channel);
     }
 
     @Override
     public void close() {
+        m_sensors.close();
         m_dutyCycle.close();
         m_digitalInput.close();
     }
@@ -68,6 +71,13 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
         return OptionalDouble.of(dutyCycle);
     }
 
+    @Override
+    protected OptionalDouble getRatioNow() {
+        if (!isConnected())
+            return OptionalDouble.empty();
+        return OptionalDouble.of(m_duty.read());
+    }
+
     private boolean isConnected() {
         return m_dutyCycle.getFrequency() > kFrequencyThreshold;
     }
@@ -45,6 +45,12 @@ public abstract class RoboRioRotaryPositionSensor implements RotaryPositionSenso
     /** Implementations should cache this. */
     protected abstract OptionalDouble getRatio();
 
+    /**
+     * Read directly, not from the sense snapshot, without logging. Empty if
+     * the sensor isn't working.
+     */
+    protected abstract OptionalDouble getRatioNow();
+
     protected abstract double m_sensorMin();
 
     protected abstract double m_sensorMax();
@@ -57,6 +63,20 @@ public abstract class RoboRioRotaryPositionSensor implements RotaryPositionSenso
         return positionRad;
     }
 
+    /**
+     * Reads the sensor now, bypassing the sense snapshot, without logging, for
+     * OdometryThread, which runs faster than the main loop.
+     * 
+     * @return radians, [-pi, pi]
+     */
+    public OptionalDouble getPositionRadNow() {
+        OptionalDouble ratio = getRatioNow();
+        if (ratio.isEmpty())
+            return OptionalDouble.empty();
+        double posTurns = mapSensorRange(ratio.getAsDouble());
+        return OptionalDouble.of(toRad(posTurns - m_positionOffset));
+    }
+
     /** map to full [0,1] */
     protected double mapSensorRange(double pos) {
         // map sensor range
@@ -86,11 +106,16 @@ public abstract class RoboRioRotaryPositionSensor implements RotaryPositionSenso
         double turnsMinusOffset = posTurns - m_positionOffset;
         m_log_position_turns_offset.log(() -> turnsMinusOffset);
 
+        return OptionalDouble.of(toRad(turnsMinusOffset));
+    }
+
+    /** @return radians, [-pi, pi] */
+    private double toRad(double turnsMinusOffset) {
         switch (m_drive) {
             case DIRECT:
-                return OptionalDouble.of(MathUtil.angleModulus(turnsMinusOffset * kTwoPi));
+                return MathUtil.angleModulus(turnsMinusOffset * kTwoPi);
             case INVERSE:
-                return OptionalDouble.of(MathUtil.angleModulus(-1.0 * turnsMinusOffset * kTwoPi));
+                return MathUtil.angleModulus(-1.0 * turnsMinusOffset * kTwoPi);
             default:
                 throw new IllegalArgumentException();
         }
@@ -1,9 +1,9 @@
 package org.team100.lib.experiments;
 
-import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
 
 import org.team100.lib.config.Identity;
@@ -21,6 +21,10 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * -- per-identity: enabled for specific RoboRIO serial numbers
  * -- override: using a Sendable Chooser in a dashboard, e.g. glass.
  * -- test override: to force a config for unit tests.
+ * 
+ * Dashboard changes arrive through chooser listeners. All the flags are
+ * resolved into a bitset once per loop, in periodic(), so enabled() is just a
+ * bit test, and the flags don't change in the middle of a loop.
  */
 public class Experiments implements Glassy {
     public static final Experiments instance = new Experiments(Identity.instance);
@@ -38,46 +42,90 @@ public class Experiments implements Glassy {
     /** Computed for the actual identity used. */
     private final Set<Experiment> m_experiments;
 
-    /** Starts with the config above, but can be overridden. */
-    private final Map<Experiment, SendableChooser<BooleanSupplier>> m_overrides;
+    /**
+     * Dashboard selections, one bit per experiment, updated by the chooser
+     * listeners whenever a selection changes.
+     */
+    private final AtomicLong m_selected;
+
+    /** Which experiments have test overrides. */
+    private long m_testMask;
+    /** The test override values. */
+    private long m_testBits;
 
-    private final Map<Experiment, Boolean> m_testOverrides;
+    /**
+     * The flags for this loop iteration, see periodic(). Volatile so that other
+     * threads don't see a torn value.
+     */
+    private volatile long m_bits;
 
     private Experiments(Identity identity) {
+        if (Experiment.values().length > Long.SIZE)
+            throw new IllegalStateException("too many experiments for the bitset");
         m_experiments = EnumSet.copyOf(globalExperiments);
         m_experiments.addAll(experimentsByIdentity.getOrDefault(identity, EnumSet.noneOf(Experiment.class)));
-        m_overrides = new EnumMap<>(Experiment.class);
-        m_testOverrides = new EnumMap<>(Experiment.class);
+        m_selected = new AtomicLong();
         for (Experiment e : Experiment.values()) {
             SendableChooser<BooleanSupplier> override = ExperimentChooser.get(e.name());
             if (m_experiments.contains(e)) {
                 override.setDefaultOption(on(e), () -> true);
                 override.addOption(off(e), () -> false);
+                m_selected.getAndUpdate(x -> x | bit(e));
             } else {
                 override.addOption(on(e), () -> true);
                 override.setDefaultOption(off(e), () -> false);
             }
-            m_overrides.put(e, override);
+            // The dashboard selection starts with the config above, but can be
+            // overridden.
+            override.onChange(v -> {
+                if (v != null)
+                    select(e, v.getAsBoolean());
+            });
             SmartDashboard.putData(override);
         }
+        periodic();
+    }
+
+    /**
+     * Resolves all the flags for this loop iteration, so they stay consistent
+     * until the next call. This should be run in Robot.robotPeriodic().
+     */
+    public void periodic() {
+        m_bits = (m_selected.get() & ~m_testMask) | (m_testBits & m_testMask);
     }
 
     /** overrides everything. for testing only. */
     public void testOverride(Experiment experiment, boolean state) {
-        m_testOverrides.put(experiment, state);
+        m_testMask |= bit(experiment);
+        if (state) {
+            m_testBits |= bit(experiment);
+        } else {
+            m_testBits &= ~bit(experiment);
+        }
+        // tests don't run periodic() so apply it now.
+        periodic();
     }
 
+    /** As of the most recent periodic() call. */
     public boolean enabled(Experiment experiment) {
-        if (m_testOverrides.containsKey(experiment)) {
-            return m_testOverrides.get(experiment);
-        }
-        return m_overrides.get(experiment).getSelected().getAsBoolean();
+        return (m_bits & bit(experiment)) != 0;
     }
 
-    
-
     ////////////////////////////////////////
 
+    /** Runs in the chooser listener. */
+    private void select(Experiment e, boolean state) {
+        if (state) {
+            m_selected.getAndUpdate(x -> x | bit(e));
+        } else {
+            m_selected.getAndUpdate(x -> x & ~bit(e));
+        }
+    }
+
+    private static long bit(Experiment e) {
+        return 1L << e.ordinal();
+    }
+
     private String on(Experiment e) {
         return e.name() + " ON";
     }
@@ -0,0 +1,58 @@
+package org.team100.lib.framework;
+
+/**
+ * Counts durations in fixed-width buckets, so that percentiles are cheap and
+ * recording makes no objects.
+ *
+ * Buckets are 0.1 ms wide, up to 100 ms, which covers anything we'd want to
+ * run in a 20 ms loop. Longer durations go in the last bucket; the max is
+ * exact.
+ */
+public class DurationHistogram {
+    private static final double kBucketWidthS = 0.0001;
+    private static final int kBuckets = 1000;
+
+    private final long[] m_counts = new long[kBuckets];
+    private long m_total;
+    private double m_maxS;
+
+    public void add(double durationS) {
+        int i = (int) (durationS / kBucketWidthS);
+        if (i < 0)
+            i = 0;
+        if (i >= kBuckets)
+            i = kBuckets - 1;
+        m_counts[i]++;
+        m_total++;
+        if (durationS > m_maxS)
+            m_maxS = durationS;
+    }
+
+    /**
+     * @param q quantile, in [0,1]
+     * @return upper edge of the bucket containing the quantile, or the max if
+     *         that's lower, or zero if there's nothing here.
+     */
+    public double quantile(double q) {
+        if (m_total == 0)
+            return 0;
+        long rank = (long) Math.ceil(q * m_total);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int i = 0; i < kBuckets; ++i) {
+            seen += m_counts[i];
+            if (seen >= rank)
+                return Math.min((i + 1) * kBucketWidthS, m_maxS);
+        }
+        return m_maxS;
+    }
+
+    public double max() {
+        return m_maxS;
+    }
+
+    public long count() {
+        return m_total;
+    }
+}
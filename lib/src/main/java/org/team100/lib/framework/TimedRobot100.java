@@ -8,6 +8,9 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.hal.NotifierJNI;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 
 import org.team100.lib.dashboard.Glassy;
@@ -15,6 +18,7 @@ import org.team100.lib.logging.Level;
 import org.team100.lib.logging.Logging;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
 
 /**
  * Copy of {@link edu.wpi.first.wpilibj.TimedRobot} in an effort to improve
@@ -22,12 +26,44 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
  */
 public class TimedRobot100 extends IterativeRobotBase implements Glassy {
 
+    /**
+     * In the deadline-aware scheduler, callbacks that are ready at the same time
+     * run in priority order, and low-priority callbacks give way to high-priority
+     * ones.
+     */
+    public enum Priority {
+        /** Never skipped, e.g. the main control loop. */
+        HIGH,
+        /** Telemetry, polling, etc: skipped or coalesced when time is short. */
+        LOW
+    }
+
     static class Callback implements Comparable<Callback> {
         public Runnable func;
         public double period;
         public double expirationTime;
+        public Priority priority;
+        /** Allowed time from expiration to completion. */
+        public double deadline;
         public DoubleLogger logger;
 
+        private final DurationHistogram m_histogram;
+        private final DoubleLogger m_log_p50;
+        private final DoubleLogger m_log_p99;
+        private final DoubleLogger m_log_max;
+        private final IntLogger m_log_overruns;
+        private final IntLogger m_log_skips;
+        /**
+         * Prediction of the next run duration: the latest run, or the decayed
+         * estimate, whichever is longer. Skips decay it too, so one slow run
+         * doesn't keep the callback from running forever.
+         */
+        private double m_expectedDurationS;
+        private int m_overruns;
+        private int m_skips;
+        /** Skips since the last run. */
+        private int m_consecutiveSkips;
+
         /**
          * Construct a callback container.
          *
@@ -36,10 +72,13 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
          *                         in seconds.
          * @param periodSeconds    The period at which to run the callback in seconds.
          * @param offsetSeconds    The offset from the common starting time in seconds.
+         * @param priority         Used by the deadline-aware scheduler.
+         * @param deadlineSeconds  Completion later than this, after the expiration
+         *                         time, is an overrun.
          * @param name             for logging
          */
         Callback(LoggerFactory logger, Runnable func, double startTimeSeconds, double periodSeconds,
-                double offsetSeconds, String name) {
+                double offsetSeconds, Priority priority, double deadlineSeconds, String name) {
             this.func = func;
             this.period = periodSeconds;
             this.expirationTime = startTimeSeconds
@@ -47,7 +86,15 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
                     + Math.floor((Timer.getFPGATimestamp() - startTimeSeconds) / this.period)
                             * this.period
                     + this.period;
+            this.priority = priority;
+            this.deadline = deadlineSeconds;
             this.logger = logger.doubleLogger(Level.COMP, "duration (s)/" + name);
+            m_histogram = new DurationHistogram();
+            m_log_p50 = logger.doubleLogger(Level.COMP, "duration p50 (s)/" + name);
+            m_log_p99 = logger.doubleLogger(Level.COMP, "duration p99 (s)/" + name);
+            m_log_max = logger.doubleLogger(Level.COMP, "duration max (s)/" + name);
+            m_log_overruns = logger.intLogger(Level.COMP, "overruns/" + name);
+            m_log_skips = logger.intLogger(Level.COMP, "skips/" + name);
         }
 
         public void run() {
@@ -56,8 +103,71 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
             func.run();
             double endWaitingS = Timer.getFPGATimestamp();
             double durationS = endWaitingS - startWaitingS;
-            this.logger.log(() -> durationS);
+            this.logger.log(durationS);
+
+            m_expectedDurationS = Math.max(durationS, m_expectedDurationS * kDurationDecay);
+            m_consecutiveSkips = 0;
+            m_histogram.add(durationS);
+            if (endWaitingS > expirationTime + deadline) {
+                m_overruns++;
+                m_log_overruns.log(m_overruns);
+            }
+            if (m_histogram.count() % kStatsRuns == 0) {
+                m_log_p50.log(m_histogram.quantile(0.5));
+                m_log_p99.log(m_histogram.quantile(0.99));
+                m_log_max.log(m_histogram.max());
+            }
+        }
+
+        /**
+         * True if the next run would probably not finish before the next
+         * high-priority callback, unless this has been skipped too many times in
+         * a row, in which case it runs anyway.
+         */
+        boolean shouldSkip(double nowS, double nextHighPriorityS) {
+            if (m_consecutiveSkips >= kMaxConsecutiveSkips)
+                return false;
+            return nowS + m_expectedDurationS > nextHighPriorityS;
+        }
 
+        /** Don't run this time; the next run is the next period after now. */
+        void skip(double nowS) {
+            m_skips++;
+            m_consecutiveSkips++;
+            m_expectedDurationS *= kDurationDecay;
+            m_log_skips.log(m_skips);
+            expirationTime += period;
+            coalesce(nowS);
+        }
+
+        /**
+         * Advance to the next period. Low-priority callbacks that are more than a
+         * period late run once, not once for each missed period.
+         */
+        void reschedule(double nowS) {
+            expirationTime += period;
+            if (priority == Priority.LOW)
+                coalesce(nowS);
+        }
+
+        private void coalesce(double nowS) {
+            if (expirationTime > nowS)
+                return;
+            double missed = Math.ceil((nowS - expirationTime) / period);
+            m_skips += (int) missed;
+            m_log_skips.log(m_skips);
+            expirationTime += missed * period;
+            if (expirationTime <= nowS)
+                expirationTime += period;
+        }
+
+        /** Prediction of how long the next run will take. */
+        double expectedDuration() {
+            return m_expectedDurationS;
+        }
+
+        int skips() {
+            return m_skips;
         }
 
         @Override
@@ -81,6 +191,31 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         }
     }
 
+    /**
+     * Ready callbacks: high priority first, then by expiration.
+     */
+    private static final Comparator<Callback> kReadyOrder = Comparator
+            .comparing((Callback c) -> c.priority)
+            .thenComparingDouble(c -> c.expirationTime);
+
+    /**
+     * If true, use the deadline-aware scheduler; if false, run callbacks in
+     * expiration order, back-to-back, like TimedRobot.
+     */
+    private static final boolean kDeadlineScheduling = true;
+
+    /**
+     * The expected duration of a low-priority callback shrinks by this factor
+     * each time it's skipped, and each time it runs faster than expected.
+     */
+    private static final double kDurationDecay = 0.5;
+
+    /** Low-priority callbacks run anyway after this many skips in a row. */
+    private static final int kMaxConsecutiveSkips = 10;
+
+    /** Log duration percentiles every this many runs of each callback. */
+    private static final int kStatsRuns = 50;
+
     /**
      * Fixed loop period.
      * All uses of dt should refer to TimedRobot100.LOOP_PERIOD_S.
@@ -98,6 +233,9 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
 
     private final PriorityQueue<Callback> m_callbacks = new PriorityQueue<>();
 
+    /** Scratch for the deadline-aware scheduler. */
+    private final List<Callback> m_ready = new ArrayList<>();
+
     private final DoubleLogger m_log_slack;
 
     protected TimedRobot100() {
@@ -105,7 +243,8 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         m_robotLogger = Logging.instance().rootLogger.child(this);
         m_log_slack = m_robotLogger.doubleLogger(Level.COMP, "slack time (s)");
         m_startTime = Timer.getFPGATimestamp();
-        addPeriodic(this::loopFunc, TimedRobot100.LOOP_PERIOD_S, "main loop");
+        addPeriodic(this::loopFunc, TimedRobot100.LOOP_PERIOD_S, 0.0,
+                Priority.HIGH, TimedRobot100.LOOP_PERIOD_S, "main loop");
         NotifierJNI.setNotifierName(m_notifier, "TimedRobot");
         HAL.report(tResourceType.kResourceType_Framework, tInstances.kFramework_Timed);
     }
@@ -129,6 +268,15 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         System.out.println("********** Robot program startup complete **********");
         DriverStationJNI.observeUserProgramStarting();
 
+        if (kDeadlineScheduling) {
+            runDeadlineScheduler();
+        } else {
+            runExpirationScheduler();
+        }
+    }
+
+    /** Runs callbacks in expiration order, back-to-back. */
+    private void runExpirationScheduler() {
         // Loop forever, calling the appropriate mode-dependent function
         while (true) {
             // We don't have to check there's an element in the queue first because
@@ -136,19 +284,11 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
             // at the end of the loop.
             Callback callback = m_callbacks.poll();
 
-            NotifierJNI.updateNotifierAlarm(m_notifier, (long) (callback.expirationTime * 1e6));
-
-            // how long do we spend waiting?
-            double startWaitingS = Timer.getFPGATimestamp();
-            long curTime = NotifierJNI.waitForNotifierAlarm(m_notifier);
+            long curTime = waitFor(callback);
             if (curTime == 0) {
                 // someone called StopNotifier
                 break;
             }
-            double endWaitingS = Timer.getFPGATimestamp();
-            double slackS = endWaitingS - startWaitingS;
-            // this is the main loop slack, don't let it go to zero!
-            m_log_slack.log(() -> slackS);
 
             callback.run();
 
@@ -169,6 +309,77 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         }
     }
 
+    /**
+     * Runs all the ready callbacks in priority order. Low-priority callbacks are
+     * skipped if they would probably delay the next high-priority one (but not
+     * too many times in a row), and coalesced if they fall more than a period
+     * behind.
+     */
+    private void runDeadlineScheduler() {
+        while (true) {
+            long curTime = waitFor(m_callbacks.peek());
+            if (curTime == 0) {
+                // someone called StopNotifier
+                break;
+            }
+
+            // Collect everything that's ready, including the head.
+            m_ready.clear();
+            while (!m_callbacks.isEmpty()
+                    && (long) (m_callbacks.peek().expirationTime * 1e6) <= curTime) {
+                m_ready.add(m_callbacks.poll());
+            }
+            m_ready.sort(kReadyOrder);
+
+            for (int i = 0; i < m_ready.size(); ++i) {
+                Callback callback = m_ready.get(i);
+                double nowS = Timer.getFPGATimestamp();
+                if (callback.priority == Priority.LOW
+                        && callback.shouldSkip(nowS, nextHighPriority())) {
+                    callback.skip(nowS);
+                } else {
+                    callback.run();
+                    callback.reschedule(Timer.getFPGATimestamp());
+                }
+                m_callbacks.add(callback);
+            }
+        }
+    }
+
+    /**
+     * @return the earliest expiration of the waiting high-priority callbacks, or
+     *         infinity if there aren't any.
+     */
+    private double nextHighPriority() {
+        double next = Double.POSITIVE_INFINITY;
+        for (Callback c : m_callbacks) {
+            if (c.priority == Priority.HIGH)
+                next = Math.min(next, c.expirationTime);
+        }
+        return next;
+    }
+
+    /**
+     * Waits for the callback's expiration time.
+     * 
+     * @return the notifier time in microseconds, or zero if the notifier was
+     *         stopped.
+     */
+    private long waitFor(Callback callback) {
+        NotifierJNI.updateNotifierAlarm(m_notifier, (long) (callback.expirationTime * 1e6));
+
+        // how long do we spend waiting?
+        double startWaitingS = Timer.getFPGATimestamp();
+        long curTime = NotifierJNI.waitForNotifierAlarm(m_notifier);
+        if (curTime == 0)
+            return 0;
+        double endWaitingS = Timer.getFPGATimestamp();
+        double slackS = endWaitingS - startWaitingS;
+        // this is the main loop slack, don't let it go to zero!
+        m_log_slack.log(slackS);
+        return curTime;
+    }
+
     /** Ends the main loop in startCompetition(). */
     @Override
     public void endCompetition() {
@@ -187,7 +398,7 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
      * @param periodSeconds The period at which to run the callback in seconds.
      */
     public final void addPeriodic(Runnable callback, double periodSeconds, String name) {
-        m_callbacks.add(new Callback(m_robotLogger, callback, m_startTime, periodSeconds, 0.0, name));
+        addPeriodic(callback, periodSeconds, 0.0, name);
     }
 
     /**
@@ -206,7 +417,30 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
      *                      to TimedRobot.
      */
     public final void addPeriodic(Runnable callback, double periodSeconds, double offsetSeconds, String name) {
-        m_callbacks.add(new Callback(m_robotLogger, callback, m_startTime, periodSeconds, offsetSeconds, name));
+        addPeriodic(callback, periodSeconds, offsetSeconds, Priority.LOW, periodSeconds, name);
+    }
+
+    /**
+     * Add a callback with a priority and deadline, for the deadline-aware
+     * scheduler. Callbacks added without these are low priority, with a deadline
+     * of one period.
+     *
+     * @param callback        The callback to run.
+     * @param periodSeconds   The period at which to run the callback in seconds.
+     * @param offsetSeconds   The offset from the common starting time in seconds.
+     * @param priority        High-priority callbacks are never skipped.
+     * @param deadlineSeconds Completion later than this, after the scheduled
+     *                        time, is counted as an overrun.
+     */
+    public final void addPeriodic(
+            Runnable callback,
+            double periodSeconds,
+            double offsetSeconds,
+            Priority priority,
+            double deadlineSeconds,
+            String name) {
+        m_callbacks.add(new Callback(m_robotLogger, callback, m_startTime, periodSeconds,
+                offsetSeconds, priority, deadlineSeconds, name));
     }
 
 }
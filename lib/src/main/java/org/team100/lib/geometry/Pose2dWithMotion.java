@@ -104,6 +104,11 @@ public class Pose2dWithMotion {
         return getPose().getRotation();
     }
 
+    /** Change in location and heading per meter traveled. */
+    public Twist2d getFieldRelativeMotionDirection() {
+        return m_fieldRelativeMotionDirection;
+    }
+
     // i think the interpolation of motion direction is invalid; it would yield
     // results not on the unit circle, which makes no sense. maybe the consumers of
     // motion direction always derive the angle anyway?
@@ -6,8 +6,8 @@ import java.util.Objects;
 import org.team100.lib.motion.drivetrain.SwerveState;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveDriveKinematics100;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
-import org.team100.lib.util.DriveUtil;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.interpolation.Interpolatable;
@@ -28,8 +28,11 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
     // The current gyro angle.
     final Rotation2d m_gyroAngle;
 
-    // The current encoder readings.
-    final SwerveModulePosition100[] m_wheelPositions;
+    // The current encoder readings, distances and angles, so the replay doesn't
+    // have to unwrap them.
+    final double[] m_wheelDistM;
+    /** Radians, NaN if unknown. */
+    final double[] m_wheelAngleRad;
 
     /**
      * Constructs an Interpolation Record with the specified parameters.
@@ -47,12 +50,32 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
         m_kinematics = kinematics;
         m_state = state;
         m_gyroAngle = gyro;
-        m_wheelPositions = new SwerveModulePosition100[wheelPositions.length];
+        m_wheelDistM = new double[wheelPositions.length];
+        m_wheelAngleRad = new double[wheelPositions.length];
         for (int i = 0; i < wheelPositions.length; ++i) {
-            m_wheelPositions[i] = wheelPositions[i].copy();
+            m_wheelDistM[i] = wheelPositions[i].distanceMeters;
+            m_wheelAngleRad[i] = wheelPositions[i].angle.map(Rotation2d::getRadians).orElse(Double.NaN);
         }
     }
 
+    /**
+     * @param wheelDistM     The current wheel distances. Makes a copy.
+     * @param wheelAngleRad  The current wheel angles, radians, NaN if unknown.
+     *                       Makes a copy.
+     */
+    InterpolationRecord(
+            SwerveDriveKinematics100 kinematics,
+            SwerveState state,
+            Rotation2d gyro,
+            double[] wheelDistM,
+            double[] wheelAngleRad) {
+        m_kinematics = kinematics;
+        m_state = state;
+        m_gyroAngle = gyro;
+        m_wheelDistM = wheelDistM.clone();
+        m_wheelAngleRad = wheelAngleRad.clone();
+    }
+
     /**
      * Return the "interpolated" record. This object is assumed to be the starting
      * position, or lower bound.
@@ -75,10 +98,16 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
         if (t >= 1) {
             return endValue;
         }
-        // Find the new wheel distances.
-        SwerveModulePosition100[] wheelLerp = new SwerveModulePosition100[m_wheelPositions.length];
-        for (int i = 0; i < m_wheelPositions.length; ++i) {
-            wheelLerp[i] = m_wheelPositions[i].interpolate(endValue.m_wheelPositions[i], t);
+        // Find the new wheel distances and angles, like
+        // SwerveModulePosition100.interpolate().
+        int n = m_wheelDistM.length;
+        double[] distLerp = new double[n];
+        double[] angleLerp = new double[n];
+        for (int i = 0; i < n; ++i) {
+            distLerp[i] = MathUtil.interpolate(m_wheelDistM[i], endValue.m_wheelDistM[i], t);
+            // NaN if either is unknown
+            angleLerp[i] = m_wheelAngleRad[i]
+                    + t * MathUtil.angleModulus(endValue.m_wheelAngleRad[i] - m_wheelAngleRad[i]);
         }
 
         // Find the new gyro angle.
@@ -86,15 +115,15 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
 
         // Create a twist to represent the change based on the interpolated sensor
         // inputs.
-        Twist2d twist = m_kinematics.toTwist2d(
-                DriveUtil.modulePositionDelta(m_wheelPositions, wheelLerp));
-        twist.dtheta = gyroLerp.minus(m_gyroAngle).getRadians();
+        double[] delta = new double[3];
+        m_kinematics.toTwist2d(m_wheelDistM, m_wheelAngleRad, distLerp, angleLerp, delta);
+        Twist2d twist = new Twist2d(delta[0], delta[1], gyroLerp.minus(m_gyroAngle).getRadians());
 
         SwerveState newState = new SwerveState(
                 m_state.pose().exp(twist),
                 m_state.velocity(),
                 m_state.acceleration());
-        return new InterpolationRecord(m_kinematics, newState, gyroLerp, wheelLerp);
+        return new InterpolationRecord(m_kinematics, newState, gyroLerp, distLerp, angleLerp);
     }
 
     @Override
@@ -107,19 +136,21 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
         }
         InterpolationRecord rec = (InterpolationRecord) obj;
         return Objects.equals(m_gyroAngle, rec.m_gyroAngle)
-                && Objects.equals(m_wheelPositions, rec.m_wheelPositions)
+                && Arrays.equals(m_wheelDistM, rec.m_wheelDistM)
+                && Arrays.equals(m_wheelAngleRad, rec.m_wheelAngleRad)
                 && Objects.equals(m_state, rec.m_state);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(m_gyroAngle, m_wheelPositions, m_state);
+        return Objects.hash(m_gyroAngle, Arrays.hashCode(m_wheelDistM), Arrays.hashCode(m_wheelAngleRad), m_state);
     }
 
     @Override
     public String toString() {
         return "InterpolationRecord [m_poseMeters=" + m_state + ", m_gyroAngle=" + m_gyroAngle
-                + ", m_wheelPositions=" + Arrays.toString(m_wheelPositions) + "]";
+                + ", m_wheelDistM=" + Arrays.toString(m_wheelDistM)
+                + ", m_wheelAngleRad=" + Arrays.toString(m_wheelAngleRad) + "]";
     }
 
 }
\ No newline at end of file
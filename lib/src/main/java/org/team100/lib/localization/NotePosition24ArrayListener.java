@@ -1,6 +1,5 @@
 package org.team100.lib.localization;
 
-import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
@@ -9,7 +8,6 @@ import java.util.function.Supplier;
 import org.team100.lib.config.Camera;
 import org.team100.lib.config.Identity;
 import org.team100.lib.config.SimulatedCamera;
-import org.team100.lib.util.NotePicker;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -32,23 +30,29 @@ import edu.wpi.first.wpilibj.Timer;
  * Listen for updates from the note-detector camera and remember them for
  * awhile.
  * 
- * TODO: as described below, use a buffer here, don't just remember the very
- * last thing the camera saw. Also use multiple sights to get a better idea of
- * where the target is.
+ * Each frame of sights is projected onto the field once, when it arrives, and
+ * added to a NoteTracker, which combines sights across frames, so the queries
+ * here are cheap.
  */
 public class NotePosition24ArrayListener {
-    /** Ignore sights older than this. */
-    private static final double kMaxSightAgeS = 0.1;
+    /** More notes than we'd ever see at once. */
+    private static final int kMaxTracks = 16;
+    /** In simulation, make a frame this often. */
+    private static final double kSimPeriodS = 0.02;
     private StructBuffer<Rotation3d> m_buf = StructBuffer.create(Rotation3d.struct);
-    private List<Translation2d> notes = new ArrayList<>();
+    private final NoteTracker m_tracker = new NoteTracker(kMaxTracks);
     private final Supplier<Pose2d> m_poseSupplier;
     private final NetworkTableListenerPoller m_poller;
 
-    private double latestTime = 0;
+    private double m_simTimeS = Double.NEGATIVE_INFINITY;
 
     public NotePosition24ArrayListener(Supplier<Pose2d> poseSupplier) {
+        this(poseSupplier, NetworkTableInstance.getDefault());
+    }
+
+    /** Package-private for testing. */
+    NotePosition24ArrayListener(Supplier<Pose2d> poseSupplier, NetworkTableInstance inst) {
         m_poseSupplier = poseSupplier;
-        NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_poller = new NetworkTableListenerPoller(inst);
         m_poller.addListener(
                 new MultiSubscriber(
@@ -59,6 +63,12 @@ public class NotePosition24ArrayListener {
     }
 
     public void update() {
+        double now = Timer.getFPGATimestamp();
+        if (Identity.instance == Identity.BLANK) {
+            updateSim(now);
+        }
+        // age the old sights even if there's nothing new.
+        m_tracker.predict(now);
         for (NetworkTableEvent e : m_poller.readQueue()) {
             ValueEventData ve = e.valueData;
             NetworkTableValue v = ve.value;
@@ -82,7 +92,6 @@ public class NotePosition24ArrayListener {
                 try {
                     synchronized (m_buf) {
                         sights = m_buf.readArray(b);
-                        latestTime = Timer.getFPGATimestamp();
                     }
                 } catch (RuntimeException ex) {
                     return;
@@ -90,11 +99,10 @@ public class NotePosition24ArrayListener {
                 Transform3d cameraInRobotCoordinates = Camera.get(fields[1]).getOffset();
                 // TODO: this should use the timestamp of the camera data, not the current time.
                 Pose2d robotPose = m_poseSupplier.get();
-                // TODO: this should accumulate sights, not replace the list every time.
-                notes = TargetLocalizer.cameraRotsToFieldRelativeArray(
+                m_tracker.add(now, TargetLocalizer.cameraRotsToFieldRelativeArray(
                         robotPose,
                         cameraInRobotCoordinates,
-                        sights);
+                        sights));
             } else {
                 Util.warn("note weird vision update key: " + name);
             }
@@ -106,24 +114,7 @@ public class NotePosition24ArrayListener {
      */
     public List<Translation2d> getTranslation2dArray() {
         update();
-        Pose2d robotPose = m_poseSupplier.get();
-        switch (Identity.instance) {
-            case BLANK:
-                SimulatedCamera simCamera = SimulatedCamera.getGamePieceCamera();
-                Optional<Alliance> alliance = DriverStation.getAlliance();
-                if (alliance.isEmpty())
-                    return new ArrayList<>();
-                List<Rotation3d> rot = simCamera.getKnownLocations(alliance.get(), robotPose);
-                return TargetLocalizer.cameraRotsToFieldRelativeArray(
-                        robotPose,
-                        simCamera.getOffset(),
-                        rot.toArray(new Rotation3d[0]));
-            default:
-                if (latestTime > Timer.getFPGATimestamp() - kMaxSightAgeS) {
-                    return notes;
-                }
-                return new ArrayList<>();
-        }
+        return m_tracker.getTranslations();
     }
 
     /**
@@ -132,8 +123,23 @@ public class NotePosition24ArrayListener {
     public Optional<Translation2d> getClosestTranslation2d() {
         update();
         Pose2d robotPose = m_poseSupplier.get();
-        return NotePicker.closestNote(
-                getTranslation2dArray(),
-                robotPose);
+        return m_tracker.closest(robotPose.getTranslation());
+    }
+
+    /** The simulated camera sees the known note locations. */
+    private void updateSim(double now) {
+        if (now - m_simTimeS < kSimPeriodS)
+            return;
+        m_simTimeS = now;
+        Optional<Alliance> alliance = DriverStation.getAlliance();
+        if (alliance.isEmpty())
+            return;
+        SimulatedCamera simCamera = SimulatedCamera.getGamePieceCamera();
+        Pose2d robotPose = m_poseSupplier.get();
+        List<Rotation3d> rot = simCamera.getKnownLocations(alliance.get(), robotPose);
+        m_tracker.add(now, TargetLocalizer.cameraRotsToFieldRelativeArray(
+                robotPose,
+                simCamera.getOffset(),
+                rot.toArray(new Rotation3d[0])));
     }
-}
\ No newline at end of file
+}
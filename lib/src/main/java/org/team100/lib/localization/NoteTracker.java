@@ -0,0 +1,296 @@
+package org.team100.lib.localization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Remembers field-relative note positions across camera frames.
+ *
+ * Each track is a note position and velocity, smoothed with an alpha-beta
+ * filter, and a confidence, which rises with each sight and decays with time.
+ * Notes are mostly still, but they do get pushed around, so the filter follows
+ * them slowly.
+ *
+ * Sights are associated with tracks using a coarse grid over the field, so each
+ * sight only looks at the tracks in the neighboring cells. Each track takes at
+ * most one sight per frame; sights that don't match any track start new ones.
+ *
+ * The tracks are stored in parallel arrays of fixed size, so a frame doesn't
+ * allocate, and all the queries are bounded by the (small) capacity.
+ *
+ * This isn't thread-safe; use it from one thread.
+ */
+public class NoteTracker {
+    /** Sights further than this from a track start new tracks. */
+    private static final double kGateM = 0.5;
+    /** Position gain. */
+    private static final double kAlpha = 0.3;
+    /** Velocity gain. */
+    private static final double kBeta = 0.05;
+    /** Confidence of a new track, and the increase for each sight. */
+    private static final double kHitConfidence = 0.5;
+    /** Confidence decays by 1/e in this time. */
+    private static final double kDecayTimeS = 0.5;
+    /** Tracks less confident than this aren't reported. */
+    private static final double kReportConfidence = 0.25;
+    /** Tracks less confident than this are forgotten. */
+    private static final double kDropConfidence = 0.1;
+    /** Don't update velocity with frames closer together than this. */
+    private static final double kMinDtS = 0.01;
+    /** Notes don't go very fast. */
+    private static final double kMaxSpeedM_S = 2;
+
+    // grid covers the field plus a margin, sights outside go in the edge cells.
+    private static final double kMinX = -1;
+    private static final double kMinY = -1;
+    private static final int kCellsX = (int) Math.ceil((16.54 + 2) / kGateM);
+    private static final int kCellsY = (int) Math.ceil((8.21 + 2) / kGateM);
+
+    private final int m_capacity;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_vx;
+    private final double[] m_vy;
+    private final double[] m_confidence;
+    /**
+     * Time of the last sight of each track, for the velocity update. This isn't
+     * the prediction time: callers predict more often than they add, and
+     * several cameras can add frames at the same time.
+     */
+    private final double[] m_seenS;
+    private final boolean[] m_live;
+    /** Matched in the current frame. */
+    private final boolean[] m_matched;
+    /** First track in each cell, or -1. */
+    private final int[] m_cellHead;
+    /** Next track in the same cell, or -1. */
+    private final int[] m_cellNext;
+
+    /** Time of the last prediction. */
+    private double m_timeS = Double.NaN;
+    /** Incremented whenever the tracks change, for caching. */
+    private int m_version;
+    private int m_cachedVersion = -1;
+    private List<Translation2d> m_cached = Collections.emptyList();
+
+    public NoteTracker(int capacity) {
+        m_capacity = capacity;
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_vx = new double[capacity];
+        m_vy = new double[capacity];
+        m_confidence = new double[capacity];
+        m_seenS = new double[capacity];
+        m_live = new boolean[capacity];
+        m_matched = new boolean[capacity];
+        m_cellHead = new int[kCellsX * kCellsY];
+        m_cellNext = new int[capacity];
+    }
+
+    /**
+     * Add one camera frame.
+     *
+     * @param timeS  when the frame was taken
+     * @param sights field-relative note positions
+     */
+    public void add(double timeS, List<Translation2d> sights) {
+        predict(timeS);
+        index();
+        Arrays.fill(m_matched, false);
+        for (Translation2d sight : sights) {
+            double x = sight.getX();
+            double y = sight.getY();
+            int track = nearest(x, y);
+            if (track < 0) {
+                start(timeS, x, y);
+            } else {
+                correct(timeS, track, x, y);
+            }
+        }
+        m_version++;
+    }
+
+    /**
+     * Move the tracks to the given time, and decay their confidence. Call this
+     * before querying, so that old sights are forgotten.
+     */
+    public void predict(double timeS) {
+        if (Double.isNaN(m_timeS)) {
+            m_timeS = timeS;
+            return;
+        }
+        double dtS = timeS - m_timeS;
+        if (dtS <= 0)
+            return;
+        m_timeS = timeS;
+        double decay = Math.exp(-dtS / kDecayTimeS);
+        for (int i = 0; i < m_capacity; ++i) {
+            if (!m_live[i])
+                continue;
+            m_x[i] += m_vx[i] * dtS;
+            m_y[i] += m_vy[i] * dtS;
+            m_confidence[i] *= decay;
+            if (m_confidence[i] < kDropConfidence)
+                m_live[i] = false;
+        }
+        m_version++;
+    }
+
+    /** Positions of the confident tracks. Don't modify the result. */
+    public List<Translation2d> getTranslations() {
+        if (m_cachedVersion != m_version) {
+            List<Translation2d> result = new ArrayList<>();
+            for (int i = 0; i < m_capacity; ++i) {
+                if (reportable(i))
+                    result.add(new Translation2d(m_x[i], m_y[i]));
+            }
+            m_cached = Collections.unmodifiableList(result);
+            m_cachedVersion = m_version;
+        }
+        return m_cached;
+    }
+
+    /** Position of the confident track closest to the given point, if any. */
+    public Optional<Translation2d> closest(Translation2d point) {
+        double px = point.getX();
+        double py = point.getY();
+        int best = -1;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < m_capacity; ++i) {
+            if (!reportable(i))
+                continue;
+            double dx = m_x[i] - px;
+            double dy = m_y[i] - py;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = i;
+            }
+        }
+        if (best < 0)
+            return Optional.empty();
+        return Optional.of(new Translation2d(m_x[best], m_y[best]));
+    }
+
+    /** Forget everything. */
+    public void clear() {
+        Arrays.fill(m_live, false);
+        m_version++;
+    }
+
+    ///////////////////////////////////////////////////////////////
+
+    private boolean reportable(int i) {
+        return m_live[i] && m_confidence[i] >= kReportConfidence;
+    }
+
+    /** Put the live tracks into the grid. */
+    private void index() {
+        Arrays.fill(m_cellHead, -1);
+        for (int i = 0; i < m_capacity; ++i) {
+            if (!m_live[i])
+                continue;
+            int cell = cell(cellX(m_x[i]), cellY(m_y[i]));
+            m_cellNext[i] = m_cellHead[cell];
+            m_cellHead[cell] = i;
+        }
+    }
+
+    /**
+     * The nearest unmatched track within the gate, or -1. The cells are as wide
+     * as the gate, so the neighboring cells are enough.
+     */
+    private int nearest(double x, double y) {
+        int cx = cellX(x);
+        int cy = cellY(y);
+        int best = -1;
+        double bestD2 = kGateM * kGateM;
+        for (int i = Math.max(0, cx - 1); i <= Math.min(kCellsX - 1, cx + 1); ++i) {
+            for (int j = Math.max(0, cy - 1); j <= Math.min(kCellsY - 1, cy + 1); ++j) {
+                for (int t = m_cellHead[cell(i, j)]; t >= 0; t = m_cellNext[t]) {
+                    if (m_matched[t])
+                        continue;
+                    double dx = m_x[t] - x;
+                    double dy = m_y[t] - y;
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 < bestD2) {
+                        bestD2 = d2;
+                        best = t;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Alpha-beta update.
+     */
+    private void correct(double timeS, int i, double x, double y) {
+        double dtS = timeS - m_seenS[i];
+        double rx = x - m_x[i];
+        double ry = y - m_y[i];
+        m_x[i] += kAlpha * rx;
+        m_y[i] += kAlpha * ry;
+        if (dtS > kMinDtS) {
+            // frames can come very close together, and dividing by a tiny dt
+            // would make a huge velocity out of a little noise.
+            m_vx[i] = clampSpeed(m_vx[i] + kBeta * rx / dtS);
+            m_vy[i] = clampSpeed(m_vy[i] + kBeta * ry / dtS);
+        }
+        m_confidence[i] = Math.min(1, m_confidence[i] + kHitConfidence);
+        m_seenS[i] = timeS;
+        m_matched[i] = true;
+    }
+
+    /** Use an empty slot, or replace the least confident track. */
+    private void start(double timeS, double x, double y) {
+        int slot = -1;
+        double worst = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < m_capacity; ++i) {
+            if (!m_live[i]) {
+                slot = i;
+                break;
+            }
+            if (!m_matched[i] && m_confidence[i] < worst) {
+                worst = m_confidence[i];
+                slot = i;
+            }
+        }
+        if (slot < 0) {
+            // every track was seen in this frame, so drop the sight.
+            return;
+        }
+        m_x[slot] = x;
+        m_y[slot] = y;
+        m_vx[slot] = 0;
+        m_vy[slot] = 0;
+        m_confidence[slot] = kHitConfidence;
+        m_seenS[slot] = timeS;
+        m_live[slot] = true;
+        // don't let another sight in this frame match the new track, and don't
+        // index it: the grid is only for tracks from earlier frames.
+        m_matched[slot] = true;
+    }
+
+    private static double clampSpeed(double v) {
+        return Math.max(-kMaxSpeedM_S, Math.min(kMaxSpeedM_S, v));
+    }
+
+    private static int cellX(double x) {
+        return Math.max(0, Math.min(kCellsX - 1, (int) Math.floor((x - kMinX) / kGateM)));
+    }
+
+    private static int cellY(double y) {
+        return Math.max(0, Math.min(kCellsY - 1, (int) Math.floor((y - kMinY) / kGateM)));
+    }
+
+    private static int cell(int cx, int cy) {
+        return cx * kCellsY + cy;
+    }
+}
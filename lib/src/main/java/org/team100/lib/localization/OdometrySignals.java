@@ -0,0 +1,36 @@
+package org.team100.lib.localization;
+
+/**
+ * The signals OdometryThread waits on, and the module positions and timestamp
+ * read from them.
+ *
+ * This interface exists in order to make fakes for testing; the real one is
+ * PhoenixOdometrySignals.
+ */
+public interface OdometrySignals {
+    /**
+     * Block until all the signals have new values, or the timeout expires.
+     *
+     * @return true if they all updated, false on timeout or error.
+     */
+    boolean waitForAll(double timeoutS);
+
+    /**
+     * FPGA time when the latest values were measured, from the device
+     * timestamps, not the time they were read.
+     */
+    double timestampS();
+
+    /** How many modules positions() fills in. */
+    int modules();
+
+    /**
+     * Module positions from the latest values, into the caller's arrays, so
+     * the odometry thread doesn't allocate them every cycle.
+     *
+     * @param distM    outvar, wheel distances
+     * @param angleRad outvar, steering angles, radians
+     * @return false if any of them can't be measured.
+     */
+    boolean positions(double[] distM, double[] angleRad);
+}
@@ -0,0 +1,154 @@
+package org.team100.lib.localization;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.sensors.Gyro;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Integrates odometry faster than the main loop, on its own thread.
+ *
+ * Each cycle waits once for all the odometry signals to update together
+ * (instead of refreshing each one separately), then reads the module positions
+ * from those same signals, and puts them into the pose estimator, stamped with
+ * the time the signals were measured on the device, not the time we got around
+ * to reading them. The gyro is sampled at that time too, if it keeps a
+ * history.
+ *
+ * The signals should be clones (see Talon6Motor.getPositionSignal()), so this
+ * thread doesn't share them with the main loop, and nothing here should read
+ * the sense snapshot, which only changes once per loop.
+ *
+ * When this is running, SwerveDriveSubsystem doesn't put odometry itself.
+ */
+public class OdometryThread implements Glassy {
+    private final OdometrySignals m_signals;
+    private final Gyro m_gyro;
+    private final SwerveDrivePoseEstimator100 m_poseEstimator;
+    private final double m_periodS;
+    private final Thread m_thread;
+
+    // written by the odometry thread, read by periodic()
+    private volatile int m_samples;
+    private volatile int m_stale;
+    private volatile int m_errors;
+    private volatile double m_latencyS;
+
+    // Only the odometry thread touches these.
+    private double m_prevTimestampS = Double.NEGATIVE_INFINITY;
+    private final double[] m_distM;
+    private final double[] m_angleRad;
+
+    // LOGGERS
+    private final IntLogger m_log_samples;
+    private final IntLogger m_log_stale;
+    private final IntLogger m_log_errors;
+    private final DoubleLogger m_log_latency;
+
+    /**
+     * @param frequencyHz somewhere between 100 and 250 is reasonable; the
+     *                    signals should update at the same rate.
+     */
+    public OdometryThread(
+            LoggerFactory parent,
+            double frequencyHz,
+            OdometrySignals signals,
+            Gyro gyro,
+            SwerveDrivePoseEstimator100 poseEstimator) {
+        LoggerFactory child = parent.child(this);
+        m_signals = signals;
+        m_gyro = gyro;
+        m_poseEstimator = poseEstimator;
+        m_periodS = 1.0 / frequencyHz;
+        m_distM = new double[signals.modules()];
+        m_angleRad = new double[signals.modules()];
+        m_thread = new Thread(this::run);
+        // higher than the main loop, since this is short and timing-sensitive.
+        m_thread.setPriority(Thread.MAX_PRIORITY);
+        m_thread.setDaemon(true);
+        m_thread.setName("Odometry Thread");
+        m_log_samples = child.intLogger(Level.TRACE, "samples");
+        m_log_stale = child.intLogger(Level.TRACE, "stale");
+        m_log_errors = child.intLogger(Level.DEBUG, "errors");
+        m_log_latency = child.doubleLogger(Level.TRACE, "latency (s)");
+    }
+
+    public void start() {
+        m_thread.start();
+    }
+
+    public void stop() {
+        m_thread.interrupt();
+    }
+
+    /** Log the thread's counters. Call this from the main loop. */
+    public void periodic() {
+        m_log_samples.log(() -> m_samples);
+        m_log_stale.log(() -> m_stale);
+        m_log_errors.log(() -> m_errors);
+        m_log_latency.log(() -> m_latencyS);
+    }
+
+    /**
+     * One cycle: wait for the signals, and put one sample.
+     *
+     * Package-private for testing.
+     *
+     * @return true if a sample was put
+     */
+    boolean step() {
+        if (!m_signals.waitForAll(2 * m_periodS)) {
+            m_errors++;
+            return false;
+        }
+        double timestampS = m_signals.timestampS();
+        if (timestampS <= m_prevTimestampS) {
+            // nothing new; don't put the same measurement twice.
+            m_stale++;
+            return false;
+        }
+        if (!m_signals.positions(m_distM, m_angleRad)) {
+            m_errors++;
+            return false;
+        }
+        m_poseEstimator.put(timestampS, m_gyro.getYawNWU(timestampS), m_distM, m_angleRad);
+        m_prevTimestampS = timestampS;
+        m_latencyS = Timer.getFPGATimestamp() - timestampS;
+        m_samples++;
+        return true;
+    }
+
+    int getSamples() {
+        return m_samples;
+    }
+
+    int getStale() {
+        return m_stale;
+    }
+
+    int getErrors() {
+        return m_errors;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!step()) {
+                    // don't spin if the signals fail fast.
+                    Thread.sleep((long) (m_periodS * 1000));
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // keep going; one bad sample shouldn't end odometry.
+                m_errors++;
+                Util.warn(e.toString());
+            }
+        }
+    }
+}
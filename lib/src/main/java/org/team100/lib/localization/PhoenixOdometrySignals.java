@@ -0,0 +1,93 @@
+package org.team100.lib.localization;
+
+import java.util.OptionalDouble;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Utils;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Odometry signals from CTRE drive motors.
+ *
+ * Waits for all the drive position signals together, and reads the distances
+ * and the timestamp from those same signals, so each sample is as fresh as the
+ * wait says it is.
+ *
+ * The steering sensors are RoboRIO inputs, with nothing to wait for, so they
+ * are read directly, right after the wait.
+ */
+public class PhoenixOdometrySignals implements OdometrySignals {
+    private final Module[] m_modules;
+    private final BaseStatusSignal[] m_signals;
+
+    /**
+     * @param frequencyHz update frequency for the drive position signals.
+     */
+    public PhoenixOdometrySignals(double frequencyHz, Module... modules) {
+        m_modules = modules;
+        m_signals = new BaseStatusSignal[modules.length];
+        for (int i = 0; i < modules.length; ++i) {
+            m_signals[i] = modules[i].m_drivePosition;
+        }
+        BaseStatusSignal.setUpdateFrequencyForAll(frequencyHz, m_signals);
+    }
+
+    @Override
+    public boolean waitForAll(double timeoutS) {
+        return BaseStatusSignal.waitForAll(timeoutS, m_signals).isOK();
+    }
+
+    /** Mean of the device timestamps, shifted from the Phoenix timebase. */
+    @Override
+    public double timestampS() {
+        double offsetS = Timer.getFPGATimestamp() - Utils.getCurrentTimeSeconds();
+        double totalS = 0;
+        for (BaseStatusSignal s : m_signals) {
+            totalS += s.getTimestamp().getTime();
+        }
+        return totalS / m_signals.length + offsetS;
+    }
+
+    @Override
+    public int modules() {
+        return m_modules.length;
+    }
+
+    @Override
+    public boolean positions(double[] distM, double[] angleRad) {
+        for (int i = 0; i < m_modules.length; ++i) {
+            OptionalDouble steeringRad = m_modules[i].m_steeringRad.get();
+            if (steeringRad.isEmpty())
+                return false;
+            distM[i] = m_modules[i].m_drivePosition.getValueAsDouble() * m_modules[i].m_metersPerRev;
+            angleRad[i] = steeringRad.getAsDouble();
+        }
+        return true;
+    }
+
+    /** The sources for one module. */
+    public static class Module {
+        private final StatusSignal<Double> m_drivePosition;
+        private final double m_metersPerRev;
+        private final Supplier<OptionalDouble> m_steeringRad;
+
+        /**
+         * @param drivePosition clone of the drive motor position signal, see
+         *                      Talon6Motor.getPositionSignal().
+         * @param metersPerRev  wheel travel per motor revolution.
+         * @param steeringRad   reads the steering sensor directly, not from the
+         *                      sense snapshot.
+         */
+        public Module(
+                StatusSignal<Double> drivePosition,
+                double metersPerRev,
+                Supplier<OptionalDouble> steeringRad) {
+            m_drivePosition = drivePosition;
+            m_metersPerRev = metersPerRev;
+            m_steeringRad = steeringRad;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.team100.lib.localization;
 
+import java.util.List;
+
 import org.team100.lib.motion.drivetrain.SwerveState;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -19,6 +21,18 @@ public interface PoseEstimator100 {
             double[] stateSigma,
             double[] visionSigma);
 
+    /**
+     * Put a batch of vision measurements, e.g. all the blips from one vision
+     * update. Implementations may apply them in time order and replay odometry
+     * once, rather than once per measurement. The default just puts them one at
+     * a time.
+     */
+    default void put(List<VisionMeasurement> measurements) {
+        for (VisionMeasurement m : measurements) {
+            put(m.timestampS(), m.measurement(), m.stateSigma(), m.visionSigma());
+        }
+    }
+
     /**
      * Sample the state estimate buffer.
      */
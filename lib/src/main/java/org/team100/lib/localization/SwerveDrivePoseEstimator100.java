@@ -1,5 +1,7 @@
 package org.team100.lib.localization;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -15,13 +17,18 @@ import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeDelta;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
-import org.team100.lib.util.DriveUtil;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
 
+/**
+ * Odometry and vision fusion.
+ * 
+ * Updates (odometry, vision, and reset) are serialized, since odometry may come
+ * from OdometryThread while vision comes from the main loop. Reads don't lock.
+ */
 public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
     private static final double kBufferDuration = 1.5;
     // look back a little to get a pose for velocity estimation
@@ -30,6 +37,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
     private final int m_numModules;
     private final SwerveKinodynamics m_kinodynamics;
     private final TimeInterpolatableBuffer100<InterpolationRecord> m_poseBuffer;
+    /** Wheel twist scratch, [dx, dy, dtheta]; updates are synchronized. */
+    private final double[] m_delta = new double[3];
     // LOGGERS
     private final Rotation2dLogger m_log_offset;
     private final DoubleLogger m_log_pose_x;
@@ -81,7 +90,7 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
     }
 
     /** Empty the buffer and add the given measurements. */
-    public void reset(
+    public synchronized void reset(
             Rotation2d gyroAngle,
             SwerveModulePosition100[] modulePositions,
             Pose2d pose,
@@ -107,18 +116,12 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
     }
 
     @Override
-    public void put(
+    public synchronized void put(
             double timestampS,
             Pose2d measurement,
             double[] stateSigma,
             double[] visionSigma) {
 
-        // discount the vision update by this factor.
-        final double[] k = new double[] {
-                mix(Math.pow(stateSigma[0], 2), Math.pow(visionSigma[0], 2)),
-                mix(Math.pow(stateSigma[1], 2), Math.pow(visionSigma[1], 2)),
-                mix(Math.pow(stateSigma[2], 2), Math.pow(visionSigma[2], 2)) };
-
         // Step 0: If this measurement is old enough to be outside the pose buffer's
         // timespan, skip.
 
@@ -126,6 +129,61 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
             return;
         }
 
+        correct(timestampS, measurement, stateSigma, visionSigma);
+
+        // Step 7: Replay odometry inputs between sample time and latest recorded sample
+        // to update the pose buffer and correct odometry.
+        replay(timestampS, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Apply all the measurements in time order, and replay odometry once, from
+     * the oldest one, instead of once per measurement.
+     * 
+     * Between measurements, the buffer is replayed only as far as the next
+     * measurement (and the entry just after it, for interpolation), so each
+     * correction sees the ones before it, just as if they had been put one at a
+     * time.
+     */
+    @Override
+    public synchronized void put(List<VisionMeasurement> measurements) {
+        List<VisionMeasurement> sorted = new ArrayList<>(measurements);
+        sorted.sort(Comparator.comparingDouble(VisionMeasurement::timestampS));
+        // time of the latest correction, replayed up to but not beyond.
+        double correctedS = Double.NEGATIVE_INFINITY;
+        for (VisionMeasurement m : sorted) {
+            if (m_poseBuffer.tooOld(m.timestampS())) {
+                continue;
+            }
+            if (correctedS > Double.NEGATIVE_INFINITY) {
+                double ceilingS = m_poseBuffer.ceilingTime(m.timestampS());
+                double untilS = Double.isNaN(ceilingS) ? m.timestampS() : ceilingS;
+                replay(correctedS, untilS);
+            }
+            correct(m.timestampS(), m.measurement(), m.stateSigma(), m.visionSigma());
+            correctedS = m.timestampS();
+        }
+        if (correctedS > Double.NEGATIVE_INFINITY) {
+            replay(correctedS, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Steps 1-6 of the vision update: mix the measurement into the estimate at
+     * its timestamp, without touching later entries.
+     */
+    private void correct(
+            double timestampS,
+            Pose2d measurement,
+            double[] stateSigma,
+            double[] visionSigma) {
+
+        // discount the vision update by this factor.
+        final double[] k = new double[] {
+                mix(Math.pow(stateSigma[0], 2), Math.pow(visionSigma[0], 2)),
+                mix(Math.pow(stateSigma[1], 2), Math.pow(visionSigma[1], 2)),
+                mix(Math.pow(stateSigma[2], 2), Math.pow(visionSigma[2], 2)) };
+
         // Step 1: Get the pose odometry measured at the moment the vision measurement
         // was made.
         InterpolationRecord sample = m_poseBuffer.get(timestampS);
@@ -165,28 +223,57 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
                         m_kinodynamics.getKinematics(),
                         new SwerveState(newPose, sample.m_state.velocity(), sample.m_state.acceleration()),
                         sample.m_gyroAngle,
-                        sample.m_wheelPositions));
-        // Step 7: Replay odometry inputs between sample time and latest recorded sample
-        // to update the pose buffer and correct odometry.
-        // note exclusive tailmap, don't need to reprocess the entry we just put there.
-        for (Map.Entry<Double, InterpolationRecord> entry : m_poseBuffer.tailMap(timestampS, false).entrySet()) {
-            double entryTimestampS = entry.getKey();
-            Rotation2d entryGyroAngle = entry.getValue().m_gyroAngle;
-            SwerveModulePosition100[] wheelPositions = entry.getValue().m_wheelPositions;
-            put(entryTimestampS, entryGyroAngle, wheelPositions);
-        }
+                        sample.m_wheelDistM,
+                        sample.m_wheelAngleRad));
+    }
 
+    /**
+     * Replay odometry inputs for entries after fromS (exclusive) through untilS
+     * (inclusive).
+     */
+    private void replay(double fromS, double untilS) {
+        // note exclusive, don't need to reprocess the entry we just put there.
+        double entryTimestampS = m_poseBuffer.higherTime(fromS);
+        // NaN (the end of the buffer) fails the comparison.
+        while (entryTimestampS <= untilS) {
+            InterpolationRecord entry = m_poseBuffer.get(entryTimestampS);
+            put(entryTimestampS, entry.m_gyroAngle, entry.m_wheelDistM, entry.m_wheelAngleRad);
+            entryTimestampS = m_poseBuffer.higherTime(entryTimestampS);
+        }
     }
 
     /**
      * Put a new state estimate based on gyro and wheel data. These are expected to
      * be current measurements -- there is no history replay here.
      */
-    public void put(
+    public synchronized void put(
             double currentTimeS,
             Rotation2d gyroAngle,
             SwerveModulePosition100[] wheelPositions) {
         checkLength(wheelPositions);
+        double[] distM = new double[m_numModules];
+        double[] angleRad = new double[m_numModules];
+        for (int i = 0; i < m_numModules; ++i) {
+            distM[i] = wheelPositions[i].distanceMeters;
+            angleRad[i] = wheelPositions[i].angle.map(Rotation2d::getRadians).orElse(Double.NaN);
+        }
+        put(currentTimeS, gyroAngle, distM, angleRad);
+    }
+
+    /**
+     * Same as above, with the wheel positions in arrays, as OdometryThread and
+     * the replay have them.
+     * 
+     * @param wheelDistM    wheel distances
+     * @param wheelAngleRad wheel angles, radians, NaN if unknown
+     */
+    public synchronized void put(
+            double currentTimeS,
+            Rotation2d gyroAngle,
+            double[] wheelDistM,
+            double[] wheelAngleRad) {
+        checkLength(wheelDistM);
+        checkLength(wheelAngleRad);
 
         // the extra little bit here is to make sure we catch the most recent entry even
         // though the clock jitters a little.
@@ -208,17 +295,21 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         InterpolationRecord value = lowerEntry.getValue();
         SwerveState previousState = value.m_state;
 
-        SwerveModulePosition100[] modulePositionDelta = DriveUtil.modulePositionDelta(
-                value.m_wheelPositions,
-                wheelPositions);
-
-        Twist2d twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
+        m_kinodynamics.getKinematics().toTwist2d(
+                value.m_wheelDistM,
+                value.m_wheelAngleRad,
+                wheelDistM,
+                wheelAngleRad,
+                m_delta);
 
         // replace the twist dtheta with one derived from the current pose
         // pose angle based on the gyro (which is more accurate)
 
         Rotation2d angle = gyroAngle.plus(m_gyroOffset);
-        twist.dtheta = angle.minus(previousState.pose().getRotation()).getRadians();
+        Twist2d twist = new Twist2d(
+                m_delta[0],
+                m_delta[1],
+                angle.minus(previousState.pose().getRotation()).getRadians());
 
         Pose2d newPose = new Pose2d(previousState.pose().exp(twist).getTranslation(), angle);
 
@@ -261,7 +352,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
 
         m_poseBuffer.put(
                 currentTimeS,
-                new InterpolationRecord(m_kinodynamics.getKinematics(), swerveState, gyroAngle, wheelPositions));
+                new InterpolationRecord(
+                        m_kinodynamics.getKinematics(), swerveState, gyroAngle, wheelDistM, wheelAngleRad));
     }
 
     ///////////////////////////////////////
@@ -273,6 +365,13 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         }
     }
 
+    private void checkLength(double[] modules) {
+        int ct = modules.length;
+        if (ct != m_numModules) {
+            throw new IllegalArgumentException("Wrong module count: " + ct);
+        }
+    }
+
     /**
      * Given q and r stddev's, what mixture should that yield?
      * This is the "closed form Kalman gain for continuous Kalman filter with A = 0
@@ -1,12 +1,9 @@
 package org.team100.lib.localization;
 
-import java.util.Map.Entry;
+import java.lang.invoke.VarHandle;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.logging.Level;
@@ -17,68 +14,137 @@ import edu.wpi.first.math.interpolation.Interpolatable;
 
 /**
  * Uses an Interpolator to provide interpolated sampling with a history limit.
- * 
+ *
  * The buffer is never empty, so get() always returns *something*.
+ *
+ * This is a fixed-capacity ring of primitive timestamps and values, kept in
+ * time order. Lookup is binary search. Appending (the usual case) and evicting
+ * stale entries are O(1); overwriting an existing timestamp (odometry replay)
+ * is O(log n); inserting in the middle (a vision update) shifts the newer
+ * entries.
+ *
+ * Writes are serialized by the monitor. Reads don't lock: they use a sequence
+ * number (a "seqlock"), and retry if a write happened while they were reading,
+ * so that e.g. the two entries of consistentPair() are always consistent with
+ * each other.
  */
 public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> implements Glassy {
+    /** Enough for the history window of high-rate odometry, plus vision. */
+    private static final int kDefaultCapacity = 1024;
+
     private final double m_historyS;
-    private final NavigableMap<Double, T> m_pastSnapshots = new ConcurrentSkipListMap<>();
+    private final int m_capacity;
+    /** Ring of timestamps in seconds, increasing from the head. */
+    private final double[] m_times;
+    /** Ring of values, parallel to m_times. */
+    private final Object[] m_values;
+    /** Ring index of the oldest entry. */
+    private int m_head;
+    /** Number of entries. */
+    private int m_size;
+    /** Odd while a write is in progress. */
+    private volatile int m_seq;
 
-    /**
-     * We allow concurrent operations on the map, with one exception: when we want
-     * two reads to be consistent with each other. For this purpose we use a
-     * read-write lock with the semantics inverted: it's the double-read operation
-     * that takes the "write" (exclusive) lock, and the write operations take the
-     * "read" (non-exclusive) lock.
-     */
-    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
     private final StringLogger m_log_bottom;
     private final StringLogger m_log_top;
 
     public TimeInterpolatableBuffer100(LoggerFactory parent, double historyS, double timeS, T initialValue) {
+        this(parent, historyS, kDefaultCapacity, timeS, initialValue);
+    }
+
+    public TimeInterpolatableBuffer100(
+            LoggerFactory parent,
+            double historyS,
+            int capacity,
+            double timeS,
+            T initialValue) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("capacity must be at least 2");
         LoggerFactory child = parent.child(this);
         m_historyS = historyS;
+        m_capacity = capacity;
+        m_times = new double[capacity];
+        m_values = new Object[capacity];
         // no lock needed in constructor
-        m_pastSnapshots.put(timeS, initialValue);
+        m_times[0] = timeS;
+        m_values[0] = initialValue;
+        m_size = 1;
         m_log_bottom = child.stringLogger(Level.TRACE, "bottom");
         m_log_top = child.stringLogger(Level.TRACE, "top");
     }
 
     /**
-     * Remove stale entries and add the new one.
+     * Remove stale entries and add the new one, replacing any existing entry with
+     * the same timestamp.
      */
-    public void put(double timeS, T value) {
-        // System.out.println("TimeInterpolatableBuffer.put() " + timeS + " value " + value);
+    public synchronized void put(double timeS, T value) {
+        beginWrite();
         try {
-            // wait for in-progress double-reads
-            m_lock.readLock().lock();
-            while (!m_pastSnapshots.isEmpty()) {
-                Entry<Double, T> oldest = m_pastSnapshots.firstEntry();
-                Double oldestTimeS = oldest.getKey();
-                double oldestAgeS = timeS - oldestTimeS;
-                // if oldest is younger than the history limit, we're done
-                if (oldestAgeS < m_historyS)
-                    break;
-                m_pastSnapshots.remove(oldestTimeS);
+            // if oldest is younger than the history limit, we're done
+            while (m_size > 0 && timeS - m_times[m_head] >= m_historyS) {
+                removeOldest();
             }
-            m_pastSnapshots.put(timeS, value);
+            if (m_size == 0 || timeS > m_times[slot(m_size - 1)]) {
+                // the usual case: append
+                if (m_size == m_capacity)
+                    removeOldest();
+                int j = slot(m_size);
+                m_times[j] = timeS;
+                m_values[j] = value;
+                m_size++;
+                return;
+            }
+            int i = floorIndex(timeS);
+            if (i >= 0 && m_times[slot(i)] == timeS) {
+                // replace
+                m_values[slot(i)] = value;
+                return;
+            }
+            if (i < 0) {
+                // older than everything; if there's no room, it's the one to drop.
+                if (m_size == m_capacity)
+                    return;
+                m_head = m_head == 0 ? m_capacity - 1 : m_head - 1;
+                m_times[m_head] = timeS;
+                m_values[m_head] = value;
+                m_size++;
+                return;
+            }
+            if (m_size == m_capacity) {
+                removeOldest();
+                i--;
+            }
+            // shift the newer entries up one slot
+            for (int k = m_size; k > i + 1; --k) {
+                int to = slot(k);
+                int from = slot(k - 1);
+                m_times[to] = m_times[from];
+                m_values[to] = m_values[from];
+            }
+            int j = slot(i + 1);
+            m_times[j] = timeS;
+            m_values[j] = value;
+            m_size++;
         } finally {
-            m_lock.readLock().unlock();
+            endWrite();
         }
     }
 
     /**
      * Remove all entries and add the new one.
      */
-    public void reset(double timeS, T value) {
-        // System.out.println("TimeInterpolatableBuffer100.reset() " + timeS + " value " + value);
+    public synchronized void reset(double timeS, T value) {
+        beginWrite();
         try {
-            // wait for in-progress double-reads
-            m_lock.readLock().lock();
-            m_pastSnapshots.clear();
-            m_pastSnapshots.put(timeS, value);
+            while (m_size > 0) {
+                removeOldest();
+            }
+            m_head = 0;
+            m_times[0] = timeS;
+            m_values[0] = value;
+            m_size = 1;
         } finally {
-            m_lock.readLock().unlock();
+            endWrite();
         }
     }
 
@@ -86,35 +152,44 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
      * Sample the buffer at the given time.
      */
     public T get(double timeSeconds) {
-        // System.out.println("TimeInterpolatableBuffer100.timeSeconds() " + timeSeconds);
+        Object bottom;
+        Object top;
+        double bottomTimeS;
+        double topTimeS;
+        int seq;
+        do {
+            seq = beginRead();
+            int i = floorIndex(timeSeconds);
+            if (i < 0) {
+                bottom = null;
+                bottomTimeS = 0;
+            } else {
+                bottom = m_values[slot(i)];
+                bottomTimeS = m_times[slot(i)];
+            }
+            if (i + 1 >= m_size) {
+                top = null;
+                topTimeS = 0;
+            } else {
+                top = m_values[slot(i + 1)];
+                topTimeS = m_times[slot(i + 1)];
+            }
+        } while (!validate(seq));
+
+        T bottomValue = cast(bottom);
+        T topValue = cast(top);
         // Special case for when the requested time is the same as a sample
-        T nowEntry = m_pastSnapshots.get(timeSeconds);
-        if (nowEntry != null) {
-            // System.out.println("now " + nowEntry);
-            return nowEntry;
-        }
-        Entry<Double, T> topBound = null;
-        Entry<Double, T> bottomBound = null;
-        try {
-            // this pair should be consistent, so prohibit writes briefly.
-            m_lock.writeLock().lock();
-            topBound = m_pastSnapshots.ceilingEntry(timeSeconds);
-            bottomBound = m_pastSnapshots.floorEntry(timeSeconds);
-        } finally {
-            m_lock.writeLock().unlock();
+        if (bottomValue != null && bottomTimeS == timeSeconds) {
+            return bottomValue;
         }
         // Return the opposite bound if the other is null
-        if (topBound == null) {
-            String bottomValue = bottomBound.getValue().toString();
-            m_log_bottom.log(() -> bottomValue);
-            // System.out.println("bottom " + bottomValue);
-            return bottomBound.getValue();
+        if (topValue == null) {
+            m_log_bottom.log(bottomValue::toString);
+            return bottomValue;
         }
-        if (bottomBound == null) {
-            String topValue = topBound.getValue().toString();
-            m_log_top.log(() -> topValue);
-            // System.out.println("top " + topValue);
-            return topBound.getValue();
+        if (bottomValue == null) {
+            m_log_top.log(topValue::toString);
+            return topValue;
         }
 
         // If both bounds exist, interpolate between them.
@@ -122,68 +197,193 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
         // (the difference between the current time and bottom bound) and (the
         // difference between top and bottom bounds).
 
-        String bottomValue = bottomBound.getValue().toString();
-        m_log_bottom.log(() -> bottomValue);
-        String topValue = topBound.getValue().toString();
-        m_log_top.log(() -> topValue);
-        double timeSinceBottom = timeSeconds - bottomBound.getKey();
-        double timeSpan = topBound.getKey() - bottomBound.getKey();
+        m_log_bottom.log(bottomValue::toString);
+        m_log_top.log(topValue::toString);
+        double timeSinceBottom = timeSeconds - bottomTimeS;
+        double timeSpan = topTimeS - bottomTimeS;
         double timeFraction = timeSinceBottom / timeSpan;
-        return bottomBound.getValue().interpolate(topBound.getValue(), timeFraction);
+        return bottomValue.interpolate(topValue, timeFraction);
     }
 
     /**
      * Return the lowerEntry before t. and another floorEntry dt before that.
-     * 
+     *
      * The first is used as the basis for integration. The second is used to
      * estimate velocity.
-     * 
-     * Writes are prohibited between the two reads, so that they are consistent.
-     * 
+     *
+     * The two reads are consistent with each other: if a write happens in
+     * between, they are retried.
+     *
      * This might return an empty list (if no entries exist before t) or one item
      * (if one entry exists before t, but there are no entries earlier than dt
      * before that), or two items.
-     * 
+     *
      * If present, the first item in the list is the lowerEntry, and the second item
      * is the earlierEntry, if present.
      */
     public List<Entry<Double, T>> consistentPair(double t, double dt) {
-        try {
-            // this pair should be consistent, so prohibit writes briefly.
-            m_lock.writeLock().lock();
-            Entry<Double, T> lowerEntry = m_pastSnapshots.lowerEntry(t);
-            if (lowerEntry == null) {
-                // if there's no lower entry, then return nothing.
-                return List.of();
-            }
-            Entry<Double, T> earlierEntry = m_pastSnapshots.floorEntry(lowerEntry.getKey() - dt);
-            if (earlierEntry == null) {
-                // if there's no earlier entry, return the lower entry alone.
-                return List.of(lowerEntry);
+        Object lower;
+        Object earlier;
+        double lowerTimeS;
+        double earlierTimeS;
+        int seq;
+        do {
+            seq = beginRead();
+            lower = null;
+            earlier = null;
+            lowerTimeS = 0;
+            earlierTimeS = 0;
+            int i = lowerIndex(t);
+            if (i >= 0) {
+                lower = m_values[slot(i)];
+                lowerTimeS = m_times[slot(i)];
+                int j = floorIndex(lowerTimeS - dt);
+                if (j >= 0) {
+                    earlier = m_values[slot(j)];
+                    earlierTimeS = m_times[slot(j)];
+                }
             }
+        } while (!validate(seq));
 
-            return List.of(lowerEntry, earlierEntry);
-        } finally {
-            m_lock.writeLock().unlock();
+        if (lower == null) {
+            // if there's no lower entry, then return nothing.
+            return List.of();
         }
+        if (earlier == null) {
+            // if there's no earlier entry, return the lower entry alone.
+            return List.of(Map.entry(lowerTimeS, cast(lower)));
+        }
+        return List.of(
+                Map.entry(lowerTimeS, cast(lower)),
+                Map.entry(earlierTimeS, cast(earlier)));
     }
 
-    public SortedMap<Double, T> tailMap(double t, boolean inclusive) {
-        return m_pastSnapshots.tailMap(t, inclusive);
+    /**
+     * The earliest timestamp strictly after t, or NaN if there isn't one. This is
+     * for walking the buffer without allocating, e.g. for replay.
+     */
+    public double higherTime(double t) {
+        double result;
+        int seq;
+        do {
+            seq = beginRead();
+            int i = floorIndex(t) + 1;
+            result = i < m_size ? m_times[slot(i)] : Double.NaN;
+        } while (!validate(seq));
+        return result;
+    }
+
+    /** The earliest timestamp at or after t, or NaN if there isn't one. */
+    public double ceilingTime(double t) {
+        double result;
+        int seq;
+        do {
+            seq = beginRead();
+            int i = lowerIndex(t) + 1;
+            result = i < m_size ? m_times[slot(i)] : Double.NaN;
+        } while (!validate(seq));
+        return result;
     }
 
     /** True if the timestamp is older than the history window. */
     boolean tooOld(double timestampS) {
-        Double newestSeenS = m_pastSnapshots.lastKey();
+        double newestSeenS;
+        int seq;
+        do {
+            seq = beginRead();
+            int n = m_size;
+            // n is zero only during a write, which validate() will catch.
+            newestSeenS = n > 0 ? m_times[slot(n - 1)] : Double.NaN;
+        } while (!validate(seq));
         double oldestAcceptableS = newestSeenS - m_historyS;
         return timestampS < oldestAcceptableS;
     }
 
-    public Entry<Double, T> lowerEntry(double t) {
-        return m_pastSnapshots.lowerEntry(t);
+    /** Number of entries. */
+    int size() {
+        int result;
+        int seq;
+        do {
+            seq = beginRead();
+            result = m_size;
+        } while (!validate(seq));
+        return result;
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Ring index of the i-th oldest entry. */
+    private int slot(int i) {
+        int j = m_head + i;
+        return j >= m_capacity ? j - m_capacity : j;
+    }
+
+    /** Index (from oldest) of the newest entry at or before t, or -1. */
+    private int floorIndex(double t) {
+        int lo = 0;
+        int hi = m_size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_times[slot(mid)] <= t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    /** Index (from oldest) of the newest entry strictly before t, or -1. */
+    private int lowerIndex(double t) {
+        int lo = 0;
+        int hi = m_size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_times[slot(mid)] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    /** O(1) since the oldest is at the head. Caller must hold the write lock. */
+    private void removeOldest() {
+        m_values[m_head] = null;
+        m_head = m_head + 1 == m_capacity ? 0 : m_head + 1;
+        m_size--;
+    }
+
+    private void beginWrite() {
+        m_seq = m_seq + 1;
+        // don't let the data writes move ahead of the odd sequence number
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        m_seq = m_seq + 1;
+    }
+
+    /** Wait for any in-progress write, and return the (even) sequence number. */
+    private int beginRead() {
+        int seq = m_seq;
+        while ((seq & 1) != 0) {
+            Thread.onSpinWait();
+            seq = m_seq;
+        }
+        return seq;
+    }
+
+    /** True if no write happened since beginRead(). */
+    private boolean validate(int seq) {
+        // don't let the data reads move past the check
+        VarHandle.loadLoadFence();
+        return m_seq == seq;
     }
 
-    public Entry<Double, T> ceilingEntry(double arg0) {
-        return m_pastSnapshots.ceilingEntry(arg0);
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package org.team100.lib.localization;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 
 import org.team100.lib.config.Camera;
@@ -73,6 +75,11 @@ public class VisionDataProvider24 implements VisionData, Glassy {
     private final AprilTagFieldLayoutWithCorrectOrientation m_layout;
     private final PoseEstimationHelper m_helper;
     private final NetworkTableListenerPoller m_poller;
+    /**
+     * Measurements from all cameras, collected during one update() and fused
+     * together, so the pose estimator replays odometry once.
+     */
+    private final List<VisionMeasurement> m_pending;
     // LOGGERS
     private final EnumLogger m_log_alliance;
 
@@ -98,6 +105,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
         m_layout = layout;
         m_helper = new PoseEstimationHelper(child);
         m_poseEstimator = poseEstimator;
+        m_pending = new ArrayList<>();
 
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_poller = new NetworkTableListenerPoller(inst);
@@ -117,6 +125,11 @@ public class VisionDataProvider24 implements VisionData, Glassy {
     }
 
     public void update() {
+        readEvents();
+        flush();
+    }
+
+    private void readEvents() {
         NetworkTableEvent[] events = m_poller.readQueue();
         for (NetworkTableEvent e : events) {
             ValueEventData ve = e.valueData;
@@ -150,7 +163,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
                     return;
 
                 double blipTimeSec = v.getServerTime() / 1000000.0;
-                estimateRobotPose(
+                collect(
                         cameraSerialNumber,
                         blips,
                         blipTimeSec,
@@ -162,9 +175,17 @@ public class VisionDataProvider24 implements VisionData, Glassy {
         }
     }
 
+    /** Send the pending measurements to the pose estimator, as one batch. */
+    private void flush() {
+        if (m_pending.isEmpty())
+            return;
+        m_poseEstimator.put(m_pending);
+        m_pending.clear();
+    }
+
     /**
-     * @param estimateConsumer   is the pose estimator but exposing it here makes it
-     *                           easier to test.
+     * Estimate and put immediately. Exposed for testing.
+     * 
      * @param cameraSerialNumber the camera identity, obtained from proc/cpuinfo
      * @param blips              all the targets the camera sees right now
      */
@@ -173,6 +194,21 @@ public class VisionDataProvider24 implements VisionData, Glassy {
             final Blip24[] blips,
             double blipTimeSec,
             Alliance alliance) {
+        collect(cameraSerialNumber, blips, blipTimeSec, alliance);
+        flush();
+    }
+
+    /**
+     * Estimate and add to the pending batch.
+     * 
+     * @param cameraSerialNumber the camera identity, obtained from proc/cpuinfo
+     * @param blips              all the targets the camera sees right now
+     */
+    private void collect(
+            String cameraSerialNumber,
+            final Blip24[] blips,
+            double blipTimeSec,
+            Alliance alliance) {
         m_log_alliance.log(() -> alliance);
         final Transform3d cameraInRobotCoordinates = Camera.get(cameraSerialNumber).getOffset();
 
@@ -228,11 +264,11 @@ public class VisionDataProvider24 implements VisionData, Glassy {
                     // this hard limit excludes false positives, which were a bigger problem in 2023
                     // due to the coarse tag family used. in 2024 this might not be an issue.
                     latestTimeUs = RobotController.getFPGATime();
-                    m_poseEstimator.put(
+                    m_pending.add(new VisionMeasurement(
                             frameTimeSec,
                             currentRobotinFieldCoords,
                             stateStdDevs(),
-                            visionMeasurementStdDevs(distanceM));
+                            visionMeasurementStdDevs(distanceM)));
                 }
             }
             lastRobotInFieldCoords = currentRobotinFieldCoords;
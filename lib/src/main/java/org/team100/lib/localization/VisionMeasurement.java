@@ -0,0 +1,18 @@
+package org.team100.lib.localization;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A vision-derived pose, with the sigmas used to mix it into the estimate.
+ * 
+ * @param timestampS  when the camera frame was taken
+ * @param measurement robot pose in field coordinates
+ * @param stateSigma  trust in the current estimate
+ * @param visionSigma trust in the measurement
+ */
+public record VisionMeasurement(
+        double timestampS,
+        Pose2d measurement,
+        double[] stateSigma,
+        double[] visionSigma) {
+}
@@ -0,0 +1,57 @@
+package org.team100.lib.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers which levels are admitted, so loggers don't call the level
+ * supplier every time they log.
+ *
+ * The cache is stamped with a global generation number, which changes only
+ * when the level changes (see Logging.setLevel()), so the usual check is one
+ * volatile read and one field read, and a disabled log is nearly free.
+ *
+ * The cached state is a single int, so it's never torn, and a logger on
+ * another thread sees either the old state or the new one.
+ */
+final class LevelGate {
+    private static final int kLevelBits = 3;
+
+    /** Incremented when any level changes. */
+    private static volatile int s_generation;
+
+    private final Supplier<Level> m_level;
+    /** Generation plus one in the high bits, admitted levels in the low bits. */
+    private int m_state;
+
+    LevelGate(Supplier<Level> level) {
+        m_level = level;
+    }
+
+    /** Make all the gates ask their suppliers again. */
+    static void invalidateAll() {
+        s_generation++;
+    }
+
+    boolean allow(Level level) {
+        int stamp = s_generation + 1;
+        int state = m_state;
+        if ((state >>> kLevelBits) != stamp) {
+            state = (stamp << kLevelBits) | admitted(m_level.get());
+            m_state = state;
+        }
+        return (state & (1 << level.ordinal())) != 0;
+    }
+
+    private static int admitted(Level allowed) {
+        int bits = 0;
+        for (Level level : Level.values()) {
+            if (allowed == Level.COMP && level == Level.COMP) {
+                // comp mode allows COMP level regardless of enablement.
+                bits |= 1 << level.ordinal();
+            } else if (allowed.admit(level)) {
+                bits |= 1 << level.ordinal();
+            }
+        }
+        return bits;
+    }
+}
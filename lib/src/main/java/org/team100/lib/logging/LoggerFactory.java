@@ -49,7 +49,8 @@ import edu.wpi.first.math.trajectory.Trajectory.State;
  * Don't use slashes in names, it confuses Glass.
  */
 public class LoggerFactory {
-    private final Supplier<Level> m_level;
+    /** Shared by the whole tree. */
+    private final LevelGate m_gate;
     private final String m_root;
     private final PrimitiveLogger m_pLogger;
 
@@ -57,9 +58,16 @@ public class LoggerFactory {
             Supplier<Level> level,
             String root,
             PrimitiveLogger primitiveLogger) {
+        this(new LevelGate(level), root, primitiveLogger);
+    }
+
+    private LoggerFactory(
+            LevelGate gate,
+            String root,
+            PrimitiveLogger primitiveLogger) {
         if (root.startsWith("/"))
             throw new IllegalArgumentException("don't lead with a slash");
-        m_level = level;
+        m_gate = gate;
         m_root = root;
         m_pLogger = primitiveLogger;
     }
@@ -71,7 +79,7 @@ public class LoggerFactory {
      * Each child level is separated by slashes, to make a tree in glass.
      */
     public LoggerFactory child(String stem) {
-        return new LoggerFactory(m_level, m_root + "/" + stem, m_pLogger);
+        return new LoggerFactory(m_gate, m_root + "/" + stem, m_pLogger);
     }
 
     /**
@@ -83,13 +91,12 @@ public class LoggerFactory {
         return child(obj.getGlassName());
     }
 
+    /**
+     * Cheap enough to call for every value; the level supplier is only consulted
+     * when the level changes.
+     */
     private boolean allow(Level level) {
-        Level allowed = m_level.get();
-        if (allowed == Level.COMP && level == Level.COMP) {
-            // comp mode allows COMP level regardless of enablement.
-            return true;
-        }
-        return allowed.admit(level);
+        return m_gate.allow(level);
     }
 
     /** @return root/stem */
@@ -119,7 +126,17 @@ public class LoggerFactory {
         public void log(BooleanSupplier vals) {
             if (!allow(m_level))
                 return;
-            boolean val = vals.getAsBoolean();
+            emit(vals.getAsBoolean());
+        }
+
+        /** For hot call sites: no supplier. */
+        public void log(boolean val) {
+            if (!allow(m_level))
+                return;
+            emit(val);
+        }
+
+        private void emit(boolean val) {
             m_primitiveLogger.log(val);
         }
     }
@@ -140,14 +157,27 @@ public class LoggerFactory {
         public void log(DoubleSupplier vals) {
             if (!allow(m_level))
                 return;
-            double val = vals.getAsDouble();
-            m_primitiveLogger.log(val);
+            emit(vals.getAsDouble());
         }
 
         public void log(Supplier<Double> vals) {
             if (!allow(m_level))
                 return;
-            double val = vals.get();
+            emit(vals.get());
+        }
+
+        /**
+         * For hot call sites: no supplier, so no capturing lambda. Use this only
+         * if the value is cheap to compute, since it's computed even if the level
+         * is disabled.
+         */
+        public void log(double val) {
+            if (!allow(m_level))
+                return;
+            emit(val);
+        }
+
+        private void emit(double val) {
             m_primitiveLogger.log(val);
         }
     }
@@ -168,7 +198,17 @@ public class LoggerFactory {
         public void log(IntSupplier vals) {
             if (!allow(m_level))
                 return;
-            int val = vals.getAsInt();
+            emit(vals.getAsInt());
+        }
+
+        /** For hot call sites: no supplier. */
+        public void log(int val) {
+            if (!allow(m_level))
+                return;
+            emit(val);
+        }
+
+        private void emit(int val) {
             m_primitiveLogger.log(val);
         }
     }
@@ -189,8 +229,18 @@ public class LoggerFactory {
         public void log(Supplier<double[]> vals) {
             if (!allow(m_level))
                 return;
-            double[] val = vals.get();
-            m_primitiveLogger.log(val);
+            m_primitiveLogger.log(vals.get());
+        }
+
+        /**
+         * For hot call sites, e.g. poses: the array is allocated only if the level
+         * is enabled. It can't be reused, because the primitive logger may keep it
+         * until the next flush.
+         */
+        public void log(double a, double b, double c) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(new double[] { a, b, c });
         }
     }
 
@@ -210,7 +260,17 @@ public class LoggerFactory {
         public void log(LongSupplier vals) {
             if (!allow(m_level))
                 return;
-            long val = vals.getAsLong();
+            emit(vals.getAsLong());
+        }
+
+        /** For hot call sites: no supplier. */
+        public void log(long val) {
+            if (!allow(m_level))
+                return;
+            emit(val);
+        }
+
+        private void emit(long val) {
             m_primitiveLogger.log(val);
         }
     }
@@ -298,9 +358,12 @@ public class LoggerFactory {
         public void log(Supplier<Pose2d> vals) {
             if (!allow(m_level))
                 return;
-            Pose2d val = vals.get();
-            m_translation2dLogger.log(val::getTranslation);
-            m_rotation2dLogger.log(val::getRotation);
+            emit(vals.get());
+        }
+
+        private void emit(Pose2d val) {
+            m_translation2dLogger.emit(val.getTranslation());
+            m_rotation2dLogger.emit(val.getRotation());
         }
     }
 
@@ -322,9 +385,12 @@ public class LoggerFactory {
         public void log(Supplier<Transform3d> vals) {
             if (!allow(m_level))
                 return;
-            Transform3d val = vals.get();
-            m_translation3dLogger.log(val::getTranslation);
-            m_rotation3dLogger.log(val::getRotation);
+            emit(vals.get());
+        }
+
+        private void emit(Transform3d val) {
+            m_translation3dLogger.emit(val.getTranslation());
+            m_rotation3dLogger.emit(val.getRotation());
         }
     }
 
@@ -348,10 +414,13 @@ public class LoggerFactory {
         public void log(Supplier<Translation3d> vals) {
             if (!allow(m_level))
                 return;
-            Translation3d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
-            m_zLogger.log(val::getZ);
+            emit(vals.get());
+        }
+
+        private void emit(Translation3d val) {
+            m_xLogger.emit(val.getX());
+            m_yLogger.emit(val.getY());
+            m_zLogger.emit(val.getZ());
         }
     }
 
@@ -375,10 +444,13 @@ public class LoggerFactory {
         public void log(Supplier<Rotation3d> vals) {
             if (!allow(m_level))
                 return;
-            Rotation3d val = vals.get();
-            m_rollLogger.log(val::getX);
-            m_pitchLogger.log(val::getY);
-            m_yawLogger.log(val::getZ);
+            emit(vals.get());
+        }
+
+        private void emit(Rotation3d val) {
+            m_rollLogger.emit(val.getX());
+            m_pitchLogger.emit(val.getY());
+            m_yawLogger.emit(val.getZ());
         }
     }
 
@@ -400,9 +472,12 @@ public class LoggerFactory {
         public void log(Supplier<Translation2d> vals) {
             if (!allow(m_level))
                 return;
-            Translation2d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
+            emit(vals.get());
+        }
+
+        private void emit(Translation2d val) {
+            m_xLogger.emit(val.getX());
+            m_yLogger.emit(val.getY());
         }
     }
 
@@ -424,9 +499,12 @@ public class LoggerFactory {
         public void log(Supplier<Vector2d> vals) {
             if (!allow(m_level))
                 return;
-            Vector2d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
+            emit(vals.get());
+        }
+
+        private void emit(Vector2d val) {
+            m_xLogger.emit(val.getX());
+            m_yLogger.emit(val.getY());
         }
     }
 
@@ -446,8 +524,11 @@ public class LoggerFactory {
         public void log(Supplier<Rotation2d> vals) {
             if (!allow(m_level))
                 return;
-            Rotation2d val = vals.get();
-            m_radLogger.log(val::getRadians);
+            emit(vals.get());
+        }
+
+        private void emit(Rotation2d val) {
+            m_radLogger.emit(val.getRadians());
         }
     }
 
@@ -467,8 +548,11 @@ public class LoggerFactory {
         public void log(Supplier<TrajectorySamplePoint> vals) {
             if (!allow(m_level))
                 return;
-            TrajectorySamplePoint val = vals.get();
-            m_timedPoseLogger.log(val::state);
+            emit(vals.get());
+        }
+
+        private void emit(TrajectorySamplePoint val) {
+            m_timedPoseLogger.emit(val.state());
         }
     }
 
@@ -494,12 +578,14 @@ public class LoggerFactory {
         public void log(Supplier<TimedPose> vals) {
             if (!allow(m_level))
                 return;
-            TimedPose val = vals.get();
-            m_pose2dWithMotionLogger.log(val::state);
-            m_timeLogger.log(val::getTimeS);
-            m_velocityLogger.log(val::velocityM_S);
-            m_accelLogger.log(val::acceleration);
+            emit(vals.get());
+        }
 
+        private void emit(TimedPose val) {
+            m_pose2dWithMotionLogger.emit(val.state());
+            m_timeLogger.emit(val.getTimeS());
+            m_velocityLogger.emit(val.velocityM_S());
+            m_accelLogger.emit(val.acceleration());
         }
     }
 
@@ -519,8 +605,11 @@ public class LoggerFactory {
         public void log(Supplier<PoseWithCurvature> vals) {
             if (!allow(m_level))
                 return;
-            PoseWithCurvature val = vals.get();
-            m_pose2dLogger.log(() -> val.poseMeters);
+            emit(vals.get());
+        }
+
+        private void emit(PoseWithCurvature val) {
+            m_pose2dLogger.emit(val.poseMeters);
         }
     }
 
@@ -542,11 +631,14 @@ public class LoggerFactory {
         public void log(Supplier<Pose2dWithMotion> vals) {
             if (!allow(m_level))
                 return;
-            Pose2dWithMotion val = vals.get();
-            m_pose2dLogger.log(val::getPose);
+            emit(vals.get());
+        }
+
+        private void emit(Pose2dWithMotion val) {
+            m_pose2dLogger.emit(val.getPose());
             Optional<Rotation2d> course = val.getCourse();
             if (course.isPresent()) {
-                m_rotation2dLogger.log(course::get);
+                m_rotation2dLogger.emit(course.get());
             }
         }
     }
@@ -571,10 +663,13 @@ public class LoggerFactory {
         public void log(Supplier<Twist2d> vals) {
             if (!allow(m_level))
                 return;
-            Twist2d val = vals.get();
-            m_dxLogger.log(() -> val.dx);
-            m_dyLogger.log(() -> val.dy);
-            m_dthetaLogger.log(() -> val.dtheta);
+            emit(vals.get());
+        }
+
+        private void emit(Twist2d val) {
+            m_dxLogger.emit(val.dx);
+            m_dyLogger.emit(val.dy);
+            m_dthetaLogger.emit(val.dtheta);
         }
     }
 
@@ -598,10 +693,13 @@ public class LoggerFactory {
         public void log(Supplier<ChassisSpeeds> vals) {
             if (!allow(m_level))
                 return;
-            ChassisSpeeds val = vals.get();
-            m_vxLogger.log(() -> val.vxMetersPerSecond);
-            m_vyLogger.log(() -> val.vyMetersPerSecond);
-            m_omegaLogger.log(() -> val.omegaRadiansPerSecond);
+            emit(vals.get());
+        }
+
+        private void emit(ChassisSpeeds val) {
+            m_vxLogger.emit(val.vxMetersPerSecond);
+            m_vyLogger.emit(val.vyMetersPerSecond);
+            m_omegaLogger.emit(val.omegaRadiansPerSecond);
         }
     }
 
@@ -625,10 +723,13 @@ public class LoggerFactory {
         public void log(Supplier<FieldRelativeVelocity> vals) {
             if (!allow(m_level))
                 return;
-            FieldRelativeVelocity val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            emit(vals.get());
+        }
+
+        private void emit(FieldRelativeVelocity val) {
+            m_xLogger.emit(val.x());
+            m_yLogger.emit(val.y());
+            m_thetaLogger.emit(val.theta());
         }
     }
 
@@ -652,10 +753,13 @@ public class LoggerFactory {
         public void log(Supplier<FieldRelativeAcceleration> vals) {
             if (!allow(m_level))
                 return;
-            FieldRelativeAcceleration val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            emit(vals.get());
+        }
+
+        private void emit(FieldRelativeAcceleration val) {
+            m_xLogger.emit(val.x());
+            m_yLogger.emit(val.y());
+            m_thetaLogger.emit(val.theta());
         }
     }
 
@@ -679,10 +783,13 @@ public class LoggerFactory {
         public void log(Supplier<State100> vals) {
             if (!allow(m_level))
                 return;
-            State100 val = vals.get();
-            m_xLogger.log(val::x);
-            m_vLogger.log(val::v);
-            m_aLogger.log(val::a);
+            emit(vals.get());
+        }
+
+        private void emit(State100 val) {
+            m_xLogger.emit(val.x());
+            m_vLogger.emit(val.v());
+            m_aLogger.emit(val.a());
         }
     }
 
@@ -706,10 +813,13 @@ public class LoggerFactory {
         public void log(Supplier<SwerveState> vals) {
             if (!allow(m_level))
                 return;
-            SwerveState val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            emit(vals.get());
+        }
+
+        private void emit(SwerveState val) {
+            m_xLogger.emit(val.x());
+            m_yLogger.emit(val.y());
+            m_thetaLogger.emit(val.theta());
         }
     }
 
@@ -731,10 +841,13 @@ public class LoggerFactory {
         public void log(Supplier<SwerveModulePosition100> vals) {
             if (!allow(m_level))
                 return;
-            SwerveModulePosition100 val = vals.get();
-            m_distanceLogger.log(() -> val.distanceMeters);
+            emit(vals.get());
+        }
+
+        private void emit(SwerveModulePosition100 val) {
+            m_distanceLogger.emit(val.distanceMeters);
             if (val.angle.isPresent()) {
-                m_rotation2dLogger.log(val.angle::get);
+                m_rotation2dLogger.emit(val.angle.get());
             }
         }
     }
@@ -757,9 +870,12 @@ public class LoggerFactory {
         public void log(Supplier<ArmAngles> vals) {
             if (!allow(m_level))
                 return;
-            ArmAngles val = vals.get();
-            m_th1Logger.log(() -> val.th1);
-            m_th2Logger.log(() -> val.th2);
+            emit(vals.get());
+        }
+
+        private void emit(ArmAngles val) {
+            m_th1Logger.emit(val.th1);
+            m_th2Logger.emit(val.th2);
         }
     }
 
@@ -785,11 +901,14 @@ public class LoggerFactory {
         public void log(Supplier<State> vals) {
             if (!allow(m_level))
                 return;
-            State val = vals.get();
-            m_poseLogger.log(() -> val.poseMeters);
-            m_curvatureLogger.log(() -> val.curvatureRadPerMeter);
-            m_velocityLogger.log(() -> val.velocityMetersPerSecond);
-            m_accelLogger.log(() -> val.accelerationMetersPerSecondSq);
+            emit(vals.get());
+        }
+
+        private void emit(State val) {
+            m_poseLogger.emit(val.poseMeters);
+            m_curvatureLogger.emit(val.curvatureRadPerMeter);
+            m_velocityLogger.emit(val.velocityMetersPerSecond);
+            m_accelLogger.emit(val.accelerationMetersPerSecondSq);
         }
     }
 
@@ -811,9 +930,12 @@ public class LoggerFactory {
         public void log(Supplier<Blip24> vals) {
             if (!allow(m_level))
                 return;
-            Blip24 val = vals.get();
-            m_idLogger.log(val::getId);
-            m_transformLogger.log(val::getPose);
+            emit(vals.get());
+        }
+
+        private void emit(Blip24 val) {
+            m_idLogger.emit(val.getId());
+            m_transformLogger.emit(val.getPose());
         }
     }
 
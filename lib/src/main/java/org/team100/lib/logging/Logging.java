@@ -1,5 +1,6 @@
 package org.team100.lib.logging;
 
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.primitive.DummySender;
 import org.team100.lib.logging.primitive.NTPrimitiveLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger;
@@ -13,12 +14,16 @@ import com.ctre.phoenix6.SignalLogger;
 public class Logging {
     private static final boolean USE_UDP_LOGGING = false;
     private static final boolean USE_REAL_UDP = false;
+    /** Delta-compressed UDP protocol, see UdpPrimitiveProtocol3. */
+    private static final boolean USE_UDP_PROTOCOL_3 = true;
 
     private static final Logging instance = new Logging();
 
     private UdpPrimitiveLogger udpLogger;
     private PrimitiveLogger ntLogger;
-    private Level m_level;
+    private volatile Level m_level;
+    /** Null unless using UDP. */
+    private DoubleLogger m_log_flushTime;
 
     /**
      * root is "field", with a ".type"->"Field2d" entry as required by glass.
@@ -41,14 +46,17 @@ public class Logging {
             if (USE_REAL_UDP) {
                 udpLogger = new UdpPrimitiveLogger(
                         UdpSender.data(),
-                        UdpSender.meta());
+                        UdpSender.meta(),
+                        USE_UDP_PROTOCOL_3);
             } else {
                 udpLogger = new UdpPrimitiveLogger(
                         new DummySender(),
-                        new DummySender());
+                        new DummySender(),
+                        USE_UDP_PROTOCOL_3);
             }
             fieldLogger = new LoggerFactory(() -> m_level, "field", udpLogger);
             rootLogger = new LoggerFactory(() -> m_level, "log", udpLogger);
+            m_log_flushTime = rootLogger.child("Logging").doubleLogger(Level.TRACE, "udp flush time (s)");
         } else {
             ntLogger = new NTPrimitiveLogger();
             fieldLogger = new LoggerFactory(() -> m_level, "field", ntLogger);
@@ -70,12 +78,21 @@ public class Logging {
     }
 
     public void periodic() {
-        if (udpLogger != null)
+        if (udpLogger != null) {
             udpLogger.periodic();
+            m_log_flushTime.log(() -> udpLogger.getFlushTimeS());
+        }
     }
 
+    /**
+     * The poller calls this all the time, so the loggers are told about it only
+     * if it's actually different.
+     */
     public void setLevel(Level level) {
+        if (level == m_level)
+            return;
         m_level = level;
+        LevelGate.invalidateAll();
     }
 
     public static Logging instance() {
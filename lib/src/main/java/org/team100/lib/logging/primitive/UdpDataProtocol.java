@@ -0,0 +1,38 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * What UdpPrimitiveLogger needs from a data protocol.
+ *
+ * The put methods return true if written, false if the packet is full.
+ */
+interface UdpDataProtocol {
+
+    /** Return a buffer view of length equal to current position. */
+    ByteBuffer trim();
+
+    /** Clear the underlying buffer and start a new packet. */
+    void clear();
+
+    boolean putBoolean(int key, boolean val);
+
+    boolean putDouble(int key, double val);
+
+    /**
+     * Put a double that the receiver can decode relative to the previous value
+     * sent for the same key. Protocols without delta encoding just send the
+     * value.
+     */
+    default boolean putDouble(int key, double val, double previous) {
+        return putDouble(key, val);
+    }
+
+    boolean putInt(int key, int val);
+
+    boolean putDoubleArray(int key, double[] val);
+
+    boolean putLong(int key, long val);
+
+    boolean putString(int key, String val);
+}
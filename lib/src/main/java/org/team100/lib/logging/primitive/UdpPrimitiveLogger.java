@@ -1,14 +1,18 @@
 package org.team100.lib.logging.primitive;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 import org.team100.lib.util.Util;
 
@@ -16,14 +20,28 @@ import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Send logs to a log recipient via UDP.
- * 
+ *
  * UDP is not formally reliable but on the robot LAN, for log data, it's good
  * enough.
- * 
+ *
  * The recipient IP is always 10.1.0.100. (or 16 at the moment)
- * 
+ *
  * This logger accepts inputs only one value per key per flush period; the
  * newest value wins.
+ *
+ * With protocol 3, doubles are sent as XOR deltas from the previous value sent,
+ * with a raw value every so often so the receiver can recover from lost
+ * packets. Doubles can also have a deadband, so that near-constant values
+ * aren't sent at all, except for the raw ones.
+ *
+ * Logging is lock-free, and safe from any thread: each logger writes its value
+ * into a slot in a per-type "slab" of primitives, and then sets its dirty bit.
+ * The flusher takes each word of dirty bits with an atomic swap, so the value
+ * it reads is at least as new as the dirty bit; a value written during the
+ * flush just sets the bit again, and goes out next time.
+ *
+ * Encoding and sending happens on a low-priority flusher thread, so it stays
+ * out of the main loop; periodic() just wakes it up.
  */
 public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** if false, throw when a duplicate logger is created. */
@@ -41,14 +59,19 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     private static final double kFlushPeriod = 0.1;
+    /** Send raw doubles at least this often (in flushes), for loss recovery. */
+    private static final int kRawPeriod = 10;
 
-    /** Using lists makes the scan for flushing ever-so-slightly faster */
-    private final List<UdpBooleanLogger> booleanLoggers = new ArrayList<>();
-    private final List<UdpDoubleLogger> doubleLoggers = new ArrayList<>();
-    private final List<UdpIntLogger> integerLoggers = new ArrayList<>();
-    private final List<UdpDoubleArrayLogger> doubleArrayLoggers = new ArrayList<>();
-    private final List<UdpLongLogger> longLoggers = new ArrayList<>();
-    private final List<UdpStringLogger> stringLoggers = new ArrayList<>();
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle REFS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /** Slabs are in registration order, which is key order within each type. */
+    private final Slab booleanSlab = new Slab(UdpType.BOOLEAN);
+    private final Slab doubleSlab = new Slab(UdpType.DOUBLE);
+    private final Slab intSlab = new Slab(UdpType.INT);
+    private final Slab doubleArraySlab = new Slab(UdpType.DOUBLE_ARRAY);
+    private final Slab longSlab = new Slab(UdpType.LONG);
+    private final Slab stringSlab = new Slab(UdpType.STRING);
 
     final List<Metadata> metadata = new ArrayList<>();
     /**
@@ -66,27 +89,48 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final Consumer<ByteBuffer> m_metadataSink;
 
     // keep the output buffers forever because allocating it is slow.
-    private final UdpPrimitiveProtocol m_dataProtocol;
+    private final UdpDataProtocol m_dataProtocol;
     private final UdpMetadataProtocol m_metadataProtocol;
 
     /** Current offset of label dumper */
     int offset = 0;
 
     private double flushTime;
+    /** Number of flushes so far, for scheduling raw doubles. */
+    private int m_flushCount;
+
+    /** Serializes flushes, so tests can flush without the thread. */
+    private final Object m_flushLock = new Object();
+    /** Set by periodic(), cleared by the flusher. */
+    private final AtomicBoolean m_flushRequested = new AtomicBoolean();
+    /** Started by the first periodic(). */
+    private Thread m_flusher;
+    /** Duration of the most recent flush. */
+    private volatile double m_flushTimeS;
 
     public UdpPrimitiveLogger(
             Consumer<ByteBuffer> dataSink,
             Consumer<ByteBuffer> metadataSink) {
+        this(dataSink, metadataSink, false);
+    }
+
+    /**
+     * @param compress use protocol 3, see {@link UdpPrimitiveProtocol3}.
+     */
+    public UdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink,
+            boolean compress) {
         m_bufferSink = dataSink;
         m_metadataSink = metadataSink;
-        m_dataProtocol = new UdpPrimitiveProtocol();
+        m_dataProtocol = compress ? new UdpPrimitiveProtocol3() : new UdpPrimitiveProtocol();
         m_metadataProtocol = new UdpMetadataProtocol();
         flushTime = 0;
     }
 
     /**
      * Call this once when the specific logger class is instantiated.
-     * 
+     *
      * Minimum key is 1, so that zero is an "invalid key".
      */
     private synchronized int getKey(UdpType type, String label) {
@@ -95,17 +139,38 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return key;
     }
 
+    /**
+     * Suppress changes in the double with this label smaller than the deadband,
+     * relative to the value last sent.
+     */
+    public synchronized void setDeadband(String label, double deadband) {
+        UdpDoubleLogger logger = doubleIdx.get(label);
+        if (logger == null)
+            throw new IllegalArgumentException("unknown label " + label);
+        logger.m_chunk.deadband[logger.m_index] = deadband;
+    }
+
     @Override
-    public int keyCount() {
+    public synchronized int keyCount() {
         return metadata.size();
     }
 
-    /** Emits some labels and flushes all dirty values. */
+    /** Duration of the most recent flush, in seconds. */
+    public double getFlushTimeS() {
+        return m_flushTimeS;
+    }
+
+    /**
+     * Asks the flusher thread to emit some labels and flush all dirty values.
+     * This doesn't wait for it.
+     */
     public void periodic() {
         double now = Timer.getFPGATimestamp();
         if (flushTime + kFlushPeriod < now) {
-            flush();
-            dumpLabels();
+            if (m_flusher == null)
+                startFlusher();
+            m_flushRequested.set(true);
+            LockSupport.unpark(m_flusher);
             flushTime = now;
         }
     }
@@ -117,10 +182,10 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     /**
      * Send one packet of labels.
-     * 
+     *
      * return true if there are more labels to send
      */
-    public boolean dumpLabels() {
+    public synchronized boolean dumpLabels() {
         if (metadata.isEmpty())
             return false;
         m_metadataProtocol.clear();
@@ -139,124 +204,251 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return false;
     }
 
-    /** Send at least one packet. */
+    /**
+     * Send at least one packet.
+     *
+     * Usually this runs on the flusher thread, but it's ok to call it directly,
+     * e.g. in tests.
+     */
     public void flush() {
-        m_dataProtocol.clear();
-        flushBoolean();
-        flushDouble();
-        flushInteger();
-        flushDoubleArray();
-        flushLong();
-        flushString();
-        m_bufferSink.accept(m_dataProtocol.trim());
+        synchronized (m_flushLock) {
+            long startNs = System.nanoTime();
+            m_dataProtocol.clear();
+            flushBoolean();
+            flushDouble();
+            flushInteger();
+            flushDoubleArray();
+            flushLong();
+            flushString();
+            m_bufferSink.accept(m_dataProtocol.trim());
+            m_flushCount++;
+            m_flushTimeS = (System.nanoTime() - startNs) * 1e-9;
+        }
     }
 
     public class UdpBooleanLogger implements PrimitiveLogger.PrimitiveBooleanLogger {
-        private final int m_key;
-        private boolean m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpBooleanLogger(String label) {
-            m_key = getKey(UdpType.BOOLEAN, label);
-            booleanLoggers.add(this);
+            int key = getKey(UdpType.BOOLEAN, label);
+            int slot = booleanSlab.add(key);
+            m_chunk = booleanSlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(boolean val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setLong(m_index, val ? 1 : 0);
         }
     }
 
     public class UdpDoubleLogger implements PrimitiveLogger.PrimitiveDoubleLogger {
-        private final int m_key;
-        private double m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpDoubleLogger(String label) {
-            m_key = getKey(UdpType.DOUBLE, label);
-            doubleLoggers.add(this);
+            int key = getKey(UdpType.DOUBLE, label);
+            int slot = doubleSlab.add(key);
+            m_chunk = doubleSlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(double val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setLong(m_index, Double.doubleToRawLongBits(val));
         }
 
     }
 
     public class UdpIntLogger implements PrimitiveLogger.PrimitiveIntLogger {
-        private final int m_key;
-        private int m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpIntLogger(String label) {
-            m_key = getKey(UdpType.INT, label);
-            integerLoggers.add(this);
+            int key = getKey(UdpType.INT, label);
+            int slot = intSlab.add(key);
+            m_chunk = intSlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(int val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setLong(m_index, val);
         }
     }
 
     public class UdpDoubleArrayLogger implements PrimitiveLogger.PrimitiveDoubleArrayLogger {
-        private final int m_key;
-        private double[] m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpDoubleArrayLogger(String label) {
-            m_key = getKey(UdpType.DOUBLE_ARRAY, label);
-            doubleArrayLoggers.add(this);
+            int key = getKey(UdpType.DOUBLE_ARRAY, label);
+            int slot = doubleArraySlab.add(key);
+            m_chunk = doubleArraySlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(double[] val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setRef(m_index, val);
         }
     }
 
     public class UdpLongLogger implements PrimitiveLogger.PrimitiveLongLogger {
-        private final int m_key;
-        private long m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpLongLogger(String label) {
-            m_key = getKey(UdpType.LONG, label);
-            longLoggers.add(this);
+            int key = getKey(UdpType.LONG, label);
+            int slot = longSlab.add(key);
+            m_chunk = longSlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(long val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setLong(m_index, val);
         }
 
     }
 
     public class UdpStringLogger implements PrimitiveLogger.PrimitiveStringLogger {
-        private final int m_key;
-        private String m_val;
-        private boolean m_dirty;
+        private final Chunk m_chunk;
+        private final int m_index;
 
         public UdpStringLogger(String label) {
-            m_key = getKey(UdpType.STRING, label);
-            stringLoggers.add(this);
+            int key = getKey(UdpType.STRING, label);
+            int slot = stringSlab.add(key);
+            m_chunk = stringSlab.chunk(slot);
+            m_index = Slab.index(slot);
         }
 
         @Override
         public void log(String val) {
-            m_val = val;
-            m_dirty = true;
+            m_chunk.setRef(m_index, val);
+        }
+    }
+
+    /**
+     * Values for one type, in fixed-size chunks that never move, so each logger
+     * can keep a reference to its chunk, and nobody needs a lock.
+     */
+    private static final class Slab {
+        private static final int kChunkBits = 8;
+        private static final int kChunkSize = 1 << kChunkBits;
+        private final UdpType m_type;
+        /** Enough chunks for all possible keys. */
+        private final Chunk[] m_chunks = new Chunk[65536 >> kChunkBits];
+        /** Written after the chunk and key, so the flusher sees both. */
+        private volatile int m_count;
+
+        Slab(UdpType type) {
+            m_type = type;
+        }
+
+        /** Call with the registration lock held. Returns the new slot. */
+        int add(int key) {
+            int slot = m_count;
+            int c = slot >>> kChunkBits;
+            if (m_chunks[c] == null)
+                m_chunks[c] = new Chunk(m_type);
+            m_chunks[c].keys[index(slot)] = key;
+            m_count = slot + 1;
+            return slot;
+        }
+
+        Chunk chunk(int slot) {
+            return m_chunks[slot >>> kChunkBits];
+        }
+
+        static int index(int slot) {
+            return slot & (kChunkSize - 1);
+        }
+
+        /** Number of chunks in use. */
+        int chunks() {
+            return (m_count + kChunkSize - 1) >>> kChunkBits;
+        }
+    }
+
+    private static final class Chunk {
+        final int[] keys = new int[Slab.kChunkSize];
+        /** For booleans, doubles (as raw bits), ints, and longs. */
+        final long[] prims;
+        /** For double arrays and strings. */
+        final Object[] refs;
+        final long[] dirty = new long[Slab.kChunkSize / 64];
+        // for doubles; these are used only by the flusher.
+        final double[] sent;
+        final double[] deadband;
+        final int[] rawFlush;
+
+        Chunk(UdpType type) {
+            boolean isRef = type == UdpType.DOUBLE_ARRAY || type == UdpType.STRING;
+            prims = isRef ? null : new long[Slab.kChunkSize];
+            refs = isRef ? new Object[Slab.kChunkSize] : null;
+            boolean isDouble = type == UdpType.DOUBLE;
+            sent = isDouble ? new double[Slab.kChunkSize] : null;
+            deadband = isDouble ? new double[Slab.kChunkSize] : null;
+            rawFlush = isDouble ? new int[Slab.kChunkSize] : null;
+            if (isDouble)
+                Arrays.fill(rawFlush, -kRawPeriod);
+        }
+
+        /** Opaque so that longs aren't torn on 32-bit platforms. */
+        void setLong(int i, long val) {
+            LONGS.setOpaque(prims, i, val);
+            markDirty(i);
+        }
+
+        void setRef(int i, Object val) {
+            REFS.setOpaque(refs, i, val);
+            markDirty(i);
+        }
+
+        long getLong(int i) {
+            return (long) LONGS.getOpaque(prims, i);
+        }
+
+        Object getRef(int i) {
+            return REFS.getOpaque(refs, i);
+        }
+
+        /** Release, so the flusher sees the value when it sees the bit. */
+        private void markDirty(int i) {
+            LONGS.getAndBitwiseOrRelease(dirty, i >>> 6, 1L << i);
+        }
+
+        /** Acquire, pairs with markDirty. */
+        long takeDirty(int word) {
+            return (long) LONGS.getAndSetAcquire(dirty, word, 0L);
         }
     }
 
     //////////////////////////////////////////
 
+    @FunctionalInterface
+    private interface SlotFlusher {
+        void flush(Chunk chunk, int i);
+    }
+
+    /** Call the flusher for each dirty slot, clearing the dirty bits. */
+    private static void forEachDirty(Slab slab, SlotFlusher flusher) {
+        int chunks = slab.chunks();
+        for (int c = 0; c < chunks; ++c) {
+            Chunk chunk = slab.m_chunks[c];
+            for (int w = 0; w < chunk.dirty.length; ++w) {
+                long word = chunk.takeDirty(w);
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    flusher.flush(chunk, (w << 6) + bit);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
     /** @param putter puts the value if there's room, returns false if not. */
     private void putAndMaybeSend(BooleanSupplier putter) {
         if (!putter.getAsBoolean()) {
@@ -270,61 +462,73 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     private void flushBoolean() {
-        for (UdpBooleanLogger logger : booleanLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putBoolean(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
-            }
-        }
+        forEachDirty(booleanSlab, (chunk, i) -> putAndMaybeSend(
+                () -> m_dataProtocol.putBoolean(chunk.keys[i], chunk.getLong(i) != 0)));
     }
 
     private void flushDouble() {
-        for (UdpDoubleLogger logger : doubleLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putDouble(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        forEachDirty(doubleSlab, (chunk, i) -> {
+            int key = chunk.keys[i];
+            double val = Double.longBitsToDouble(chunk.getLong(i));
+            if (m_flushCount - chunk.rawFlush[i] >= kRawPeriod) {
+                putAndMaybeSend(() -> m_dataProtocol.putDouble(key, val));
+                chunk.rawFlush[i] = m_flushCount;
+                chunk.sent[i] = val;
+            } else if (!(Math.abs(val - chunk.sent[i]) < chunk.deadband[i])) {
+                double sent = chunk.sent[i];
+                putAndMaybeSend(() -> m_dataProtocol.putDouble(key, val, sent));
+                chunk.sent[i] = val;
             }
-        }
+        });
     }
 
     private void flushInteger() {
-        for (UdpIntLogger logger : integerLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putInt(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
-            }
-        }
+        forEachDirty(intSlab, (chunk, i) -> putAndMaybeSend(
+                () -> m_dataProtocol.putInt(chunk.keys[i], (int) chunk.getLong(i))));
     }
 
     private void flushDoubleArray() {
-        for (UdpDoubleArrayLogger logger : doubleArrayLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putDoubleArray(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
-            }
-        }
+        forEachDirty(doubleArraySlab, (chunk, i) -> putAndMaybeSend(
+                () -> m_dataProtocol.putDoubleArray(chunk.keys[i], (double[]) chunk.getRef(i))));
     }
 
     private void flushLong() {
-        for (UdpLongLogger logger : longLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putLong(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
-            }
-        }
+        forEachDirty(longSlab, (chunk, i) -> putAndMaybeSend(
+                () -> m_dataProtocol.putLong(chunk.keys[i], chunk.getLong(i))));
     }
 
     private void flushString() {
-        for (UdpStringLogger logger : stringLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putString(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        forEachDirty(stringSlab, (chunk, i) -> putAndMaybeSend(
+                () -> m_dataProtocol.putString(chunk.keys[i], (String) chunk.getRef(i))));
+    }
+
+    private void startFlusher() {
+        m_flusher = new Thread(this::runFlusher);
+        // lower than the main loop, since logs can wait.
+        m_flusher.setPriority(Thread.MIN_PRIORITY);
+        m_flusher.setDaemon(true);
+        m_flusher.setName("UDP Log Flusher");
+        m_flusher.start();
+    }
+
+    private void runFlusher() {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!m_flushRequested.getAndSet(false)) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                flush();
+                dumpLabels();
+            } catch (RuntimeException e) {
+                // keep going; one bad flush shouldn't end logging.
+                Util.warn(e.toString());
             }
         }
     }
 
     @Override
-    public PrimitiveBooleanLogger booleanLogger(String label) {
+    public synchronized PrimitiveBooleanLogger booleanLogger(String label) {
         if (booleanIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
@@ -339,7 +543,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     @Override
-    public PrimitiveDoubleLogger doubleLogger(String label) {
+    public synchronized PrimitiveDoubleLogger doubleLogger(String label) {
         if (doubleIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
@@ -354,7 +558,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     @Override
-    public PrimitiveIntLogger intLogger(String label) {
+    public synchronized PrimitiveIntLogger intLogger(String label) {
         if (intIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
@@ -369,7 +573,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     @Override
-    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+    public synchronized PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
         if (doubleArrayIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
@@ -384,7 +588,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     @Override
-    public PrimitiveLongLogger longLogger(String label) {
+    public synchronized PrimitiveLongLogger longLogger(String label) {
         if (longIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
@@ -399,7 +603,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     }
 
     @Override
-    public PrimitiveStringLogger stringLogger(String label) {
+    public synchronized PrimitiveStringLogger stringLogger(String label) {
         if (stringIdx.containsKey(label)) {
             if (ALLOW_DUPLICATES) {
                 Util.warn("duplicate label " + label);
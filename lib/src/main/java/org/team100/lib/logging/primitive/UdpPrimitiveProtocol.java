@@ -40,7 +40,7 @@ import java.nio.charset.StandardCharsets;
  * These operations used to use offsets but the only use cases are
  * sequential, so i converted them all to relative.
  */
-public class UdpPrimitiveProtocol {
+public class UdpPrimitiveProtocol implements UdpDataProtocol {
     public static class ProtocolException extends Exception {
     }
 
@@ -58,8 +58,8 @@ public class UdpPrimitiveProtocol {
         this(UdpSender.MTU);
     }
 
-    /** Return a buffer view of length equal to current position. */
-    ByteBuffer trim() {
+    @Override
+    public ByteBuffer trim() {
         return m_buffer.slice(0, m_buffer.position());
     }
 
@@ -69,37 +69,38 @@ public class UdpPrimitiveProtocol {
     }
 
     /** Clear the underlying buffer and rewrite the timestamp into it. */
-    void clear() {
+    @Override
+    public void clear() {
         m_buffer.clear();
         m_buffer.putLong(UdpMetadataProtocol.timestamp);
     }
 
-    /** @return true if written */
+    @Override
     public boolean putLong(int key, long val) {
         return encodeLong(m_buffer, key, val) != 0;
     }
 
-    /** @return true if written */
+    @Override
     public boolean putString(int key, String val) {
         return encodeString(m_buffer, key, val) != 0;
     }
 
-    /** @return true if written */
+    @Override
     public boolean putInt(int key, int val) {
         return encodeInt(m_buffer, key, val) != 0;
     }
 
-    /** @return true if written */
+    @Override
     public boolean putDouble(int key, double val) {
         return encodeDouble(m_buffer, key, val) != 0;
     }
 
-    /** @return true if written */
+    @Override
     public boolean putBoolean(int key, boolean val) {
         return encodeBoolean(m_buffer, key, val) != 0;
     }
 
-    /** @return true if written */
+    @Override
     public boolean putDoubleArray(int key, double[] val) {
         return encodeDoubleArray(m_buffer, key, val) != 0;
     }
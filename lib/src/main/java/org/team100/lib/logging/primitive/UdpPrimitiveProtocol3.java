@@ -0,0 +1,370 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+/**
+ * Log data protocol 3
+ *
+ * Like protocol 2, but terser, since with full logging we hit the radio
+ * bandwidth cap.
+ *
+ * Each packet starts with a header:
+ *
+ * * version and timestamp (8 bytes): the version (3) is in the high byte, the
+ * session timestamp (epoch seconds) is in the rest, so protocol 2 packets,
+ * which have a zero high byte, can be told apart.
+ * * sequence number (4 bytes), so the receiver can count lost packets.
+ *
+ * Then a list of tuples:
+ *
+ * * key: the difference from the previous key in the packet, as a zigzag
+ * varint, so usually 1 byte.
+ * * tag (1 byte)
+ * * value (varies)
+ *
+ * If the high bit of the tag is clear, the low nibble is the UdpType, and the
+ * value is the same as protocol 2, except for booleans, which are in bit 4 of
+ * the tag, with no value bytes.
+ *
+ * If the high bit of the tag is set, the value is a double, XORed with the
+ * previous value sent for the same key, a byte-aligned version of the "Gorilla"
+ * scheme. Bits 4-6 of the tag are the number of trailing zero bytes of the XOR,
+ * bits 0-3 are the number of "meaningful" bytes that follow, between the
+ * leading and trailing zeros. Zero meaningful bytes means the value didn't
+ * change. Slowly-changing values share the sign, exponent, and high mantissa
+ * bits, so the XOR is short.
+ *
+ * <pre>
+ * VDDDDDDDSSSSKTKTmmmKTdddddddd
+ * ^^^^^^^^                      version and timestamp
+ *         ^^^^                  sequence number
+ *             ^                 key delta = +16 (key = 16)
+ *              ^                tag = boolean true
+ *               ^               key delta = +1 (key = 17)
+ *                ^              tag = xor, 0 trailing, 3 meaningful
+ *                 ^^^           xor bytes
+ *                    ^          key delta = +1 (key = 18)
+ *                     ^         tag = double
+ *                      ^^^^^^^^ raw double value
+ * </pre>
+ *
+ * Because an XORed value depends on the previous one, a lost packet spoils the
+ * XORed values for its keys until the next raw value. The sender should send
+ * raw values regularly, and the receiver should ignore XORed values after a
+ * gap in the sequence, until the raw value arrives.
+ */
+public class UdpPrimitiveProtocol3 implements UdpDataProtocol {
+    public static final int VERSION = 3;
+    /** Header is version/timestamp and sequence number. */
+    public static final int HEADER_LENGTH = 12;
+
+    private static final int kXorTag = 0x80;
+    private static final int kBooleanBit = 0x10;
+    /** Largest key delta is 65535, which needs 3 varint bytes. */
+    private static final int kMaxKeyLength = 3;
+
+    private final ByteBuffer m_buffer;
+    /** Sequence number of the packet in the buffer. */
+    private int m_sequence;
+    /** Previous key in this packet, for delta encoding. */
+    private int m_prevKey;
+
+    public UdpPrimitiveProtocol3(int bufferSize) {
+        // direct buffer goes slightly faster out the network
+        m_buffer = ByteBuffer.allocateDirect(bufferSize);
+        // big-endian is the default, but just to make it clear...
+        m_buffer.order(ByteOrder.BIG_ENDIAN);
+        writeHeader();
+    }
+
+    public UdpPrimitiveProtocol3() {
+        this(UdpSender.MTU);
+    }
+
+    @Override
+    public ByteBuffer trim() {
+        return m_buffer.slice(0, m_buffer.position());
+    }
+
+    /** for testing */
+    ByteBuffer buffer() {
+        return m_buffer;
+    }
+
+    /** Clear the underlying buffer and write the header for the next packet. */
+    @Override
+    public void clear() {
+        m_buffer.clear();
+        m_sequence++;
+        writeHeader();
+    }
+
+    @Override
+    public boolean putBoolean(int key, boolean val) {
+        return encodeBoolean(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    @Override
+    public boolean putDouble(int key, double val) {
+        return encodeDouble(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    @Override
+    public boolean putDouble(int key, double val, double previous) {
+        return encodeDoubleXor(m_buffer, m_prevKey, key, val, previous) && advance(key);
+    }
+
+    @Override
+    public boolean putInt(int key, int val) {
+        return encodeInt(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    @Override
+    public boolean putDoubleArray(int key, double[] val) {
+        return encodeDoubleArray(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    @Override
+    public boolean putLong(int key, long val) {
+        return encodeLong(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    @Override
+    public boolean putString(int key, String val) {
+        return encodeString(m_buffer, m_prevKey, key, val) && advance(key);
+    }
+
+    ////////////////////////////////////////////////////
+    //
+    // header
+    //
+
+    /** The version, from the high byte of the first header word. */
+    public static int decodeVersion(long header) {
+        return (int) (header >>> 56);
+    }
+
+    /** The session timestamp, from the rest of the first header word. */
+    public static long decodeTimestamp(long header) {
+        return header & 0x00ffffffffffffffL;
+    }
+
+    public static int decodeSequence(ByteBuffer buf) throws ProtocolException {
+        try {
+            return buf.getInt();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    ////////////////////////////////////////////////////
+    //
+    // key and tag
+    //
+
+    /** @param prevKey the previous key in the packet, or zero for the first. */
+    public static int decodeKey(ByteBuffer buf, int prevKey) throws ProtocolException {
+        try {
+            int zigzag = 0;
+            for (int i = 0; i < kMaxKeyLength; ++i) {
+                int b = buf.get();
+                zigzag |= (b & 0x7f) << (7 * i);
+                if ((b & 0x80) == 0) {
+                    int key = prevKey + ((zigzag >>> 1) ^ -(zigzag & 1));
+                    if (key < 0 || key > 65535)
+                        throw new ProtocolException();
+                    return key;
+                }
+            }
+            throw new ProtocolException();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    public static int decodeTag(ByteBuffer buf) throws ProtocolException {
+        try {
+            return buf.get() & 0xff;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    /** True if the tag is for an XORed double. */
+    public static boolean isXor(int tag) {
+        return (tag & kXorTag) != 0;
+    }
+
+    /** The type of a non-XOR tag. */
+    public static UdpType decodeType(int tag) {
+        return UdpType.get((byte) (tag & 0x0f));
+    }
+
+    /** Booleans are in the tag. */
+    public static boolean decodeBoolean(int tag) {
+        return (tag & kBooleanBit) != 0;
+    }
+
+    ////////////////////////////////////////////////////
+    //
+    // values
+    //
+    // Other than booleans and XORed doubles, the values are the same as
+    // protocol 2, so decode them with UdpPrimitiveProtocol.
+    //
+
+    static boolean encodeBoolean(ByteBuffer buf, int prevKey, int key, boolean val) {
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 1)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put((byte) (UdpType.BOOLEAN.id | (val ? kBooleanBit : 0)));
+        return true;
+    }
+
+    static boolean encodeDouble(ByteBuffer buf, int prevKey, int key, double val) {
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 9)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put(UdpType.DOUBLE.id);
+        buf.putDouble(val);
+        return true;
+    }
+
+    /**
+     * <pre>
+     * KTmmm
+     * ^     key delta (1-3 bytes)
+     *  ^    tag: 1, trailing zero bytes (3 bits), meaningful bytes (4 bits)
+     *   ^^^ meaningful bytes of the XOR (0-8 bytes)
+     * </pre>
+     */
+    static boolean encodeDoubleXor(ByteBuffer buf, int prevKey, int key, double val, double previous) {
+        long xor = Double.doubleToRawLongBits(val) ^ Double.doubleToRawLongBits(previous);
+        int trailing = 0;
+        int meaningful = 0;
+        if (xor != 0) {
+            trailing = Long.numberOfTrailingZeros(xor) / 8;
+            meaningful = 8 - Long.numberOfLeadingZeros(xor) / 8 - trailing;
+        }
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 1 + meaningful)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put((byte) (kXorTag | (trailing << 4) | meaningful));
+        long bits = xor >>> (8 * trailing);
+        for (int i = meaningful - 1; i >= 0; --i) {
+            buf.put((byte) (bits >>> (8 * i)));
+        }
+        return true;
+    }
+
+    /** @param previous the previous value for this key */
+    public static double decodeDoubleXor(ByteBuffer buf, int tag, double previous) throws ProtocolException {
+        int trailing = (tag >>> 4) & 0x07;
+        int meaningful = tag & 0x0f;
+        if (trailing + meaningful > 8)
+            throw new ProtocolException();
+        try {
+            long bits = 0;
+            for (int i = 0; i < meaningful; ++i) {
+                bits = (bits << 8) | (buf.get() & 0xff);
+            }
+            long xor = bits << (8 * trailing);
+            return Double.longBitsToDouble(Double.doubleToRawLongBits(previous) ^ xor);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    static boolean encodeInt(ByteBuffer buf, int prevKey, int key, int val) {
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 5)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put(UdpType.INT.id);
+        buf.putInt(val);
+        return true;
+    }
+
+    static boolean encodeDoubleArray(ByteBuffer buf, int prevKey, int key, double[] val) {
+        if (val.length > 255)
+            throw new IllegalArgumentException();
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 2 + val.length * 8)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put(UdpType.DOUBLE_ARRAY.id);
+        buf.put((byte) val.length);
+        for (int i = 0; i < val.length; ++i) {
+            buf.putDouble(val[i]);
+        }
+        return true;
+    }
+
+    static boolean encodeLong(ByteBuffer buf, int prevKey, int key, long val) {
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 9)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put(UdpType.LONG.id);
+        buf.putLong(val);
+        return true;
+    }
+
+    static boolean encodeString(ByteBuffer buf, int prevKey, int key, String val) {
+        final byte[] bytes = val.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > 255)
+            throw new IllegalArgumentException();
+        int keyLength = keyLength(prevKey, key);
+        if (buf.remaining() < keyLength + 2 + bytes.length)
+            return false;
+        putKey(buf, prevKey, key);
+        buf.put(UdpType.STRING.id);
+        buf.put((byte) bytes.length);
+        buf.put(bytes);
+        return true;
+    }
+
+    ////////////////////////////////////////////////////
+
+    private void writeHeader() {
+        m_buffer.putLong(((long) VERSION << 56) | UdpMetadataProtocol.timestamp);
+        m_buffer.putInt(m_sequence);
+        m_prevKey = 0;
+    }
+
+    private boolean advance(int key) {
+        m_prevKey = key;
+        return true;
+    }
+
+    private static int zigzag(int prevKey, int key) {
+        int delta = key - prevKey;
+        return (delta << 1) ^ (delta >> 31);
+    }
+
+    private static int keyLength(int prevKey, int key) {
+        int zigzag = zigzag(prevKey, key);
+        if (zigzag < (1 << 7))
+            return 1;
+        if (zigzag < (1 << 14))
+            return 2;
+        return 3;
+    }
+
+    private static void putKey(ByteBuffer buf, int prevKey, int key) {
+        int zigzag = zigzag(prevKey, key);
+        while (zigzag >= 0x80) {
+            buf.put((byte) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        buf.put((byte) zigzag);
+    }
+}
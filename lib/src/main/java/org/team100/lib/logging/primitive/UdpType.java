@@ -25,7 +25,7 @@ public enum UdpType {
     public static UdpType get(byte id) {
         if (id < 0)
             return UNKNOWN;
-        if (id > values().length)
+        if (id >= values().length)
             return UNKNOWN;
         return list[id];
     }
@@ -0,0 +1,424 @@
+package org.team100.lib.logging.receiver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.team100.lib.logging.primitive.UdpType;
+
+/**
+ * Writes decoded values to disk, fast enough to keep up with a robot logging at
+ * full rate, which the NT/DataLog consumer can't do.
+ *
+ * Each key gets its own column, which accumulates values (and their receive
+ * times) in memory, and is appended to the file as a "chunk" when it's full.
+ * The file is memory-mapped, in large regions, so appending is just a copy.
+ *
+ * There's one file ("segment") per session timestamp, like the wpilog files.
+ *
+ * The file starts with a header:
+ *
+ * * magic "T100COLS" (8 bytes)
+ * * session timestamp, epoch seconds (8 bytes)
+ *
+ * followed by records, each of which starts with
+ *
+ * * kind, 'L' for label or 'C' for chunk (1 byte)
+ * * type id (1 byte)
+ * * key (2 bytes)
+ * * payload length (4 bytes)
+ *
+ * A label payload is the label in ASCII. A chunk payload is:
+ *
+ * * time of the first value, microseconds since the segment started (8 bytes)
+ * * count (4 bytes)
+ * * times, microseconds since the first value (4 bytes each)
+ * * values: booleans are 1 byte, doubles 8, ints 4; arrays and strings have a
+ * 2-byte length (in elements or bytes), then the contents.
+ *
+ * Longs arrive as ints (see UdpDataDecoder), so they're in int columns.
+ *
+ * The meta reader and data reader run in separate threads. Only the data
+ * thread touches the columns and the file; the meta thread just updates the
+ * labels, which are written when a column is created or flushed.
+ */
+public class ColumnarUdpConsumers implements UdpConsumersInterface {
+    private static final byte[] kMagic = "T100COLS".getBytes(StandardCharsets.US_ASCII);
+    private static final int kRecordHeaderBytes = 8;
+    private static final int kChunkHeaderBytes = 12;
+    /** Values per chunk, for fixed-size types. */
+    private static final int kChunkValues = 1024;
+    /** Bytes per chunk, for arrays and strings. */
+    private static final int kChunkBytes = 16384;
+    /** Large, so remapping is rare. Must hold the largest record. */
+    private static final long kRegionBytes = 64L << 20;
+    // see DataLogManager.java
+    private static final ZoneId m_utc = ZoneId.of("UTC");
+    private static final DateTimeFormatter m_timeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+            .withZone(m_utc);
+
+    private final Path m_dir;
+    /** Optional NT/DataLog republish, which gets everything we get. */
+    private final Optional<UdpConsumersInterface> m_republish;
+
+    /** The session of the incoming data; written by either reader thread. */
+    private volatile long m_timestamp;
+    /** Labels for the current session, replaced when the session changes. */
+    private volatile Map<Integer, Label> m_labels = new ConcurrentHashMap<>();
+
+    // these are used only by the data thread.
+    private Segment m_segment;
+    private final Column[] m_columns = new Column[65536];
+
+    private record Label(UdpType type, String label) {
+    }
+
+    /**
+     * @param dir       where to put the segment files
+     * @param republish also send everything here, e.g. to UdpConsumers.
+     */
+    public ColumnarUdpConsumers(Path dir, Optional<UdpConsumersInterface> republish) {
+        m_dir = dir;
+        m_republish = republish;
+    }
+
+    @Override
+    public synchronized boolean validateTimestamp(long timestamp) {
+        m_republish.ifPresent(r -> r.validateTimestamp(timestamp));
+        if (timestamp == 0) {
+            // not a real timestamp, this only happens on startup
+            // before the DS connects to the robot.
+            m_timestamp = 0;
+            return true;
+        }
+        if (timestamp != m_timestamp) {
+            // the data thread will roll the segment when it notices.
+            m_labels = new ConcurrentHashMap<>();
+            m_timestamp = timestamp;
+        }
+        return true;
+    }
+
+    @Override
+    public void acceptBoolean(int key, boolean val) {
+        m_republish.ifPresent(r -> r.acceptBoolean(key, val));
+        Column c = column(key, UdpType.BOOLEAN);
+        if (c == null)
+            return;
+        c.add(val ? 1 : 0);
+    }
+
+    @Override
+    public void acceptDouble(int key, double val) {
+        m_republish.ifPresent(r -> r.acceptDouble(key, val));
+        Column c = column(key, UdpType.DOUBLE);
+        if (c == null)
+            return;
+        c.add(Double.doubleToRawLongBits(val));
+    }
+
+    @Override
+    public void acceptInt(int key, int val) {
+        m_republish.ifPresent(r -> r.acceptInt(key, val));
+        Column c = column(key, UdpType.INT);
+        if (c == null)
+            return;
+        c.add(val);
+    }
+
+    @Override
+    public void acceptDoubleArray(int key, double[] val) {
+        m_republish.ifPresent(r -> r.acceptDoubleArray(key, val));
+        Column c = column(key, UdpType.DOUBLE_ARRAY);
+        if (c == null)
+            return;
+        c.add(val);
+    }
+
+    @Override
+    public void acceptString(int key, String val) {
+        m_republish.ifPresent(r -> r.acceptString(key, val));
+        Column c = column(key, UdpType.STRING);
+        if (c == null)
+            return;
+        c.add(val.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void acceptMeta(int key, UdpType type, String val) {
+        m_republish.ifPresent(r -> r.acceptMeta(key, type, val));
+        m_labels.put(key, new Label(type, val));
+    }
+
+    /** The map doesn't need flushing; the OS writes it back. */
+    @Override
+    public void flush() {
+        m_republish.ifPresent(UdpConsumersInterface::flush);
+    }
+
+    /** Call this after the reader threads are done. */
+    @Override
+    public synchronized void close() {
+        m_republish.ifPresent(UdpConsumersInterface::close);
+        closeSegment();
+    }
+
+    /** The path of the current segment, if any, for testing. */
+    Optional<Path> segmentPath() {
+        if (m_segment == null)
+            return Optional.empty();
+        return Optional.of(m_segment.m_path);
+    }
+
+    ////////////////////////////////////////////////////
+
+    /**
+     * The column for the key, rolling the segment if the session has changed.
+     * Returns null if there's no session yet.
+     */
+    private Column column(int key, UdpType type) {
+        long timestamp = m_timestamp;
+        if (timestamp == 0)
+            return null;
+        if (m_segment == null || m_segment.m_timestamp != timestamp) {
+            closeSegment();
+            m_segment = new Segment(m_dir, timestamp, m_labels);
+        }
+        Column c = m_columns[key];
+        if (c == null || c.m_type != type) {
+            if (c != null)
+                c.flush();
+            c = new Column(key, type);
+            m_columns[key] = c;
+        }
+        return c;
+    }
+
+    private void closeSegment() {
+        if (m_segment == null)
+            return;
+        for (int i = 0; i < m_columns.length; ++i) {
+            if (m_columns[i] != null) {
+                m_columns[i].flush();
+                m_columns[i] = null;
+            }
+        }
+        m_segment.close();
+        m_segment = null;
+    }
+
+    /** Values for one key, waiting to be written as a chunk. */
+    private final class Column {
+        private final int m_key;
+        private final UdpType m_type;
+        private final int[] m_times = new int[kChunkValues];
+        /** For fixed-size types, raw bits. */
+        private final long[] m_values;
+        /** For arrays and strings, length-prefixed. */
+        private final ByteBuffer m_bytes;
+        private int m_count;
+        private long m_firstUs;
+        private boolean m_labelWritten;
+
+        Column(int key, UdpType type) {
+            m_key = key;
+            m_type = type;
+            boolean variable = type == UdpType.DOUBLE_ARRAY || type == UdpType.STRING;
+            m_values = variable ? null : new long[kChunkValues];
+            m_bytes = variable ? ByteBuffer.allocate(kChunkBytes) : null;
+            m_labelWritten = m_segment.writeLabel(key);
+        }
+
+        void add(long val) {
+            int t = time();
+            m_values[m_count] = val;
+            m_times[m_count] = t;
+            m_count++;
+            if (m_count == kChunkValues)
+                flush();
+        }
+
+        void add(double[] val) {
+            if (m_bytes.remaining() < 2 + val.length * 8)
+                flush();
+            int t = time();
+            m_bytes.putShort((short) val.length);
+            for (double v : val) {
+                m_bytes.putDouble(v);
+            }
+            m_times[m_count] = t;
+            m_count++;
+            if (m_count == kChunkValues)
+                flush();
+        }
+
+        void add(byte[] val) {
+            if (m_bytes.remaining() < 2 + val.length)
+                flush();
+            int t = time();
+            m_bytes.putShort((short) val.length);
+            m_bytes.put(val);
+            m_times[m_count] = t;
+            m_count++;
+            if (m_count == kChunkValues)
+                flush();
+        }
+
+        /** Receive time relative to the first value in the chunk. */
+        private int time() {
+            long nowUs = m_segment.micros();
+            if (m_count == 0) {
+                m_firstUs = nowUs;
+            } else if (nowUs - m_firstUs > Integer.MAX_VALUE) {
+                // too long since the first value, start a new chunk.
+                flush();
+                m_firstUs = nowUs;
+            }
+            return (int) (nowUs - m_firstUs);
+        }
+
+        void flush() {
+            if (m_count == 0)
+                return;
+            if (!m_labelWritten)
+                m_labelWritten = m_segment.writeLabel(m_key);
+            int valueBytes = switch (m_type) {
+                case BOOLEAN -> m_count;
+                case DOUBLE -> m_count * 8;
+                case INT -> m_count * 4;
+                default -> m_bytes.position();
+            };
+            ByteBuffer out = m_segment.beginRecord(
+                    'C', m_type, m_key, kChunkHeaderBytes + m_count * 4 + valueBytes);
+            out.putLong(m_firstUs);
+            out.putInt(m_count);
+            for (int i = 0; i < m_count; ++i) {
+                out.putInt(m_times[i]);
+            }
+            switch (m_type) {
+                case BOOLEAN -> {
+                    for (int i = 0; i < m_count; ++i)
+                        out.put((byte) m_values[i]);
+                }
+                case DOUBLE -> {
+                    for (int i = 0; i < m_count; ++i)
+                        out.putLong(m_values[i]);
+                }
+                case INT -> {
+                    for (int i = 0; i < m_count; ++i)
+                        out.putInt((int) m_values[i]);
+                }
+                default -> {
+                    out.put(m_bytes.flip());
+                    m_bytes.clear();
+                }
+            }
+            m_count = 0;
+        }
+    }
+
+    /** One memory-mapped file, for one session. */
+    private static final class Segment {
+        private final Path m_path;
+        private final long m_timestamp;
+        private final Map<Integer, Label> m_labels;
+        private final FileChannel m_channel;
+        private final long m_startNs;
+        /** File offset of the mapped region. */
+        private long m_regionStart;
+        private MappedByteBuffer m_region;
+
+        Segment(Path dir, long timestamp, Map<Integer, Label> labels) {
+            m_timestamp = timestamp;
+            m_labels = labels;
+            m_startNs = System.nanoTime();
+            try {
+                Files.createDirectories(dir);
+                String name = "FRC_" + m_timeFormatter.format(Instant.ofEpochSecond(timestamp));
+                Path path = dir.resolve(name + ".t100col");
+                FileChannel channel = null;
+                // a repeated session shouldn't overwrite the old one.
+                for (int i = 1; channel == null; ++i) {
+                    try {
+                        channel = FileChannel.open(path,
+                                StandardOpenOption.CREATE_NEW,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+                    } catch (FileAlreadyExistsException e) {
+                        path = dir.resolve(name + "-" + i + ".t100col");
+                    }
+                }
+                m_path = path;
+                m_channel = channel;
+                map(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.out.println("new segment " + m_path);
+            m_region.put(kMagic);
+            m_region.putLong(timestamp);
+        }
+
+        long micros() {
+            return (System.nanoTime() - m_startNs) / 1000;
+        }
+
+        /** @return true if the label was available. */
+        boolean writeLabel(int key) {
+            Label label = m_labels.get(key);
+            if (label == null)
+                return false;
+            byte[] bytes = label.label().getBytes(StandardCharsets.US_ASCII);
+            beginRecord('L', label.type(), key, bytes.length).put(bytes);
+            return true;
+        }
+
+        /** Write the record header and return the buffer to write the payload. */
+        ByteBuffer beginRecord(char kind, UdpType type, int key, int payloadBytes) {
+            if (m_region.remaining() < kRecordHeaderBytes + payloadBytes)
+                map(m_regionStart + m_region.position());
+            m_region.put((byte) kind);
+            m_region.put(type.id);
+            m_region.putChar((char) key);
+            m_region.putInt(payloadBytes);
+            return m_region;
+        }
+
+        void close() {
+            try {
+                long length = m_regionStart + m_region.position();
+                m_region.force();
+                m_channel.truncate(length);
+                m_channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void map(long start) {
+            try {
+                if (m_region != null)
+                    m_region.force();
+                m_regionStart = start;
+                m_region = m_channel.map(FileChannel.MapMode.READ_WRITE, start, kRegionBytes);
+                m_region.order(ByteOrder.BIG_ENDIAN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
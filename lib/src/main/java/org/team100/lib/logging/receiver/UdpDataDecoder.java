@@ -3,26 +3,79 @@ package org.team100.lib.logging.receiver;
 import java.nio.ByteBuffer;
 
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol3;
 import org.team100.lib.logging.primitive.UdpType;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
+/**
+ * Decodes protocol 2 and protocol 3 packets, choosing by the version in the
+ * header.
+ *
+ * For protocol 3, this counts lost packets using the sequence number, and
+ * keeps the previous value of each double key, to undo the XOR. After a loss,
+ * the XORed values are ignored until the next raw value for the key.
+ */
 public class UdpDataDecoder {
     private static final int kFlushFrequency = 50;
+    /** Packets this far behind are late; farther means the sender restarted. */
+    private static final int kReorderWindow = 64;
     private final UdpConsumersInterface m_consumers;
     private int flushCounter = 0;
 
+    /** Version of the current packet. */
+    private int m_version;
+    /** Previous key in the current packet. */
+    private int m_prevKey;
+    private long m_timestamp;
+    private boolean m_started;
+    private int m_sequence;
+    private long m_dropped;
+    private long m_late;
+    private long m_skipped;
+
+    /** Previous double value for each key. */
+    private final double[] m_previous = new double[65536];
+    /** Previous values are valid only if their epoch is current. */
+    private final int[] m_previousEpoch = new int[65536];
+    /** Incremented on loss, invalidating all the previous values at once. */
+    private int m_epoch = 1;
+
     public UdpDataDecoder(UdpConsumersInterface consumers) {
         m_consumers = consumers;
     }
 
     /**
+     * Reads the header.
+     *
      * return true if timestamp is the first we've seen, or the same as the previous
      * one.
-     * @throws ProtocolException 
+     *
+     * For protocol 3, also checks the sequence number. Late packets are skipped,
+     * by moving the position to the end.
+     *
+     * @throws ProtocolException
      */
     public boolean validateTimestamp(ByteBuffer buf) throws ProtocolException {
-        long timestamp = UdpPrimitiveProtocol.decodeLong(buf);
-        return m_consumers.validateTimestamp(timestamp);
+        long header = UdpPrimitiveProtocol.decodeLong(buf);
+        m_version = UdpPrimitiveProtocol3.decodeVersion(header);
+        long timestamp = UdpPrimitiveProtocol3.decodeTimestamp(header);
+        if (m_version != 0 && m_version != UdpPrimitiveProtocol3.VERSION)
+            throw new ProtocolException();
+        if (!m_consumers.validateTimestamp(timestamp))
+            return false;
+        if (timestamp != m_timestamp) {
+            // new session, new sequence.
+            m_timestamp = timestamp;
+            m_started = false;
+            m_epoch++;
+        }
+        if (m_version == UdpPrimitiveProtocol3.VERSION) {
+            m_prevKey = 0;
+            int sequence = UdpPrimitiveProtocol3.decodeSequence(buf);
+            if (!checkSequence(sequence))
+                buf.position(buf.limit());
+        }
+        return true;
     }
 
     /**
@@ -30,6 +83,62 @@ public class UdpDataDecoder {
      * Flushes the consumers at the end.
      */
     public void decode(ByteBuffer buf) throws ProtocolException {
+        if (m_version == UdpPrimitiveProtocol3.VERSION) {
+            decode3(buf);
+        } else {
+            decode2(buf);
+        }
+        if (flushCounter++ > kFlushFrequency) {
+            m_consumers.flush();
+            flushCounter = 0;
+        }
+    }
+
+    /** Packets missing from the sequence. */
+    public long dropped() {
+        return m_dropped;
+    }
+
+    /** Packets that arrived out of order, and were skipped. */
+    public long late() {
+        return m_late;
+    }
+
+    /** XORed values skipped because a previous value was lost. */
+    public long skipped() {
+        return m_skipped;
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** @return false if the packet should be skipped */
+    private boolean checkSequence(int sequence) {
+        if (!m_started) {
+            m_started = true;
+            m_sequence = sequence;
+            return true;
+        }
+        // int arithmetic handles wrapping.
+        int gap = sequence - m_sequence - 1;
+        if (gap < 0 && gap >= -kReorderWindow) {
+            // duplicate or out of order; the previous values have moved on.
+            m_late++;
+            return false;
+        }
+        if (gap != 0) {
+            if (gap > 0) {
+                m_dropped += gap;
+                System.out.printf("dropped %d packets (%d total)\n", gap, m_dropped);
+            } else {
+                System.out.println("sequence reset");
+            }
+            m_epoch++;
+        }
+        m_sequence = sequence;
+        return true;
+    }
+
+    private void decode2(ByteBuffer buf) throws ProtocolException {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
         switch (type) {
@@ -59,9 +168,52 @@ public class UdpDataDecoder {
             }
             default -> System.out.println("unknown data decoder type");
         }
-        if (flushCounter++ > kFlushFrequency) {
-            m_consumers.flush();
-            flushCounter = 0;
+    }
+
+    private void decode3(ByteBuffer buf) throws ProtocolException {
+        int key = UdpPrimitiveProtocol3.decodeKey(buf, m_prevKey);
+        m_prevKey = key;
+        int tag = UdpPrimitiveProtocol3.decodeTag(buf);
+        if (UdpPrimitiveProtocol3.isXor(tag)) {
+            double v = UdpPrimitiveProtocol3.decodeDoubleXor(buf, tag, m_previous[key]);
+            if (m_previousEpoch[key] != m_epoch) {
+                // the previous value was lost, so this one is garbage.
+                m_skipped++;
+                return;
+            }
+            m_previous[key] = v;
+            m_consumers.acceptDouble(key, v);
+            return;
+        }
+        switch (UdpPrimitiveProtocol3.decodeType(tag)) {
+            case BOOLEAN -> {
+                boolean v = UdpPrimitiveProtocol3.decodeBoolean(tag);
+                m_consumers.acceptBoolean(key, v);
+            }
+            case DOUBLE -> {
+                double v = UdpPrimitiveProtocol.decodeDouble(buf);
+                m_previous[key] = v;
+                m_previousEpoch[key] = m_epoch;
+                m_consumers.acceptDouble(key, v);
+            }
+            case INT -> {
+                int v = UdpPrimitiveProtocol.decodeInt(buf);
+                m_consumers.acceptInt(key, v);
+            }
+            case DOUBLE_ARRAY -> {
+                double[] v = UdpPrimitiveProtocol.decodeDoubleArray(buf);
+                m_consumers.acceptDoubleArray(key, v);
+            }
+            case LONG -> {
+                long v = UdpPrimitiveProtocol.decodeLong(buf);
+                m_consumers.acceptInt(key, (int) v);
+            }
+            case STRING -> {
+                String v = UdpPrimitiveProtocol.decodeString(buf);
+                m_consumers.acceptString(key, v);
+            }
+            // can't skip an unknown value, so give up on the packet.
+            default -> throw new ProtocolException();
         }
     }
 }
@@ -1,11 +1,25 @@
 package org.team100.lib.logging.receiver;
 
+import java.nio.file.Path;
+import java.util.Optional;
+
 public class UdpReceiver {
+    /**
+     * Republish everything to NT and DataLog, as well as writing the columnar
+     * log. The columnar writer alone can keep up with the sender; NT can't,
+     * and republishing runs on the receive thread, so turning this on limits
+     * the receive rate to what NT can take.
+     */
+    private static final boolean kRepublish = false;
 
     public static void run() throws InterruptedException {
         // sender can go about 30M keys/sec.
         // real consumer can go about 4M keys/sec.
-        UdpConsumersInterface consumers = new UdpConsumers();
+        Optional<UdpConsumersInterface> republish = kRepublish
+                ? Optional.of(new UdpConsumers())
+                : Optional.empty();
+        UdpConsumersInterface consumers = new ColumnarUdpConsumers(
+                Path.of("logs"), republish);
         // the dummy consumer can keep up, about 30M keys/sec
         // UdpConsumersInterface consumers = new DummyUdpConsumers();
         UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
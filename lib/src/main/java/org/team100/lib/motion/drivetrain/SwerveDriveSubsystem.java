@@ -1,8 +1,11 @@
 package org.team100.lib.motion.drivetrain;
 
+import java.util.Optional;
+
 import org.team100.lib.config.DriverSkill;
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.localization.OdometryThread;
 import org.team100.lib.localization.SwerveDrivePoseEstimator100;
 import org.team100.lib.localization.VisionData;
 import org.team100.lib.logging.Level;
@@ -34,6 +37,8 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
     private final SwerveDrivePoseEstimator100 m_poseEstimator;
     private final SwerveLocal m_swerveLocal;
     private final VisionData m_cameras;
+    /** If present, odometry comes from here instead of update(). */
+    private final Optional<OdometryThread> m_odometryThread;
 
     // CACHES
     private final Memo.CotemporalCache<SwerveState> m_stateSupplier;
@@ -54,11 +59,27 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
             SwerveDrivePoseEstimator100 poseEstimator,
             SwerveLocal swerveLocal,
             VisionData cameras) {
+        this(fieldLogger, parent, gyro, poseEstimator, swerveLocal, cameras, Optional.empty());
+    }
+
+    /**
+     * @param odometryThread if present, it's started here, and it puts odometry
+     *                       into the pose estimator, so this class doesn't.
+     */
+    public SwerveDriveSubsystem(
+            LoggerFactory fieldLogger,
+            LoggerFactory parent,
+            Gyro gyro,
+            SwerveDrivePoseEstimator100 poseEstimator,
+            SwerveLocal swerveLocal,
+            VisionData cameras,
+            Optional<OdometryThread> odometryThread) {
         LoggerFactory child = parent.child(this);
         m_gyro = gyro;
         m_poseEstimator = poseEstimator;
         m_swerveLocal = swerveLocal;
         m_cameras = cameras;
+        m_odometryThread = odometryThread;
         m_stateSupplier = Memo.of(this::update);
         stop();
         m_log_state = child.swerveStateLogger(Level.COMP, "state");
@@ -68,6 +89,7 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
         m_log_yaw_rate = child.doubleLogger(Level.TRACE, "heading rate rad_s");
         m_log_skill = child.enumLogger(Level.TRACE, "skill level");
         m_log_input = child.fieldRelativeVelocityLogger(Level.TRACE, "drive input");
+        m_odometryThread.ifPresent(OdometryThread::start);
     }
 
     ////////////////
@@ -225,27 +247,22 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
         // m_poseEstimator.periodic();
         m_stateSupplier.reset();
         m_log_state.log(this::getState);
-        m_log_turning.log(() -> getState().pose().getRotation().getDegrees());
-        m_log_pose_array.log(
-                () -> new double[] {
-                        getState().pose().getX(),
-                        getState().pose().getY(),
-                        getState().pose().getRotation().getRadians()
-                });
+        // the pose is needed at COMP level anyway, so use the primitive loggers.
+        Pose2d pose = getState().pose();
+        m_log_turning.log(pose.getRotation().getDegrees());
+        m_log_pose_array.log(pose.getX(), pose.getY(), pose.getRotation().getRadians());
 
         // Update the Field2d widget
         // the name "field" is used by Field2d.
         // the name "robot" can be anything.
-        m_log_field_robot.log(() -> new double[] {
-                getState().pose().getX(),
-                getState().pose().getY(),
-                getState().pose().getRotation().getDegrees()
-        });
+        m_log_field_robot.log(pose.getX(), pose.getY(), pose.getRotation().getDegrees());
         m_log_yaw_rate.log(m_gyro::getYawRateNWU);
         m_swerveLocal.periodic();
+        m_odometryThread.ifPresent(OdometryThread::periodic);
     }
 
     public void close() {
+        m_odometryThread.ifPresent(OdometryThread::stop);
         m_swerveLocal.close();
     }
 
@@ -255,10 +272,12 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
     private SwerveState update() {
         double now = Timer.getFPGATimestamp();
         // System.out.println("SwerveDriveSubsystem.update() " + now);
-        m_poseEstimator.put(
-                now,
-                m_gyro.getYawNWU(),
-                m_swerveLocal.positions());
+        if (m_odometryThread.isEmpty()) {
+            m_poseEstimator.put(
+                    now,
+                    m_gyro.getYawNWU(now),
+                    m_swerveLocal.positions());
+        }
         m_cameras.update();
         return m_poseEstimator.get(now);
     }
@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.ejml.simple.SimpleMatrix;
 import org.team100.lib.geometry.Vector2d;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Twist2d;
@@ -87,6 +88,15 @@ public class SwerveDriveKinematics100 {
      * </pre>
      */
     private final SimpleMatrix m_forwardKinematics;
+    /** Module x coordinates, for the inverse kernel. */
+    private final double[] m_x;
+    /** Module y coordinates, for the inverse kernel. */
+    private final double[] m_y;
+    /**
+     * The forward matrix, row-major, so the kernels can use it without
+     * allocating.
+     */
+    private final double[] m_forward;
     /**
      * Used when velocity is zero, to keep the steering the same.
      * elements are nullable.
@@ -107,6 +117,18 @@ public class SwerveDriveKinematics100 {
         }
         m_inverseKinematics = inverseMatrix(m_moduleLocations);
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        m_x = new double[m_numModules];
+        m_y = new double[m_numModules];
+        for (int i = 0; i < m_numModules; i++) {
+            m_x[i] = m_moduleLocations[i].getX();
+            m_y[i] = m_moduleLocations[i].getY();
+        }
+        m_forward = new double[3 * 2 * m_numModules];
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 2 * m_numModules; c++) {
+                m_forward[r * 2 * m_numModules + c] = m_forwardKinematics.get(r, c);
+            }
+        }
         // try to avoid startup transient
         // m_moduleHeadings = zeros(m_numModules);
         m_moduleHeadings = nulls(m_numModules);
@@ -122,6 +144,73 @@ public class SwerveDriveKinematics100 {
         m_moduleHeadings = Arrays.copyOf(moduleHeadings, m_numModules);
     }
 
+    /**
+     * INVERSE: chassis speeds -> module velocity components, without allocating.
+     * 
+     * For the same speeds, this is the same as toSwerveModuleStates(), except it
+     * doesn't do anything special about stopped modules, and it doesn't touch the
+     * remembered headings, so the caller has to deal with those itself.
+     * 
+     * @param xy output [vx1, vy1, vx2, vy2, ...], length 2n
+     */
+    public void toModuleVectors(double vx, double vy, double omega, double[] xy) {
+        if (m_numModules == 4) {
+            final double[] mx = m_x;
+            final double[] my = m_y;
+            xy[0] = vx - my[0] * omega;
+            xy[1] = vy + mx[0] * omega;
+            xy[2] = vx - my[1] * omega;
+            xy[3] = vy + mx[1] * omega;
+            xy[4] = vx - my[2] * omega;
+            xy[5] = vy + mx[2] * omega;
+            xy[6] = vx - my[3] * omega;
+            xy[7] = vy + mx[3] * omega;
+            return;
+        }
+        for (int i = 0; i < m_numModules; i++) {
+            xy[2 * i] = vx - m_y[i] * omega;
+            xy[2 * i + 1] = vy + m_x[i] * omega;
+        }
+    }
+
+    /**
+     * FORWARD: module velocity (or delta) components -> chassis speeds (or
+     * twist), without allocating.
+     * 
+     * NOTE: do not use the returned omega, use the gyro instead.
+     * 
+     * @param xy  [vx1, vy1, vx2, vy2, ...], length 2n
+     * @param out output [vx, vy, omega], length 3
+     */
+    public void fromModuleVectors(double[] xy, double[] out) {
+        final double[] f = m_forward;
+        if (m_numModules == 4) {
+            final double x0 = xy[0];
+            final double y0 = xy[1];
+            final double x1 = xy[2];
+            final double y1 = xy[3];
+            final double x2 = xy[4];
+            final double y2 = xy[5];
+            final double x3 = xy[6];
+            final double y3 = xy[7];
+            out[0] = f[0] * x0 + f[1] * y0 + f[2] * x1 + f[3] * y1
+                    + f[4] * x2 + f[5] * y2 + f[6] * x3 + f[7] * y3;
+            out[1] = f[8] * x0 + f[9] * y0 + f[10] * x1 + f[11] * y1
+                    + f[12] * x2 + f[13] * y2 + f[14] * x3 + f[15] * y3;
+            out[2] = f[16] * x0 + f[17] * y0 + f[18] * x1 + f[19] * y1
+                    + f[20] * x2 + f[21] * y2 + f[22] * x3 + f[23] * y3;
+            return;
+        }
+        int n = 2 * m_numModules;
+        for (int r = 0; r < 3; r++) {
+            double sum = 0;
+            for (int c = 0; c < n; c++) {
+                sum += f[r * n + c] * xy[c];
+            }
+            out[r] = sum;
+        }
+    }
+
     /**
      * INVERSE: chassis speeds -> module states
      * 
@@ -131,10 +220,20 @@ public class SwerveDriveKinematics100 {
         if (fullStop(chassisSpeeds)) {
             return constantModuleHeadings(); // avoid steering when stopped
         }
-        // [vx; vy; omega] (3 x 1)
-        SimpleMatrix chassisSpeedsVector = chassisSpeeds2Vector(chassisSpeeds);
-        // [v cos; v sin; ...] (2n x 1)
-        SwerveModuleState100[] states = statesFromVector(chassisSpeedsVector);
+        double vx = chassisSpeeds.vxMetersPerSecond;
+        double vy = chassisSpeeds.vyMetersPerSecond;
+        double omega = chassisSpeeds.omegaRadiansPerSecond;
+        SwerveModuleState100[] states = new SwerveModuleState100[m_numModules];
+        for (int i = 0; i < m_numModules; i++) {
+            double x = vx - m_y[i] * omega;
+            double y = vy + m_x[i] * omega;
+            if (Math.abs(x) < 1e-6 && Math.abs(y) < 1e-6) {
+                states[i] = new SwerveModuleState100(0.0, Optional.empty());
+            } else {
+                states[i] = new SwerveModuleState100(Math.hypot(x, y),
+                        Optional.of(new Rotation2d(x, y)));
+            }
+        }
         updateHeadings(states);
         return states;
     }
@@ -200,11 +299,12 @@ public class SwerveDriveKinematics100 {
         if (fullStop(twist)) {
             return constantModulePositions();
         }
-        // [dx; dy; dtheta] (3 x 1)
-        SimpleMatrix twistVector = twist2Vector(twist);
-        // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = m_inverseKinematics.mult(twistVector);
-        SwerveModulePosition100[] deltas = deltasFromVector(deltaVector);
+        SwerveModulePosition100[] deltas = new SwerveModulePosition100[m_numModules];
+        for (int i = 0; i < m_numModules; i++) {
+            deltas[i] = new SwerveModulePosition100(
+                    twist.dx - m_y[i] * twist.dtheta,
+                    twist.dy + m_x[i] * twist.dtheta);
+        }
         updateHeadings(deltas);
         return deltas;
     }
@@ -230,11 +330,25 @@ public class SwerveDriveKinematics100 {
      */
     public ChassisSpeeds toChassisSpeeds(SwerveModuleState100... states) {
         checkLength(states);
-        // [v cos; v sin; ...] (2n x 1)
-        SimpleMatrix statesVector = states2Vector(states);
-        // [vx; vy; omega]
-        SimpleMatrix chassisSpeedsVector = m_forwardKinematics.mult(statesVector);
-        return vector2ChassisSpeeds(chassisSpeedsVector);
+        final double[] f = m_forward;
+        final int n = 2 * m_numModules;
+        double vx = 0;
+        double vy = 0;
+        double omega = 0;
+        for (int i = 0; i < m_numModules; i++) {
+            SwerveModuleState100 module = states[i];
+            if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty()) {
+                // wheel is stopped, or angle is invalid so pretend it's stopped.
+                continue;
+            }
+            Rotation2d angle = module.angle.get();
+            double x = module.speedMetersPerSecond * angle.getCos();
+            double y = module.speedMetersPerSecond * angle.getSin();
+            vx += f[2 * i] * x + f[2 * i + 1] * y;
+            vy += f[n + 2 * i] * x + f[n + 2 * i + 1] * y;
+            omega += f[2 * n + 2 * i] * x + f[2 * n + 2 * i + 1] * y;
+        }
+        return new ChassisSpeeds(vx, vy, omega);
     }
 
     /**
@@ -244,11 +358,109 @@ public class SwerveDriveKinematics100 {
      */
     public Twist2d toTwist2d(SwerveModulePosition100... deltas) {
         checkLength(deltas);
-        // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = deltas2Vector(deltas);
-        // [dx ;dy; dtheta]
-        SimpleMatrix twistVector = m_forwardKinematics.mult(deltaVector);
-        return vector2Twist(twistVector);
+        final double[] f = m_forward;
+        final int n = 2 * m_numModules;
+        double dx = 0;
+        double dy = 0;
+        double dtheta = 0;
+        for (int i = 0; i < m_numModules; i++) {
+            SwerveModulePosition100 module = deltas[i];
+            if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty()) {
+                continue;
+            }
+            Rotation2d angle = module.angle.get();
+            double x = module.distanceMeters * angle.getCos();
+            double y = module.distanceMeters * angle.getSin();
+            dx += f[2 * i] * x + f[2 * i + 1] * y;
+            dy += f[n + 2 * i] * x + f[n + 2 * i + 1] * y;
+            dtheta += f[2 * n + 2 * i] * x + f[2 * n + 2 * i + 1] * y;
+        }
+        return new Twist2d(dx, dy, dtheta);
+    }
+
+    /**
+     * FORWARD: module positions at two times -> twist.
+     * 
+     * This is the same as toTwist2d(DriveUtil.modulePositionDelta(start, end)),
+     * without making the intermediate deltas. Each module's delta is along the
+     * mean of its start and end angles.
+     * 
+     * NOTE: do not use the returned dtheta, use the gyro instead.
+     */
+    public Twist2d toTwist2d(SwerveModulePosition100[] start, SwerveModulePosition100[] end) {
+        checkLength(start);
+        checkLength(end);
+        final double[] f = m_forward;
+        final int n = 2 * m_numModules;
+        double dx = 0;
+        double dy = 0;
+        double dtheta = 0;
+        for (int i = 0; i < m_numModules; i++) {
+            SwerveModulePosition100 s = start[i];
+            SwerveModulePosition100 e = end[i];
+            double d = e.distanceMeters - s.distanceMeters;
+            if (Math.abs(d) < 1e-6 || s.angle.isEmpty() || e.angle.isEmpty()) {
+                continue;
+            }
+            Rotation2d sa = s.angle.get();
+            Rotation2d ea = e.angle.get();
+            // halfway from end to start, like Rotation2d.interpolate()
+            double between = Math.atan2(
+                    sa.getSin() * ea.getCos() - sa.getCos() * ea.getSin(),
+                    sa.getCos() * ea.getCos() + sa.getSin() * ea.getSin());
+            double mid = ea.getRadians() + 0.5 * between;
+            double x = d * Math.cos(mid);
+            double y = d * Math.sin(mid);
+            dx += f[2 * i] * x + f[2 * i + 1] * y;
+            dy += f[n + 2 * i] * x + f[n + 2 * i + 1] * y;
+            dtheta += f[2 * n + 2 * i] * x + f[2 * n + 2 * i + 1] * y;
+        }
+        return new Twist2d(dx, dy, dtheta);
+    }
+
+    /**
+     * FORWARD: module positions at two times -> twist, without allocating.
+     * 
+     * This is the same as toTwist2d(start[], end[]), with the positions and the
+     * result in arrays instead of objects.
+     * 
+     * NOTE: do not use the returned dtheta, use the gyro instead.
+     * 
+     * @param startDistM  module distances at the start
+     * @param startAngle  module angles at the start, radians, NaN if unknown
+     * @param endDistM    module distances at the end
+     * @param endAngle    module angles at the end, radians, NaN if unknown
+     * @param out         output [dx, dy, dtheta], length 3
+     */
+    public void toTwist2d(
+            double[] startDistM,
+            double[] startAngle,
+            double[] endDistM,
+            double[] endAngle,
+            double[] out) {
+        final double[] f = m_forward;
+        final int n = 2 * m_numModules;
+        double dx = 0;
+        double dy = 0;
+        double dtheta = 0;
+        for (int i = 0; i < m_numModules; i++) {
+            double d = endDistM[i] - startDistM[i];
+            double sa = startAngle[i];
+            double ea = endAngle[i];
+            if (Math.abs(d) < 1e-6 || Double.isNaN(sa) || Double.isNaN(ea)) {
+                continue;
+            }
+            // halfway from end to start, like Rotation2d.interpolate()
+            double mid = ea + 0.5 * MathUtil.angleModulus(sa - ea);
+            double x = d * Math.cos(mid);
+            double y = d * Math.sin(mid);
+            dx += f[2 * i] * x + f[2 * i + 1] * y;
+            dy += f[n + 2 * i] * x + f[n + 2 * i + 1] * y;
+            dtheta += f[2 * n + 2 * i] * x + f[2 * n + 2 * i + 1] * y;
+        }
+        out[0] = dx;
+        out[1] = dy;
+        out[2] = dtheta;
     }
 
     /**
@@ -325,40 +537,6 @@ public class SwerveDriveKinematics100 {
 
     ///////////////////////////////////////
 
-    /** states -> [v cos; v sin; ... v cos; v sin] (2n x 1) */
-    private SimpleMatrix states2Vector(SwerveModuleState100... moduleStates) {
-        SimpleMatrix moduleStatesMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleState100 module = moduleStates[i];
-            if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty()) {
-                // wheel is stopped, or angle is invalid so pretend it's stopped.
-                moduleStatesMatrix.set(i * 2, 0, 0);
-                moduleStatesMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleStatesMatrix.set(i * 2, 0, module.speedMetersPerSecond * module.angle.get().getCos());
-                moduleStatesMatrix.set(i * 2 + 1, 0, module.speedMetersPerSecond * module.angle.get().getSin());
-
-            }
-        }
-        return moduleStatesMatrix;
-    }
-
-    /** deltas -> [d cos; d sin; ... ] (2n x 1) */
-    private SimpleMatrix deltas2Vector(SwerveModulePosition100... moduleDeltas) {
-        SimpleMatrix moduleDeltaMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModulePosition100 module = moduleDeltas[i];
-            if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty()) {
-                moduleDeltaMatrix.set(i * 2, 0, 0);
-                moduleDeltaMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleDeltaMatrix.set(i * 2, 0, module.distanceMeters * module.angle.get().getCos());
-                moduleDeltaMatrix.set(i * 2 + 1, 0, module.distanceMeters * module.angle.get().getSin());
-            }
-        }
-        return moduleDeltaMatrix;
-    }
-
     /** ChassisSpeeds -> [vx; vy; omega] (3 x 1) */
     private SimpleMatrix chassisSpeeds2Vector(ChassisSpeeds chassisSpeeds) {
         SimpleMatrix chassisSpeedsVector = new SimpleMatrix(3, 1);
@@ -371,27 +549,6 @@ public class SwerveDriveKinematics100 {
         return chassisSpeedsVector;
     }
 
-    private SimpleMatrix twist2Vector(Twist2d twist) {
-        SimpleMatrix twistVector = new SimpleMatrix(3, 1);
-        twistVector.setColumn(
-                0,
-                0,
-                twist.dx,
-                twist.dy,
-                twist.dtheta);
-        return twistVector;
-    }
-
-    /** [vx; vy; omega] (3 x 1) -> ChassisSpeeds */
-    private static ChassisSpeeds vector2ChassisSpeeds(SimpleMatrix v) {
-        return new ChassisSpeeds(v.get(0, 0), v.get(1, 0), v.get(2, 0));
-    }
-
-    /** [dx; dy; dtheta] (3 x 1) -> Twist2d */
-    private static Twist2d vector2Twist(SimpleMatrix v) {
-        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
-    }
-
     /** True if speeds are (nearly) stopped. Deadband upstream for this to work. */
     private boolean fullStop(ChassisSpeeds chassisSpeeds) {
         return Math.abs(chassisSpeeds.vxMetersPerSecond) < kEpsilon
@@ -517,19 +674,6 @@ public class SwerveDriveKinematics100 {
         return m_mat[moduleLocation].mult(acceleration2vector);
     }
 
-    /**
-     * The resulting distance is always positive.
-     */
-    private SwerveModulePosition100[] deltasFromVector(SimpleMatrix moduleDeltaVector) {
-        SwerveModulePosition100[] moduleDeltas = new SwerveModulePosition100[m_numModules];
-        for (int i = 0; i < m_numModules; i++) {
-            double x = moduleDeltaVector.get(i * 2, 0);
-            double y = moduleDeltaVector.get(i * 2 + 1, 0);
-            moduleDeltas[i] = new SwerveModulePosition100(x, y);
-        }
-        return moduleDeltas;
-    }
-
     /** Keep a copy of headings in case we need them for full-stop. */
     private void updateHeadings(SwerveModuleState100[] moduleStates) {
         for (int i = 0; i < m_numModules; i++) {
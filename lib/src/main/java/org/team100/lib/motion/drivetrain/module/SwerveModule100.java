@@ -6,6 +6,7 @@ import java.util.OptionalDouble;
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.localization.PhoenixOdometrySignals;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
 import org.team100.lib.motion.servo.AngularPositionServo;
@@ -21,12 +22,30 @@ import edu.wpi.first.math.geometry.Rotation2d;
 public abstract class SwerveModule100 implements Glassy {
     private final LinearVelocityServo m_driveServo;
     private final AngularPositionServo m_turningServo;
+    private final Optional<PhoenixOdometrySignals.Module> m_signals;
 
     protected SwerveModule100(
             LinearVelocityServo driveServo,
             AngularPositionServo turningServo) {
+        this(driveServo, turningServo, Optional.empty());
+    }
+
+    /**
+     * @param signals uncached sources for OdometryThread, if the module has
+     *                them.
+     */
+    protected SwerveModule100(
+            LinearVelocityServo driveServo,
+            AngularPositionServo turningServo,
+            Optional<PhoenixOdometrySignals.Module> signals) {
         m_driveServo = driveServo;
         m_turningServo = turningServo;
+        m_signals = signals;
+    }
+
+    /** Uncached sources for OdometryThread, if the module has them. */
+    public Optional<PhoenixOdometrySignals.Module> signals() {
+        return m_signals;
     }
 
     /**
@@ -1,9 +1,13 @@
 package org.team100.lib.motion.drivetrain.module;
 
+import java.util.Optional;
+
 import org.team100.lib.config.Identity;
 import org.team100.lib.encoder.AnalogTurningEncoder;
 import org.team100.lib.encoder.DutyCycleRotaryPositionSensor;
 import org.team100.lib.encoder.EncoderDrive;
+import org.team100.lib.localization.OdometrySignals;
+import org.team100.lib.localization.PhoenixOdometrySignals;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
@@ -300,6 +304,24 @@ public class SwerveModuleCollection {
         };
     }
 
+    /**
+     * Signals for OdometryThread, if all the modules have them, i.e. if they have
+     * CTRE drive motors.
+     * 
+     * @param frequencyHz update frequency for the signals
+     */
+    public Optional<OdometrySignals> odometrySignals(double frequencyHz) {
+        SwerveModule100[] modules = modules();
+        PhoenixOdometrySignals.Module[] signals = new PhoenixOdometrySignals.Module[modules.length];
+        for (int i = 0; i < modules.length; ++i) {
+            Optional<PhoenixOdometrySignals.Module> moduleSignals = modules[i].signals();
+            if (moduleSignals.isEmpty())
+                return Optional.empty();
+            signals[i] = moduleSignals.get();
+        }
+        return Optional.of(new PhoenixOdometrySignals(frequencyHz, signals));
+    }
+
     public SwerveModuleState100[] states() {
         return new SwerveModuleState100[] {
                 m_frontLeft.getState(),
@@ -1,5 +1,7 @@
 package org.team100.lib.motion.drivetrain.module;
 
+import java.util.Optional;
+
 import org.team100.lib.config.Feedforward100;
 import org.team100.lib.config.PIDConstants;
 import org.team100.lib.encoder.AS5048RotaryPositionSensor;
@@ -7,9 +9,11 @@ import org.team100.lib.encoder.AnalogTurningEncoder;
 import org.team100.lib.encoder.CombinedEncoder;
 import org.team100.lib.encoder.DutyCycleRotaryPositionSensor;
 import org.team100.lib.encoder.EncoderDrive;
+import org.team100.lib.encoder.RoboRioRotaryPositionSensor;
 import org.team100.lib.encoder.RotaryPositionSensor;
 import org.team100.lib.encoder.Talon6Encoder;
 import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.localization.PhoenixOdometrySignals;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.mechanism.LinearMechanism;
@@ -23,6 +27,7 @@ import org.team100.lib.motion.servo.OutboardLinearVelocityServo;
 import org.team100.lib.motor.Falcon6Motor;
 import org.team100.lib.motor.Kraken6Motor;
 import org.team100.lib.motor.MotorPhase;
+import org.team100.lib.motor.Talon6Motor;
 import org.team100.lib.profile.Profile100;
 
 import edu.wpi.first.math.controller.PIDController;
@@ -80,25 +85,34 @@ public class WCPSwerveModule100 extends SwerveModule100 {
         // note the outboard steering setting!
         //
         final boolean useOutboardSteering = true;
-        LinearVelocityServo driveServo = driveKrakenServo(
-                parent.child("Drive"),
+        LoggerFactory driveLog = parent.child("Drive");
+        LoggerFactory turningLog = parent.child("Turning");
+        Kraken6Motor driveMotor = driveKrakenMotor(
+                driveLog,
                 supplyLimitAmps,
                 statorLimitAmps,
-                driveMotorCanId,
+                driveMotorCanId);
+        LinearVelocityServo driveServo = driveServo(
+                driveLog,
+                driveMotor,
                 ratio);
-        AngularPositionServo turningServo = turningServo(
-                parent.child("Turning"),
+        RoboRioRotaryPositionSensor turningEncoder = turningEncoder(
                 encoderClass,
-                turningMotorCanId,
+                turningLog,
                 turningEncoderChannel,
                 turningOffset,
+                drive);
+        AngularPositionServo turningServo = turningServo(
+                turningLog,
+                turningEncoder,
+                turningMotorCanId,
                 kSteeringRatio,
                 kinodynamics,
-                drive,
                 motorPhase,
                 useOutboardSteering);
 
-        return new WCPSwerveModule100(driveServo, turningServo);
+        return new WCPSwerveModule100(driveServo, turningServo,
+                signals(driveMotor, ratio, turningEncoder));
     }
 
     /**
@@ -121,36 +135,59 @@ public class WCPSwerveModule100 extends SwerveModule100 {
         // note the outboard steering setting!
         //
         final boolean useOutboardSteering = false;
-        LinearVelocityServo driveServo = driveFalconServo(
-                parent.child("Drive"),
+        LoggerFactory driveLog = parent.child("Drive");
+        LoggerFactory turningLog = parent.child("Turning");
+        Falcon6Motor driveMotor = driveFalconMotor(
+                driveLog,
                 supplyLimitAmps,
                 statorLimitAmps,
-                driveMotorCanId,
+                driveMotorCanId);
+        LinearVelocityServo driveServo = driveServo(
+                driveLog,
+                driveMotor,
                 ratio);
-        AngularPositionServo turningServo = turningServo(
-                parent.child("Turning"),
+        RoboRioRotaryPositionSensor turningEncoder = turningEncoder(
                 encoderClass,
-                turningMotorCanId,
+                turningLog,
                 turningEncoderChannel,
                 turningOffset,
+                drive);
+        AngularPositionServo turningServo = turningServo(
+                turningLog,
+                turningEncoder,
+                turningMotorCanId,
                 kSteeringRatio,
                 kinodynamics,
-                drive,
                 motorPhase,
                 useOutboardSteering);
-        return new WCPSwerveModule100(driveServo, turningServo);
+        return new WCPSwerveModule100(driveServo, turningServo,
+                signals(driveMotor, ratio, turningEncoder));
+    }
+
+    /**
+     * The drive position signal and the steering sensor, read directly, for
+     * OdometryThread.
+     */
+    private static Optional<PhoenixOdometrySignals.Module> signals(
+            Talon6Motor driveMotor,
+            DriveRatio ratio,
+            RoboRioRotaryPositionSensor turningEncoder) {
+        double metersPerRev = Math.PI * kWheelDiameterM / ratio.m_ratio;
+        return Optional.of(new PhoenixOdometrySignals.Module(
+                driveMotor.getPositionSignal(),
+                metersPerRev,
+                turningEncoder::getPositionRadNow));
     }
 
-    private static LinearVelocityServo driveKrakenServo(
+    private static Kraken6Motor driveKrakenMotor(
             LoggerFactory parent,
             double supplyLimit,
             double statorLimit,
-            int driveMotorCanId,
-            DriveRatio ratio) {
+            int driveMotorCanId) {
         Feedforward100 ff = Feedforward100.makeWCPSwerveDriveFalcon6();
         // note (10/2/24) 0.4 produces oscillation, on carpet.
         PIDConstants pid = new PIDConstants(0.3);
-        Kraken6Motor driveMotor = new Kraken6Motor(
+        return new Kraken6Motor(
                 parent,
                 driveMotorCanId,
                 MotorPhase.FORWARD,
@@ -158,25 +195,16 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 statorLimit,
                 pid,
                 ff);
-        LinearMechanism mech = new SimpleLinearMechanism(
-                driveMotor,
-                new Talon6Encoder(parent, driveMotor),
-                ratio.m_ratio,
-                kWheelDiameterM);
-        return new OutboardLinearVelocityServo(
-                parent,
-                mech);
     }
 
-    private static LinearVelocityServo driveFalconServo(
+    private static Falcon6Motor driveFalconMotor(
             LoggerFactory parent,
             double supplyLimit,
             double statorLimit,
-            int driveMotorCanId,
-            DriveRatio ratio) {
+            int driveMotorCanId) {
         Feedforward100 ff = Feedforward100.makeWCPSwerveDriveFalcon6();
         PIDConstants pid = new PIDConstants(0.2);
-        Falcon6Motor driveMotor = new Falcon6Motor(
+        return new Falcon6Motor(
                 parent,
                 driveMotorCanId,
                 MotorPhase.FORWARD,
@@ -184,6 +212,12 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 statorLimit,
                 pid,
                 ff);
+    }
+
+    private static LinearVelocityServo driveServo(
+            LoggerFactory parent,
+            Talon6Motor driveMotor,
+            DriveRatio ratio) {
         LinearMechanism mech = new SimpleLinearMechanism(
                 driveMotor,
                 new Talon6Encoder(parent, driveMotor),
@@ -196,13 +230,10 @@ public class WCPSwerveModule100 extends SwerveModule100 {
 
     private static AngularPositionServo turningServo(
             LoggerFactory parent,
-            Class<? extends RotaryPositionSensor> encoderClass,
+            RotaryPositionSensor turningEncoder,
             int turningMotorCanId,
-            int turningEncoderChannel,
-            double turningOffset,
             double gearRatio,
             SwerveKinodynamics kinodynamics,
-            EncoderDrive drive,
             MotorPhase motorPhase,
             boolean useOutboardSteering) {
 
@@ -231,13 +262,6 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 lowLevelPID,
                 ff);
 
-        RotaryPositionSensor turningEncoder = turningEncoder(
-                encoderClass,
-                parent,
-                turningEncoderChannel,
-                turningOffset,
-                drive);
-
         Profile100 profile = kinodynamics.getSteeringProfile();
 
         Talon6Encoder builtInEncoder = new Talon6Encoder(
@@ -312,7 +336,7 @@ public class WCPSwerveModule100 extends SwerveModule100 {
         return servo;
     }
 
-    private static RotaryPositionSensor turningEncoder(
+    private static RoboRioRotaryPositionSensor turningEncoder(
             Class<? extends RotaryPositionSensor> encoderClass,
             LoggerFactory parent,
             int channel,
@@ -338,8 +362,9 @@ public class WCPSwerveModule100 extends SwerveModule100 {
 
     private WCPSwerveModule100(
             LinearVelocityServo driveServo,
-            AngularPositionServo turningServo) {
-        super(driveServo, turningServo);
+            AngularPositionServo turningServo,
+            Optional<PhoenixOdometrySignals.Module> signals) {
+        super(driveServo, turningServo, signals);
         //
     }
 }
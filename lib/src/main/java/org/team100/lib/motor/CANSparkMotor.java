@@ -7,7 +7,8 @@ import org.team100.lib.config.PIDConstants;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
-import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
+import org.team100.lib.util.Sense.Bus;
 
 import com.revrobotics.CANSparkBase;
 import com.revrobotics.CANSparkBase.ControlType;
@@ -21,7 +22,8 @@ public abstract class CANSparkMotor implements BareMotor {
     protected final CANSparkBase m_motor;
     protected final RelativeEncoder m_encoder;
     protected final SparkPIDController m_pidController;
-    // CACHES
+    // SENSORS
+    private final Sense.Group m_sensors;
     private final DoubleSupplier m_encoder_position;
     private final DoubleSupplier m_encoder_velocity;
     private final DoubleSupplier m_current;
@@ -64,12 +66,13 @@ public abstract class CANSparkMotor implements BareMotor {
         // make everything after this asynchronous.
         // NOTE: this makes error-checking not work at all.
         Rev100.crash(() -> m_motor.setCANTimeout(0));
-        // CACHES
-        m_encoder_position = Memo.ofDouble(m_encoder::getPosition);
-        m_encoder_velocity = Memo.ofDouble(m_encoder::getVelocity);
-        m_current = Memo.ofDouble(m_motor::getOutputCurrent);
-        m_output = Memo.ofDouble(m_motor::getAppliedOutput);
-        m_temp = Memo.ofDouble(m_motor::getMotorTemperature);
+        // SENSORS
+        m_sensors = Sense.group(Bus.CAN);
+        m_encoder_position = m_sensors.add(m_encoder::getPosition);
+        m_encoder_velocity = m_sensors.add(m_encoder::getVelocity);
+        m_current = m_sensors.add(m_motor::getOutputCurrent);
+        m_output = m_sensors.add(m_motor::getAppliedOutput);
+        m_temp = m_sensors.add(m_motor::getMotorTemperature);
         // LOGGERS
         child.intLogger(Level.TRACE, "Device ID").log(m_motor::getDeviceId);
         m_log_desired_position = child.doubleLogger(Level.DEBUG, "desired position (rev)");
@@ -178,6 +181,7 @@ public abstract class CANSparkMotor implements BareMotor {
 
     @Override
     public void close() {
+        m_sensors.close();
         m_motor.close();
     }
 
@@ -7,9 +7,12 @@ import org.team100.lib.config.PIDConstants;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
-import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
+import org.team100.lib.util.Sense.Bus;
 import org.team100.lib.util.Util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfigurator;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionVoltage;
@@ -23,9 +26,15 @@ public abstract class Talon6Motor implements BareMotor {
     private final TalonFX m_motor;
     private final Feedforward100 m_ff;
 
-    // CACHES
-    // Two levels of caching here: the cotemporal cache caches the value
-    // and also the supplier
+    // SIGNALS
+    // Phoenix keeps one instance of each signal, so holding them is free.
+    private final StatusSignal<Double> m_positionSignal;
+    private final BaseStatusSignal[] m_signals;
+
+    // SENSORS
+    // All the signals are refreshed together, once per cycle, in the sense
+    // phase.
+    private final Sense.Group m_sensors;
     protected final DoubleSupplier m_position;
     protected final DoubleSupplier m_velocity;
     protected final DoubleSupplier m_dutyCycle;
@@ -83,15 +92,27 @@ public abstract class Talon6Motor implements BareMotor {
         Phoenix100.crash(() -> m_motor.getVelocity().setUpdateFrequency(50));
         Phoenix100.crash(() -> m_motor.getTorqueCurrent().setUpdateFrequency(50));
 
-        // each memo refresh calls the motor refresh method
-        m_position = Memo.ofDouble(() -> m_motor.getPosition().refresh().getValueAsDouble());
-        m_velocity = Memo.ofDouble(() -> m_motor.getVelocity().refresh().getValueAsDouble());
-        m_dutyCycle = Memo.ofDouble(() -> m_motor.getDutyCycle().refresh().getValueAsDouble());
-        m_error = Memo.ofDouble(() -> m_motor.getClosedLoopError().refresh().getValueAsDouble());
-        m_supply = Memo.ofDouble(() -> m_motor.getSupplyCurrent().refresh().getValueAsDouble());
-        m_stator = Memo.ofDouble(() -> m_motor.getStatorCurrent().refresh().getValueAsDouble());
-        m_temp = Memo.ofDouble(() -> m_motor.getDeviceTemp().refresh().getValueAsDouble());
-        m_torque = Memo.ofDouble(() -> m_motor.getTorqueCurrent().refresh().getValueAsDouble());
+        m_positionSignal = m_motor.getPosition();
+        StatusSignal<Double> velocity = m_motor.getVelocity();
+        StatusSignal<Double> dutyCycle = m_motor.getDutyCycle();
+        StatusSignal<Double> error = m_motor.getClosedLoopError();
+        StatusSignal<Double> supply = m_motor.getSupplyCurrent();
+        StatusSignal<Double> stator = m_motor.getStatorCurrent();
+        StatusSignal<Double> temp = m_motor.getDeviceTemp();
+        StatusSignal<Double> torque = m_motor.getTorqueCurrent();
+        m_signals = new BaseStatusSignal[] {
+                m_positionSignal, velocity, dutyCycle, error, supply, stator, temp, torque };
+
+        // one refresh call for all the signals, instead of one per signal.
+        m_sensors = Sense.group(Bus.CAN, () -> BaseStatusSignal.refreshAll(m_signals));
+        m_position = m_sensors.add(m_positionSignal::getValueAsDouble);
+        m_velocity = m_sensors.add(velocity::getValueAsDouble);
+        m_dutyCycle = m_sensors.add(dutyCycle::getValueAsDouble);
+        m_error = m_sensors.add(error::getValueAsDouble);
+        m_supply = m_sensors.add(supply::getValueAsDouble);
+        m_stator = m_sensors.add(stator::getValueAsDouble);
+        m_temp = m_sensors.add(temp::getValueAsDouble);
+        m_torque = m_sensors.add(torque::getValueAsDouble);
 
         m_log_desired_duty = child.doubleLogger(Level.TRACE, "desired duty cycle [-1,1]");
         m_log_desired_position = child.doubleLogger(Level.DEBUG, "desired position (rev)");
@@ -213,6 +234,7 @@ public abstract class Talon6Motor implements BareMotor {
 
     @Override
     public void close() {
+        m_sensors.close();
         m_motor.close();
     }
 
@@ -260,6 +282,14 @@ public abstract class Talon6Motor implements BareMotor {
         return m_position.getAsDouble();
     }
 
+    /**
+     * A separate copy of the position signal, for OdometryThread to wait on, so
+     * it doesn't share state with the main loop.
+     */
+    public StatusSignal<Double> getPositionSignal() {
+        return m_positionSignal.clone();
+    }
+
     /** wait a long time for a new value, do not use outside testing. */
     public double getPositionBlockingRev() {
         return m_motor.getPosition().waitForUpdate(1).getValueAsDouble();
@@ -1,19 +1,26 @@
 package org.team100.lib.path;
 
 import org.team100.lib.timing.TimingUtil;
+import org.team100.lib.util.Math100;
 
 /**
  * Samples a path by distance along it.
+ * 
+ * Lookup is a binary search of the distance index, with a fast path for
+ * sequential access (e.g. the timing pass), which samples in order.
  */
 public class PathDistanceSampler {
     private final Path100 m_path;
     /** in meters */
     private final double[] m_distances;
+    /** Index of the previous result, tried first. */
+    private int m_cursor;
 
     public PathDistanceSampler(final Path100 path) {
         m_path = path;
         m_distances = new double[m_path.length()];
         m_distances[0] = 0.0;
+        m_cursor = 1;
         for (int i = 1; i < m_path.length(); ++i) {
             m_distances[i] = m_distances[i - 1]
                     + m_path.getPoint(i - 1).state().distance(m_path.getPoint(i).state());
@@ -32,21 +39,20 @@ public class PathDistanceSampler {
             PathPoint point = m_path.getPoint(0);
             return new PathSamplePoint(point.state(), point.index(), point.index());
         }
-        for (int i = 1; i < m_distances.length; ++i) {
-            final PathPoint point = m_path.getPoint(i);
-            if (m_distances[i] >= distance) {
-                final PathPoint prev_s = m_path.getPoint(i - 1);
-                if (Math.abs(m_distances[i] - m_distances[i - 1]) <= 1e-12) {
-                    return new PathSamplePoint(point.state(), point.index(), point.index());
-                } else {
-                    return new PathSamplePoint(
-                            prev_s.state().interpolate(point.state(),
-                                    (distance - m_distances[i - 1]) / (m_distances[i] - m_distances[i - 1])),
-                            i - 1, i);
-                }
-            }
+        final int i = Math100.ceilingIndex(m_distances, distance, m_cursor);
+        if (i >= m_distances.length) {
+            throw new TimingUtil.TimingException();
         }
-        throw new TimingUtil.TimingException();
+        m_cursor = i;
+        final PathPoint point = m_path.getPoint(i);
+        final PathPoint prev_s = m_path.getPoint(i - 1);
+        if (Math.abs(m_distances[i] - m_distances[i - 1]) <= 1e-12) {
+            return new PathSamplePoint(point.state(), point.index(), point.index());
+        }
+        return new PathSamplePoint(
+                prev_s.state().interpolate(point.state(),
+                        (distance - m_distances[i - 1]) / (m_distances[i] - m_distances[i - 1])),
+                i - 1, i);
     }
 
     public double getMaxDistance() {
@@ -0,0 +1,34 @@
+package org.team100.lib.profile;
+
+import org.team100.lib.motion.drivetrain.SwerveState;
+
+/**
+ * Coordinated plans for all three axes, which arrive at the goal at about the
+ * same time.
+ *
+ * Sampling is constant-time, so a command can make a new plan every cycle (e.g.
+ * if the goal moves) and then just sample it.
+ *
+ * Make these with {@link HolonomicProfile#plan(SwerveState, SwerveState)}.
+ */
+public class HolonomicPlan {
+    private final TrapezoidPlan m_x;
+    private final TrapezoidPlan m_y;
+    private final TrapezoidPlan m_theta;
+
+    HolonomicPlan(TrapezoidPlan x, TrapezoidPlan y, TrapezoidPlan theta) {
+        m_x = x;
+        m_y = y;
+        m_theta = theta;
+    }
+
+    /** Duration of the slowest axis. */
+    public double etaS() {
+        return Math.max(m_x.etaS(), Math.max(m_y.etaS(), m_theta.etaS()));
+    }
+
+    /** The state at time t since the start of the plan. */
+    public SwerveState sample(double t) {
+        return new SwerveState(m_x.sample(t), m_y.sample(t), m_theta.sample(t));
+    }
+}
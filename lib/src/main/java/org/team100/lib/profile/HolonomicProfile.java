@@ -1,7 +1,6 @@
 package org.team100.lib.profile;
 
 import org.team100.lib.motion.drivetrain.SwerveState;
-import org.team100.lib.profile.Profile100.ResultWithETA;
 import org.team100.lib.state.State100;
 
 /**
@@ -10,6 +9,10 @@ import org.team100.lib.state.State100;
  * 
  * Note that because acceleration is adjusted, but not cruise velocity, the
  * resulting paths will not be straight, for rest-to-rest profiles.
+ * 
+ * The scale factors are solved in closed form (see
+ * TrapezoidProfile100.scaleForETA()), which is cheap enough to do every cycle.
+ * To follow a moving goal, make a new plan() every cycle and sample it.
  */
 public class HolonomicProfile {
     private static final double ETA_TOLERANCE = 0.02;
@@ -39,14 +42,7 @@ public class HolonomicProfile {
 
     /** Reset the scale factors. */
     public void solve(SwerveState i, SwerveState g) {
-        // first find the max ETA
-        ResultWithETA rx = px.calculateWithETA(m_dt, i.x(), g.x());
-        ResultWithETA ry = py.calculateWithETA(m_dt, i.y(), g.y());
-        ResultWithETA rtheta = ptheta.calculateWithETA(m_dt, i.theta(), g.theta());
-
-        double slowETA = rx.etaS();
-        slowETA = Math.max(slowETA, ry.etaS());
-        slowETA = Math.max(slowETA, rtheta.etaS());
+        double slowETA = slowETA(i, g);
 
         double sx = px.solve(m_dt, i.x(), g.x(), slowETA, ETA_TOLERANCE);
         double sy = py.solve(m_dt, i.y(), g.y(), slowETA, ETA_TOLERANCE);
@@ -57,10 +53,35 @@ public class HolonomicProfile {
         pptheta = ptheta.scale(stheta);
     }
 
+    /**
+     * Solve the whole coordinated profile, for sampling. This doesn't change the
+     * scale factors used by calculate().
+     */
+    public HolonomicPlan plan(SwerveState i, SwerveState g) {
+        double slowETA = slowETA(i, g);
+
+        double sx = px.solve(m_dt, i.x(), g.x(), slowETA, ETA_TOLERANCE);
+        double sy = py.solve(m_dt, i.y(), g.y(), slowETA, ETA_TOLERANCE);
+        double stheta = ptheta.solve(m_dt, i.theta(), g.theta(), slowETA, ETA_TOLERANCE);
+
+        return new HolonomicPlan(
+                px.scale(sx).plan(i.x(), g.x()),
+                py.scale(sy).plan(i.y(), g.y()),
+                ptheta.scale(stheta).plan(i.theta(), g.theta()));
+    }
+
     public SwerveState calculate(SwerveState i, SwerveState g) {
         State100 stateX = ppx.calculate(m_dt, i.x(), g.x());
         State100 stateY = ppy.calculate(m_dt, i.y(), g.y());
         State100 stateTheta = pptheta.calculate(m_dt, i.theta(), g.theta());
         return new SwerveState(stateX, stateY, stateTheta);
     }
+
+    /** The ETA of the slowest axis, at full acceleration. */
+    private double slowETA(SwerveState i, SwerveState g) {
+        double slowETA = px.etaS(i.x(), g.x());
+        slowETA = Math.max(slowETA, py.etaS(i.y(), g.y()));
+        slowETA = Math.max(slowETA, ptheta.etaS(i.theta(), g.theta()));
+        return slowETA;
+    }
 }
@@ -0,0 +1,108 @@
+package org.team100.lib.profile;
+
+import org.team100.lib.state.State100;
+
+/**
+ * A complete one-dimensional trapezoid profile, solved once, that can be sampled
+ * at any time without re-solving, so it's cheap to make a new one every cycle
+ * if the goal moves.
+ *
+ * The path has three segments: full acceleration, cruise (which may be empty),
+ * and full deceleration. The segments are stored in "forward" coordinates,
+ * i.e. for I+G-; an I-G+ path is stored negated, with direction -1.
+ *
+ * Make these with {@link TrapezoidProfile100#plan(State100, State100)}.
+ */
+public class TrapezoidPlan {
+    private final double m_direction;
+    private final double m_x0;
+    private final double m_v0;
+    private final double m_a;
+    private final double m_vPeak;
+    private final double m_t1;
+    private final double m_t2;
+    private final double m_t3;
+    private final double m_x1;
+    private final double m_x2;
+    private final State100 m_goal;
+
+    /** A plan that stays at the goal. */
+    TrapezoidPlan(State100 goal) {
+        this(1, goal.x(), goal.v(), 0, goal.v(), 0, 0, 0, goal.x(), goal.x(), goal);
+    }
+
+    /**
+     * @param direction 1 for I+G-, -1 for I-G+
+     * @param x0        initial position, forward coordinates
+     * @param v0        initial velocity, forward coordinates
+     * @param a         acceleration, positive
+     * @param vPeak     velocity at the switching point or cruise
+     * @param t1        duration of the acceleration segment
+     * @param tc        duration of the cruise segment
+     * @param t3        duration of the deceleration segment
+     * @param x1        position at the end of acceleration, forward coordinates
+     * @param x2        position at the end of cruise, forward coordinates
+     * @param goal      the goal, actual coordinates
+     */
+    TrapezoidPlan(
+            double direction,
+            double x0,
+            double v0,
+            double a,
+            double vPeak,
+            double t1,
+            double tc,
+            double t3,
+            double x1,
+            double x2,
+            State100 goal) {
+        m_direction = direction;
+        m_x0 = x0;
+        m_v0 = v0;
+        m_a = a;
+        m_vPeak = vPeak;
+        m_t1 = t1;
+        m_t2 = t1 + tc;
+        m_t3 = t1 + tc + t3;
+        m_x1 = x1;
+        m_x2 = x2;
+        m_goal = goal;
+    }
+
+    /** Total duration of the plan. */
+    public double etaS() {
+        return m_t3;
+    }
+
+    /**
+     * The state at time t since the start of the plan. Before the start, it's the
+     * start; after the end, it's the goal.
+     */
+    public State100 sample(double t) {
+        if (t >= m_t3)
+            return m_goal;
+        if (t < 0)
+            t = 0;
+        if (t < m_t1) {
+            return forward(
+                    m_x0 + m_v0 * t + 0.5 * m_a * t * t,
+                    m_v0 + m_a * t,
+                    m_a);
+        }
+        if (t < m_t2) {
+            return forward(
+                    m_x1 + m_vPeak * (t - m_t1),
+                    m_vPeak,
+                    0);
+        }
+        double tau = t - m_t2;
+        return forward(
+                m_x2 + m_vPeak * tau - 0.5 * m_a * tau * tau,
+                m_vPeak - m_a * tau,
+                -m_a);
+    }
+
+    private State100 forward(double x, double v, double a) {
+        return new State100(m_direction * x, m_direction * v, m_direction * a);
+    }
+}
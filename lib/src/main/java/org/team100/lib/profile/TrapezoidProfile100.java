@@ -1,5 +1,7 @@
 package org.team100.lib.profile;
 
+import java.util.OptionalDouble;
+
 import org.team100.lib.state.State100;
 import org.team100.lib.util.Math100;
 import org.team100.lib.util.Util;
@@ -56,6 +58,9 @@ import edu.wpi.first.math.MathUtil;
  * the RRTStar classes, which include coordination in their path solvers.
  */
 public class TrapezoidProfile100 implements Profile100 {
+    /** Allowance for rounding in the switching velocity. */
+    private static final double kVTolerance = 1e-6;
+
     private final double m_maxVelocity;
     private final double m_maxAcceleration;
     private final double m_tolerance;
@@ -70,7 +75,14 @@ public class TrapezoidProfile100 implements Profile100 {
         return new TrapezoidProfile100(m_maxVelocity, s * m_maxAcceleration, m_tolerance);
     }
 
+    /**
+     * Scale factor for acceleration so that the ETA is the desired ETA, using the
+     * closed-form solution if possible, otherwise root-finding.
+     */
     public double solve(double dt, State100 i, State100 g, double eta, double etaTolerance) {
+        OptionalDouble s = scaleForETA(i, g, eta, etaTolerance);
+        if (s.isPresent())
+            return s.getAsDouble();
         return solveForSlowerETA(
                 m_maxVelocity,
                 m_maxAcceleration,
@@ -128,6 +140,182 @@ public class TrapezoidProfile100 implements Profile100 {
         return etaS - eta;
     }
 
+    /////////////////////////////////////////////////////////
+    //
+    // Closed-form duration, for coordinating profiles without root-finding.
+    //
+    // The minimum-time path is either I+G- or I-G+, possibly with a cruise
+    // segment. I-G+ is just I+G- with the positions and velocities negated, so
+    // one function covers both.
+    //
+
+    /** Duration of the whole profile from initial to goal, without stepping. */
+    public double etaS(State100 initialRaw, State100 goalRaw) {
+        State100 initial = limitVelocity(initialRaw);
+        State100 goal = limitVelocity(goalRaw);
+        if (goal.near(initial, m_tolerance))
+            return 0;
+        double eta = duration(m_maxVelocity, m_maxAcceleration, initial, goal);
+        if (Double.isNaN(eta))
+            return 0;
+        return eta;
+    }
+
+    /**
+     * Acceleration scale factor that makes the ETA equal to the desired ETA,
+     * solved directly, i.e. without root-finding.
+     * 
+     * For each path shape, the ETA is simple enough to invert for acceleration:
+     * 
+     * * switch (no cruise): quadratic in acceleration
+     * * cruise: linear in 1/acceleration
+     * 
+     * Each candidate is checked by computing the duration it produces; if none
+     * works (e.g. the desired ETA is unreachable by slowing down), this returns
+     * empty.
+     * 
+     * As with solveForSlowerETA(), the result is within [0.01, 1].
+     */
+    public OptionalDouble scaleForETA(
+            State100 initialRaw,
+            State100 goalRaw,
+            double eta,
+            double etaTolerance) {
+        final double minS = 0.01;
+        final double maxS = 1.0;
+        State100 initial = limitVelocity(initialRaw);
+        State100 goal = limitVelocity(goalRaw);
+        if (goal.near(initial, m_tolerance))
+            return OptionalDouble.of(maxS);
+        double fastest = duration(m_maxVelocity, m_maxAcceleration, initial, goal);
+        if (Double.isNaN(fastest))
+            return OptionalDouble.empty();
+        if (fastest >= eta - etaTolerance)
+            return OptionalDouble.of(maxS);
+        double best = Math.max(
+                accelForETA(1, initial, goal, eta, etaTolerance),
+                accelForETA(-1, initial, goal, eta, etaTolerance));
+        if (best <= 0)
+            return OptionalDouble.empty();
+        return OptionalDouble.of(MathUtil.clamp(best / m_maxAcceleration, minS, maxS));
+    }
+
+    /**
+     * A plan for the whole profile, which can be sampled at any time, in constant
+     * time.
+     */
+    public TrapezoidPlan plan(State100 initialRaw, State100 goalRaw) {
+        State100 initial = limitVelocity(initialRaw);
+        State100 goal = limitVelocity(goalRaw);
+        if (goal.near(initial, m_tolerance))
+            return new TrapezoidPlan(goal);
+        double a = m_maxAcceleration;
+        double plus = durationIplusGminus(
+                m_maxVelocity, a, initial.x(), initial.v(), goal.x(), goal.v());
+        double minus = durationIplusGminus(
+                m_maxVelocity, a, -initial.x(), -initial.v(), -goal.x(), -goal.v());
+        if (Double.isNaN(plus) && Double.isNaN(minus)) {
+            Util.warn("Both I-G+ and I+G- are NaN, this should never happen");
+            return new TrapezoidPlan(initial);
+        }
+        double direction = (Double.isNaN(minus) || plus <= minus) ? 1 : -1;
+        double x0 = direction * initial.x();
+        double v0 = direction * initial.v();
+        double xg = direction * goal.x();
+        double vg = direction * goal.v();
+        double vs = Math.sqrt(Math.max(0, a * (xg - x0) + (v0 * v0 + vg * vg) / 2));
+        double vPeak = Math.min(vs, m_maxVelocity);
+        double t1 = Math.max(0, (vPeak - v0) / a);
+        double t3 = Math.max(0, (vPeak - vg) / a);
+        double x1 = x0 + (vPeak * vPeak - v0 * v0) / (2 * a);
+        // without cruise, the segments meet at the switching point.
+        double x2 = x1;
+        double tc = 0;
+        if (vs > m_maxVelocity) {
+            x2 = xg - (vPeak * vPeak - vg * vg) / (2 * a);
+            tc = Math.max(0, (x2 - x1) / vPeak);
+        }
+        return new TrapezoidPlan(direction, x0, v0, a, vPeak, t1, tc, t3, x1, x2, goal);
+    }
+
+    /**
+     * The largest acceleration that produces the ETA with the path in the given
+     * direction, or zero if there isn't one.
+     */
+    private double accelForETA(
+            double direction,
+            State100 initial,
+            State100 goal,
+            double eta,
+            double etaTolerance) {
+        double v0 = direction * initial.v();
+        double vg = direction * goal.v();
+        double d = direction * (goal.x() - initial.x());
+        double v = m_maxVelocity;
+        double best = 0;
+
+        // switch: eta * a = 2 * sqrt(a * d + (v0^2 + vg^2)/2) - v0 - vg,
+        // squared, is a quadratic with exactly one positive root.
+        double b = 4 * d - 2 * eta * (v0 + vg);
+        double aSwitch = (b + Math.sqrt(b * b + 4 * eta * eta * (v0 - vg) * (v0 - vg)))
+                / (2 * eta * eta);
+        if (works(aSwitch, initial, goal, eta, etaTolerance))
+            best = Math.max(best, aSwitch);
+
+        // cruise: eta = d/v + ((v - v0)^2 + (v - vg)^2) / (2 * v * a)
+        double tAccel = eta - d / v;
+        if (tAccel > 0) {
+            double aCruise = ((v - v0) * (v - v0) + (v - vg) * (v - vg)) / (2 * v * tAccel);
+            if (works(aCruise, initial, goal, eta, etaTolerance))
+                best = Math.max(best, aCruise);
+        }
+        return best;
+    }
+
+    private boolean works(double a, State100 initial, State100 goal, double eta, double etaTolerance) {
+        if (!(a > 0) || a > m_maxAcceleration)
+            return false;
+        double d = duration(m_maxVelocity, a, initial, goal);
+        return Math.abs(d - eta) <= etaTolerance;
+    }
+
+    /** Minimum-time duration at acceleration a, or NaN if there's no path. */
+    private static double duration(double maxV, double a, State100 initial, State100 goal) {
+        double plus = durationIplusGminus(
+                maxV, a, initial.x(), initial.v(), goal.x(), goal.v());
+        double minus = durationIplusGminus(
+                maxV, a, -initial.x(), -initial.v(), -goal.x(), -goal.v());
+        if (Double.isNaN(plus))
+            return minus;
+        if (Double.isNaN(minus))
+            return plus;
+        return Math.min(plus, minus);
+    }
+
+    /**
+     * Duration of the I+G- path at acceleration a, or NaN if there's no such path.
+     * For I-G+, negate the positions and velocities.
+     */
+    static double durationIplusGminus(
+            double maxV,
+            double a,
+            double x_i,
+            double v_i,
+            double x_g,
+            double v_g) {
+        double d = x_g - x_i;
+        // square of the velocity at the switching point
+        double vs2 = a * d + (v_i * v_i + v_g * v_g) / 2;
+        if (vs2 < 0)
+            return Double.NaN;
+        double vs = Math.sqrt(vs2);
+        if (vs < Math.max(v_i, v_g) - kVTolerance)
+            return Double.NaN;
+        if (vs <= maxV)
+            return Math.max(0, 2 * vs - v_i - v_g) / a;
+        return d / maxV + ((maxV - v_i) * (maxV - v_i) + (maxV - v_g) * (maxV - v_g)) / (2 * maxV * a);
+    }
+
     @Override
     public State100 calculate(double dt, State100 initial, State100 goal) {
         return calculateWithETA(dt, initial, goal).state();
@@ -366,7 +554,7 @@ public class TrapezoidProfile100 implements Profile100 {
             double duration = durationAtMaxA(initial.v(), goal.v());
             return new ResultWithETA(result, duration);
         }
-        double durationFromGPlusToGoal = durationAtMaxA(m_maxVelocity, goal.v());
+        double durationFromGPlusToGoal = durationAtMaxA(-m_maxVelocity, goal.v());
         if (durationToGPlus < dt) {
             double tremaining = dt - durationToGPlus;
             ResultWithETA r = calculateWithETA(tremaining, new State100(gplus, -m_maxVelocity), goal);
@@ -15,6 +15,14 @@ public interface Gyro extends Glassy {
     /** Yaw in radians, NWU, counterclockwise positive. */
     Rotation2d getYawNWU();
 
+    /**
+     * Yaw at the given FPGA time, for gyros that keep a history of samples;
+     * others just return the current yaw.
+     */
+    default Rotation2d getYawNWU(double timestampS) {
+        return getYawNWU();
+    }
+
     /** Yaw rate in rad/s, NWU, counterclockwise positive. */
     double getYawRateNWU();
 
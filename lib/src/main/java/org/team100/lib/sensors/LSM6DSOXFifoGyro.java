@@ -0,0 +1,136 @@
+package org.team100.lib.sensors;
+
+import org.team100.lib.async.Async;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.sensors.LSM6DSOX_I2C.ODR_G;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Wraps the LSM6DSOX class in the Gyro interface, using the hardware FIFO, so
+ * that every sample is integrated, at the full output rate, instead of just
+ * one sample per loop.
+ *
+ * Each drain burst-reads all the queued samples in one I2C transaction. The
+ * FIFO doesn't stamp the samples, so they're stamped here: the newest sample
+ * at the time of the read, and the rest spaced back from it at the nominal
+ * rate.
+ *
+ * The integrated yaw is kept in a history, so the pose estimator can ask for
+ * the yaw at the time of its other measurements.
+ *
+ * Like LSM6DSOXGyro, this should be used as a sort of last resort; the MXP I2C
+ * may or may not work.
+ */
+public class LSM6DSOXFifoGyro implements Gyro {
+    /** About a second at 833 Hz. */
+    private static final int kHistory = 1024;
+
+    private final LSM6DSOX_I2C m_gyro;
+    private final double m_periodS;
+    private final YawHistory m_history;
+    /** Drain on the caller's thread in periodic(). */
+    private final boolean m_drainInPeriodic;
+    /** Scratch for one burst. */
+    private final double[] m_rates = new double[LSM6DSOX_I2C.kMaxFifoWords];
+
+    // Integration state, touched only by the draining thread.
+    private double m_yawRad;
+    private double m_prevTimeS = Double.NaN;
+    private double m_prevRateRad_S;
+
+    /**
+     * Drain the FIFO in periodic(), i.e. once per main loop.
+     *
+     * @param odr 417 or 833 Hz is a good choice.
+     */
+    public LSM6DSOXFifoGyro(ODR_G odr) {
+        m_gyro = new LSM6DSOX_I2C(odr);
+        m_periodS = 1.0 / odr.hz;
+        m_history = new YawHistory(kHistory);
+        m_drainInPeriodic = true;
+    }
+
+    /**
+     * Drain the FIFO on its own task, so the samples are fresher than the main
+     * loop.
+     *
+     * @param odr     417 or 833 Hz is a good choice.
+     * @param periodS drain period, much shorter than the FIFO, which holds about
+     *                a second at 833 Hz.
+     */
+    public LSM6DSOXFifoGyro(ODR_G odr, Async async, double periodS) {
+        m_gyro = new LSM6DSOX_I2C(odr);
+        m_periodS = 1.0 / odr.hz;
+        m_history = new YawHistory(kHistory);
+        m_drainInPeriodic = false;
+        async.addBlockingPeriodic(this::drain, periodS, "LSM6DSOXFifoGyro");
+    }
+
+    /** Yaw now, extrapolated from the newest sample. */
+    @Override
+    public Rotation2d getYawNWU() {
+        return getYawNWU(Timer.getFPGATimestamp());
+    }
+
+    /** Yaw at the given time, interpolated from the history. */
+    @Override
+    public Rotation2d getYawNWU(double timestampS) {
+        return new Rotation2d(m_history.yawRad(timestampS));
+    }
+
+    /** The newest sample. */
+    @Override
+    public double getYawRateNWU() {
+        return m_history.rateRad_S();
+    }
+
+    @Override
+    public Rotation2d getPitchNWU() {
+        return GeometryUtil.kRotationZero;
+    }
+
+    @Override
+    public Rotation2d getRollNWU() {
+        return GeometryUtil.kRotationZero;
+    }
+
+    @Override
+    public void periodic() {
+        if (m_drainInPeriodic)
+            drain();
+    }
+
+    /** Read everything in the FIFO, integrate it, and record it. */
+    private void drain() {
+        double readTimeS = Timer.getFPGATimestamp();
+        int n = m_gyro.readFifo(m_rates);
+        // if there's more in the FIFO, our newest sample is that much older.
+        double newestS = readTimeS - m_gyro.remainingFifoWords() * m_periodS;
+        integrate(m_rates, n, newestS);
+    }
+
+    /**
+     * Integrate with the trapezoid rule, sample to sample, carrying the last
+     * sample over to the next burst.
+     *
+     * @param newestS timestamp for the last sample; the others are spaced back
+     *                from it at the nominal period.
+     */
+    private void integrate(double[] ratesRad_S, int n, double newestS) {
+        for (int i = 0; i < n; ++i) {
+            double timeS = newestS - (n - 1 - i) * m_periodS;
+            double rateRad_S = ratesRad_S[i];
+            if (!Double.isNaN(m_prevTimeS)) {
+                // timestamps come from the read time, which jitters, so keep
+                // them monotonic.
+                timeS = Math.max(timeS, m_prevTimeS);
+                m_yawRad += 0.5 * (m_prevRateRad_S + rateRad_S) * (timeS - m_prevTimeS);
+            }
+            m_prevTimeS = timeS;
+            m_prevRateRad_S = rateRad_S;
+            m_history.add(timeS, m_yawRad, rateRad_S);
+        }
+    }
+}
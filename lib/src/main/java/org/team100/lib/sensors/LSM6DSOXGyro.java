@@ -11,6 +11,9 @@ import edu.wpi.first.wpilibj.Timer;
  * Note this should be used as a sort of last resort; the MXP I2C may or may not
  * work.
  * 
+ * This samples once per call; see LSM6DSOXFifoGyro for a version that
+ * integrates every sample.
+ * 
  * TODO: extrapolate to the current instant
  */
 public class LSM6DSOXGyro implements Gyro {
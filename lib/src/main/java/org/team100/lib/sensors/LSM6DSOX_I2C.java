@@ -26,22 +26,25 @@ public class LSM6DSOX_I2C {
      * we need to remove any signal above 25Hz, so we should choose the 52Hz
      * ODR.
      * 
+     * In FIFO mode (see below), every sample is read, so a much higher rate,
+     * e.g. 417Hz or 833Hz, works.
+     * 
      * These are the high 4 bits in CTRL2_G, the gyro control register.
      * 
      * This list duplicates Table 55.
      */
     public enum ODR_G {
-        ODR_OFF(0b0000_0000),
-        ODR_12Hz5(0b0001_0000),
-        ODR_26Hz(0b0010_0000),
-        ODR_52Hz(0b0011_0000),
-        ODR_104Hz(0b0100_0000),
-        ODR_208Hz(0b0101_0000),
-        ODR_417Hz(0b0110_0000),
-        ODR_833Hz(0b0111_0000),
-        ODR_1667Hz(0b1000_0000),
-        ODR_3333Hz(0b1001_0000),
-        ODR_6667Hz(0b1010_0000);
+        ODR_OFF(0b0000_0000, 0),
+        ODR_12Hz5(0b0001_0000, 12.5),
+        ODR_26Hz(0b0010_0000, 26),
+        ODR_52Hz(0b0011_0000, 52),
+        ODR_104Hz(0b0100_0000, 104),
+        ODR_208Hz(0b0101_0000, 208),
+        ODR_417Hz(0b0110_0000, 417),
+        ODR_833Hz(0b0111_0000, 833),
+        ODR_1667Hz(0b1000_0000, 1667),
+        ODR_3333Hz(0b1001_0000, 3333),
+        ODR_6667Hz(0b1010_0000, 6667);
 
         /**
          * Mask to erase the relevant bits.
@@ -52,9 +55,14 @@ public class LSM6DSOX_I2C {
          * Register value
          */
         private final byte value;
+        /**
+         * Nominal sample rate, Hz.
+         */
+        public final double hz;
 
-        private ODR_G(int value) {
+        private ODR_G(int value, double hz) {
             this.value = (byte) value;
+            this.hz = hz;
         }
 
         /**
@@ -69,6 +77,14 @@ public class LSM6DSOX_I2C {
             ctrl2 |= value;
             m_i2c.write(CTRL2_G, ctrl2);
         }
+
+        /**
+         * The FIFO batch rate (BDR_GY, the high 4 bits of FIFO_CTRL3) uses the
+         * same encoding as the ODR, at least up to 6667 Hz, see Table 34.
+         */
+        private void setBatchRate(I2C m_i2c) {
+            m_i2c.write(FIFO_CTRL3, value);
+        }
     }
 
     /**
@@ -136,6 +152,33 @@ public class LSM6DSOX_I2C {
      */
     private static final byte OUTZ_L_G = (byte) 0x26;
 
+    /** FIFO batch rate for the gyro. See datasheet section 9.4. */
+    private static final byte FIFO_CTRL3 = (byte) 0x09;
+    /** FIFO mode. See datasheet section 9.5. */
+    private static final byte FIFO_CTRL4 = (byte) 0x0A;
+    /** Continuous mode: when the FIFO is full, new samples replace the oldest. */
+    private static final byte FIFO_MODE_CONTINUOUS = (byte) 0b0000_0110;
+    /**
+     * Number of unread FIFO words, 10 bits, low 8 here and high 2 in the next
+     * register. See datasheet sections 9.42 and 9.43.
+     */
+    private static final byte FIFO_STATUS1 = (byte) 0x3A;
+    /**
+     * First FIFO output register. Each FIFO word is seven bytes: the tag, and
+     * then X, Y, and Z, little-endian, 16b. After the last byte, the register
+     * address rolls back to the tag, so many words can be read in one
+     * transaction. See datasheet section 9.84 and AN5272 section 9.
+     */
+    private static final byte FIFO_DATA_OUT_TAG = (byte) 0x78;
+    private static final int kFifoWordBytes = 7;
+    /** Tag for uncompressed gyro data, the high 5 bits of the tag byte. */
+    private static final int kTagGyro = 0x01;
+    /**
+     * The most FIFO words to read in one transaction; any more are read next
+     * time.
+     */
+    public static final int kMaxFifoWords = 32;
+
     /**
      * Static offset.
      * updated for "minibotNEO".
@@ -146,8 +189,12 @@ public class LSM6DSOX_I2C {
 
     private final I2C m_i2c;
     private final FS_G m_scale;
+    /** Scratch for FIFO reads. */
+    private final byte[] m_fifoStatus = new byte[2];
+    private final byte[] m_fifoData = new byte[kMaxFifoWords * kFifoWordBytes];
     private final DoublePublisher measurementPub;
     private final DoublePublisher measurementRawPub;
+    private int m_remaining;
 
     /**
      * Construct the gyro with sensitivity of 500 degrees/sec and 52 Hz data rate.
@@ -158,13 +205,58 @@ public class LSM6DSOX_I2C {
                 FS_G.FS_500dps);
     }
 
+    /**
+     * Construct the gyro with sensitivity of 500 degrees/sec, and the hardware
+     * FIFO in continuous mode at the specified rate, so that every sample can be
+     * read with readFifo().
+     */
+    public LSM6DSOX_I2C(ODR_G odr) {
+        this(ADDR, odr, FS_G.FS_500dps);
+        odr.setBatchRate(m_i2c);
+        m_i2c.write(FIFO_CTRL4, FIFO_MODE_CONTINUOUS);
+    }
+
+    /**
+     * Read all the gyro samples queued in the FIFO, up to kMaxFifoWords, in one
+     * transaction.
+     * 
+     * @param ratesRadS outvar, NWU yaw rates in radians/sec, oldest first,
+     *                  length at least kMaxFifoWords.
+     * @return number of samples written to ratesRadS. The FIFO may have more,
+     *         see remainingFifoWords().
+     */
+    public int readFifo(double[] ratesRadS) {
+        int words = fifoWords();
+        if (words == 0)
+            return 0;
+        int n = Math.min(words, kMaxFifoWords);
+        m_remaining = words - n;
+        m_i2c.read(FIFO_DATA_OUT_TAG, n * kFifoWordBytes, m_fifoData);
+        int count = 0;
+        for (int i = 0; i < n; ++i) {
+            int offset = i * kFifoWordBytes;
+            int tag = (m_fifoData[offset] & 0xff) >>> 3;
+            if (tag != kTagGyro)
+                continue;
+            // Z is the last two bytes of the word.
+            int raw = (short) ((m_fifoData[offset + 5] & 0xff) | (m_fifoData[offset + 6] << 8));
+            ratesRadS[count++] = rawToRadS(raw - kRawOffset);
+        }
+        return count;
+    }
+
+    /** Words left in the FIFO after the most recent readFifo(). */
+    public int remainingFifoWords() {
+        return m_remaining;
+    }
+
     /**
      * NWU yaw rate in radians/sec.
      */
     public double getYawRateRadS() {
         int yawRateRaw = getYawRateRaw();
         measurementRawPub.set(yawRateRaw);
-        double yawRateRadS = yawRateRaw * m_scale.mdps * Math.PI / 180000;
+        double yawRateRadS = rawToRadS(yawRateRaw);
         measurementPub.set(yawRateRadS);
         return yawRateRadS;
     }
@@ -186,6 +278,16 @@ public class LSM6DSOX_I2C {
         measurementRawPub = table.getDoubleTopic("yawRateRaw").publish();
     }
 
+    private double rawToRadS(int raw) {
+        return raw * m_scale.mdps * Math.PI / 180000;
+    }
+
+    /** Number of unread FIFO words. */
+    private int fifoWords() {
+        m_i2c.read(FIFO_STATUS1, 2, m_fifoStatus);
+        return (m_fifoStatus[0] & 0xff) | ((m_fifoStatus[1] & 0b11) << 8);
+    }
+
     /**
      * NWU yaw rate, 16 bits, signed. Unit depends on full-scale setting.
      */
@@ -24,6 +24,15 @@ public class SelectGyro implements Gyro {
         }
     }
 
+    @Override
+    public Rotation2d getYawNWU(double timestampS) {
+        if (m_selector.getAsBoolean()) {
+            return m_whenTrue.getYawNWU(timestampS);
+        } else {
+            return m_whenFalse.getYawNWU(timestampS);
+        }
+    }
+
     @Override
     public double getYawRateNWU() {
         if (m_selector.getAsBoolean()) {
@@ -0,0 +1,97 @@
+package org.team100.lib.sensors;
+
+/**
+ * Timestamped yaw and yaw rate, in a fixed-size ring, so a gyro can record
+ * every sample at a high rate without allocating, and the pose estimator can
+ * ask for the yaw at any recent instant.
+ *
+ * Samples must be added in time order.
+ *
+ * This is synchronized, so the samples can come from another thread.
+ */
+final class YawHistory {
+    private final double[] m_timeS;
+    private final double[] m_yawRad;
+    private final double[] m_rateRad_S;
+    /** Index of the next write. */
+    private int m_next;
+    private int m_size;
+
+    YawHistory(int capacity) {
+        m_timeS = new double[capacity];
+        m_yawRad = new double[capacity];
+        m_rateRad_S = new double[capacity];
+    }
+
+    synchronized void add(double timeS, double yawRad, double rateRad_S) {
+        m_timeS[m_next] = timeS;
+        m_yawRad[m_next] = yawRad;
+        m_rateRad_S[m_next] = rateRad_S;
+        m_next = (m_next + 1) % m_timeS.length;
+        if (m_size < m_timeS.length)
+            m_size++;
+    }
+
+    synchronized boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /** Most recent rate, or zero if empty. */
+    synchronized double rateRad_S() {
+        if (m_size == 0)
+            return 0;
+        return m_rateRad_S[newest()];
+    }
+
+    /**
+     * Yaw at the given time, interpolated between samples. Before the oldest
+     * sample, this is the oldest yaw. After the newest sample, this extrapolates
+     * using the newest rate. Zero if empty.
+     */
+    synchronized double yawRad(double timeS) {
+        if (m_size == 0)
+            return 0;
+        int newest = newest();
+        if (timeS >= m_timeS[newest]) {
+            return m_yawRad[newest] + m_rateRad_S[newest] * (timeS - m_timeS[newest]);
+        }
+        int oldest = index(0);
+        if (timeS <= m_timeS[oldest]) {
+            return m_yawRad[oldest];
+        }
+        // binary search for the last sample at or before timeS.
+        int lo = 0;
+        int hi = m_size - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (m_timeS[index(mid)] <= timeS) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        int a = index(lo);
+        int b = index(hi);
+        double dt = m_timeS[b] - m_timeS[a];
+        if (dt <= 0)
+            return m_yawRad[b];
+        double s = (timeS - m_timeS[a]) / dt;
+        return m_yawRad[a] + s * (m_yawRad[b] - m_yawRad[a]);
+    }
+
+    /** Time of the newest sample, or negative infinity if empty. */
+    synchronized double newestTimeS() {
+        if (m_size == 0)
+            return Double.NEGATIVE_INFINITY;
+        return m_timeS[newest()];
+    }
+
+    private int newest() {
+        return index(m_size - 1);
+    }
+
+    /** Ring index of the i-th oldest sample. */
+    private int index(int i) {
+        return (m_next - m_size + i + m_timeS.length) % m_timeS.length;
+    }
+}
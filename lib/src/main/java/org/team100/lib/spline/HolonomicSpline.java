@@ -136,11 +136,12 @@ public class HolonomicSpline {
      * @return the final sumDCurvature2
      */
     public static double optimizeSpline(List<HolonomicSpline> splines) {
+        Objective objective = new Objective(splines);
         int count = 0;
-        double prev = sumDCurvature2(splines);
+        double prev = objective.sum();
         while (count < kMaxIterations) {
-            runOptimizationIteration(splines);
-            double current = sumDCurvature2(splines);
+            runOptimizationIteration(objective);
+            double current = objective.sum();
             if (prev - current < kMinDelta)
                 return current;
             prev = current;
@@ -154,6 +155,21 @@ public class HolonomicSpline {
         return new Pose2d(getPoint(p), getHeading(p));
     }
 
+    /**
+     * Same as getPose2d(), without making any objects.
+     * 
+     * @param out x, y, and the cosine and sine of the heading
+     */
+    void getPose(double p, double[] out) {
+        double dtheta = theta.getPosition(p);
+        double c = Math.cos(dtheta);
+        double s = Math.sin(dtheta);
+        out[0] = x.getPosition(p);
+        out[1] = y.getPosition(p);
+        out[2] = r0.getCos() * c - r0.getSin() * s;
+        out[3] = r0.getCos() * s + r0.getSin() * c;
+    }
+
     ////////////////////////////////////////////////////////////////////////
 
     protected Rotation2d getHeading(double t) {
@@ -237,7 +253,7 @@ public class HolonomicSpline {
         return x.getVelocity(t);
     }
 
-    private double dy(double t) {
+    double dy(double t) {
         return y.getVelocity(t);
     }
 
@@ -289,11 +305,15 @@ public class HolonomicSpline {
     }
 
     private double dCurvature2(double t) {
-        double dx2dy2 = (dx(t) * dx(t) + dy(t) * dy(t));
+        double dx = dx(t);
+        double dy = dy(t);
+        double dx2dy2 = (dx * dx + dy * dy);
         if (dx2dy2 == 0)
             throw new IllegalArgumentException();
-        double num = (dx(t) * dddy(t) - dddx(t) * dy(t)) * dx2dy2
-                - 3 * (dx(t) * ddy(t) - ddx(t) * dy(t)) * (dx(t) * ddx(t) + dy(t) * ddy(t));
+        double ddx = ddx(t);
+        double ddy = ddy(t);
+        double num = (dx * dddy(t) - dddx(t) * dy) * dx2dy2
+                - 3 * (dx * ddy - ddx * dy) * (dx * ddx + dy * ddy);
         return num * num / (dx2dy2 * dx2dy2 * dx2dy2 * dx2dy2 * dx2dy2);
     }
 
@@ -330,16 +350,44 @@ public class HolonomicSpline {
     }
 
     /**
-     * @return integral of dCurvature^2 over the length of multiple splines
+     * The splines being optimized, with sumDCurvature2 for each one, so that
+     * changing one spline only re-evaluates that one.
      */
-    static double sumDCurvature2(List<HolonomicSpline> splines) {
-        double sum = 0;
-        for (HolonomicSpline s : splines) {
-            sum += s.sumDCurvature2();
+    private static class Objective {
+        private final List<HolonomicSpline> m_splines;
+        private final double[] m_costs;
+
+        Objective(List<HolonomicSpline> splines) {
+            m_splines = splines;
+            m_costs = new double[splines.size()];
+            for (int i = 0; i < m_costs.length; ++i) {
+                m_costs[i] = splines.get(i).sumDCurvature2();
+            }
+        }
+
+        int size() {
+            return m_splines.size();
+        }
+
+        HolonomicSpline get(int i) {
+            return m_splines.get(i);
+        }
+
+        void set(int i, HolonomicSpline s) {
+            m_splines.set(i, s);
+            m_costs[i] = s.sumDCurvature2();
+        }
+
+        /** Integral of dCurvature^2 over the length of all the splines. */
+        double sum() {
+            double sum = 0;
+            for (double c : m_costs) {
+                sum += c;
+            }
+            if (Double.isNaN(sum))
+                throw new IllegalArgumentException();
+            return sum;
         }
-        if (Double.isNaN(sum))
-            throw new IllegalArgumentException();
-        return sum;
     }
 
     /**
@@ -353,7 +401,7 @@ public class HolonomicSpline {
     /**
      * Runs a single optimization iteration
      */
-    private static void runOptimizationIteration(List<HolonomicSpline> splines) {
+    private static void runOptimizationIteration(Objective splines) {
         // can't optimize anything with less than 2 splines
         if (splines.size() <= 1) {
             Util.warn("runOptimizationIteration: nothing to optimize");
@@ -372,7 +420,7 @@ public class HolonomicSpline {
         // first calculate 3 points along the direction of the gradient
 
         // middle point is at the current location
-        Translation2d p2 = new Translation2d(0, sumDCurvature2(splines));
+        Translation2d p2 = new Translation2d(0, splines.sum());
 
         // first point is offset from the middle location by -stepSize
         for (int i = 0; i < splines.size() - 1; ++i) {
@@ -380,12 +428,12 @@ public class HolonomicSpline {
         }
 
         // last point is offset from the middle location by +stepSize
-        Translation2d p1 = new Translation2d(-kStepSize, sumDCurvature2(splines));
+        Translation2d p1 = new Translation2d(-kStepSize, splines.sum());
         for (int i = 0; i < splines.size() - 1; ++i) {
             forwards(splines, controlPoints, i);
         }
 
-        Translation2d p3 = new Translation2d(kStepSize, sumDCurvature2(splines));
+        Translation2d p3 = new Translation2d(kStepSize, splines.sum());
         // approximate step size to minimize sumDCurvature2 along the gradient
         double stepSize = fitParabola(p1, p2, p3);
 
@@ -394,7 +442,7 @@ public class HolonomicSpline {
         }
     }
 
-    private static void finish(List<HolonomicSpline> splines, ControlPoint[] controlPoints, double stepSize, int i) {
+    private static void finish(Objective splines, ControlPoint[] controlPoints, double stepSize, int i) {
         Optional<Pose2d> startPose = splines.get(i).getStartPose();
         Optional<Pose2d> startPose2 = splines.get(i + 1).getStartPose();
         Optional<Pose2d> endPose = splines.get(i).getEndPose();
@@ -421,7 +469,7 @@ public class HolonomicSpline {
                 splines.get(i + 1).adjustSecondDerivatives(controlPoints[i].ddx, 0, controlPoints[i].ddy, 0));
     }
 
-    private static void forwards(List<HolonomicSpline> splines, ControlPoint[] controlPoints, int i) {
+    private static void forwards(Objective splines, ControlPoint[] controlPoints, int i) {
         Optional<Pose2d> startPose = splines.get(i).getStartPose();
         Optional<Pose2d> startPose2 = splines.get(i + 1).getStartPose();
         Optional<Pose2d> endPose = splines.get(i).getEndPose();
@@ -447,7 +495,7 @@ public class HolonomicSpline {
     }
 
     private static void backwards(
-            List<HolonomicSpline> splines,
+            Objective splines,
             ControlPoint[] controlPoints,
             double magnitude,
             int i) {
@@ -484,7 +532,7 @@ public class HolonomicSpline {
      * @param controlPoints output control points
      * @return sum of ddx^2+ddy^2
      */
-    private static double getControlPoints(List<HolonomicSpline> splines, ControlPoint[] controlPoints) {
+    private static double getControlPoints(Objective splines, ControlPoint[] controlPoints) {
         double magnitude = 0;
         for (int i = 0; i < splines.size() - 1; ++i) {
             // don't try to optimize colinear points
@@ -499,7 +547,7 @@ public class HolonomicSpline {
                     || GeometryUtil.isColinear(endPose.get(), endPose2.get())) {
                 continue;
             }
-            double original = sumDCurvature2(splines);
+            double original = splines.sum();
 
             // holds the gradient at a control point
             controlPoints[i] = new ControlPoint();
@@ -507,14 +555,12 @@ public class HolonomicSpline {
             // calculate partial derivatives of sumDCurvature2
             splines.set(i, splines.get(i).adjustSecondDerivatives(0, kEpsilon, 0, 0));
             splines.set(i + 1, splines.get(i + 1).adjustSecondDerivatives(kEpsilon, 0, 0, 0));
-            controlPoints[i].ddx = (sumDCurvature2(splines) - original) / kEpsilon;
+            controlPoints[i].ddx = (splines.sum() - original) / kEpsilon;
 
             splines.set(i, splines.get(i).adjustSecondDerivatives(0, 0, 0, kEpsilon));
             splines.set(i + 1, splines.get(i + 1).adjustSecondDerivatives(0, 0, kEpsilon, 0));
-            controlPoints[i].ddy = (sumDCurvature2(splines) - original) / kEpsilon;
+            controlPoints[i].ddy = (splines.sum() - original) / kEpsilon;
 
-            splines.set(i, splines.get(i));
-            splines.set(i + 1, splines.get(i + 1));
             magnitude += controlPoints[i].ddx * controlPoints[i].ddx + controlPoints[i].ddy * controlPoints[i].ddy;
         }
         return magnitude;
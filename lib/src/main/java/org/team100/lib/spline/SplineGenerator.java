@@ -2,15 +2,31 @@ package org.team100.lib.spline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
-import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.util.Math100;
 
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Twist2d;
-
+/**
+ * Converts splines into lists of poses, subdividing each spline until each
+ * piece is close to a constant-twist arc.
+ *
+ * The subdivision test uses primitive math rather than Pose2d, Twist2d, etc,
+ * because it's evaluated many times per spline and the allocation adds up.
+ * The geometry is the same as
+ *
+ * <pre>
+ * twist_full = log(p0^-1 p1)
+ * phalf_predicted = p0 exp(twist_full / 2)
+ * error = phalf^-1 phalf_predicted
+ * </pre>
+ *
+ * Splines are independent, so multiple splines are done in parallel.
+ */
 public class SplineGenerator {
+    /** Below this, twists are treated as zero, as in Pose2d.log() and exp(). */
+    private static final double kTiny = 1e-9;
+
     /**
      * Converts a spline into a list of Twist2d's.
      *
@@ -29,8 +45,9 @@ public class SplineGenerator {
         List<Pose2dWithMotion> rv = new ArrayList<>();
         rv.add(s.getPose2dWithMotion(0.0));
         double dt = (t1 - t0);
+        Scratch scratch = new Scratch();
         for (double t = 0; t < t1; t += dt) {
-            getSegmentArc(s, rv, t, t + dt, maxDx, maxDy, maxDTheta);
+            getSegmentArc(s, rv, scratch, t, t + dt, maxDx, maxDy, maxDTheta);
         }
         return rv;
     }
@@ -44,49 +61,173 @@ public class SplineGenerator {
         if (splines.isEmpty())
             return rv;
         rv.add(splines.get(0).getPose2dWithMotion(0.0));
-        for (int i = 0; i < splines.size(); i++) {
-            HolonomicSpline s = splines.get(i);
-            List<Pose2dWithMotion> samples = parameterizeSpline(s, maxDx, maxDy, maxDTheta, 0.0, 1.0);
-            samples.remove(0);
-            rv.addAll(samples);
+        if (splines.size() == 1) {
+            // not worth a fork
+            addSamples(rv, splines.get(0), maxDx, maxDy, maxDTheta);
+            return rv;
+        }
+        // the parallel stream keeps the order.
+        List<List<Pose2dWithMotion>> parts = splines.parallelStream()
+                .map(s -> parameterizeSpline(s, maxDx, maxDy, maxDTheta, 0.0, 1.0))
+                .collect(Collectors.toList());
+        for (List<Pose2dWithMotion> samples : parts) {
+            rv.addAll(samples.subList(1, samples.size()));
         }
         return rv;
     }
 
+    private static void addSamples(
+            List<Pose2dWithMotion> rv,
+            HolonomicSpline s,
+            double maxDx,
+            double maxDy,
+            double maxDTheta) {
+        List<Pose2dWithMotion> samples = parameterizeSpline(s, maxDx, maxDy, maxDTheta, 0.0, 1.0);
+        rv.addAll(samples.subList(1, samples.size()));
+    }
+
+    /** What to do with a segment. */
+    private enum Action {
+        /** Too far from an arc: do each half. */
+        SPLIT,
+        /** Close enough: add the end point. */
+        EMIT,
+        /** No translation to measure: add nothing. */
+        SKIP
+    }
+
+    /** Pose buffers for the subdivision, reused at every level. */
+    private static class Scratch {
+        final double[] p0 = new double[4];
+        final double[] phalf = new double[4];
+        final double[] p1 = new double[4];
+    }
+
     private static void getSegmentArc(
             HolonomicSpline s,
             List<Pose2dWithMotion> rv,
+            Scratch scratch,
+            double t0,
+            double t1,
+            double maxDx,
+            double maxDy,
+            double maxDTheta) {
+        switch (check(s, scratch, t0, t1, maxDx, maxDy, maxDTheta)) {
+            case SPLIT:
+                getSegmentArc(s, rv, scratch, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
+                getSegmentArc(s, rv, scratch, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
+                break;
+            case EMIT:
+                rv.add(s.getPose2dWithMotion(t1));
+                break;
+            case SKIP:
+                break;
+        }
+    }
+
+    /**
+     * SPLIT if the midpoint of the spline segment is too far from the midpoint
+     * of the arc between the ends, SKIP if the segment has no translation to
+     * measure (e.g. pure rotation), otherwise EMIT.
+     */
+    private static Action check(
+            HolonomicSpline s,
+            Scratch scratch,
             double t0,
             double t1,
             double maxDx,
             double maxDy,
             double maxDTheta) {
-        Pose2d p0 = s.getPose2d(t0);
-        Pose2d phalf = s.getPose2d(t0 + (t1 - t0) * .5);
-        Pose2d p1 = s.getPose2d(t1);
-        Twist2d twist_full = GeometryUtil.kPoseZero.log(GeometryUtil.transformBy(GeometryUtil.inverse(p0), p1));
-        Pose2d phalf_predicted = GeometryUtil.transformBy(p0,
-                GeometryUtil.kPoseZero.exp(GeometryUtil.scale(twist_full, 0.5)));
-        Pose2d error = GeometryUtil.transformBy(GeometryUtil.inverse(phalf), phalf_predicted);
-        
-        if (GeometryUtil.norm(twist_full) < 1e-6) {
-            // the Rotation2d below will be garbage in this case so give up.
-            return;
+        // each pose is x, y, cos, sin.
+        double[] p0 = scratch.p0;
+        double[] phalf = scratch.phalf;
+        double[] p1 = scratch.p1;
+        double thalf = t0 + (t1 - t0) * .5;
+        s.getPose(t0, p0);
+        s.getPose(thalf, phalf);
+        s.getPose(t1, p1);
+
+        // p1 relative to p0
+        double wx = p1[0] - p0[0];
+        double wy = p1[1] - p0[1];
+        double rx = p0[2] * wx + p0[3] * wy;
+        double ry = -p0[3] * wx + p0[2] * wy;
+        double rcos = p0[2] * p1[2] + p0[3] * p1[3];
+        double rsin = p0[2] * p1[3] - p0[3] * p1[2];
+
+        // log
+        double dtheta = Math.atan2(rsin, rcos);
+        double halfDtheta = 0.5 * dtheta;
+        double cosMinusOne = rcos / Math.hypot(rcos, rsin) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < kTiny) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * rsin / Math.hypot(rcos, rsin)) / cosMinusOne;
         }
-        Rotation2d course_predicted = (new Rotation2d(twist_full.dx, twist_full.dy))
-                .rotateBy(phalf_predicted.getRotation());
-
-        Rotation2d course_half = s.getCourse(t0 + (t1 - t0) * .5).orElse(course_predicted);
-        double course_error = course_predicted.unaryMinus().rotateBy(course_half).getRadians();
-        if (Math.abs(error.getTranslation().getY()) > maxDy ||
-                Math.abs(error.getTranslation().getX()) > maxDx ||
-                Math.abs(error.getRotation().getRadians()) > maxDTheta ||
-                Math.abs(course_error) > maxDTheta) {
-            getSegmentArc(s, rv, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
-            getSegmentArc(s, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
+        double twistDx = rx * halfThetaByTanOfHalfDtheta + ry * halfDtheta;
+        double twistDy = -rx * halfDtheta + ry * halfThetaByTanOfHalfDtheta;
+
+        if (Math.hypot(twistDx, twistDy) < 1e-6) {
+            // the course below would be garbage in this case so give up.
+            return Action.SKIP;
+        }
+
+        // exp of half the twist
+        double hdx = 0.5 * twistDx;
+        double hdy = 0.5 * twistDy;
+        double hdtheta = 0.5 * dtheta;
+        double sinTheta = Math.sin(hdtheta);
+        double cosTheta = Math.cos(hdtheta);
+        double sc;
+        double cc;
+        if (Math.abs(hdtheta) < kTiny) {
+            sc = 1.0 - 1.0 / 6.0 * hdtheta * hdtheta;
+            cc = 0.5 * hdtheta;
         } else {
-            rv.add(s.getPose2dWithMotion(t1));
+            sc = sinTheta / hdtheta;
+            cc = (1 - cosTheta) / hdtheta;
+        }
+        double ex = hdx * sc - hdy * cc;
+        double ey = hdx * cc + hdy * sc;
+
+        // predicted midpoint, in field coordinates
+        double px = p0[0] + p0[2] * ex - p0[3] * ey;
+        double py = p0[1] + p0[3] * ex + p0[2] * ey;
+        double pcos = p0[2] * cosTheta - p0[3] * sinTheta;
+        double psin = p0[3] * cosTheta + p0[2] * sinTheta;
+
+        // predicted midpoint relative to the actual midpoint.
+        // check the cheap things first.
+        double mx = px - phalf[0];
+        double my = py - phalf[1];
+        double errorX = phalf[2] * mx + phalf[3] * my;
+        if (Math.abs(errorX) > maxDx)
+            return Action.SPLIT;
+        double errorY = -phalf[3] * mx + phalf[2] * my;
+        if (Math.abs(errorY) > maxDy)
+            return Action.SPLIT;
+        double errorTheta = Math.atan2(
+                phalf[2] * psin - phalf[3] * pcos,
+                phalf[2] * pcos + phalf[3] * psin);
+        if (Math.abs(errorTheta) > maxDTheta)
+            return Action.SPLIT;
+
+        // course of the twist, in field coordinates
+        double coursePredictedX = twistDx * pcos - twistDy * psin;
+        double coursePredictedY = twistDx * psin + twistDy * pcos;
+        double courseHalfX = s.dx(thalf);
+        double courseHalfY = s.dy(thalf);
+        if (Math100.epsilonEquals(courseHalfX, 0.0) && Math100.epsilonEquals(courseHalfY, 0.0)) {
+            // no course at the midpoint, so no course error.
+            return Action.EMIT;
         }
+        double courseError = Math.atan2(
+                coursePredictedX * courseHalfY - coursePredictedY * courseHalfX,
+                coursePredictedX * courseHalfX + coursePredictedY * courseHalfY);
+        if (Math.abs(courseError) > maxDTheta)
+            return Action.SPLIT;
+        return Action.EMIT;
     }
 
     private SplineGenerator() {
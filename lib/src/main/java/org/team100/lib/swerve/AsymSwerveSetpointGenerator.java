@@ -1,5 +1,6 @@
 package org.team100.lib.swerve;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 import org.team100.lib.dashboard.Glassy;
@@ -12,6 +13,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveDriveKinematics100;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.RobotController;
@@ -43,6 +45,22 @@ public class AsymSwerveSetpointGenerator implements Glassy {
     private final DriveAccelerationLimiter m_DriveAccelerationLimiter;
     private final BatterySagLimiter m_BatterySagLimiter;
 
+    // Scratch arrays, indexed by module, reused every call, so the
+    // generator doesn't allocate them every loop.
+    private final double[] m_prev_vx;
+    private final double[] m_prev_vy;
+    /** Radians, NaN if unknown. */
+    private final double[] m_prev_heading;
+    private final double[] m_desired_vx;
+    private final double[] m_desired_vy;
+    /** Radians, NaN if unknown. */
+    private final double[] m_desired_heading;
+    private final double[] m_desired_heading_velocity;
+    /** Desired module velocity components, [vx1, vy1, vx2, vy2, ...]. */
+    private final double[] m_desired_xy;
+    /** Nullable entries. */
+    private final Rotation2d[] m_overrideSteering;
+
     public AsymSwerveSetpointGenerator(LoggerFactory parent, SwerveKinodynamics limits) {
         m_limits = limits;
         m_centripetalLimiter = new CapsizeAccelerationLimiter(parent, limits);
@@ -50,6 +68,16 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         m_steeringRateLimiter = new SteeringRateLimiter(parent, limits);
         m_DriveAccelerationLimiter = new DriveAccelerationLimiter(parent, limits);
         m_BatterySagLimiter = new BatterySagLimiter();
+        int n = limits.getKinematics().getModuleLocations().length;
+        m_prev_vx = new double[n];
+        m_prev_vy = new double[n];
+        m_prev_heading = new double[n];
+        m_desired_vx = new double[n];
+        m_desired_vy = new double[n];
+        m_desired_heading = new double[n];
+        m_desired_heading_velocity = new double[n];
+        m_desired_xy = new double[2 * n];
+        m_overrideSteering = new Rotation2d[n];
     }
 
     /**
@@ -80,16 +108,17 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         boolean desiredIsStopped = SwerveUtil.desiredIsStopped(desiredState, desiredModuleStates, prevModuleStates);
 
         // For each module, compute local Vx and Vy vectors.
-        double[] prev_vx = computeVx(prevModuleStates);
-        double[] prev_vy = computeVy(prevModuleStates);
-        // elements may be null.
-        Rotation2d[] prev_heading = computeHeading(prevModuleStates);
-
-        double[] desired_vx = computeVx(desiredModuleStates);
-        double[] desired_vy = computeVy(desiredModuleStates);
-        // elements may be null.
-        Rotation2d[] desired_heading = computeHeading(desiredModuleStates);
-        double[] desired_heading_velocity = computeHeadingVelocity(desiredModuleStates);
+        final double[] prev_vx = m_prev_vx;
+        final double[] prev_vy = m_prev_vy;
+        final double[] prev_heading = m_prev_heading;
+        computeVectors(prevModuleStates, prev_vx, prev_vy, prev_heading);
+
+        final double[] desired_vx = m_desired_vx;
+        final double[] desired_vy = m_desired_vy;
+        final double[] desired_heading = m_desired_heading;
+        computeDesiredVectors(desiredModuleStates, m_desired_xy, desired_vx, desired_vy, desired_heading);
+        final double[] desired_heading_velocity = m_desired_heading_velocity;
+        computeHeadingVelocity(desiredModuleStates, desired_heading_velocity);
 
         boolean shouldStopAndReverse = shouldStopAndReverse(prev_heading, desired_heading);
         if (shouldStopAndReverse
@@ -121,7 +150,8 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         // steering angle to command (since
         // inverse kinematics doesn't care about angle, we can be opportunistically
         // lazy).
-        Rotation2d[] overrideSteering = new Rotation2d[prevModuleStates.length];
+        final Rotation2d[] overrideSteering = m_overrideSteering;
+        Arrays.fill(overrideSteering, null);
 
         if (desiredIsStopped) {
             for (int i = 0; i < prevModuleStates.length; ++i) {
@@ -174,72 +204,83 @@ public class AsymSwerveSetpointGenerator implements Glassy {
     ///////////////////////////////////////////////////////
 
     /**
+     * For each module, the velocity components, and which way the module is
+     * actually going, taking speed polarity into account.
+     * 
      * array order:
      * 
      * frontLeft
      * frontRight
      * rearLeft
      * rearRight
+     * 
+     * @param vx      outvar
+     * @param vy      outvar
+     * @param heading outvar, radians, NaN if unknown
      */
-    private double[] computeVx(SwerveModuleState100[] states) {
-        double[] vx = new double[states.length];
+    private static void computeVectors(
+            SwerveModuleState100[] states,
+            double[] vx,
+            double[] vy,
+            double[] heading) {
         for (int i = 0; i < states.length; ++i) {
             SwerveModuleState100 state = states[i];
-            if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
+            if (state.angle.isEmpty()) {
                 vx[i] = 0;
-            } else {
-                vx[i] = state.angle.get().getCos() * state.speedMetersPerSecond;
+                vy[i] = 0;
+                heading[i] = Double.NaN;
+                continue;
             }
-        }
-        return vx;
-    }
-
-    /**
-     * array order:
-     * 
-     * frontLeft
-     * frontRight
-     * rearLeft
-     * rearRight
-     */
-    private double[] computeVy(SwerveModuleState100[] states) {
-        double[] vy = new double[states.length];
-        for (int i = 0; i < states.length; ++i) {
-            SwerveModuleState100 state = states[i];
-            if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
+            Rotation2d angle = state.angle.get();
+            if (Math.abs(state.speedMetersPerSecond) < 1e-6) {
+                vx[i] = 0;
                 vy[i] = 0;
             } else {
-                vy[i] = state.angle.get().getSin() * state.speedMetersPerSecond;
+                vx[i] = angle.getCos() * state.speedMetersPerSecond;
+                vy[i] = angle.getSin() * state.speedMetersPerSecond;
+            }
+            if (state.speedMetersPerSecond < 0.0) {
+                heading[i] = MathUtil.angleModulus(angle.getRadians() + Math.PI);
+            } else {
+                heading[i] = angle.getRadians();
             }
         }
-        return vy;
     }
 
     /**
-     * Which way each module is actually going, taking speed polarity into account.
+     * Same as computeVectors(), for the desired states, using the module
+     * velocity components from the kinematics kernel instead of unwrapping the
+     * state angles.  The desired speeds are always positive, so the heading is
+     * just the state angle.
      * 
-     * array order:
-     * 
-     * frontLeft
-     * frontRight
-     * rearLeft
-     * rearRight
-     * 
-     * @return elements are nullable.
+     * @param xy      module velocity components, [vx1, vy1, vx2, vy2, ...]
+     * @param vx      outvar
+     * @param vy      outvar
+     * @param heading outvar, radians, NaN if unknown
      */
-    private Rotation2d[] computeHeading(SwerveModuleState100[] states) {
-        Rotation2d[] heading = new Rotation2d[states.length];
+    private static void computeDesiredVectors(
+            SwerveModuleState100[] states,
+            double[] xy,
+            double[] vx,
+            double[] vy,
+            double[] heading) {
         for (int i = 0; i < states.length; ++i) {
-            if (states[i].angle.isEmpty()) {
-                heading[i] = null;
+            SwerveModuleState100 state = states[i];
+            if (state.angle.isEmpty()) {
+                vx[i] = 0;
+                vy[i] = 0;
+                heading[i] = Double.NaN;
                 continue;
             }
-            heading[i] = states[i].angle.get();
-            if (states[i].speedMetersPerSecond < 0.0) {
-                heading[i] = GeometryUtil.flip(heading[i]);
+            if (Math.abs(state.speedMetersPerSecond) < 1e-6) {
+                vx[i] = 0;
+                vy[i] = 0;
+            } else {
+                vx[i] = xy[2 * i];
+                vy[i] = xy[2 * i + 1];
             }
+            heading[i] = state.angle.get().getRadians();
         }
-        return heading;
     }
 
     /**
@@ -251,27 +292,30 @@ public class AsymSwerveSetpointGenerator implements Glassy {
      * frontRight
      * rearLeft
      * rearRight
+     * 
+     * @param heading outvar
      */
-    private double[] computeHeadingVelocity(SwerveModuleState100[] states) {
-        double[] heading = new double[states.length];
+    private static void computeHeadingVelocity(SwerveModuleState100[] states, double[] heading) {
         for (int i = 0; i < states.length; ++i) {
             heading[i] = states[i].omega;
         }
-        return heading;
     }
 
     /**
      * If we want to go back the way we came, it might be faster to stop
      * and then reverse. This is certainly true for near-180 degree turns, but
      * it's definitely not true for near-90 degree turns.
+     * 
+     * @param prev_heading    radians, NaN if unknown
+     * @param desired_heading radians, NaN if unknown
      */
-    private boolean shouldStopAndReverse(Rotation2d[] prev_heading, Rotation2d[] desired_heading) {
+    private static boolean shouldStopAndReverse(double[] prev_heading, double[] desired_heading) {
         for (int i = 0; i < prev_heading.length; ++i) {
-            if (desired_heading[i] == null || prev_heading[i] == null) {
+            if (Double.isNaN(desired_heading[i]) || Double.isNaN(prev_heading[i])) {
                 return false;
             }
-            Rotation2d diff = desired_heading[i].minus(prev_heading[i]);
-            if (Math.abs(diff.getRadians()) < flipLimitRad) {
+            double diff = MathUtil.angleModulus(desired_heading[i] - prev_heading[i]);
+            if (Math.abs(diff) < flipLimitRad) {
                 return false;
             }
         }
@@ -280,15 +324,38 @@ public class AsymSwerveSetpointGenerator implements Glassy {
 
     /**
      * Make sure desiredState respects velocity limits.
+     * 
+     * Finds the module speeds with the kinematics kernel, into m_desired_xy, and
+     * scales everything by the same factor, which is the same as going back
+     * through toChassisSpeeds().
      */
     private ChassisSpeeds desaturate(
             ChassisSpeeds desiredState,
             SwerveModuleState100[] desiredModuleStates) {
-        if (m_limits.getMaxDriveVelocityM_S() > 0.0) {
-            SwerveDriveKinematics100.desaturateWheelSpeeds(desiredModuleStates, m_limits.getMaxDriveVelocityM_S());
-            desiredState = m_limits.toChassisSpeeds(desiredModuleStates);
+        final double[] xy = m_desired_xy;
+        m_limits.getKinematics().toModuleVectors(
+                desiredState.vxMetersPerSecond,
+                desiredState.vyMetersPerSecond,
+                desiredState.omegaRadiansPerSecond,
+                xy);
+        double maxSpeedM_S = m_limits.getMaxDriveVelocityM_S();
+        if (maxSpeedM_S <= 0.0)
+            return desiredState;
+        double realMaxSpeed = 0;
+        for (int i = 0; i < xy.length; i += 2) {
+            realMaxSpeed = Math.max(realMaxSpeed, Math.hypot(xy[i], xy[i + 1]));
+        }
+        if (realMaxSpeed <= maxSpeedM_S)
+            return desiredState;
+        double scale = maxSpeedM_S / realMaxSpeed;
+        for (int i = 0; i < xy.length; ++i) {
+            xy[i] *= scale;
         }
-        return desiredState;
+        SwerveDriveKinematics100.desaturateWheelSpeeds(desiredModuleStates, maxSpeedM_S);
+        return new ChassisSpeeds(
+                desiredState.vxMetersPerSecond * scale,
+                desiredState.vyMetersPerSecond * scale,
+                desiredState.omegaRadiansPerSecond * scale);
     }
 
     private SwerveSetpoint makeSetpoint(
@@ -25,6 +25,10 @@ public class DriveAccelerationLimiter implements Glassy {
         m_log_s = child.doubleLogger(Level.TRACE, "s");
     }
 
+    /**
+     * Arrays are indexed by module, and belong to the caller, which may reuse
+     * them.
+     */
     public double enforceWheelAccelLimit(
             double[] prev_vx,
             double[] prev_vy,
@@ -38,7 +42,7 @@ public class DriveAccelerationLimiter implements Glassy {
                     prev_vy[i],
                     desired_vx[i],
                     desired_vy[i]);
-            m_log_max_step.log(() -> max_vel_step);
+            m_log_max_step.log(max_vel_step);
 
             // reduces the size of the search space if min_s is already constrained (by
             // earlier modules)
@@ -57,8 +61,7 @@ public class DriveAccelerationLimiter implements Glassy {
                 break;
             }
         }
-        final double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
@@ -88,8 +88,7 @@ public class SteeringOverride implements Glassy {
                 }
             }
         }
-        final double s = min_s;
-        m_log_s.log( () -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
@@ -31,20 +31,30 @@ public class SteeringRateLimiter implements Glassy {
         m_log_s = child.doubleLogger(Level.TRACE, "s");
     }
 
+    /**
+     * Arrays are indexed by module, and belong to the caller, which may reuse
+     * them.
+     * 
+     * @param prev_heading     radians, NaN if unknown
+     * @param desired_heading  radians, NaN if unknown
+     * @param overrideSteering nullable entries
+     */
     public double enforceSteeringLimit(
             double[] prev_vx,
             double[] prev_vy,
-            Rotation2d[] prev_heading, // nullable entries
+            double[] prev_heading,
             double[] desired_vx,
             double[] desired_vy,
-            Rotation2d[] desired_heading, // nullable entries
+            double[] desired_heading,
             double[] desired_heading_velocity,
             Rotation2d[] overrideSteering) {
+        final boolean secondDerivative = Experiments.instance.enabled(Experiment.UseSecondDerivativeSwerve);
+        final double maxDeviation = TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S();
 
         double min_s = 1.0;
 
         for (int i = 0; i < prev_vx.length; ++i) {
-            if (prev_heading[i] == null || desired_heading[i] == null) {
+            if (Double.isNaN(prev_heading[i]) || Double.isNaN(desired_heading[i])) {
                 // don't know what to do here
                 continue;
             }
@@ -53,32 +63,31 @@ public class SteeringRateLimiter implements Glassy {
                 continue;
             }
             double s;
-            if (Experiments.instance.enabled(Experiment.UseSecondDerivativeSwerve)) {
+            if (secondDerivative) {
                 s = SwerveUtil.findSteeringMaxS(
-                    prev_vx[i],
-                    prev_vy[i],
-                    prev_heading[i].getRadians(),
-                    desired_vx[i],
-                    desired_vy[i],
-                    desired_heading[i].getRadians(),
-                    desired_heading_velocity[i] * TimedRobot100.LOOP_PERIOD_S,
-                    TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S(),
-                    kMaxIterations);
+                        prev_vx[i],
+                        prev_vy[i],
+                        prev_heading[i],
+                        desired_vx[i],
+                        desired_vy[i],
+                        desired_heading[i],
+                        desired_heading_velocity[i] * TimedRobot100.LOOP_PERIOD_S,
+                        maxDeviation,
+                        kMaxIterations);
             } else {
                 s = SwerveUtil.findSteeringMaxS(
                         prev_vx[i],
                         prev_vy[i],
-                        prev_heading[i].getRadians(),
+                        prev_heading[i],
                         desired_vx[i],
                         desired_vy[i],
-                        desired_heading[i].getRadians(),
-                        TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S(),
+                        desired_heading[i],
+                        maxDeviation,
                         kMaxIterations);
             }
             min_s = Math.min(min_s, s);
         }
-        double s = min_s;
-        m_log_s.log( () -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
@@ -1,7 +1,5 @@
 package org.team100.lib.swerve;
 
-import java.util.function.DoubleBinaryOperator;
-
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
@@ -13,6 +11,11 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 public class SwerveUtil {
+    /** Closed-form solutions are checked against the function with this. */
+    private static final double kTolerance = 0.0001;
+    private static final int kDrive = 0;
+    private static final int kSteering = 1;
+
     /**
      * Check if it would be faster to go to the opposite of the goal heading (and
      * reverse drive direction).
@@ -67,13 +70,7 @@ public class SwerveUtil {
 
         double offset = f_0 + Math.signum(f_2) * max_deviation;
 
-        DoubleBinaryOperator func = (x, y) -> SwerveUtil.unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-
-        return Math100.findRoot(
-                func,
-                x_0, y_0, f_0 - offset,
-                x_1, y_1, f_1 - offset,
-                max_iterations);
+        return steeringRoot(x_0, y_0, f_0, x_1, y_1, f_1, offset, max_iterations);
     }
 
     /**
@@ -108,13 +105,7 @@ public class SwerveUtil {
 
         double offset = f_0 + Math.signum(diff) * max_deviation;
 
-        DoubleBinaryOperator func = (x, y) -> SwerveUtil.unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-
-        return Math100.findRoot(
-                func,
-                x_0, y_0, f_0 - offset,
-                x_1, y_1, f_1 - offset,
-                max_iterations);
+        return steeringRoot(x_0, y_0, f_0, x_1, y_1, f_1, offset, max_iterations);
     }
 
     public static double findDriveMaxS(
@@ -133,8 +124,125 @@ public class SwerveUtil {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_vel_step;
-        DoubleBinaryOperator func = (x, y) -> (Math.hypot(x, y) - offset);
-        return Math100.findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+
+        // The speed along the line is the distance from the origin, so the
+        // root is where the line crosses the circle of radius offset:
+        // |p0 + s (p1 - p0)|^2 = offset^2.
+        double dx = x_1 - x_0;
+        double dy = y_1 - y_0;
+        double a = dx * dx + dy * dy;
+        double b = 2 * (x_0 * dx + y_0 * dy);
+        double c = x_0 * x_0 + y_0 * y_0 - offset * offset;
+        double disc = b * b - 4 * a * c;
+        if (a > 0 && disc >= 0) {
+            // speed is convex in s, so if it's increasing, the root is the
+            // larger one, and if it's decreasing, the smaller one.
+            double s = diff > 0
+                    ? (-b + Math.sqrt(disc)) / (2 * a)
+                    : (-b - Math.sqrt(disc)) / (2 * a);
+            if (s >= 0 && s <= 1
+                    && Math.abs(func(kDrive, f_0, offset, x_0 + s * dx, y_0 + s * dy)) < kTolerance) {
+                return s;
+            }
+        }
+        return findRoot(kDrive, f_0, offset,
+                x_0, y_0, f_0 - offset,
+                x_1, y_1, f_1 - offset,
+                max_iterations);
+    }
+
+    /**
+     * The steering angle along the line is the direction from the origin, so the
+     * root is where the line crosses the ray at angle offset. The line can also
+     * cross the opposite ray, or pass through the origin, or the unwrapped angle
+     * can jump, so the closed-form answer is checked, and if it's wrong, we fall
+     * back to searching.
+     */
+    private static double steeringRoot(
+            double x_0,
+            double y_0,
+            double f_0,
+            double x_1,
+            double y_1,
+            double f_1,
+            double offset,
+            int max_iterations) {
+        double ux = Math.cos(offset);
+        double uy = Math.sin(offset);
+        // cross product of the ray with each end of the line
+        double c_0 = ux * y_0 - uy * x_0;
+        double c_1 = ux * y_1 - uy * x_1;
+        double denom = c_0 - c_1;
+        if (Math.abs(denom) > 1e-9) {
+            double s = c_0 / denom;
+            if (s >= 0 && s <= 1
+                    && Math.abs(func(kSteering, f_0, offset,
+                            x_0 + s * (x_1 - x_0),
+                            y_0 + s * (y_1 - y_0))) < kTolerance) {
+                return s;
+            }
+        }
+        return findRoot(kSteering, f_0, offset,
+                x_0, y_0, f_0 - offset,
+                x_1, y_1, f_1 - offset,
+                max_iterations);
+    }
+
+    /** The function whose root we want: speed or steering angle, minus offset. */
+    private static double func(int kind, double f_0, double offset, double x, double y) {
+        if (kind == kDrive)
+            return Math.hypot(x, y) - offset;
+        return unwrapAngle(f_0, Math.atan2(y, x)) - offset;
+    }
+
+    /**
+     * Regula falsi, shared by both limits, for the cases the closed forms don't
+     * cover. This is the same as Math100.findRoot(), without the recursion and
+     * without the lambda.
+     * 
+     * @return s in [0,1]
+     */
+    private static double findRoot(
+            int kind,
+            double f_ref,
+            double offset,
+            double x_0,
+            double y_0,
+            double f_0,
+            double x_1,
+            double y_1,
+            double f_1,
+            int iterations) {
+        // the current bracket, in s
+        double s_0 = 0;
+        double s_1 = 1;
+        for (int i = 0; i <= iterations; ++i) {
+            if (Math.abs(f_0 - f_1) <= kTolerance) {
+                return s_1;
+            }
+            double s_guess = Math.max(0.0, Math.min(1.0, -f_0 / (f_1 - f_0)));
+            double x_guess = (x_1 - x_0) * s_guess + x_0;
+            double y_guess = (y_1 - y_0) * s_guess + y_0;
+            double f_guess = func(kind, f_ref, offset, x_guess, y_guess);
+            double s = s_0 + (s_1 - s_0) * s_guess;
+            if (Math.abs(f_guess) < kTolerance) {
+                return s;
+            }
+            if (Math.signum(f_0) == Math.signum(f_guess)) {
+                // 0 and guess on same side of root, so use upper bracket.
+                s_0 = s;
+                x_0 = x_guess;
+                y_0 = y_guess;
+                f_0 = f_guess;
+            } else {
+                // Use lower bracket.
+                s_1 = s;
+                x_1 = x_guess;
+                y_1 = y_guess;
+                f_1 = f_guess;
+            }
+        }
+        return s_1;
     }
 
     /**
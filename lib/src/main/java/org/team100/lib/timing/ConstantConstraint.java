@@ -26,4 +26,8 @@ public class ConstantConstraint implements TimingConstraint {
         return new MinMaxAcceleration(-m_maxAccel, m_maxAccel);
     }
 
+    @Override
+    public boolean isVelocityDependent() {
+        return false;
+    }
 }
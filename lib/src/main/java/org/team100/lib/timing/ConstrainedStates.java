@@ -0,0 +1,117 @@
+package org.team100.lib.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.timing.TimingConstraint.MinMaxAcceleration;
+
+/**
+ * The working state of the timing passes, as parallel arrays indexed by
+ * sample, rather than an object per sample.
+ * 
+ * Velocity limits, and the acceleration limits of constraints that don't depend
+ * on velocity, are evaluated once per sample, here, and cached. Only the
+ * velocity-dependent acceleration limits are evaluated during the passes.
+ */
+class ConstrainedStates {
+    private final List<Pose2dWithMotion> m_samples;
+    /** Constraints whose acceleration limits depend on velocity. */
+    private final List<TimingConstraint> m_velocityDependent;
+    /** Minimum of all the velocity limits. */
+    private final double[] m_maxVel;
+    /** Acceleration limits of the velocity-independent constraints. */
+    private final double[] m_fixedMinAccel;
+    private final double[] m_fixedMaxAccel;
+
+    /** Cumulative distance along the path */
+    final double[] distance;
+    /** Distance from the previous sample; zero for the first one. */
+    final double[] step;
+    final double[] vel;
+    final double[] minAccel;
+    final double[] maxAccel;
+
+    ConstrainedStates(List<Pose2dWithMotion> samples, List<TimingConstraint> constraints) {
+        int n = samples.size();
+        m_samples = samples;
+        m_velocityDependent = new ArrayList<>();
+        for (TimingConstraint constraint : constraints) {
+            if (constraint.isVelocityDependent())
+                m_velocityDependent.add(constraint);
+        }
+        m_maxVel = new double[n];
+        m_fixedMinAccel = new double[n];
+        m_fixedMaxAccel = new double[n];
+        distance = new double[n];
+        step = new double[n];
+        vel = new double[n];
+        minAccel = new double[n];
+        maxAccel = new double[n];
+
+        Pose2dWithMotion predecessor = samples.get(0);
+        double d = 0;
+        for (int i = 0; i < n; ++i) {
+            Pose2dWithMotion sample = samples.get(i);
+            step[i] = sample.distance(predecessor);
+            d += step[i];
+            distance[i] = d;
+            predecessor = sample;
+
+            double maxVel = Double.POSITIVE_INFINITY;
+            double minA = Double.NEGATIVE_INFINITY;
+            double maxA = Double.POSITIVE_INFINITY;
+            for (TimingConstraint constraint : constraints) {
+                maxVel = Math.min(maxVel, constraint.getMaxVelocity(sample).getValue());
+                if (constraint.isVelocityDependent())
+                    continue;
+                MinMaxAcceleration a = constraint.getMinMaxAcceleration(sample, 0);
+                minA = Math.max(minA, checkNaN(a.getMinAccel()));
+                maxA = Math.min(maxA, checkNaN(a.getMaxAccel()));
+            }
+            m_maxVel[i] = checkNaN(maxVel);
+            m_fixedMinAccel[i] = minA;
+            m_fixedMaxAccel[i] = maxA;
+        }
+    }
+
+    int size() {
+        return m_samples.size();
+    }
+
+    Pose2dWithMotion getState(int i) {
+        return m_samples.get(i);
+    }
+
+    void setVel(int i, double v) {
+        vel[i] = checkNaN(v);
+    }
+
+    /**
+     * Clamp state velocity to constraints.
+     */
+    void clampVelocity(int i) {
+        vel[i] = Math.min(vel[i], m_maxVel[i]);
+    }
+
+    /**
+     * Clamp constraint state accelerations to the constraints.
+     */
+    void clampAccel(int i) {
+        double minA = Math.max(minAccel[i], m_fixedMinAccel[i]);
+        double maxA = Math.min(maxAccel[i], m_fixedMaxAccel[i]);
+        for (TimingConstraint constraint : m_velocityDependent) {
+            MinMaxAcceleration a = constraint.getMinMaxAcceleration(m_samples.get(i), vel[i]);
+            minA = Math.max(minA, checkNaN(a.getMinAccel()));
+            maxA = Math.min(maxA, checkNaN(a.getMaxAccel()));
+        }
+        minAccel[i] = minA;
+        maxAccel[i] = maxA;
+    }
+
+    private static double checkNaN(double x) {
+        if (Double.isNaN(x))
+            throw new IllegalArgumentException();
+        return x;
+    }
+}
@@ -33,6 +33,16 @@ public interface TimingConstraint {
      */
     MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocityM_S);
 
+    /**
+     * True if the acceleration limits depend on velocity. If not, TimingUtil
+     * evaluates them once per sample, instead of on every pass.
+     * 
+     * The velocity limit is always assumed to depend only on the pose.
+     */
+    default boolean isVelocityDependent() {
+        return true;
+    }
+
     class MinMaxAcceleration {
         public static final MinMaxAcceleration kNoLimits = new MinMaxAcceleration();
 
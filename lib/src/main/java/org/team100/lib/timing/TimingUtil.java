@@ -60,10 +60,10 @@ public class TimingUtil {
             List<Pose2dWithMotion> samples,
             double start_vel,
             double end_vel) throws TimingException {
-        List<ConstrainedState> constrainedStates = forwardPass(samples, start_vel);
-        Pose2dWithMotion lastState = samples.get(samples.size() - 1);
-        backwardsPass(lastState, end_vel, constrainedStates);
-        return integrate(constrainedStates);
+        ConstrainedStates states = new ConstrainedStates(samples, m_constraints);
+        forwardPass(states, start_vel);
+        backwardsPass(states, end_vel);
+        return integrate(states);
     }
 
     /**
@@ -77,92 +77,113 @@ public class TimingUtil {
      * end velocity to the state's maximum allowed velocity and will repair the
      * acceleration during the backward pass (by slowing down the predecessor).
      */
-    private List<ConstrainedState> forwardPass(List<Pose2dWithMotion> samples, double start_vel) {
-        ConstrainedState predecessor = new ConstrainedState(samples.get(0), 0);
-        predecessor.setVel(start_vel);
-        predecessor.setMin_acceleration(-HIGH_ACCEL);
-        predecessor.setMax_acceleration(HIGH_ACCEL);
+    private void forwardPass(ConstrainedStates states, double start_vel) {
+        // the predecessor of the first state is at the same place.
+        double v0 = start_vel;
+        double minAccel0 = -HIGH_ACCEL;
+        double maxAccel0 = HIGH_ACCEL;
 
         // work forward through the samples
-        List<ConstrainedState> constrainedStates = new ArrayList<>(samples.size());
-        for (Pose2dWithMotion sample : samples) {
-            double ds = sample.distance(predecessor.getState());
-            ConstrainedState constrainedState = new ConstrainedState(sample, ds + predecessor.getDistance());
-            constrainedStates.add(constrainedState);
-            forwardWork(predecessor, constrainedState);
-            predecessor = constrainedState;
+        for (int i = 0; i < states.size(); ++i) {
+            maxAccel0 = forwardWork(states, i, v0, minAccel0, maxAccel0);
+            if (i > 0)
+                states.maxAccel[i - 1] = maxAccel0;
+            v0 = states.vel[i];
+            minAccel0 = states.minAccel[i];
+            maxAccel0 = states.maxAccel[i];
         }
-        return constrainedStates;
     }
 
-    private void forwardWork(ConstrainedState s0, ConstrainedState s1) {
+    /**
+     * @param i         the new state
+     * @param v0        predecessor velocity
+     * @param minAccel0 predecessor min accel
+     * @param maxAccel0 predecessor max accel
+     * @return adjusted predecessor max accel
+     */
+    private double forwardWork(
+            ConstrainedStates states,
+            int i,
+            double v0,
+            double minAccel0,
+            double maxAccel0) {
         // constant-twist path length between states
         // note this is zero for turn-in-place.
-        double ds = s1.getState().distance(s0.getState());
+        double ds = states.step[i];
 
         // We may need to iterate to find the maximum end velocity and common
         // acceleration, since acceleration limits may be a function of velocity.
         while (true) {
             // first try the previous state accel to get the new state velocity
-            double v1 = v1(s0.getVel(), s0.getMax_acceleration(), ds);
-            s1.setVel(v1);
+            states.setVel(i, v1(v0, maxAccel0, ds));
 
             // also use max accels for the new state accels
-            s1.setMin_acceleration(-HIGH_ACCEL);
-            s1.setMax_acceleration(HIGH_ACCEL);
+            states.minAccel[i] = -HIGH_ACCEL;
+            states.maxAccel[i] = HIGH_ACCEL;
 
             // reduce velocity according to constraints
-            s1.clampVelocity(m_constraints);
+            states.clampVelocity(i);
 
             // reduce accel according to constraints
-            s1.clampAccel(m_constraints);
+            states.clampAccel(i);
 
             // motionless
             if (Math.abs(ds) < kEpsilon) {
-                return;
+                return maxAccel0;
             }
 
-            double accel = accel(s0.getVel(), s1.getVel(), ds);
-            if (accel > s1.getMax_acceleration() + kEpsilon) {
+            double accel = accel(v0, states.vel[i], ds);
+            if (accel > states.maxAccel[i] + kEpsilon) {
                 // implied accel is too high because v1 is too high, perhaps because
                 // a0 was too high, try again with the (lower) constrained value
-                s0.setMax_acceleration(s1.getMax_acceleration());
+                maxAccel0 = states.maxAccel[i];
                 continue;
             }
-            if (accel > s0.getMin_acceleration() + kEpsilon) {
+            if (accel > minAccel0 + kEpsilon) {
                 // set the previous state accel to whatever the constrained velocity implies
-                s0.setMax_acceleration(accel);
+                return accel;
             }
-            return;
+            return maxAccel0;
         }
     }
 
     /**
      * Backwards pass
      */
-    private void backwardsPass(
-            Pose2dWithMotion lastState,
-            double end_velocity,
-            List<ConstrainedState> constrainedStates) {
+    private void backwardsPass(ConstrainedStates states, double end_velocity) {
         // "successor" comes before in the backwards walk. start with the last state.
-        ConstrainedState endState = constrainedStates.get(constrainedStates.size() - 1);
-        ConstrainedState successor = new ConstrainedState(lastState, endState.getDistance());
-        successor.setVel(end_velocity);
-        successor.setMin_acceleration(-HIGH_ACCEL);
-        successor.setMax_acceleration(HIGH_ACCEL);
+        int last = states.size() - 1;
+        double distance1 = states.distance[last];
+        double v1 = end_velocity;
+        double minAccel1 = -HIGH_ACCEL;
 
         // work backwards through the states list
-        for (int i = constrainedStates.size() - 1; i >= 0; --i) {
-            ConstrainedState constrainedState = constrainedStates.get(i);
-            backwardsWork(constrainedState, successor);
-            successor = constrainedState;
+        for (int i = last; i >= 0; --i) {
+            minAccel1 = backwardsWork(states, i, distance1, v1, minAccel1);
+            if (i < last)
+                states.minAccel[i + 1] = minAccel1;
+            distance1 = states.distance[i];
+            v1 = states.vel[i];
+            minAccel1 = states.minAccel[i];
         }
     }
 
-    /** s0 is earlier, s1 is "successor", we're walking backwards. */
-    private void backwardsWork(ConstrainedState s0, ConstrainedState s1) {
+    /**
+     * State i is earlier, the "successor" is later, we're walking backwards.
+     * 
+     * @param distance1 successor distance
+     * @param v1        successor velocity
+     * @param minAccel1 successor min accel
+     * @return adjusted successor min accel
+     */
+    private double backwardsWork(
+            ConstrainedStates states,
+            int i,
+            double distance1,
+            double v1,
+            double minAccel1) {
         // backwards (negative) distance from successor to initial state.
-        double ds = s0.getDistance() - s1.getDistance();
+        double ds = states.distance[i] - distance1;
         if (ds > 0) {
             // must be negative if we're walking backwards.
             throw new IllegalStateException();
@@ -172,34 +193,33 @@ public class TimingUtil {
             // s0 velocity can't be more than the accel implies
             // so this is actually an estimate for v0
             // min a is negative, ds is negative, so v0 is faster than v1
-            double v0 = v1(s1.getVel(), s1.getMin_acceleration(), ds);
+            double v0 = v1(v1, minAccel1, ds);
 
-            if (s0.getVel() <= v0) {
+            if (states.vel[i] <= v0) {
                 // s0 v is slower than implied v0, which means
                 // that actual accel is larger than the min, so we're fine
                 // No new limits to impose.
-                return;
+                return minAccel1;
             }
             // s0 v is too fast, turn it down to obey v1 min accel.
-            s0.setVel(v0);
+            states.setVel(i, v0);
 
-            s0.clampAccel(m_constraints);
+            states.clampAccel(i);
 
             // motionless
             if (Math.abs(ds) < kEpsilon) {
-                return;
+                return minAccel1;
             }
 
             // implied accel using the constrained v0
-            double accel = accel(s1.getVel(), s0.getVel(), ds);
-            if (accel < s0.getMin_acceleration() - kEpsilon) {
+            double accel = accel(v1, states.vel[i], ds);
+            if (accel < states.minAccel[i] - kEpsilon) {
                 // accel is too low which implies that s1 accel is too low, try again
-                s1.setMin_acceleration(s0.getMin_acceleration());
+                minAccel1 = states.minAccel[i];
                 continue;
             }
             // set final accel to the implied value
-            s1.setMin_acceleration(accel);
-            return;
+            return accel;
         }
     }
 
@@ -208,28 +228,34 @@ public class TimingUtil {
      * 
      * last state accel is always zero, which might be wrong.
      */
-    private static Trajectory100 integrate(List<ConstrainedState> states) throws TimingException {
-        List<TimedPose> poses = new ArrayList<>(states.size());
+    private static Trajectory100 integrate(ConstrainedStates states) throws TimingException {
+        int n = states.size();
+        double[] accels = new double[n];
+        double[] times = new double[n];
         double time = 0.0; // time along path
         double distance = 0.0; // distance along path
         double v0 = 0.0;
-        for (int i = 0; i < states.size(); ++i) {
-            ConstrainedState state = states.get(i);
-            final double ds = state.getDistance() - distance;
-            final double v1 = state.getVel();
+        for (int i = 0; i < n; ++i) {
+            final double ds = states.distance[i] - distance;
+            final double v1 = states.vel[i];
             double dt = 0.0;
             if (i > 0) {
                 double prevAccel = accel(v0, v1, ds);
-                poses.get(i - 1).set_acceleration(prevAccel);
+                accels[i - 1] = prevAccel;
                 dt = dt(v0, v1, ds, prevAccel);
             }
             time += dt;
             if (Double.isNaN(time) || Double.isInfinite(time)) {
                 throw new TimingException();
             }
-            poses.add(new TimedPose(state.getState(), time, v1, 0));
+            times[i] = time;
             v0 = v1;
-            distance = state.getDistance();
+            distance = states.distance[i];
+        }
+        // the trajectory is only built at the end.
+        List<TimedPose> poses = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            poses.add(new TimedPose(states.getState(i), times[i], states.vel[i], accels[i]));
         }
         return new Trajectory100(poses);
     }
@@ -39,4 +39,8 @@ public class VelocityLimitRegionConstraint implements TimingConstraint {
         return MinMaxAcceleration.kNoLimits;
     }
 
-}
\ No newline at end of file
+    @Override
+    public boolean isVelocityDependent() {
+        return false;
+    }
+}
@@ -49,4 +49,9 @@ public class YawRateConstraint implements TimingConstraint {
     public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocity) {
         return MinMaxAcceleration.kNoLimits;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isVelocityDependent() {
+        return false;
+    }
+}
@@ -0,0 +1,420 @@
+package org.team100.lib.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+/**
+ * Remembers rest-to-rest trajectories, so that the autonomous routines don't
+ * have to run the spline optimization and the timing pass on the RoboRIO every
+ * time the robot boots.
+ *
+ * Trajectories are keyed by the waypoints, the headings, and the constraint
+ * set. Alliance-specific routines have different waypoints, so they get
+ * different keys. Constraint sets are named, and also fingerprinted by
+ * evaluating them at a few probe states, so that changing the constraints
+ * (e.g. the kinodynamic limits) makes the old entries stale.
+ *
+ * The file is a compact binary format, memory-mapped at startup. Only the
+ * index is read eagerly; each trajectory is decoded the first time it's
+ * asked for. Stale entries are regenerated at load, in parallel on all
+ * cores. Misses are generated live, and remembered, so that save() can write
+ * a complete file.
+ *
+ * In simulation, the deploy directory is src/main/deploy, so running the
+ * simulator once writes the file that gets deployed.
+ */
+public class TrajectoryCache {
+    private static final int kMagic = 0x54524a43; // "TRJC"
+    private static final int kVersion = 1;
+    /** magic, version, count */
+    private static final int kHeaderBytes = 12;
+    /** x, y, theta, dx, dy, dtheta, curvature, dcurvature, t, v, a */
+    private static final int kDoublesPerPoint = 11;
+
+    /** Identifies one trajectory. */
+    private static final class Key {
+        private final String m_constraints;
+        private final long m_fingerprint;
+        /** Waypoint count, then x, y, course for each waypoint, then each heading. */
+        private final double[] m_values;
+        private final int m_hash;
+
+        Key(String constraints, long fingerprint, double[] values) {
+            m_constraints = constraints;
+            m_fingerprint = fingerprint;
+            m_values = values;
+            m_hash = 31 * (31 * constraints.hashCode() + Long.hashCode(fingerprint))
+                    + Arrays.hashCode(values);
+        }
+
+        List<Pose2d> waypoints() {
+            int n = (int) m_values[0];
+            List<Pose2d> result = new ArrayList<>(n);
+            for (int i = 0; i < n; ++i) {
+                result.add(new Pose2d(
+                        m_values[1 + 3 * i],
+                        m_values[2 + 3 * i],
+                        new Rotation2d(m_values[3 + 3 * i])));
+            }
+            return result;
+        }
+
+        List<Rotation2d> headings() {
+            int start = 1 + 3 * (int) m_values[0];
+            List<Rotation2d> result = new ArrayList<>(m_values.length - start);
+            for (int i = start; i < m_values.length; ++i) {
+                result.add(new Rotation2d(m_values[i]));
+            }
+            return result;
+        }
+
+        Key withFingerprint(long fingerprint) {
+            return new Key(m_constraints, fingerprint, m_values);
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return m_fingerprint == other.m_fingerprint
+                    && m_constraints.equals(other.m_constraints)
+                    && Arrays.equals(m_values, other.m_values);
+        }
+    }
+
+    private final Map<String, List<TimingConstraint>> m_constraints;
+    private final Map<String, Long> m_fingerprints;
+    /** Decoded or generated trajectories. */
+    private final Map<Key, Trajectory100> m_trajectories = new ConcurrentHashMap<>();
+    /** Offsets of entries in the mapped file that haven't been decoded yet. */
+    private final Map<Key, Integer> m_offsets = new ConcurrentHashMap<>();
+    private ByteBuffer m_file;
+    /** True if there's anything that isn't in the file. */
+    private volatile boolean m_dirty;
+
+    /**
+     * @param constraints named constraint sets
+     */
+    public TrajectoryCache(Map<String, List<TimingConstraint>> constraints) {
+        m_constraints = constraints;
+        m_fingerprints = new HashMap<>();
+        for (Map.Entry<String, List<TimingConstraint>> e : constraints.entrySet()) {
+            m_fingerprints.put(e.getKey(), fingerprint(e.getValue()));
+        }
+    }
+
+    /**
+     * Same as TrajectoryPlanner.restToRest(), using the named constraint set,
+     * but cached.
+     */
+    public Trajectory100 restToRest(
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            String constraints) {
+        Key key = key(waypoints, headings, constraints);
+        Trajectory100 t = m_trajectories.get(key);
+        if (t != null)
+            return t;
+        Integer offset = m_offsets.remove(key);
+        if (offset != null)
+            t = decode(m_file, offset);
+        if (t == null) {
+            Util.warn("Trajectory cache miss: " + constraints);
+            t = generate(key);
+            m_dirty = true;
+        }
+        m_trajectories.put(key, t);
+        return t;
+    }
+
+    /**
+     * Map the file and read its index. Entries made with different constraints
+     * are regenerated in parallel. If the file is missing or broken,
+     * everything will be generated live.
+     */
+    public void load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            file.order(ByteOrder.BIG_ENDIAN);
+            if (file.limit() < kHeaderBytes
+                    || file.getInt(0) != kMagic
+                    || file.getInt(4) != kVersion) {
+                Util.warn("Ignoring trajectory cache with the wrong format: " + path);
+                m_dirty = true;
+                return;
+            }
+            m_file = file;
+            List<Key> stale = new ArrayList<>();
+            file.position(8);
+            int count = file.getInt();
+            if (count < 0)
+                throw new IllegalArgumentException("bad count " + count);
+            for (int i = 0; i < count; ++i) {
+                Key key = readKey(file);
+                int offset = file.getInt();
+                Long current = m_fingerprints.get(key.m_constraints);
+                if (current == null) {
+                    // constraint set no longer exists
+                    m_dirty = true;
+                } else if (current != key.m_fingerprint) {
+                    stale.add(key.withFingerprint(current));
+                } else {
+                    m_offsets.put(key, offset);
+                }
+            }
+            if (!stale.isEmpty()) {
+                Util.warn(String.format("Regenerating %d stale trajectories", stale.size()));
+                stale.parallelStream().forEach(k -> m_trajectories.put(k, generate(k)));
+                m_dirty = true;
+            }
+        } catch (NoSuchFileException e) {
+            Util.warn("No trajectory cache: " + path);
+            m_dirty = true;
+        } catch (IOException | RuntimeException e) {
+            Util.warn("Ignoring broken trajectory cache: " + path);
+            e.printStackTrace();
+            m_offsets.clear();
+            m_file = null;
+            m_dirty = true;
+        }
+    }
+
+    /**
+     * Write everything this cache knows, if there's anything new. Writes a
+     * temporary file and moves it, so a crash doesn't leave a broken file.
+     */
+    public void save(Path path) {
+        if (!m_dirty)
+            return;
+        // decode everything first, so the mapped file can be replaced.
+        for (Key key : new ArrayList<>(m_offsets.keySet())) {
+            Integer offset = m_offsets.remove(key);
+            if (offset == null)
+                continue;
+            Trajectory100 t = decode(m_file, offset);
+            m_trajectories.put(key, t == null ? generate(key) : t);
+        }
+        m_file = null;
+        List<Key> keys = new ArrayList<>(m_trajectories.keySet());
+        int indexBytes = 12;
+        int dataBytes = 0;
+        for (Key key : keys) {
+            indexBytes += keyBytes(key) + 4;
+            dataBytes += 4 + m_trajectories.get(key).length() * kDoublesPerPoint * 8;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(indexBytes + dataBytes).order(ByteOrder.BIG_ENDIAN);
+        buf.putInt(kMagic);
+        buf.putInt(kVersion);
+        buf.putInt(keys.size());
+        int offset = indexBytes;
+        for (Key key : keys) {
+            writeKey(buf, key);
+            buf.putInt(offset);
+            offset += 4 + m_trajectories.get(key).length() * kDoublesPerPoint * 8;
+        }
+        for (Key key : keys) {
+            encode(buf, m_trajectories.get(key));
+        }
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, buf.array());
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            m_dirty = false;
+            Util.printf("Wrote %d trajectories to %s\n", keys.size(), path);
+        } catch (IOException e) {
+            Util.warn("Failed to write trajectory cache: " + path);
+            e.printStackTrace();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////
+
+    private Key key(List<Pose2d> waypoints, List<Rotation2d> headings, String constraints) {
+        Long fingerprint = m_fingerprints.get(constraints);
+        if (fingerprint == null)
+            throw new IllegalArgumentException("unknown constraints " + constraints);
+        int n = waypoints.size();
+        double[] values = new double[1 + 3 * n + headings.size()];
+        values[0] = n;
+        for (int i = 0; i < n; ++i) {
+            Pose2d p = waypoints.get(i);
+            values[1 + 3 * i] = p.getX();
+            values[2 + 3 * i] = p.getY();
+            values[3 + 3 * i] = p.getRotation().getRadians();
+        }
+        for (int i = 0; i < headings.size(); ++i) {
+            values[1 + 3 * n + i] = headings.get(i).getRadians();
+        }
+        return new Key(constraints, fingerprint, values);
+    }
+
+    private Trajectory100 generate(Key key) {
+        return TrajectoryPlanner.restToRest(
+                key.waypoints(),
+                key.headings(),
+                m_constraints.get(key.m_constraints));
+    }
+
+    /**
+     * Evaluate the constraints at some probe states, so that changing the
+     * parameters changes the result.
+     */
+    static long fingerprint(List<TimingConstraint> constraints) {
+        long h = 0xcbf29ce484222325L;
+        for (TimingConstraint c : constraints) {
+            h = mix(h, c.getClass().getName().hashCode());
+            for (double x : new double[] { 0, 3, 8 }) {
+                for (double course : new double[] { 0, 1 }) {
+                    for (double curvature : new double[] { 0, 0.5, 2 }) {
+                        for (double dtheta : new double[] { 0, 1 }) {
+                            Pose2dWithMotion state = new Pose2dWithMotion(
+                                    new Pose2d(x, x / 2, new Rotation2d(course)),
+                                    new Twist2d(Math.cos(course), Math.sin(course), dtheta),
+                                    curvature,
+                                    0);
+                            h = mix(h, Double.doubleToLongBits(c.getMaxVelocity(state).getValue()));
+                            for (double v : new double[] { 0, 1, 3 }) {
+                                TimingConstraint.MinMaxAcceleration a = c.getMinMaxAcceleration(state, v);
+                                h = mix(h, Double.doubleToLongBits(a.getMinAccel()));
+                                h = mix(h, Double.doubleToLongBits(a.getMaxAccel()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return h;
+    }
+
+    /** FNV-1a, one long at a time. */
+    private static long mix(long h, long x) {
+        return (h ^ x) * 0x100000001b3L;
+    }
+
+    private static int keyBytes(Key key) {
+        return 2 + key.m_constraints.getBytes(StandardCharsets.UTF_8).length
+                + 8 + 4 + key.m_values.length * 8;
+    }
+
+    private static void writeKey(ByteBuffer buf, Key key) {
+        byte[] name = key.m_constraints.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) name.length);
+        buf.put(name);
+        buf.putLong(key.m_fingerprint);
+        buf.putInt(key.m_values.length);
+        for (double v : key.m_values) {
+            buf.putDouble(v);
+        }
+    }
+
+    /**
+     * Checks the lengths against what's left, so a broken file can't ask for a
+     * huge array.
+     */
+    private static Key readKey(ByteBuffer buf) {
+        int nameLength = buf.getShort();
+        if (nameLength < 0 || nameLength > buf.remaining())
+            throw new IllegalArgumentException("bad name length " + nameLength);
+        byte[] name = new byte[nameLength];
+        buf.get(name);
+        long fingerprint = buf.getLong();
+        int valueCount = buf.getInt();
+        if (valueCount < 0 || valueCount > buf.remaining() / 8)
+            throw new IllegalArgumentException("bad value count " + valueCount);
+        double[] values = new double[valueCount];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = buf.getDouble();
+        }
+        return new Key(new String(name, StandardCharsets.UTF_8), fingerprint, values);
+    }
+
+    private static void encode(ByteBuffer buf, Trajectory100 trajectory) {
+        buf.putInt(trajectory.length());
+        for (TrajectoryPoint point : trajectory.getPoints()) {
+            TimedPose timed = point.state();
+            Pose2dWithMotion state = timed.state();
+            Pose2d pose = state.getPose();
+            Twist2d motion = state.getFieldRelativeMotionDirection();
+            buf.putDouble(pose.getX());
+            buf.putDouble(pose.getY());
+            buf.putDouble(pose.getRotation().getRadians());
+            buf.putDouble(motion.dx);
+            buf.putDouble(motion.dy);
+            buf.putDouble(motion.dtheta);
+            buf.putDouble(state.getCurvature());
+            buf.putDouble(state.getDCurvatureDs());
+            buf.putDouble(timed.getTimeS());
+            buf.putDouble(timed.velocityM_S());
+            buf.putDouble(timed.acceleration());
+        }
+    }
+
+    /**
+     * Uses absolute reads, so it's safe to share the buffer.
+     *
+     * @return null if the entry doesn't fit in the buffer
+     */
+    private static Trajectory100 decode(ByteBuffer buf, int offset) {
+        if (buf == null || offset < kHeaderBytes || offset > buf.limit() - 4) {
+            Util.warn("Ignoring trajectory cache entry at bad offset " + offset);
+            return null;
+        }
+        int n = buf.getInt(offset);
+        // long, so a huge count can't overflow
+        if (n < 0 || offset + 4 + (long) n * kDoublesPerPoint * 8 > buf.limit()) {
+            Util.warn(String.format("Ignoring trajectory cache entry with %d points at %d", n, offset));
+            return null;
+        }
+        List<TimedPose> states = new ArrayList<>(n);
+        int i = offset + 4;
+        for (int p = 0; p < n; ++p) {
+            states.add(new TimedPose(
+                    new Pose2dWithMotion(
+                            new Pose2d(
+                                    buf.getDouble(i),
+                                    buf.getDouble(i + 8),
+                                    new Rotation2d(buf.getDouble(i + 16))),
+                            new Twist2d(
+                                    buf.getDouble(i + 24),
+                                    buf.getDouble(i + 32),
+                                    buf.getDouble(i + 40)),
+                            buf.getDouble(i + 48),
+                            buf.getDouble(i + 56)),
+                    buf.getDouble(i + 64),
+                    buf.getDouble(i + 72),
+                    buf.getDouble(i + 80)));
+            i += kDoublesPerPoint * 8;
+        }
+        return new Trajectory100(states);
+    }
+}
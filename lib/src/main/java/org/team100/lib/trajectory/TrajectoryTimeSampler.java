@@ -2,19 +2,33 @@ package org.team100.lib.trajectory;
 
 import java.util.Optional;
 
+import org.team100.lib.util.Math100;
+
 /**
  * Allows sampling a trajectory by its schedule.
  * Derived from 254 TimedView.
+ * 
+ * Lookup is a binary search of the time index, with a fast path for sequential
+ * access, since followers sample (and preview) mostly in order.
  */
 public class TrajectoryTimeSampler {
     private final Trajectory100 m_trajectory;
     private final double m_startS;
     private final double m_endS;
+    /** Time of each point, in seconds. */
+    private final double[] m_times;
+    /** Index of the previous result, tried first. */
+    private int m_cursor;
 
     public TrajectoryTimeSampler(Trajectory100 trajectory) {
         m_trajectory = trajectory;
-        m_startS = m_trajectory.getPoint(0).state().getTimeS();
-        m_endS = m_trajectory.getPoint(m_trajectory.length() - 1).state().getTimeS();
+        m_times = new double[m_trajectory.length()];
+        for (int i = 0; i < m_times.length; ++i) {
+            m_times[i] = m_trajectory.getPoint(i).state().getTimeS();
+        }
+        m_startS = m_times[0];
+        m_endS = m_times[m_times.length - 1];
+        m_cursor = 1;
     }
 
     public double getStartS() {
@@ -43,21 +57,20 @@ public class TrajectoryTimeSampler {
             TrajectoryPoint point = m_trajectory.getPoint(0);
             return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
         }
-        for (int i = 1; i < m_trajectory.length(); ++i) {
-            final TrajectoryPoint point = m_trajectory.getPoint(i);
-            if (point.state().getTimeS() >= timeS) {
-                final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
-                if (Math.abs(point.state().getTimeS() - prev_s.state().getTimeS()) <= 1e-12) {
-                    return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
-                }
-                return Optional.of(new TrajectorySamplePoint(
-                        prev_s.state().interpolate2(point.state(),
-                                (timeS - prev_s.state().getTimeS())
-                                        / (point.state().getTimeS() - prev_s.state().getTimeS())),
-                        i - 1, i));
-            }
+        final int i = Math100.ceilingIndex(m_times, timeS, m_cursor);
+        if (i >= m_times.length) {
+            return Optional.empty();
+        }
+        m_cursor = i;
+        final TrajectoryPoint point = m_trajectory.getPoint(i);
+        final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
+        if (Math.abs(m_times[i] - m_times[i - 1]) <= 1e-12) {
+            return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
         }
-        return Optional.empty();
+        return Optional.of(new TrajectorySamplePoint(
+                prev_s.state().interpolate2(point.state(),
+                        (timeS - m_times[i - 1]) / (m_times[i] - m_times[i - 1])),
+                i - 1, i));
     }
 
     public Trajectory100 trajectory() {
@@ -175,4 +175,32 @@ public class Math100 {
             return s_guess * findRoot(func, x_0, y_0, f_0, x_guess, y_guess, f_guess, iterations_left - 1);
         }
     }
+
+    /**
+     * Returns the smallest index i >= 1 such that a[i] >= x, or a.length if there
+     * isn't one. The array must be sorted ascending, and a[0] < x.
+     * 
+     * The hint (usually the result of the previous call) and its successor are
+     * tried first, so sequential access is O(1); otherwise this is a binary
+     * search.
+     */
+    public static int ceilingIndex(double[] a, double x, int hint) {
+        if (hint >= 1 && hint < a.length && a[hint - 1] < x) {
+            if (a[hint] >= x)
+                return hint;
+            if (hint + 1 < a.length && a[hint + 1] >= x)
+                return hint + 1;
+        }
+        int lo = 1;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
 }
@@ -17,6 +17,9 @@ import java.util.function.Supplier;
  * thing in the middle of the sandwich is simple arithmetic. So if a "motor"
  * implements caching of its sensors, then the "sensor" that uses the "motor"
  * doesn't need to apply its own cache layer.
+ * 
+ * For sensors, use Sense instead, which reads them all at the start of the
+ * loop. Memo is for derived values.
  */
 public class Memo {
     private static final List<Runnable> resetters = new ArrayList<>();
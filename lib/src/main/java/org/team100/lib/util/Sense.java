@@ -0,0 +1,273 @@
+package org.team100.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Reads all the registered sensors at once, at the start of the loop, into an
+ * immutable SensorSnapshot. Everything else reads the snapshot.
+ * 
+ * This replaces Memo for sensors: with Memo, the first caller pays for the
+ * read, at some unpredictable point in the loop, and every access is
+ * synchronized. Memo is still fine for derived values.
+ * 
+ * Sensors are registered in groups, e.g. all the signals of one motor. Each
+ * group has an optional "prepare" step, e.g. a batch refresh, which runs once
+ * per sense phase, before the group's reads.
+ * 
+ * Groups on the same bus are read one after another, in order of registration.
+ * Different buses are read in parallel.
+ * 
+ * Before the first sense phase (e.g. during startup, or in tests), channels
+ * read their sensors directly.
+ * 
+ * Owners close their groups when they're closed, and the slots are reused, so
+ * the registry doesn't grow as things come and go, e.g. in tests.
+ */
+public class Sense {
+    public enum Bus {
+        /** Motor controllers, CANcoders, etc. */
+        CAN,
+        /** FPGA inputs: analog, DIO, duty cycle. */
+        RIO
+    }
+
+    /** Read different buses in parallel. */
+    private static final boolean kParallel = true;
+
+    private static final List<Group> groups = new ArrayList<>();
+    private static int channelCount = 0;
+    /** Slots of closed channels, for reuse. */
+    private static final List<Integer> free = new ArrayList<>();
+    /** Made on first use, so nothing starts a thread unless it's needed. */
+    private static ExecutorService executor = null;
+    private static volatile SensorSnapshot current = null;
+
+    /** A group with no prepare step. */
+    public static Group group(Bus bus) {
+        return group(bus, null);
+    }
+
+    /**
+     * @param prepare runs once per sense phase, before the reads, e.g. a batch
+     *                refresh. May be null.
+     */
+    public static Group group(Bus bus, Runnable prepare) {
+        Group group = new Group(bus, prepare);
+        groups.add(group);
+        return group;
+    }
+
+    /** A channel in a group of its own. */
+    public static Channel ofDouble(Bus bus, DoubleSupplier sensor) {
+        return group(bus).add(sensor);
+    }
+
+    /**
+     * Read all the sensors. This should be run at the start of
+     * Robot.robotPeriodic().
+     */
+    public static SensorSnapshot sense() {
+        double timeS = Timer.getFPGATimestamp();
+        long startNS = System.nanoTime();
+        double[] values = new double[channelCount];
+        // {first, last} read times
+        long[] span = { Long.MAX_VALUE, Long.MIN_VALUE };
+        if (kParallel) {
+            senseParallel(values, span);
+        } else {
+            for (Bus bus : Bus.values()) {
+                merge(span, read(bus, values));
+            }
+        }
+        long endNS = System.nanoTime();
+        double skewS = span[1] >= span[0] ? (span[1] - span[0]) * 1e-9 : 0;
+        SensorSnapshot snapshot = new SensorSnapshot(values, timeS, (endNS - startNS) * 1e-9, skewS);
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Forget all the groups and the snapshot. Package-private for tests, which
+     * should call this after each test.
+     */
+    static void reset() {
+        groups.clear();
+        channelCount = 0;
+        free.clear();
+        current = null;
+    }
+
+    /** Number of slots in the next snapshot. Package-private for testing. */
+    static int size() {
+        return channelCount;
+    }
+
+    /** The most recent snapshot, or null if there hasn't been one. */
+    public static SensorSnapshot current() {
+        return current;
+    }
+
+    /** The first bus is read on this thread, the rest on the executor. */
+    private static void senseParallel(double[] values, long[] span) {
+        Bus[] buses = Bus.values();
+        List<Future<long[]>> futures = new ArrayList<>(buses.length - 1);
+        for (int i = 1; i < buses.length; ++i) {
+            Bus bus = buses[i];
+            if (!hasGroups(bus))
+                continue;
+            futures.add(executor().submit(() -> read(bus, values)));
+        }
+        merge(span, read(buses[0], values));
+        for (Future<long[]> future : futures) {
+            try {
+                merge(span, future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Read all the groups on the bus. Each bus writes its own slots.
+     * 
+     * @return {first, last} read times in nanoseconds
+     */
+    private static long[] read(Bus bus, double[] values) {
+        long[] span = { Long.MAX_VALUE, Long.MIN_VALUE };
+        for (int i = 0; i < groups.size(); ++i) {
+            Group group = groups.get(i);
+            if (group.m_bus != bus)
+                continue;
+            group.read(values);
+            long t = System.nanoTime();
+            span[0] = Math.min(span[0], t);
+            span[1] = Math.max(span[1], t);
+        }
+        return span;
+    }
+
+    private static boolean hasGroups(Bus bus) {
+        for (int i = 0; i < groups.size(); ++i) {
+            if (groups.get(i).m_bus == bus)
+                return true;
+        }
+        return false;
+    }
+
+    private static void merge(long[] span, long[] other) {
+        span[0] = Math.min(span[0], other[0]);
+        span[1] = Math.max(span[1], other[1]);
+    }
+
+    private static ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName("Sense Thread");
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    public static class Group {
+        private final Bus m_bus;
+        private final Runnable m_prepare;
+        private final List<Channel> m_channels;
+
+        private Group(Bus bus, Runnable prepare) {
+            m_bus = bus;
+            m_prepare = prepare;
+            m_channels = new ArrayList<>();
+        }
+
+        public Channel add(DoubleSupplier sensor) {
+            int index = free.isEmpty() ? channelCount++ : free.remove(free.size() - 1);
+            Channel channel = new Channel(this, index, sensor);
+            m_channels.add(channel);
+            return channel;
+        }
+
+        /**
+         * Stop reading this group, and free its slots. Call this from the owner's
+         * close(). The channels shouldn't be used after this.
+         */
+        public void close() {
+            if (!groups.remove(this))
+                return;
+            for (int i = 0; i < m_channels.size(); ++i) {
+                free.add(m_channels.get(i).m_index);
+            }
+            m_channels.clear();
+        }
+
+        private void prepare() {
+            if (m_prepare != null)
+                m_prepare.run();
+        }
+
+        private void read(double[] values) {
+            prepare();
+            for (int i = 0; i < m_channels.size(); ++i) {
+                Channel channel = m_channels.get(i);
+                // channels added after the array was made wait for the next one.
+                if (channel.m_index < values.length)
+                    values[channel.m_index] = channel.m_sensor.getAsDouble();
+            }
+        }
+    }
+
+    /** One sensor value, read from the current snapshot. */
+    public static class Channel implements DoubleSupplier {
+        private final Group m_group;
+        private final int m_index;
+        private final DoubleSupplier m_sensor;
+        /**
+         * The snapshot when this channel was made, which doesn't include it, even
+         * if the slot is in range, since slots are reused.
+         */
+        private final SensorSnapshot m_before;
+
+        private Channel(Group group, int index, DoubleSupplier sensor) {
+            m_group = group;
+            m_index = index;
+            m_sensor = sensor;
+            m_before = current;
+        }
+
+        @Override
+        public double getAsDouble() {
+            SensorSnapshot snapshot = current;
+            if (snapshot != null && snapshot != m_before && m_index < snapshot.size())
+                return snapshot.get(m_index);
+            // no snapshot yet, so read directly.
+            m_group.prepare();
+            return m_sensor.getAsDouble();
+        }
+
+        /**
+         * Reads the sensor now, ignoring the snapshot, for threads that run faster
+         * than the loop, e.g. OdometryThread. This skips the group's prepare step,
+         * so it's only for sensors that don't have one, e.g. RIO inputs.
+         */
+        public double read() {
+            return m_sensor.getAsDouble();
+        }
+    }
+
+    private Sense() {
+        //
+    }
+}
@@ -0,0 +1,46 @@
+package org.team100.lib.util;
+
+/**
+ * All the sensor readings from one sense phase, see Sense.sense().
+ * 
+ * This is immutable, so it's fine to share it with other threads.
+ */
+public final class SensorSnapshot {
+    private final double[] m_values;
+    private final double m_timeS;
+    private final double m_latencyS;
+    private final double m_skewS;
+
+    /**
+     * @param values   owned by this snapshot, don't write it after this.
+     * @param timeS    FPGA time at the start of the sense phase.
+     * @param latencyS how long the sense phase took.
+     * @param skewS    time between the first and last sensor reads.
+     */
+    SensorSnapshot(double[] values, double timeS, double latencyS, double skewS) {
+        m_values = values;
+        m_timeS = timeS;
+        m_latencyS = latencyS;
+        m_skewS = skewS;
+    }
+
+    int size() {
+        return m_values.length;
+    }
+
+    double get(int i) {
+        return m_values[i];
+    }
+
+    public double getTimeS() {
+        return m_timeS;
+    }
+
+    public double getLatencyS() {
+        return m_latencyS;
+    }
+
+    public double getSkewS() {
+        return m_skewS;
+    }
+}
@@ -2,7 +2,11 @@ package org.team100.lib.async;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
 
 class AsyncTest {
     private int counter = 0;
@@ -14,4 +18,33 @@ class AsyncTest {
         Thread.sleep(1000); // 1 sec
         assertEquals(9, counter, 1);
     }
+
+    @Test
+    void testPool() throws InterruptedException {
+        Async async = new PoolAsync(new TestLoggerFactory(new TestPrimitiveLogger()), 2);
+        AtomicInteger plain = new AtomicInteger();
+        AtomicInteger blocking = new AtomicInteger();
+        async.addPeriodic(plain::incrementAndGet, 0.1, "plain");
+        async.addBlockingPeriodic(blocking::incrementAndGet, 0.1, "blocking");
+        Thread.sleep(1000); // 1 sec
+        assertEquals(9, plain.get(), 1);
+        assertEquals(9, blocking.get(), 1);
+    }
+
+    /** A slow task keeps one worker, and the other takes the rest. */
+    @Test
+    void testPoolSlowTask() throws InterruptedException {
+        Async async = new PoolAsync(new TestLoggerFactory(new TestPrimitiveLogger()), 2);
+        AtomicInteger fast = new AtomicInteger();
+        async.addPeriodic(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 0.1, "slow");
+        async.addPeriodic(fast::incrementAndGet, 0.1, "fast");
+        Thread.sleep(1000); // 1 sec
+        assertEquals(9, fast.get(), 1);
+    }
 }
@@ -0,0 +1,40 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class DurationHistogramTest {
+    private static final double kDelta = 0.000001;
+
+    @Test
+    void testEmpty() {
+        DurationHistogram h = new DurationHistogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.quantile(0.5), kDelta);
+        assertEquals(0, h.max(), kDelta);
+    }
+
+    @Test
+    void testQuantiles() {
+        DurationHistogram h = new DurationHistogram();
+        // 1 ms to 100 ms
+        for (int i = 1; i <= 100; ++i) {
+            h.add(i * 0.001 - 0.00005);
+        }
+        assertEquals(100, h.count());
+        assertEquals(0.050, h.quantile(0.5), kDelta);
+        assertEquals(0.099, h.quantile(0.99), kDelta);
+        assertEquals(0.09995, h.max(), kDelta);
+    }
+
+    @Test
+    void testOverflow() {
+        DurationHistogram h = new DurationHistogram();
+        h.add(0.001);
+        h.add(5.0);
+        // the long one is in the last bucket, the max is exact
+        assertEquals(0.1, h.quantile(1.0), kDelta);
+        assertEquals(5.0, h.max(), kDelta);
+    }
+}
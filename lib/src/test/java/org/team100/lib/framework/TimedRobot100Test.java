@@ -0,0 +1,116 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.framework.TimedRobot100.Callback;
+import org.team100.lib.framework.TimedRobot100.Priority;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/** Scheduling decisions of the callbacks, without the notifier. */
+class TimedRobot100Test implements Timeless {
+    private static final double kDelta = 0.000001;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** A low-priority callback that takes 15 ms, every 20 ms. */
+    private Callback slow(double t0) {
+        return new Callback(logger, () -> stepTime(0.015), t0, 0.02, 0, Priority.LOW, 0.02, "slow");
+    }
+
+    @Test
+    void testSkip() {
+        double t0 = Timer.getFPGATimestamp();
+        Callback c = slow(t0);
+        assertEquals(t0 + 0.02, c.expirationTime, kDelta);
+        stepTime(0.02);
+        c.run();
+        double now = Timer.getFPGATimestamp();
+        c.reschedule(now);
+        assertEquals(t0 + 0.04, c.expirationTime, kDelta);
+        assertEquals(0.015, c.expectedDuration(), kDelta);
+        // only 10 ms until the next high-priority callback
+        assertTrue(c.shouldSkip(now, now + 0.01));
+        // plenty of time
+        assertFalse(c.shouldSkip(now, now + 0.02));
+        c.skip(now);
+        assertEquals(1, c.skips());
+        assertEquals(t0 + 0.06, c.expirationTime, kDelta);
+    }
+
+    @Test
+    void testCoalesce() {
+        double t0 = Timer.getFPGATimestamp();
+        Callback c = new Callback(logger, () -> {
+        }, t0, 0.02, 0, Priority.LOW, 0.02, "fast");
+        // three and a half periods late
+        stepTime(0.09);
+        double now = Timer.getFPGATimestamp();
+        c.run();
+        c.reschedule(now);
+        // runs once, and the missed periods count as skips
+        assertEquals(3, c.skips());
+        assertEquals(t0 + 0.1, c.expirationTime, kDelta);
+    }
+
+    @Test
+    void testHighPriorityDoesNotCoalesce() {
+        double t0 = Timer.getFPGATimestamp();
+        Callback c = new Callback(logger, () -> {
+        }, t0, 0.02, 0, Priority.HIGH, 0.02, "main");
+        stepTime(0.09);
+        double now = Timer.getFPGATimestamp();
+        c.run();
+        c.reschedule(now);
+        // catches up one period at a time
+        assertEquals(0, c.skips());
+        assertEquals(t0 + 0.04, c.expirationTime, kDelta);
+    }
+
+    /** One slow run doesn't starve the callback: each skip shrinks the estimate. */
+    @Test
+    void testDecay() {
+        double t0 = Timer.getFPGATimestamp();
+        Callback c = slow(t0);
+        stepTime(0.02);
+        c.run();
+        double now = Timer.getFPGATimestamp();
+        c.reschedule(now);
+        int skips = 0;
+        // 1 ms of slack every time
+        while (c.shouldSkip(now, now + 0.001)) {
+            c.skip(now);
+            skips++;
+        }
+        // 15, 7.5, 3.75, 1.875, 0.9375 ms
+        assertEquals(4, skips);
+        assertEquals(0.0009375, c.expectedDuration(), kDelta);
+    }
+
+    /** With no slack at all, the callback still runs now and then. */
+    @Test
+    void testStarvation() {
+        double t0 = Timer.getFPGATimestamp();
+        Callback c = slow(t0);
+        stepTime(0.02);
+        c.run();
+        double now = Timer.getFPGATimestamp();
+        c.reschedule(now);
+        int skips = 0;
+        // already late for the next high-priority callback
+        while (c.shouldSkip(now, now - 1)) {
+            c.skip(now);
+            skips++;
+        }
+        assertEquals(10, skips);
+        // running resets the count
+        c.run();
+        assertTrue(c.shouldSkip(Timer.getFPGATimestamp(), now - 1));
+    }
+}
@@ -0,0 +1,70 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Camera;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StructArrayPublisher;
+
+class NotePosition24ArrayListenerTest implements Timeless {
+    private static final double kDelta = 0.001;
+
+    private Pose2d m_pose = new Pose2d(6, 2, new Rotation2d());
+
+    /**
+     * The listener predicts before it adds each frame, so the tracker has to
+     * measure the time between frames itself, or it never learns velocity.
+     */
+    @Test
+    void testVelocity() {
+        NetworkTableInstance inst = NetworkTableInstance.create();
+        try {
+            NotePosition24ArrayListener listener = new NotePosition24ArrayListener(() -> m_pose, inst);
+            StructArrayPublisher<Rotation3d> pub = inst.getStructArrayTopic(
+                    "noteVision/" + Camera.GAME_PIECE.getSerial() + "/Rotation3d",
+                    Rotation3d.struct).publish(PubSubOption.keepDuplicates(true));
+            // the camera looks straight back, so the same sight from a moving
+            // robot is a moving note.
+            Rotation3d[] sights = new Rotation3d[] { new Rotation3d() };
+
+            stepTime(0.02);
+            pub.set(sights);
+            listener.update();
+            double x0 = note(listener).getX();
+
+            stepTime(0.02);
+            m_pose = new Pose2d(6.1, 2, new Rotation2d());
+            pub.set(sights);
+            listener.update();
+            // moved part way towards the new sight
+            double x1 = note(listener).getX();
+            assertEquals(0.03, x1 - x0, kDelta);
+
+            // with no new frames, the track keeps going at 0.25 m/s
+            stepTime(0.1);
+            double x2 = note(listener).getX();
+            assertEquals(0.025, x2 - x1, kDelta);
+            pub.close();
+        } finally {
+            inst.close();
+        }
+    }
+
+    /** The track near the sight, ignoring any the simulated camera adds. */
+    private Translation2d note(NotePosition24ArrayListener listener) {
+        Translation2d best = null;
+        for (Translation2d t : listener.getTranslation2dArray()) {
+            if (best == null || t.getDistance(m_pose.getTranslation()) < best.getDistance(m_pose.getTranslation()))
+                best = t;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,115 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class NoteTrackerTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testEmpty() {
+        NoteTracker tracker = new NoteTracker(4);
+        assertTrue(tracker.getTranslations().isEmpty());
+        assertTrue(tracker.closest(new Translation2d()).isEmpty());
+    }
+
+    @Test
+    void testAssociate() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1), new Translation2d(5, 5)));
+        assertEquals(2, tracker.getTranslations().size());
+        // nearby sights update the same tracks
+        tracker.add(0.02, List.of(new Translation2d(1.1, 1), new Translation2d(5, 5.1)));
+        List<Translation2d> notes = tracker.getTranslations();
+        assertEquals(2, notes.size());
+        // moved part way towards the new sight
+        assertEquals(1.03, notes.get(0).getX(), kDelta);
+        assertEquals(5.03, notes.get(1).getY(), kDelta);
+    }
+
+    @Test
+    void testNewTrack() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1)));
+        // outside the gate
+        tracker.add(0.02, List.of(new Translation2d(2, 1)));
+        assertEquals(2, tracker.getTranslations().size());
+    }
+
+    @Test
+    void testOneSightPerTrack() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1)));
+        // two sights near the same track make a second track
+        tracker.add(0.02, List.of(new Translation2d(1, 1), new Translation2d(1.2, 1)));
+        assertEquals(2, tracker.getTranslations().size());
+    }
+
+    @Test
+    void testDecay() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1)));
+        tracker.predict(0.1);
+        assertEquals(1, tracker.getTranslations().size());
+        // unseen for awhile, it's forgotten
+        tracker.predict(1);
+        assertTrue(tracker.getTranslations().isEmpty());
+    }
+
+    @Test
+    void testRepeatedSightsLastLonger() {
+        NoteTracker tracker = new NoteTracker(4);
+        for (int i = 0; i < 10; ++i) {
+            tracker.add(i * 0.02, List.of(new Translation2d(1, 1)));
+        }
+        // a single sight would be gone by now.
+        tracker.predict(0.18 + 0.5);
+        assertEquals(1, tracker.getTranslations().size());
+    }
+
+    @Test
+    void testClosest() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1), new Translation2d(5, 5)));
+        Optional<Translation2d> closest = tracker.closest(new Translation2d(4, 4));
+        assertTrue(closest.isPresent());
+        assertEquals(5, closest.get().getX(), kDelta);
+        assertEquals(5, closest.get().getY(), kDelta);
+    }
+
+    @Test
+    void testVelocityWithPredict() {
+        NoteTracker tracker = new NoteTracker(4);
+        tracker.add(0, List.of(new Translation2d(1, 1)));
+        // predicting up to the frame time doesn't hide the time between frames.
+        tracker.predict(0.02);
+        tracker.add(0.02, List.of(new Translation2d(1.1, 1)));
+        assertEquals(1.03, tracker.getTranslations().get(0).getX(), kDelta);
+        // moving at 0.25 m/s
+        tracker.predict(0.12);
+        assertEquals(1.055, tracker.getTranslations().get(0).getX(), kDelta);
+    }
+
+    @Test
+    void testCapacity() {
+        NoteTracker tracker = new NoteTracker(2);
+        tracker.add(0, List.of(new Translation2d(1, 1), new Translation2d(3, 3)));
+        // see one of them again, so the other is the least confident
+        tracker.add(0.02, List.of(new Translation2d(1, 1)));
+        // a new one replaces the least confident
+        tracker.add(0.04, List.of(new Translation2d(1, 1), new Translation2d(5, 5)));
+        List<Translation2d> notes = tracker.getTranslations();
+        assertEquals(2, notes.size());
+        // the replaced one is gone
+        for (Translation2d note : notes) {
+            assertTrue(note.getDistance(new Translation2d(3, 3)) > 1);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.sensors.MockGyro;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+class OdometryThreadTest {
+    private static final double kDelta = 0.001;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** Drives straight ahead at 1 m/s, one sample per wait. */
+    private static class FakeSignals implements OdometrySignals {
+        double dtS = 0.005;
+        boolean ok = true;
+        boolean steering = true;
+        /** Advance on each wait. */
+        boolean advance = true;
+        double timeS = 0;
+        double distanceM = 0;
+
+        @Override
+        public boolean waitForAll(double timeoutS) {
+            if (!ok)
+                return false;
+            if (advance) {
+                timeS += dtS;
+                distanceM += dtS;
+            }
+            return true;
+        }
+
+        @Override
+        public double timestampS() {
+            return timeS;
+        }
+
+        @Override
+        public int modules() {
+            return 4;
+        }
+
+        @Override
+        public boolean positions(double[] distM, double[] angleRad) {
+            if (!steering)
+                return false;
+            Arrays.fill(distM, distanceM);
+            Arrays.fill(angleRad, 0);
+            return true;
+        }
+    }
+
+    private static SwerveDrivePoseEstimator100 estimator() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+        SwerveModulePosition100 p0 = new SwerveModulePosition100(0, Optional.of(GeometryUtil.kRotationZero));
+        return kinodynamics.newPoseEstimator(
+                logger,
+                GeometryUtil.kRotationZero,
+                new SwerveModulePosition100[] { p0, p0, p0, p0 },
+                GeometryUtil.kPoseZero,
+                0);
+    }
+
+    @BeforeEach
+    void nolog() {
+        DataLogManager.stop();
+    }
+
+    /** Each sample lands at the signal timestamp, with the signal positions. */
+    @Test
+    void testSamples() {
+        FakeSignals signals = new FakeSignals();
+        SwerveDrivePoseEstimator100 poseEstimator = estimator();
+        OdometryThread thread = new OdometryThread(logger, 200, signals, new MockGyro(), poseEstimator);
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(thread.step());
+        }
+        assertEquals(10, thread.getSamples());
+        assertEquals(0.025, poseEstimator.get(0.025).pose().getX(), kDelta);
+        assertEquals(0.05, poseEstimator.get(0.05).pose().getX(), kDelta);
+        assertEquals(1.0, poseEstimator.get(0.05).velocity().x(), kDelta);
+    }
+
+    /** The gyro is sampled at the signal time, not now. */
+    @Test
+    void testGyroAtSignalTime() {
+        FakeSignals signals = new FakeSignals();
+        SwerveDrivePoseEstimator100 poseEstimator = estimator();
+        MockGyro gyro = new MockGyro() {
+            @Override
+            public Rotation2d getYawNWU(double timestampS) {
+                // turning at 1 rad/s
+                return new Rotation2d(timestampS);
+            }
+        };
+        OdometryThread thread = new OdometryThread(logger, 200, signals, gyro, poseEstimator);
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(thread.step());
+        }
+        assertEquals(0.05, poseEstimator.get(0.05).pose().getRotation().getRadians(), kDelta);
+    }
+
+    /** A repeated timestamp means nothing new arrived, so it's not put again. */
+    @Test
+    void testStale() {
+        FakeSignals signals = new FakeSignals();
+        SwerveDrivePoseEstimator100 poseEstimator = estimator();
+        OdometryThread thread = new OdometryThread(logger, 200, signals, new MockGyro(), poseEstimator);
+        assertTrue(thread.step());
+        signals.advance = false;
+        assertFalse(thread.step());
+        assertEquals(1, thread.getSamples());
+        assertEquals(1, thread.getStale());
+        signals.advance = true;
+        assertTrue(thread.step());
+        assertEquals(2, thread.getSamples());
+        assertEquals(0.01, poseEstimator.get(0.01).pose().getX(), kDelta);
+    }
+
+    @Test
+    void testErrors() {
+        FakeSignals signals = new FakeSignals();
+        SwerveDrivePoseEstimator100 poseEstimator = estimator();
+        OdometryThread thread = new OdometryThread(logger, 200, signals, new MockGyro(), poseEstimator);
+        signals.ok = false;
+        assertFalse(thread.step());
+        assertEquals(1, thread.getErrors());
+        signals.ok = true;
+        signals.steering = false;
+        assertFalse(thread.step());
+        assertEquals(2, thread.getErrors());
+        assertEquals(0, thread.getSamples());
+    }
+
+    /** The thread itself runs the same steps. */
+    @Test
+    void testThread() throws InterruptedException {
+        FakeSignals signals = new FakeSignals() {
+            @Override
+            public boolean waitForAll(double timeoutS) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return super.waitForAll(timeoutS);
+            }
+        };
+        SwerveDrivePoseEstimator100 poseEstimator = estimator();
+        OdometryThread thread = new OdometryThread(logger, 200, signals, new MockGyro(), poseEstimator);
+        thread.start();
+        for (int i = 0; i < 100 && thread.getSamples() < 5; ++i) {
+            Thread.sleep(10);
+        }
+        thread.stop();
+        assertTrue(thread.getSamples() >= 5);
+    }
+}
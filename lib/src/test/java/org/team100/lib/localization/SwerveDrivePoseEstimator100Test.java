@@ -470,6 +470,53 @@ class SwerveDrivePoseEstimator100Test {
 
     }
 
+    @Test
+    void batchMatchesSequential() {
+        // a batch of vision updates, in any order, should have the same effect as
+        // the same updates put one at a time in time order.
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+        double[] stateStdDevs = new double[] { 0.1, 0.1, 0.1 };
+        double[] visionMeasurementStdDevs = new double[] { 0.5, 0.5, Double.MAX_VALUE };
+        SwerveDrivePoseEstimator100 sequential = kinodynamics.newPoseEstimator(
+                logger,
+                GeometryUtil.kRotationZero,
+                positionZero,
+                GeometryUtil.kPoseZero,
+                0); // zero initial time
+        SwerveDrivePoseEstimator100 batch = kinodynamics.newPoseEstimator(
+                logger,
+                GeometryUtil.kRotationZero,
+                positionZero,
+                GeometryUtil.kPoseZero,
+                0); // zero initial time
+        for (int i = 0; i < 6; ++i) {
+            SwerveModulePosition100 p = new SwerveModulePosition100(0.01 * i,
+                    Optional.of(GeometryUtil.kRotationZero));
+            SwerveModulePosition100[] positions = new SwerveModulePosition100[] { p, p, p, p };
+            sequential.put(0.02 * i, GeometryUtil.kRotationZero, positions);
+            batch.put(0.02 * i, GeometryUtil.kRotationZero, positions);
+        }
+
+        Pose2d m1 = new Pose2d(1, 0, GeometryUtil.kRotationZero);
+        Pose2d m2 = new Pose2d(0.5, 0, GeometryUtil.kRotationZero);
+        // between odometry entries
+        sequential.put(0.03, m1, stateStdDevs, visionMeasurementStdDevs);
+        sequential.put(0.03, m2, stateStdDevs, visionMeasurementStdDevs);
+        sequential.put(0.06, m1, stateStdDevs, visionMeasurementStdDevs);
+
+        batch.put(List.of(
+                new VisionMeasurement(0.06, m1, stateStdDevs, visionMeasurementStdDevs),
+                new VisionMeasurement(0.03, m1, stateStdDevs, visionMeasurementStdDevs),
+                new VisionMeasurement(0.03, m2, stateStdDevs, visionMeasurementStdDevs)));
+
+        for (double t = 0; t <= 0.1; t += 0.01) {
+            assertEquals(sequential.get(t).pose().getX(), batch.get(t).pose().getX(), 1e-9);
+            assertEquals(sequential.get(t).velocity().x(), batch.get(t).velocity().x(), 1e-9);
+        }
+        // the correction did something: odometry alone would say 0.05
+        assertTrue(batch.get(0.1).pose().getX() > 0.1);
+    }
+
     ////////////////////////////////////////
     //
     // tests below are from WPILib
@@ -1,6 +1,10 @@
 package org.team100.lib.localization;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map.Entry;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.LoggerFactory;
@@ -45,4 +49,61 @@ class TimeInterpolatableBuffer100Test {
         b.put(1, new Item(10));
         assertEquals(10, b.get(1.5).value, kDelta);
     }
+
+    /** Entries older than the history window are evicted. */
+    @Test
+    void testEviction() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 1, 0, new Item(0));
+        b.put(0.5, new Item(5));
+        assertEquals(2, b.size());
+        b.put(1.2, new Item(12));
+        // the entry at zero is gone
+        assertEquals(2, b.size());
+        assertEquals(5, b.get(0).value, kDelta);
+        assertTrue(b.tooOld(0.1));
+    }
+
+    /** Puts in the middle are inserted in order, existing times are replaced. */
+    @Test
+    void testInsertAndReplace() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 0, new Item(0));
+        b.put(2, new Item(20));
+        b.put(1, new Item(5));
+        assertEquals(3, b.size());
+        assertEquals(2.5, b.get(0.5).value, kDelta);
+        assertEquals(12.5, b.get(1.5).value, kDelta);
+        b.put(1, new Item(10));
+        assertEquals(3, b.size());
+        assertEquals(10, b.get(1).value, kDelta);
+        assertEquals(1, b.higherTime(0), kDelta);
+        assertEquals(2, b.higherTime(1), kDelta);
+        assertTrue(Double.isNaN(b.higherTime(2)));
+        assertEquals(1, b.ceilingTime(1), kDelta);
+    }
+
+    /** When full, the oldest entry is dropped. */
+    @Test
+    void testCapacity() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 3, 0, new Item(0));
+        b.put(1, new Item(10));
+        b.put(2, new Item(20));
+        b.put(3, new Item(30));
+        assertEquals(3, b.size());
+        // off the start returns the oldest remaining
+        assertEquals(10, b.get(0).value, kDelta);
+        assertEquals(25, b.get(2.5).value, kDelta);
+    }
+
+    @Test
+    void testConsistentPair() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 0, new Item(0));
+        assertEquals(0, b.consistentPair(0, 0.015).size());
+        b.put(0.02, new Item(2));
+        b.put(0.04, new Item(4));
+        assertEquals(1, b.consistentPair(0.02, 0.015).size());
+        List<Entry<Double, Item>> pair = b.consistentPair(0.06, 0.015);
+        assertEquals(2, pair.size());
+        assertEquals(0.04, pair.get(0).getKey(), kDelta);
+        assertEquals(0.02, pair.get(1).getKey(), kDelta);
+    }
 }
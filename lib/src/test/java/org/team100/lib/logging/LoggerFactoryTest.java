@@ -1,11 +1,114 @@
 package org.team100.lib.logging;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 
 public class LoggerFactoryTest {
     @Test
     void testSimple() {
-        
+
+    }
+
+    @Test
+    void testLevelChange() {
+        AtomicReference<Level> level = new AtomicReference<>(Level.COMP);
+        Recorder recorder = new Recorder();
+        LoggerFactory logger = new LoggerFactory(level::get, "root", recorder);
+        DoubleLogger d = logger.child("child").doubleLogger(Level.TRACE, "d");
+        d.log(1.0);
+        assertTrue(recorder.doubles.isEmpty());
+        // the loggers don't notice until they're told
+        level.set(Level.TRACE);
+        d.log(2.0);
+        assertTrue(recorder.doubles.isEmpty());
+        LevelGate.invalidateAll();
+        d.log(3.0);
+        assertEquals(List.of(3.0), recorder.doubles);
+        // and back
+        level.set(Level.COMP);
+        LevelGate.invalidateAll();
+        d.log(4.0);
+        assertEquals(List.of(3.0), recorder.doubles);
+    }
+
+    @Test
+    void testCompound() {
+        Recorder recorder = new Recorder();
+        LoggerFactory logger = new LoggerFactory(() -> Level.DEBUG, "root", recorder);
+        Pose2dLogger p = logger.pose2dLogger(Level.DEBUG, "pose");
+        p.log(() -> new Pose2d(1, 2, new Rotation2d(3)));
+        assertEquals(List.of(1.0, 2.0, 3.0), recorder.doubles);
+        Pose2dLogger q = logger.pose2dLogger(Level.TRACE, "trace");
+        q.log(() -> new Pose2d());
+        assertEquals(3, recorder.doubles.size());
+    }
+
+    @Test
+    void testArray() {
+        Recorder recorder = new Recorder();
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", recorder);
+        DoubleArrayLogger a = logger.doubleArrayLogger(Level.COMP, "a");
+        a.log(1, 2, 3);
+        DoubleArrayLogger b = logger.doubleArrayLogger(Level.DEBUG, "b");
+        b.log(4, 5, 6);
+        assertEquals(1, recorder.arrays.size());
+        assertEquals(3, recorder.arrays.get(0)[2]);
+    }
+
+    private static class Recorder implements PrimitiveLogger {
+        final List<Double> doubles = new ArrayList<>();
+        final List<double[]> arrays = new ArrayList<>();
+
+        @Override
+        public int keyCount() {
+            return 0;
+        }
+
+        @Override
+        public PrimitiveBooleanLogger booleanLogger(String label) {
+            return x -> {
+            };
+        }
+
+        @Override
+        public PrimitiveDoubleLogger doubleLogger(String label) {
+            return doubles::add;
+        }
+
+        @Override
+        public PrimitiveIntLogger intLogger(String label) {
+            return x -> {
+            };
+        }
+
+        @Override
+        public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+            return arrays::add;
+        }
+
+        @Override
+        public PrimitiveLongLogger longLogger(String label) {
+            return x -> {
+            };
+        }
+
+        @Override
+        public PrimitiveStringLogger stringLogger(String label) {
+            return x -> {
+            };
+        }
     }
-    
 }
@@ -2,10 +2,13 @@ package org.team100.lib.logging.primitive;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HexFormat;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.Level;
@@ -17,8 +20,10 @@ import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.LoggerFactory.LongLogger;
 import org.team100.lib.logging.LoggerFactory.StringLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveBooleanLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveIntLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
 import edu.wpi.first.wpilibj.Timer;
 
@@ -445,4 +450,59 @@ class UdpPrimitiveLoggerTest {
         assertEquals((byte) 111, b[22]);// "o"
         assertEquals((byte) 111, b[23]);// "o"
     }
+
+    /** Loggers on different threads don't lose anything. */
+    @Test
+    void testManyThreads() throws InterruptedException, ProtocolException {
+        final int threads = 4;
+        final int keys = 300; // more than one chunk
+        final int iterations = 1000;
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger l = new UdpPrimitiveLogger(x -> packets.add(copy(x)), x -> mb = x);
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[threads * keys];
+        for (int j = 0; j < loggers.length; ++j) {
+            loggers[j] = l.doubleLogger("key" + j);
+        }
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            final int offset = t * keys;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < iterations; ++i) {
+                    for (int j = 0; j < keys; ++j) {
+                        loggers[offset + j].log(i);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        // flush while they're running
+        l.flush();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        l.flush();
+        assertTrue(l.getFlushTimeS() > 0);
+
+        // the newest value for every key is the last one logged.
+        double[] newest = new double[loggers.length + 1];
+        for (ByteBuffer p : packets) {
+            p.getLong(); // timestamp
+            while (p.remaining() > 0) {
+                int key = UdpPrimitiveProtocol.decodeKey(p);
+                assertEquals(UdpType.DOUBLE, UdpPrimitiveProtocol.decodeType(p));
+                newest[key] = UdpPrimitiveProtocol.decodeDouble(p);
+            }
+        }
+        // keys start at 1
+        for (int key = 1; key < newest.length; ++key) {
+            assertEquals(iterations - 1, newest[key], 0);
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
 }
@@ -0,0 +1,192 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.logging.receiver.UdpConsumersInterface;
+import org.team100.lib.logging.receiver.UdpDataDecoder;
+
+class UdpPrimitiveProtocol3Test {
+
+    @Test
+    void testKey() throws ProtocolException {
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        assertTrue(UdpPrimitiveProtocol3.encodeBoolean(bb, 0, 16, true));
+        assertTrue(UdpPrimitiveProtocol3.encodeBoolean(bb, 16, 17, false));
+        // going backwards
+        assertTrue(UdpPrimitiveProtocol3.encodeBoolean(bb, 17, 2, false));
+        // far away
+        assertTrue(UdpPrimitiveProtocol3.encodeBoolean(bb, 2, 65535, false));
+        // 1 + 1 + 1 + 3 bytes of keys, 4 tags
+        assertEquals(10, bb.position());
+        bb.flip();
+        assertEquals(16, UdpPrimitiveProtocol3.decodeKey(bb, 0));
+        assertTrue(UdpPrimitiveProtocol3.decodeBoolean(UdpPrimitiveProtocol3.decodeTag(bb)));
+        assertEquals(17, UdpPrimitiveProtocol3.decodeKey(bb, 16));
+        assertFalse(UdpPrimitiveProtocol3.decodeBoolean(UdpPrimitiveProtocol3.decodeTag(bb)));
+        assertEquals(2, UdpPrimitiveProtocol3.decodeKey(bb, 17));
+        UdpPrimitiveProtocol3.decodeTag(bb);
+        assertEquals(65535, UdpPrimitiveProtocol3.decodeKey(bb, 2));
+    }
+
+    @Test
+    void testXor() throws ProtocolException {
+        double[][] pairs = {
+                { 1.0, 1.0 },
+                { 1.0, 2.0 },
+                { 0.1, 0.10001 },
+                { -1.5, 1.5 },
+                { 0.0, -0.0 },
+                { 12345.678, Double.NaN },
+                { Double.POSITIVE_INFINITY, 3 } };
+        for (double[] pair : pairs) {
+            ByteBuffer bb = ByteBuffer.allocate(16);
+            assertTrue(UdpPrimitiveProtocol3.encodeDoubleXor(bb, 0, 1, pair[1], pair[0]));
+            bb.flip();
+            assertEquals(1, UdpPrimitiveProtocol3.decodeKey(bb, 0));
+            int tag = UdpPrimitiveProtocol3.decodeTag(bb);
+            assertTrue(UdpPrimitiveProtocol3.isXor(tag));
+            assertEquals(pair[1], UdpPrimitiveProtocol3.decodeDoubleXor(bb, tag, pair[0]));
+            assertEquals(0, bb.remaining());
+        }
+    }
+
+    @Test
+    void testXorLength() {
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        // unchanged: just key and tag
+        UdpPrimitiveProtocol3.encodeDoubleXor(bb, 0, 1, 1.0, 1.0);
+        assertEquals(2, bb.position());
+        bb.clear();
+        // 1.0 vs 2.0 differ only in the top bytes
+        UdpPrimitiveProtocol3.encodeDoubleXor(bb, 0, 1, 2.0, 1.0);
+        assertEquals(4, bb.position());
+        bb.clear();
+        // doesn't fit
+        bb.limit(3);
+        assertFalse(UdpPrimitiveProtocol3.encodeDoubleXor(bb, 0, 1, 2.0, 1.0));
+        assertEquals(0, bb.position());
+    }
+
+    @Test
+    void testHeader() throws ProtocolException {
+        UdpPrimitiveProtocol3 p = new UdpPrimitiveProtocol3();
+        p.clear();
+        p.clear();
+        ByteBuffer bb = p.trim();
+        assertEquals(UdpPrimitiveProtocol3.HEADER_LENGTH, bb.remaining());
+        long header = bb.getLong();
+        assertEquals(3, UdpPrimitiveProtocol3.decodeVersion(header));
+        assertEquals(UdpMetadataProtocol.timestamp, UdpPrimitiveProtocol3.decodeTimestamp(header));
+        assertEquals(2, UdpPrimitiveProtocol3.decodeSequence(bb));
+    }
+
+    /** Through the logger to the decoder, including a lost packet. */
+    @Test
+    void testRoundTrip() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> packets.add(copy(x)), x -> {
+                }, true);
+        PrimitiveLogger.PrimitiveDoubleLogger d = logger.doubleLogger("double");
+        PrimitiveLogger.PrimitiveBooleanLogger b = logger.booleanLogger("boolean");
+        PrimitiveLogger.PrimitiveDoubleLogger quiet = logger.doubleLogger("quiet");
+        logger.setDeadband("quiet", 0.1);
+
+        for (int i = 0; i < 30; ++i) {
+            d.log(i * 0.01);
+            b.log(i % 2 == 0);
+            quiet.log(1 + i * 0.001);
+            logger.flush();
+        }
+        assertEquals(30, packets.size());
+        // first packet is all raw: boolean is 2 bytes, doubles are 10.
+        assertEquals(UdpPrimitiveProtocol3.HEADER_LENGTH + 2 + 10 + 10, packets.get(0).remaining());
+        // second packet omits the quiet key, because of the deadband.
+        assertEquals(UdpPrimitiveProtocol3.HEADER_LENGTH + 2 + 10, packets.get(1).remaining());
+
+        Recorder recorder = new Recorder();
+        UdpDataDecoder decoder = new UdpDataDecoder(recorder);
+        for (int i = 0; i < packets.size(); ++i) {
+            if (i == 5)
+                continue; // lost
+            ByteBuffer bb = packets.get(i);
+            assertTrue(decoder.validateTimestamp(bb));
+            while (bb.remaining() > 0)
+                decoder.decode(bb);
+        }
+        assertEquals(1, decoder.dropped());
+        // after the loss, the XORed values are skipped until the next raw one.
+        assertEquals(4, decoder.skipped());
+        // every double value that came through is correct
+        for (double[] kv : recorder.doubles) {
+            if (kv[0] == 1) {
+                assertEquals(0, Math.IEEEremainder(kv[1], 0.01), 1e-9);
+            }
+        }
+        // all the booleans came through
+        assertEquals(29, recorder.booleans);
+        // the last one is there
+        double[] last = recorder.doubles.get(recorder.doubles.size() - 1);
+        assertEquals(1, last[0]);
+        assertEquals(0.29, last[1], 1e-9);
+    }
+
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
+
+    private static class Recorder implements UdpConsumersInterface {
+        final List<double[]> doubles = new ArrayList<>();
+        int booleans;
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+            booleans++;
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            doubles.add(new double[] { key, val });
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
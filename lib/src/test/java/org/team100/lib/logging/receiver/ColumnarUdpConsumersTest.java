@@ -0,0 +1,136 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.UdpType;
+
+class ColumnarUdpConsumersTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        ColumnarUdpConsumers c = new ColumnarUdpConsumers(dir, Optional.empty());
+        c.validateTimestamp(1000);
+        c.acceptMeta(1, UdpType.DOUBLE, "double");
+        c.acceptMeta(2, UdpType.STRING, "string");
+        // more than one chunk
+        for (int i = 0; i < 3000; ++i) {
+            c.acceptDouble(1, i);
+        }
+        c.acceptString(2, "hello");
+        c.acceptBoolean(3, true);
+        c.acceptDoubleArray(4, new double[] { 1, 2 });
+        // no label yet, it's written with the chunk.
+        c.acceptMeta(3, UdpType.BOOLEAN, "boolean");
+        Path path = c.segmentPath().orElseThrow();
+        c.close();
+
+        Parsed p = parse(path);
+        assertEquals(1000, p.timestamp);
+        assertEquals("double", p.labels.get(1));
+        assertEquals("string", p.labels.get(2));
+        assertEquals("boolean", p.labels.get(3));
+        List<Object> doubles = p.values.get(1);
+        assertEquals(3000, doubles.size());
+        for (int i = 0; i < 3000; ++i) {
+            assertEquals((double) i, doubles.get(i));
+        }
+        assertEquals("hello", p.values.get(2).get(0));
+        assertEquals(true, p.values.get(3).get(0));
+        assertArrayEquals(new double[] { 1, 2 }, (double[]) p.values.get(4).get(0));
+    }
+
+    @Test
+    void testSessions() throws IOException {
+        ColumnarUdpConsumers c = new ColumnarUdpConsumers(dir, Optional.empty());
+        // nothing is written without a session.
+        c.validateTimestamp(0);
+        c.acceptDouble(1, 1);
+        assertTrue(c.segmentPath().isEmpty());
+
+        c.validateTimestamp(1000);
+        c.acceptDouble(1, 2);
+        Path first = c.segmentPath().orElseThrow();
+        c.validateTimestamp(2000);
+        c.acceptDouble(1, 3);
+        Path second = c.segmentPath().orElseThrow();
+        assertNotEquals(first, second);
+        c.close();
+
+        assertEquals(List.of(2.0), parse(first).values.get(1));
+        assertEquals(List.of(3.0), parse(second).values.get(1));
+    }
+
+    private record Parsed(long timestamp, Map<Integer, String> labels, Map<Integer, List<Object>> values) {
+    }
+
+    private static Parsed parse(Path path) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        byte[] magic = new byte[8];
+        buf.get(magic);
+        assertEquals("T100COLS", new String(magic, StandardCharsets.US_ASCII));
+        long timestamp = buf.getLong();
+        Map<Integer, String> labels = new HashMap<>();
+        Map<Integer, List<Object>> values = new HashMap<>();
+        while (buf.remaining() > 0) {
+            char kind = (char) buf.get();
+            UdpType type = UdpType.get(buf.get());
+            int key = buf.getChar();
+            int length = buf.getInt();
+            ByteBuffer payload = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+            if (kind == 'L') {
+                labels.put(key, StandardCharsets.US_ASCII.decode(payload).toString());
+                continue;
+            }
+            assertEquals('C', kind);
+            List<Object> column = values.computeIfAbsent(key, k -> new ArrayList<>());
+            payload.getLong(); // first time
+            int count = payload.getInt();
+            int previous = 0;
+            for (int i = 0; i < count; ++i) {
+                int t = payload.getInt();
+                assertTrue(t >= previous);
+                previous = t;
+            }
+            for (int i = 0; i < count; ++i) {
+                switch (type) {
+                    case BOOLEAN -> column.add(payload.get() != 0);
+                    case DOUBLE -> column.add(payload.getDouble());
+                    case INT -> column.add(payload.getInt());
+                    case DOUBLE_ARRAY -> {
+                        double[] v = new double[payload.getShort()];
+                        for (int j = 0; j < v.length; ++j)
+                            v[j] = payload.getDouble();
+                        column.add(v);
+                    }
+                    case STRING -> {
+                        byte[] v = new byte[payload.getShort()];
+                        payload.get(v);
+                        column.add(new String(v, StandardCharsets.US_ASCII));
+                    }
+                    default -> throw new IllegalStateException();
+                }
+            }
+            assertEquals(0, payload.remaining());
+        }
+        return new Parsed(timestamp, labels, values);
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Optional;
 
 import org.ejml.simple.SimpleMatrix;
 import org.junit.jupiter.api.Test;
+import org.team100.lib.util.DriveUtil;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -628,4 +629,79 @@ class SwerveDriveKinematics100Test {
                 () -> assertEquals(-1.0, arr[2].speedMetersPerSecond, kEpsilon),
                 () -> assertEquals(-1.0, arr[3].speedMetersPerSecond, kEpsilon));
     }
+
+    @Test
+    void testModuleVectors() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        ChassisSpeeds speeds = new ChassisSpeeds(1, 2, 3);
+        double[] xy = new double[8];
+        kinematics.toModuleVectors(1, 2, 3, xy);
+        SwerveModuleState100[] states = kinematics.toSwerveModuleStates(speeds);
+        for (int i = 0; i < 4; ++i) {
+            Rotation2d angle = states[i].angle.get();
+            assertEquals(states[i].speedMetersPerSecond * angle.getCos(), xy[2 * i], kDelta);
+            assertEquals(states[i].speedMetersPerSecond * angle.getSin(), xy[2 * i + 1], kDelta);
+        }
+        double[] out = new double[3];
+        kinematics.fromModuleVectors(xy, out);
+        assertEquals(1, out[0], kDelta);
+        assertEquals(2, out[1], kDelta);
+        assertEquals(3, out[2], kDelta);
+    }
+
+    @Test
+    void testModuleVectorsThreeModules() {
+        // not four modules, so no unrolling
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        double[] xy = new double[6];
+        kinematics.toModuleVectors(1, 2, 3, xy);
+        double[] out = new double[3];
+        kinematics.fromModuleVectors(xy, out);
+        assertEquals(1, out[0], kDelta);
+        assertEquals(2, out[1], kDelta);
+        assertEquals(3, out[2], kDelta);
+    }
+
+    @Test
+    void testTwistFromPositions() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        SwerveModulePosition100[] start = {
+                new SwerveModulePosition100(0, Optional.of(Rotation2d.fromDegrees(10))),
+                new SwerveModulePosition100(1, Optional.of(Rotation2d.fromDegrees(170))),
+                new SwerveModulePosition100(2, Optional.empty()),
+                new SwerveModulePosition100(3, Optional.of(Rotation2d.fromDegrees(-90))) };
+        SwerveModulePosition100[] end = {
+                new SwerveModulePosition100(0.1, Optional.of(Rotation2d.fromDegrees(30))),
+                new SwerveModulePosition100(1.2, Optional.of(Rotation2d.fromDegrees(-170))),
+                new SwerveModulePosition100(2.1, Optional.of(Rotation2d.fromDegrees(0))),
+                new SwerveModulePosition100(2.9, Optional.of(Rotation2d.fromDegrees(-80))) };
+        Twist2d expected = kinematics.toTwist2d(DriveUtil.modulePositionDelta(start, end));
+        Twist2d actual = kinematics.toTwist2d(start, end);
+        assertEquals(expected.dx, actual.dx, 1e-12);
+        assertEquals(expected.dy, actual.dy, 1e-12);
+        assertEquals(expected.dtheta, actual.dtheta, 1e-12);
+
+        // same thing, in arrays
+        double[] out = new double[3];
+        kinematics.toTwist2d(
+                new double[] { 0, 1, 2, 3 },
+                new double[] { Math.toRadians(10), Math.toRadians(170), Double.NaN, Math.toRadians(-90) },
+                new double[] { 0.1, 1.2, 2.1, 2.9 },
+                new double[] { Math.toRadians(30), Math.toRadians(-170), 0, Math.toRadians(-80) },
+                out);
+        assertEquals(expected.dx, out[0], 1e-12);
+        assertEquals(expected.dy, out[1], 1e-12);
+        assertEquals(expected.dtheta, out[2], 1e-12);
+    }
 }
@@ -1,5 +1,8 @@
 package org.team100.lib.profile;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.Test;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.motion.drivetrain.SwerveState;
@@ -35,6 +38,22 @@ class HolonomicProfileTest {
         }
     }
 
+    /** The plan coordinates the axes, so they arrive together. */
+    @Test
+    void testPlan() {
+        HolonomicProfile hp = new HolonomicProfile(0.02, 1, 1, 0.01, 1, 1, 0.01);
+        SwerveState i = new SwerveState(new Pose2d(), new FieldRelativeVelocity(1, 0, 0));
+        SwerveState g = new SwerveState(new Pose2d(0, 1, GeometryUtil.kRotationZero));
+        HolonomicPlan plan = hp.plan(i, g);
+        // x has to stop and come back, which takes longer than y.
+        assertEquals(1 + Math.sqrt(2), plan.etaS(), 0.01);
+        // y is still moving just before the end.
+        SwerveState s = plan.sample(plan.etaS() - 0.1);
+        assertTrue(s.y().v() > 0.01);
+        assertTrue(plan.sample(plan.etaS()).near(g, 0.01));
+        assertTrue(plan.sample(100).near(g, 0.01));
+    }
+
     /**
      * On my desktop, the solve() method takes about 1 microsecond, so it seems
      * ok to not worry about how long it takes.
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.OptionalDouble;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
@@ -86,6 +87,78 @@ class TrapezoidProfile100Test {
         assertEquals(1.0, s, kDelta);
     }
 
+    /** The closed-form solution is exact, unlike solveForSlowerETA(). */
+    @Test
+    void testETAScaleForETA() {
+        TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+        State100 initial = new State100(0, 0);
+        State100 goal = new State100(1, 0);
+        assertEquals(1.0, p.scaleForETA(initial, goal, 2, kDelta).getAsDouble(), kDelta);
+        // triangle: eta = 2 sqrt(d/a)
+        assertEquals(0.444, p.scaleForETA(initial, goal, 3, kDelta).getAsDouble(), kDelta);
+        assertEquals(0.25, p.scaleForETA(initial, goal, 4, kDelta).getAsDouble(), kDelta);
+        assertEquals(0.0625, p.scaleForETA(initial, goal, 8, kDelta).getAsDouble(), kDelta);
+        // at the goal, nothing to do
+        assertEquals(1.0, p.scaleForETA(goal, goal, 8, kDelta).getAsDouble(), kDelta);
+    }
+
+    /** Cruise and moving-state cases agree with the scaled profile. */
+    @Test
+    void testETAScaleForETAMoving() {
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; ++i) {
+            TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+            State100 initial = new State100(4 * random.nextDouble() - 2, 2 * random.nextDouble() - 1);
+            State100 goal = new State100(4 * random.nextDouble() - 2, random.nextDouble() - 0.5);
+            double fastest = p.etaS(initial, goal);
+            double eta = fastest * (1 + 2 * random.nextDouble());
+            OptionalDouble s = p.scaleForETA(initial, goal, eta, kDelta);
+            if (s.isEmpty() || s.getAsDouble() <= 0.01 || s.getAsDouble() >= 1) {
+                // out of range, or no exact solution
+                continue;
+            }
+            TrapezoidProfile100 scaled = p.scale(s.getAsDouble());
+            assertEquals(eta, scaled.etaS(initial, goal), kDelta);
+            assertEquals(eta, scaled.calculateWithETA(0.02, initial, goal).etaS(), 0.01);
+        }
+    }
+
+    /** The closed-form ETA agrees with calculateWithETA(). */
+    @Test
+    void testETAClosedForm() {
+        TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+        // rest-to-rest
+        assertEquals(2, p.etaS(new State100(0, 0), new State100(1, 0)), kDelta);
+        // cruise
+        assertEquals(3, p.etaS(new State100(0, 0), new State100(2, 0)), kDelta);
+        // cruising toward a moving goal in the negative direction
+        State100 initial = new State100(0, -1);
+        State100 goal = new State100(-2, -0.5);
+        ResultWithETA r = p.calculateWithETA(0.02, initial, goal);
+        assertEquals(2.125, p.etaS(initial, goal), kDelta);
+        assertEquals(2.125, r.etaS(), kDelta);
+    }
+
+    /** Sampling the plan is the same as stepping the profile. */
+    @Test
+    void testPlan() {
+        TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+        State100 initial = new State100(0, 0.5);
+        State100 goal = new State100(-2, 0);
+        TrapezoidPlan plan = p.plan(initial, goal);
+        assertEquals(p.etaS(initial, goal), plan.etaS(), kDelta);
+        State100 s = initial;
+        for (int i = 1; i < 100; ++i) {
+            s = p.calculate(0.02, s, goal);
+            State100 sample = plan.sample(0.02 * i);
+            assertEquals(s.x(), sample.x(), kDelta);
+            assertEquals(s.v(), sample.v(), kDelta);
+        }
+        // after the end, it's the goal
+        assertEquals(-2, plan.sample(100).x(), kDelta);
+        assertEquals(0, plan.sample(100).v(), kDelta);
+    }
+
     /** ETA is not a trivial function of V and A */
     @Test
     void testETARestToRestScaled1() {
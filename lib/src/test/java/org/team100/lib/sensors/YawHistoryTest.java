@@ -0,0 +1,46 @@
+package org.team100.lib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class YawHistoryTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testEmpty() {
+        YawHistory h = new YawHistory(4);
+        assertTrue(h.isEmpty());
+        assertEquals(0, h.yawRad(1), kDelta);
+        assertEquals(0, h.rateRad_S(), kDelta);
+    }
+
+    @Test
+    void testInterpolate() {
+        YawHistory h = new YawHistory(4);
+        h.add(1, 0, 1);
+        h.add(2, 1, 1);
+        h.add(3, 2, 1);
+        assertEquals(0, h.yawRad(0), kDelta);
+        assertEquals(0.5, h.yawRad(1.5), kDelta);
+        assertEquals(1.75, h.yawRad(2.75), kDelta);
+        assertEquals(2, h.yawRad(3), kDelta);
+        // extrapolate using the newest rate
+        assertEquals(2.5, h.yawRad(3.5), kDelta);
+        assertEquals(3, h.newestTimeS(), kDelta);
+    }
+
+    @Test
+    void testWrap() {
+        YawHistory h = new YawHistory(4);
+        for (int i = 0; i < 10; ++i) {
+            h.add(i, 2 * i, 2);
+        }
+        // only the last four are left
+        assertEquals(12, h.yawRad(0), kDelta);
+        assertEquals(13, h.yawRad(6.5), kDelta);
+        assertEquals(17, h.yawRad(8.5), kDelta);
+        assertEquals(18, h.yawRad(9), kDelta);
+    }
+}
@@ -2,6 +2,7 @@ package org.team100.lib.spline;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -38,4 +39,57 @@ class SplineGeneratorTest {
         assertEquals(78.690, cur_pose.getCourse().get().getDegrees(), 0.001);
         assertEquals(20.416, arclength, 0.001);
     }
+
+    /** Multiple splines are done in parallel, but the order is kept. */
+    @Test
+    void testMultiple() {
+        List<HolonomicSpline> splines = new ArrayList<>();
+        Pose2d p0 = new Pose2d(0, 0, GeometryUtil.kRotationZero);
+        for (int i = 1; i < 6; ++i) {
+            Pose2d p1 = new Pose2d(i, i % 2, GeometryUtil.kRotationZero);
+            splines.add(new HolonomicSpline(p0, p1, new Rotation2d(), new Rotation2d()));
+            p0 = p1;
+        }
+        List<Pose2dWithMotion> samples = SplineGenerator.parameterizeSplines(splines, 0.05, 0.05, 0.1);
+
+        List<Pose2dWithMotion> expected = new ArrayList<>();
+        expected.add(splines.get(0).getPose2dWithMotion(0.0));
+        for (HolonomicSpline s : splines) {
+            List<Pose2dWithMotion> part = SplineGenerator.parameterizeSpline(s, 0.05, 0.05, 0.1, 0.0, 1.0);
+            expected.addAll(part.subList(1, part.size()));
+        }
+        assertEquals(expected.size(), samples.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getPose(), samples.get(i).getPose());
+        }
+        assertEquals(5.0, samples.get(samples.size() - 1).getTranslation().getX(), 0.001);
+    }
+
+    /**
+     * A segment with no translation adds no points, so a pure rotation
+     * contributes nothing beyond the starting point.
+     */
+    @Test
+    void testPureRotation() {
+        HolonomicSpline s = new HolonomicSpline(
+                new Pose2d(), new Pose2d(), new Rotation2d(), new Rotation2d(1));
+        List<Pose2dWithMotion> samples = SplineGenerator.parameterizeSpline(s, 0.05, 0.05, 0.1, 0.0, 1.0);
+        assertEquals(1, samples.size());
+        assertEquals(0, samples.get(0).getPose().getRotation().getRadians(), 0.001);
+    }
+
+    /** A zero-length spline between others doesn't add points either. */
+    @Test
+    void testZeroLength() {
+        Pose2d p0 = new Pose2d(0, 0, GeometryUtil.kRotationZero);
+        Pose2d p1 = new Pose2d(1, 0, GeometryUtil.kRotationZero);
+        HolonomicSpline move = new HolonomicSpline(p0, p1, new Rotation2d(), new Rotation2d());
+        HolonomicSpline stay = new HolonomicSpline(p1, p1, new Rotation2d(), new Rotation2d());
+        List<Pose2dWithMotion> moveOnly = SplineGenerator.parameterizeSplines(
+                List.of(move), 0.05, 0.05, 0.1);
+        List<Pose2dWithMotion> withStay = SplineGenerator.parameterizeSplines(
+                List.of(move, stay), 0.05, 0.05, 0.1);
+        assertEquals(moveOnly.size(), withStay.size());
+        assertEquals(1.0, withStay.get(withStay.size() - 1).getTranslation().getX(), 0.001);
+    }
 }
@@ -2,7 +2,6 @@ package org.team100.lib.swerve;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.Test;
-import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
 import org.team100.lib.logging.LoggerFactory;
@@ -22,10 +21,10 @@ class SteeringRateLimiterTest {
 
         double[] prev_vx = new double[] { 0 };
         double[] prev_vy = new double[] { 0 };
-        Rotation2d[] prev_heading = new Rotation2d[] { GeometryUtil.kRotationZero };
+        double[] prev_heading = new double[] { 0 };
         double[] desired_vx = new double[] { 0 };
         double[] desired_vy = new double[] { 0 };
-        Rotation2d[] desired_heading = new Rotation2d[] { GeometryUtil.kRotationZero };
+        double[] desired_heading = new double[] { 0 };
         double[] desired_heading_velocity = new double[] { 0 };
         Rotation2d[] overrideSteering = new Rotation2d[1];
 
@@ -49,10 +48,10 @@ class SteeringRateLimiterTest {
 
         double[] prev_vx = new double[] { 0 };
         double[] prev_vy = new double[] { 0 };
-        Rotation2d[] prev_heading = new Rotation2d[] { GeometryUtil.kRotationZero };
+        double[] prev_heading = new double[] { 0 };
         double[] desired_vx = new double[] { 0 };
         double[] desired_vy = new double[] { 1 };
-        Rotation2d[] desired_heading = new Rotation2d[] { GeometryUtil.kRotation90 };
+        double[] desired_heading = new double[] { Math.PI / 2 };
         double[] desired_heading_velocity = new double[] { 0 };
         Rotation2d[] overrideSteering = new Rotation2d[1];
 
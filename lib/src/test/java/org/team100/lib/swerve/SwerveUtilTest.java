@@ -116,6 +116,29 @@ class SwerveUtilTest {
         // checker should catch that.
     }
 
+    @Test
+    void testFindDriveMaxSFewIterations() {
+        // regula falsi converges slowly on this one, and ran out of iterations,
+        // returning s=1, i.e. no limit at all. the closed form finds the
+        // intersection with the circle directly.
+        double x_0 = -0.25;
+        double y_0 = -0.75;
+        double x_1 = 1.1;
+        double y_1 = -1.2;
+        double max_deviation = 0.05;
+        int max_iterations = 10;
+
+        double s = SwerveUtil.findDriveMaxS(
+                x_0, y_0,
+                x_1, y_1,
+                max_deviation, max_iterations);
+
+        double x = x_0 + s * (x_1 - x_0);
+        double y = y_0 + s * (y_1 - y_0);
+        assertEquals(Math.hypot(x_0, y_0) + max_deviation, Math.hypot(x, y), 1e-6);
+        assertTrue(s < 1);
+    }
+
     @Test
     void testFindSteeringMaxS4() {
         // this corresponds to the case above
@@ -272,4 +272,34 @@ public class TimingUtilTest {
         assertEquals(1.0, TimingUtil.v1(0.0, -0.5, -1.0));
     }
 
+    /**
+     * Caching the velocity-independent limits shouldn't change the result.
+     */
+    @Test
+    void testVelocityIndependentCache() {
+        Path100 traj = new Path100(kWaypoints);
+        PathDistanceSampler sampler = new PathDistanceSampler(traj);
+        ConstantConstraint cached = new ConstantConstraint(10.0, 5.0);
+        assertFalse(cached.isVelocityDependent());
+        TimingConstraint uncached = new TimingConstraint() {
+            @Override
+            public NonNegativeDouble getMaxVelocity(Pose2dWithMotion state) {
+                return cached.getMaxVelocity(state);
+            }
+
+            @Override
+            public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocityM_S) {
+                return cached.getMinMaxAcceleration(state, velocityM_S);
+            }
+        };
+        assertTrue(uncached.isVelocityDependent());
+
+        Trajectory100 t1 = new TimingUtil(List.of(cached)).timeParameterizeTrajectory(sampler, 1.0, 0.0, 0.0);
+        Trajectory100 t2 = new TimingUtil(List.of(uncached)).timeParameterizeTrajectory(sampler, 1.0, 0.0, 0.0);
+        assertEquals(t2.length(), t1.length());
+        for (int i = 0; i < t1.length(); ++i) {
+            assertEquals(t2.getPoint(i).state().getTimeS(), t1.getPoint(i).state().getTimeS(), kTestEpsilon);
+            assertEquals(t2.getPoint(i).state().velocityM_S(), t1.getPoint(i).state().velocityM_S(), kTestEpsilon);
+        }
+    }
 }
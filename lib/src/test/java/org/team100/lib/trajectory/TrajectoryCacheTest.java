@@ -0,0 +1,156 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.timing.ConstantConstraint;
+import org.team100.lib.timing.TimingConstraint;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class TrajectoryCacheTest {
+    private static final double kDelta = 0.001;
+
+    @TempDir
+    Path dir;
+
+    private final List<Pose2d> waypoints = List.of(
+            new Pose2d(),
+            new Pose2d(2, 1, new Rotation2d(1)));
+    private final List<Rotation2d> headings = List.of(
+            new Rotation2d(),
+            new Rotation2d(1));
+
+    @Test
+    void testMemory() {
+        TrajectoryCache cache = new TrajectoryCache(Map.of("slow", slow()));
+        Trajectory100 t = cache.restToRest(waypoints, headings, "slow");
+        assertSame(t, cache.restToRest(waypoints, headings, "slow"));
+        // different waypoints, different trajectory
+        Trajectory100 t2 = cache.restToRest(
+                List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d())),
+                List.of(new Rotation2d(), new Rotation2d()),
+                "slow");
+        assertNotEquals(t.length(), t2.length());
+    }
+
+    @Test
+    void testRoundTrip() {
+        Path path = dir.resolve("trajectories.bin");
+        TrajectoryCache cache = new TrajectoryCache(Map.of("slow", slow()));
+        Trajectory100 live = cache.restToRest(waypoints, headings, "slow");
+        cache.save(path);
+        assertTrue(Files.exists(path));
+
+        TrajectoryCache loaded = new TrajectoryCache(Map.of("slow", slow()));
+        loaded.load(path);
+        Trajectory100 cached = loaded.restToRest(waypoints, headings, "slow");
+        assertEquals(live.length(), cached.length());
+        assertEquals(live.getTotalTimeSeconds(), cached.getTotalTimeSeconds(), kDelta);
+        for (int i = 0; i < live.length(); ++i) {
+            assertEquals(live.getPoint(i).state(), cached.getPoint(i).state());
+            assertEquals(
+                    live.getPoint(i).state().velocityM_S(),
+                    cached.getPoint(i).state().velocityM_S(),
+                    kDelta);
+        }
+    }
+
+    @Test
+    void testStale() {
+        Path path = dir.resolve("trajectories.bin");
+        TrajectoryCache cache = new TrajectoryCache(Map.of("c", slow()));
+        Trajectory100 slow = cache.restToRest(waypoints, headings, "c");
+        cache.save(path);
+
+        // same name, different limits: the old entry is regenerated.
+        TrajectoryCache loaded = new TrajectoryCache(Map.of("c", fast()));
+        loaded.load(path);
+        Trajectory100 fast = loaded.restToRest(waypoints, headings, "c");
+        assertTrue(fast.getTotalTimeSeconds() < slow.getTotalTimeSeconds());
+    }
+
+    @Test
+    void testMissingFile() {
+        TrajectoryCache cache = new TrajectoryCache(Map.of("slow", slow()));
+        cache.load(dir.resolve("nothing.bin"));
+        Trajectory100 t = cache.restToRest(waypoints, headings, "slow");
+        assertTrue(t.length() > 0);
+    }
+
+    /** A file cut short is regenerated, not decoded past the end. */
+    @Test
+    void testTruncated() throws IOException {
+        Path path = dir.resolve("trajectories.bin");
+        TrajectoryCache cache = new TrajectoryCache(Map.of("slow", slow()));
+        Trajectory100 live = cache.restToRest(waypoints, headings, "slow");
+        cache.save(path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        // the index is fine, but the last point is missing
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        TrajectoryCache loaded = new TrajectoryCache(Map.of("slow", slow()));
+        loaded.load(path);
+        assertEquals(live.length(), loaded.restToRest(waypoints, headings, "slow").length());
+
+        // not even a header
+        Files.write(path, Arrays.copyOf(bytes, 6));
+        loaded = new TrajectoryCache(Map.of("slow", slow()));
+        loaded.load(path);
+        assertEquals(live.length(), loaded.restToRest(waypoints, headings, "slow").length());
+    }
+
+    /** A huge point count is regenerated, not allocated. */
+    @Test
+    void testBadCount() throws IOException {
+        Path path = dir.resolve("trajectories.bin");
+        TrajectoryCache cache = new TrajectoryCache(Map.of("slow", slow()));
+        Trajectory100 live = cache.restToRest(waypoints, headings, "slow");
+        cache.save(path);
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        assertEquals(1, buf.getInt(8));
+        // the offset of the only entry is the last thing in the index
+        int offset = buf.getInt(indexEnd(buf) - 4);
+        buf.putInt(offset, Integer.MAX_VALUE);
+        Files.write(path, buf.array());
+
+        TrajectoryCache loaded = new TrajectoryCache(Map.of("slow", slow()));
+        loaded.load(path);
+        assertEquals(live.length(), loaded.restToRest(waypoints, headings, "slow").length());
+        // and the rewritten file is good again
+        loaded.save(path);
+        TrajectoryCache reloaded = new TrajectoryCache(Map.of("slow", slow()));
+        reloaded.load(path);
+        assertEquals(live.length(), reloaded.restToRest(waypoints, headings, "slow").length());
+    }
+
+    /** Skips the header and the one key. */
+    private static int indexEnd(ByteBuffer buf) {
+        int i = 12;
+        i += 2 + buf.getShort(i);
+        i += 8;
+        i += 4 + buf.getInt(i) * 8;
+        return i + 4;
+    }
+
+    private static List<TimingConstraint> slow() {
+        return List.of(new ConstantConstraint(1, 1));
+    }
+
+    private static List<TimingConstraint> fast() {
+        return List.of(new ConstantConstraint(2, 2));
+    }
+}
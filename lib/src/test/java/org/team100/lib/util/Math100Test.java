@@ -191,4 +191,24 @@ class Math100Test {
         assertEquals(2 * Math.PI, d, kDelta);
     }
 
+    @Test
+    void testCeilingIndex() {
+        double[] a = { 0, 1, 2, 2, 3 };
+        // no hint
+        assertEquals(1, Math100.ceilingIndex(a, 0.5, 0));
+        assertEquals(2, Math100.ceilingIndex(a, 1.5, 0));
+        assertEquals(2, Math100.ceilingIndex(a, 2, 0));
+        assertEquals(4, Math100.ceilingIndex(a, 2.5, 0));
+        assertEquals(5, Math100.ceilingIndex(a, 3.5, 0));
+        // correct hint
+        assertEquals(2, Math100.ceilingIndex(a, 1.5, 2));
+        // successor of the hint
+        assertEquals(2, Math100.ceilingIndex(a, 1.5, 1));
+        // wrong hints fall back to search
+        assertEquals(1, Math100.ceilingIndex(a, 0.5, 4));
+        assertEquals(4, Math100.ceilingIndex(a, 2.5, 1));
+        assertEquals(2, Math100.ceilingIndex(a, 2, 3));
+        assertEquals(5, Math100.ceilingIndex(a, 3.5, 99));
+    }
+
 }
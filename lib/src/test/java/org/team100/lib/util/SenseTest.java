@@ -0,0 +1,83 @@
+package org.team100.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.util.Sense.Bus;
+
+class SenseTest {
+    private static final double kDelta = 0.001;
+    private int prepared = 0;
+    private double can = 0;
+    private double rio = 0;
+
+    @AfterEach
+    void reset() {
+        Sense.reset();
+    }
+
+    @Test
+    void testSnapshot() {
+        Sense.Group group = Sense.group(Bus.CAN, () -> prepared++);
+        Sense.Channel canChannel = group.add(() -> can);
+        Sense.Channel rioChannel = Sense.ofDouble(Bus.RIO, () -> rio);
+
+        // before the sense phase, channels read directly.
+        can = 1;
+        rio = 2;
+        assertEquals(1, canChannel.getAsDouble(), kDelta);
+        assertEquals(2, rioChannel.getAsDouble(), kDelta);
+        assertEquals(1, prepared);
+
+        // after, they read the snapshot
+        SensorSnapshot snapshot = Sense.sense();
+        assertEquals(2, prepared);
+        can = 3;
+        rio = 4;
+        assertEquals(1, canChannel.getAsDouble(), kDelta);
+        assertEquals(2, rioChannel.getAsDouble(), kDelta);
+        assertEquals(2, prepared);
+        assertEquals(snapshot, Sense.current());
+
+        // until the next one
+        Sense.sense();
+        assertEquals(3, prepared);
+        assertEquals(3, canChannel.getAsDouble(), kDelta);
+        assertEquals(4, rioChannel.getAsDouble(), kDelta);
+    }
+
+    /** Closing a group frees its slots for the next one. */
+    @Test
+    void testClose() {
+        Sense.Group a = Sense.group(Bus.RIO);
+        a.add(() -> 1);
+        a.add(() -> 2);
+        assertEquals(2, Sense.size());
+        a.close();
+        // closing twice does nothing
+        a.close();
+        Sense.Group b = Sense.group(Bus.CAN);
+        b.add(() -> 3);
+        b.add(() -> 4);
+        b.add(() -> 5);
+        assertEquals(3, Sense.size());
+        SensorSnapshot snapshot = Sense.sense();
+        assertEquals(3, snapshot.size());
+    }
+
+    /** A reused slot doesn't read the old sensor's value from the snapshot. */
+    @Test
+    void testReuse() {
+        Sense.Group a = Sense.group(Bus.RIO);
+        a.add(() -> 1);
+        Sense.sense();
+        a.close();
+        rio = 2;
+        Sense.Channel channel = Sense.ofDouble(Bus.RIO, () -> rio);
+        assertEquals(2, channel.getAsDouble(), kDelta);
+        Sense.sense();
+        rio = 3;
+        assertEquals(2, channel.getAsDouble(), kDelta);
+    }
+}
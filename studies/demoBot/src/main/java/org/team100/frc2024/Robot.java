@@ -15,6 +15,7 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.LoggerFactory.StringLogger;
 import org.team100.lib.util.Memo;
+import org.team100.lib.util.Sense;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.networktables.NetworkTableInstance;
@@ -91,10 +92,15 @@ public class Robot extends TimedRobot100 {
      */
     @Override
     public void robotPeriodic() {
-        // Cache instances hold measurements that we want to keep consistent
+        // Read all the sensors at once, at a predictable time, into a snapshot
+        // that stays consistent for the entire cycle.
+        Sense.sense();
+        // Cache instances hold derived values that we want to keep consistent
         // for an entire cycle, but that we want to forget between cycles, so we
         // reset them all here.
         Memo.resetAll();
+        // Experiment flags also stay consistent for the entire cycle.
+        Experiments.instance.periodic();
         CommandScheduler.getInstance().run();
         m_robotContainer.periodic();
 
@@ -0,0 +1,391 @@
+package org.team100.lib.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.team100.lib.space.Point;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Num;
+import edu.wpi.first.math.numbers.N1;
+
+/**
+ * KD Tree stored in flat arrays, so the queries don't chase pointers or make
+ * any objects.
+ *
+ * This uses the same partitioning as KDTree: each level splits the cell at its
+ * midpoint, along axis (depth % dimension), starting with the model bounds, so
+ * the shape depends only on the insertion order.
+ *
+ * States are stored in one contiguous array, stride = dimension, and the
+ * children are stored as indices; -1 means no child. The root is always index
+ * zero.
+ *
+ * Query results go in reusable buffers owned by the tree, so the tree is not
+ * thread-safe; each planner should own its trees.
+ */
+public class FlatKDTree<States extends Num, V extends Point<States>> {
+    private static final int kInitialCapacity = 1024;
+
+    private final KDModel<States> m_model;
+    private final int m_dim;
+    /** Cell bounds at the root. */
+    private final double[] m_min;
+    private final double[] m_max;
+    /** Cell bounds during traversal. */
+    private final double[] m_lo;
+    private final double[] m_hi;
+
+    private double[] m_states;
+    private Object[] m_values;
+    private int[] m_a;
+    private int[] m_b;
+    private int m_size;
+
+    // results of near()
+    private int[] m_nearIndex;
+    private double[] m_nearDist;
+    private int m_nearCount;
+
+    // scratch for nearest()
+    private int m_bestIndex;
+    private double m_bestDist;
+
+    public FlatKDTree(KDModel<States> model, V root) {
+        if (root == null)
+            throw new IllegalArgumentException("null value");
+        m_model = model;
+        m_min = model.getMin().getData().clone();
+        m_max = model.getMax().getData().clone();
+        m_dim = m_min.length;
+        m_lo = new double[m_dim];
+        m_hi = new double[m_dim];
+        m_states = new double[kInitialCapacity * m_dim];
+        m_values = new Object[kInitialCapacity];
+        m_a = new int[kInitialCapacity];
+        m_b = new int[kInitialCapacity];
+        m_nearIndex = new int[kInitialCapacity];
+        m_nearDist = new double[kInitialCapacity];
+        append(root);
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    /** Values are indexed in insertion order, until the next rebuild. */
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        return (V) m_values[index];
+    }
+
+    public V root() {
+        return get(0);
+    }
+
+    /** Returns a copy of all the values. */
+    public List<V> values() {
+        List<V> list = new ArrayList<>(m_size);
+        for (int i = 0; i < m_size; ++i) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    /** Inserts the value into the tree. */
+    public void insert(V value) {
+        int newIndex = append(value);
+        double[] v = value.getState().getData();
+        System.arraycopy(m_min, 0, m_lo, 0, m_dim);
+        System.arraycopy(m_max, 0, m_hi, 0, m_dim);
+        int n = 0;
+        for (int depth = 0;; ++depth) {
+            int axis = depth % m_dim;
+            double mp = (m_lo[axis] + m_hi[axis]) / 2;
+            if (v[axis] < mp) {
+                // a-side
+                if (m_a[n] < 0) {
+                    m_a[n] = newIndex;
+                    return;
+                }
+                m_hi[axis] = mp;
+                n = m_a[n];
+            } else {
+                // b-side
+                if (m_b[n] < 0) {
+                    m_b[n] = newIndex;
+                    return;
+                }
+                m_lo[axis] = mp;
+                n = m_b[n];
+            }
+        }
+    }
+
+    /** Inserts all the values, growing the storage only once. */
+    public void addAll(Collection<? extends V> values) {
+        ensureCapacity(m_size + values.size());
+        for (V value : values) {
+            insert(value);
+        }
+    }
+
+    /**
+     * Rebuilds the tree in breadth-first order, so that the top levels, which
+     * every query visits, are adjacent in memory, and trims the storage.
+     *
+     * Because the cells are split at their midpoints, and not at the median
+     * value, reinserting in breadth-first order produces exactly the same
+     * partition; the depth of the tree is set by the density of the states, not
+     * by the order, so there's nothing to rebalance. Indices from get() are
+     * invalid after a rebuild.
+     */
+    public void rebuild() {
+        Object[] order = new Object[m_size];
+        int[] queue = new int[m_size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int n = queue[head];
+            order[head++] = m_values[n];
+            if (m_a[n] >= 0)
+                queue[tail++] = m_a[n];
+            if (m_b[n] >= 0)
+                queue[tail++] = m_b[n];
+        }
+        int size = m_size;
+        m_size = 0;
+        resize(Math.max(size, 1));
+        append(cast(order[0]));
+        for (int i = 1; i < size; ++i) {
+            insert(cast(order[i]));
+        }
+    }
+
+    /**
+     * Finds the value closest to the target, using the model metric.
+     *
+     * @return index of the nearest value, see get() and nearestDist()
+     */
+    public int nearest(Matrix<States, N1> target) {
+        return nearest(target.getData());
+    }
+
+    /** @return index of the nearest value, see get() and nearestDist() */
+    public int nearest(double[] target) {
+        m_bestIndex = -1;
+        m_bestDist = Double.MAX_VALUE;
+        System.arraycopy(m_min, 0, m_lo, 0, m_dim);
+        System.arraycopy(m_max, 0, m_hi, 0, m_dim);
+        nearest(0, target, 0);
+        return m_bestIndex;
+    }
+
+    /** Distance to the result of the last nearest() call. */
+    public double nearestDist() {
+        return m_bestDist;
+    }
+
+    /**
+     * Finds the k values closest to the target, using the model metric, in
+     * order of increasing distance.
+     *
+     * @param index output indices, length at least k
+     * @param dist  output distances, length at least k
+     * @return the number of results, which is less than k if the tree is small.
+     */
+    public int kNearest(double[] target, int k, int[] index, double[] dist) {
+        if (k <= 0)
+            return 0;
+        System.arraycopy(m_min, 0, m_lo, 0, m_dim);
+        System.arraycopy(m_max, 0, m_hi, 0, m_dim);
+        return kNearest(0, target, 0, k, index, dist, 0);
+    }
+
+    /**
+     * Finds all the values within the radius of the target, using the model
+     * metric, in no particular order.
+     *
+     * The results are valid until the next call, see nearValue() and nearDist().
+     *
+     * @return the number of results
+     */
+    public int near(Matrix<States, N1> target, double radius) {
+        return near(target.getData(), radius);
+    }
+
+    /** @return the number of results, see nearValue() and nearDist() */
+    public int near(double[] target, double radius) {
+        m_nearCount = 0;
+        System.arraycopy(m_min, 0, m_lo, 0, m_dim);
+        System.arraycopy(m_max, 0, m_hi, 0, m_dim);
+        near(0, target, radius, 0);
+        return m_nearCount;
+    }
+
+    /** The i-th result of the last near() call. */
+    public V nearValue(int i) {
+        return get(m_nearIndex[i]);
+    }
+
+    /** Distance of the i-th result of the last near() call. */
+    public double nearDist(int i) {
+        return m_nearDist[i];
+    }
+
+    @Override
+    public String toString() {
+        return "FlatKDTree [size=" + m_size + ", root=" + root() + "]";
+    }
+
+    ///////////////////////////////////////////////////////
+
+    private void nearest(int n, double[] target, int depth) {
+        final int axis = depth % m_dim;
+        final double d = m_model.dist(m_states, n * m_dim, target);
+        if (d < m_bestDist) {
+            m_bestDist = d;
+            m_bestIndex = n;
+        }
+        final double mp = (m_lo[axis] + m_hi[axis]) / 2;
+        final double dm = Math.abs(mp - target[axis]);
+        final int a = m_a[n];
+        final int b = m_b[n];
+        if (target[axis] < mp) {
+            if (a >= 0)
+                nearestA(a, target, depth, axis, mp);
+            if (b >= 0 && dm < m_bestDist)
+                nearestB(b, target, depth, axis, mp);
+        } else {
+            if (b >= 0)
+                nearestB(b, target, depth, axis, mp);
+            if (a >= 0 && dm < m_bestDist)
+                nearestA(a, target, depth, axis, mp);
+        }
+    }
+
+    private void nearestA(int a, double[] target, int depth, int axis, double mp) {
+        double tmp = m_hi[axis];
+        m_hi[axis] = mp;
+        nearest(a, target, depth + 1);
+        m_hi[axis] = tmp;
+    }
+
+    private void nearestB(int b, double[] target, int depth, int axis, double mp) {
+        double tmp = m_lo[axis];
+        m_lo[axis] = mp;
+        nearest(b, target, depth + 1);
+        m_lo[axis] = tmp;
+    }
+
+    /** @return the new count */
+    private int kNearest(int n, double[] target, int depth, int k, int[] index, double[] dist, int count) {
+        final int axis = depth % m_dim;
+        final double d = m_model.dist(m_states, n * m_dim, target);
+        if (count < k || d < dist[count - 1]) {
+            // insertion sort; k is small.
+            int i = count < k ? count++ : count - 1;
+            while (i > 0 && dist[i - 1] > d) {
+                dist[i] = dist[i - 1];
+                index[i] = index[i - 1];
+                --i;
+            }
+            dist[i] = d;
+            index[i] = n;
+        }
+        final double mp = (m_lo[axis] + m_hi[axis]) / 2;
+        final double dm = Math.abs(mp - target[axis]);
+        final int a = m_a[n];
+        final int b = m_b[n];
+        final boolean aFirst = target[axis] < mp;
+        for (int side = 0; side < 2; ++side) {
+            boolean isA = (side == 0) == aFirst;
+            int child = isA ? a : b;
+            if (child < 0)
+                continue;
+            // the near side is always searched, the far side only if it might
+            // hold something better.
+            if (side == 1 && count == k && dm >= dist[count - 1])
+                continue;
+            if (isA) {
+                double tmp = m_hi[axis];
+                m_hi[axis] = mp;
+                count = kNearest(child, target, depth + 1, k, index, dist, count);
+                m_hi[axis] = tmp;
+            } else {
+                double tmp = m_lo[axis];
+                m_lo[axis] = mp;
+                count = kNearest(child, target, depth + 1, k, index, dist, count);
+                m_lo[axis] = tmp;
+            }
+        }
+        return count;
+    }
+
+    private void near(int n, double[] target, double radius, int depth) {
+        final double d = m_model.dist(m_states, n * m_dim, target);
+        if (d < radius) {
+            if (m_nearCount == m_nearIndex.length) {
+                m_nearIndex = Arrays.copyOf(m_nearIndex, m_nearCount * 2);
+                m_nearDist = Arrays.copyOf(m_nearDist, m_nearCount * 2);
+            }
+            m_nearIndex[m_nearCount] = n;
+            m_nearDist[m_nearCount] = d;
+            m_nearCount++;
+        }
+        final int axis = depth % m_dim;
+        final double mp = (m_lo[axis] + m_hi[axis]) / 2;
+        final double dm = Math.abs(mp - target[axis]);
+
+        final int a = m_a[n];
+        if (a >= 0 && (target[axis] < mp || dm < radius)) {
+            // in or near a-side
+            double tmp = m_hi[axis];
+            m_hi[axis] = mp;
+            near(a, target, radius, depth + 1);
+            m_hi[axis] = tmp;
+        }
+
+        final int b = m_b[n];
+        if (b >= 0 && (mp <= target[axis] || dm < radius)) {
+            // in or near b-side
+            double tmp = m_lo[axis];
+            m_lo[axis] = mp;
+            near(b, target, radius, depth + 1);
+            m_lo[axis] = tmp;
+        }
+    }
+
+    /** Adds the value to the storage, without linking it into the tree. */
+    private int append(V value) {
+        ensureCapacity(m_size + 1);
+        int i = m_size;
+        System.arraycopy(value.getState().getData(), 0, m_states, i * m_dim, m_dim);
+        m_values[i] = value;
+        m_a[i] = -1;
+        m_b[i] = -1;
+        m_size++;
+        return i;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= m_values.length)
+            return;
+        resize(Math.max(capacity, m_values.length * 2));
+    }
+
+    private void resize(int capacity) {
+        m_states = Arrays.copyOf(m_states, capacity * m_dim);
+        m_values = Arrays.copyOf(m_values, capacity);
+        m_a = Arrays.copyOf(m_a, capacity);
+        m_b = Arrays.copyOf(m_b, capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object o) {
+        return (V) o;
+    }
+}
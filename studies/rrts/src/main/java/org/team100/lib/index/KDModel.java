@@ -1,5 +1,8 @@
 package org.team100.lib.index;
 
+import java.util.Arrays;
+
+import org.ejml.simple.SimpleMatrix;
 import org.team100.lib.graph.Node;
 
 import edu.wpi.first.math.Matrix;
@@ -19,6 +22,21 @@ public interface KDModel<States extends Num> {
      */
     double dist(Matrix<States, N1> start, Matrix<States, N1> end);
 
+    /**
+     * Distance, i.e. cost, from the state stored in the flat array at the
+     * offset, to the target. This is used by FlatKDTree for every node it
+     * visits, so models should override it with primitive math; the default
+     * makes a matrix.
+     * 
+     * @return cost
+     */
+    default double dist(double[] states, int offset, double[] end) {
+        double[] start = Arrays.copyOfRange(states, offset, offset + end.length);
+        return dist(
+                new Matrix<>(new SimpleMatrix(end.length, 1, true, start)),
+                new Matrix<>(new SimpleMatrix(end.length, 1, true, end)));
+    }
+
     void setStepNo(int stepNo);
 
     void setRadius(double radius);
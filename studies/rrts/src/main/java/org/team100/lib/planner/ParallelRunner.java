@@ -0,0 +1,123 @@
+package org.team100.lib.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.team100.lib.graph.Node;
+import org.team100.lib.space.Path;
+import org.team100.lib.space.SinglePath;
+
+import edu.wpi.first.math.Num;
+
+/**
+ * Runs several independent solvers at once, on a fork-join pool, for the same
+ * time or samples, and keeps the best path any of them finds.
+ *
+ * Each solver gets its own random seed, so the searches are different, and
+ * they all share one SharedBest, so each can prune against the best cost found
+ * by any of them.
+ *
+ * The solvers must not share any mutable state, so the factory should make a
+ * new model and new trees for each one.
+ */
+public class ParallelRunner<States extends Num> {
+    private final ForkJoinPool _pool;
+    private final SharedBest<States> _best;
+    private final List<Solver<States>> _solvers;
+    private final List<Runner<States>> _runners;
+
+    /**
+     * @param factory makes a solver from a random seed
+     * @param n       number of solvers, usually the number of cores
+     * @param seed    for the solver seeds
+     */
+    public ParallelRunner(IntFunction<Solver<States>> factory, int n, int seed) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("invalid solver count, must be > 0");
+        }
+        _pool = new ForkJoinPool(n);
+        _best = new SharedBest<>();
+        _solvers = new ArrayList<>();
+        _runners = new ArrayList<>();
+        Random seeds = new Random(seed);
+        for (int i = 0; i < n; ++i) {
+            Solver<States> solver = factory.apply(seeds.nextInt());
+            solver.setShared(_best);
+            _solvers.add(solver);
+            _runners.add(new Runner<>(solver));
+        }
+    }
+
+    /** Uses all the available cores. */
+    public ParallelRunner(IntFunction<Solver<States>> factory, int seed) {
+        this(factory, Runtime.getRuntime().availableProcessors(), seed);
+    }
+
+    public void runForDurationMS(long milliseconds) {
+        if (milliseconds <= 0) {
+            throw new IllegalArgumentException("invalid duration, must be > 0");
+        }
+        runAll(r -> r.runForDurationMS(milliseconds));
+    }
+
+    public void runSamples(int samples) {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("invalid sample count, must be > 0");
+        }
+        runAll(r -> r.runSamples(samples));
+    }
+
+    public int size() {
+        return _solvers.size();
+    }
+
+    /** For listeners. */
+    public List<Node<States>> getNodesA() {
+        List<Node<States>> allNodes = new ArrayList<>();
+        for (Solver<States> solver : _solvers) {
+            allNodes.addAll(solver.getNodesA());
+        }
+        return allNodes;
+    }
+
+    /** For listeners. */
+    public List<Node<States>> getNodesB() {
+        List<Node<States>> allNodes = new ArrayList<>();
+        for (Solver<States> solver : _solvers) {
+            allNodes.addAll(solver.getNodesB());
+        }
+        return allNodes;
+    }
+
+    /** The best path found by any solver, or null. */
+    public Path<States> getBestPath() {
+        return _best.getBestPath();
+    }
+
+    /** The best path found by any solver, or null. */
+    public SinglePath<States> getBestSinglePath() {
+        return _best.getBestSinglePath();
+    }
+
+    /** Releases the pool threads. */
+    public void close() {
+        _pool.shutdown();
+    }
+
+    /////////////////////////////////////////
+
+    private void runAll(Consumer<Runner<States>> task) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Runner<States> runner : _runners) {
+            tasks.add(_pool.submit(() -> task.accept(runner)));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
+        }
+    }
+}
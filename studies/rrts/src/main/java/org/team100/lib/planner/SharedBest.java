@@ -0,0 +1,84 @@
+package org.team100.lib.planner;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.team100.lib.space.Path;
+import org.team100.lib.space.SinglePath;
+
+import edu.wpi.first.math.Num;
+
+/**
+ * The best paths found by any of a set of solvers running in parallel.
+ *
+ * Solvers offer each path they find; only shorter paths replace the current
+ * best. The best cost so far is available as a bound: a solver can reject any
+ * sample whose lower-bound cost is worse, since it can't lead to a better path.
+ *
+ * This is lock-free, so the solvers never wait for each other.
+ */
+public class SharedBest<States extends Num> {
+    private final AtomicReference<Path<States>> _path;
+    private final AtomicReference<SinglePath<States>> _singlePath;
+    /** Bits of the lowest cost of either kind of path. */
+    private final AtomicLong _bound;
+
+    public SharedBest() {
+        _path = new AtomicReference<>();
+        _singlePath = new AtomicReference<>();
+        _bound = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+    }
+
+    /** @return true if the path is the new best. */
+    public boolean offer(Path<States> path) {
+        double distance = path.getDistance();
+        while (true) {
+            Path<States> best = _path.get();
+            if (best != null && best.getDistance() <= distance)
+                return false;
+            if (_path.compareAndSet(best, path)) {
+                lowerBound(distance);
+                return true;
+            }
+        }
+    }
+
+    /** @return true if the path is the new best. */
+    public boolean offer(SinglePath<States> path) {
+        double distance = path.getDistance();
+        while (true) {
+            SinglePath<States> best = _singlePath.get();
+            if (best != null && best.getDistance() <= distance)
+                return false;
+            if (_singlePath.compareAndSet(best, path)) {
+                lowerBound(distance);
+                return true;
+            }
+        }
+    }
+
+    /** The best path so far, or null. */
+    public Path<States> getBestPath() {
+        return _path.get();
+    }
+
+    /** The best path so far, or null. */
+    public SinglePath<States> getBestSinglePath() {
+        return _singlePath.get();
+    }
+
+    /** The cost of the best path so far, or Double.MAX_VALUE if there isn't one. */
+    public double bound() {
+        return Double.longBitsToDouble(_bound.get());
+    }
+
+    private void lowerBound(double distance) {
+        while (true) {
+            long bits = _bound.get();
+            if (Double.longBitsToDouble(bits) <= distance)
+                return;
+            if (_bound.compareAndSet(bits, Double.doubleToLongBits(distance)))
+                return;
+        }
+    }
+}
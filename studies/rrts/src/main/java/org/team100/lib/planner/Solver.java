@@ -26,4 +26,12 @@ public interface Solver<States extends Num> {
     /** The best path so far, or null if no path spans the start and end states. */
     Path<States> getBestPath();
     SinglePath<States> getBestSinglePath();
+
+    /**
+     * Share paths, and the best cost, with other solvers running in parallel.
+     * Solvers that don't support sharing can ignore this.
+     */
+    default void setShared(SharedBest<States> shared) {
+        //
+    }
 }
@@ -0,0 +1,55 @@
+package org.team100.lib.rrt;
+
+import java.util.function.ToDoubleBiFunction;
+
+import org.team100.lib.planner.SharedBest;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N4;
+
+/**
+ * Branch and bound for the bidirectional bang-bang planners, RRTStar7 and
+ * RRTStar8.
+ */
+final class BranchAndBound {
+
+    /**
+     * True if no path through x_rand can beat the best path found by any solver.
+     * 
+     * Any path from the initial state through x_rand to the goal takes at least
+     * the optimal time from the initial state to x_rand, plus the optimal time
+     * from x_rand to the goal, since those ignore obstacles. The cost through
+     * the tree isn't a lower bound: the tree path to the nearest node can be
+     * worse than what rewiring finds later.
+     * 
+     * @param shared      may be null, in which case nothing is pruned
+     * @param tOptimal    optimal time from the first state to the second
+     * @param root_A      root of the tree being extended
+     * @param root_B      root of the other tree
+     * @param x_rand      the sample
+     * @param timeForward true if tree A is rooted at the initial state
+     */
+    static boolean prune(
+            SharedBest<N4> shared,
+            ToDoubleBiFunction<Matrix<N4, N1>, Matrix<N4, N1>> tOptimal,
+            Matrix<N4, N1> root_A,
+            Matrix<N4, N1> root_B,
+            Matrix<N4, N1> x_rand,
+            boolean timeForward) {
+        if (shared == null)
+            return false;
+        double bound = shared.bound();
+        if (bound == Double.MAX_VALUE)
+            return false;
+        Matrix<N4, N1> x_init = timeForward ? root_A : root_B;
+        Matrix<N4, N1> x_goal = timeForward ? root_B : root_A;
+        double lowerBound = tOptimal.applyAsDouble(x_init, x_rand)
+                + tOptimal.applyAsDouble(x_rand, x_goal);
+        return lowerBound >= bound;
+    }
+
+    private BranchAndBound() {
+        //
+    }
+}
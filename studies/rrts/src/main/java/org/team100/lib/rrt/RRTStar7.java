@@ -16,8 +16,8 @@ import org.team100.lib.graph.LocalLink;
 import org.team100.lib.graph.NearNode;
 import org.team100.lib.graph.Node;
 import org.team100.lib.index.KDNearNode;
-import org.team100.lib.index.KDNode;
-import org.team100.lib.index.KDTree;
+import org.team100.lib.index.FlatKDTree;
+import org.team100.lib.planner.SharedBest;
 import org.team100.lib.planner.Solver;
 import org.team100.lib.random.MersenneTwister;
 import org.team100.lib.space.Path;
@@ -52,18 +52,20 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
     private final Random random = new MersenneTwister(new Random().nextInt());
 
     /** Initially, tree grown from initial, but is swapped repeatedly */
-    private KDNode<Node<N4>> _T_a;
+    private FlatKDTree<N4, Node<N4>> _T_a;
     /** Initially, tree grown from goal, but is swapped repeatedly */
-    private KDNode<Node<N4>> _T_b;
+    private FlatKDTree<N4, Node<N4>> _T_b;
 
     // mutable loop variables to make the loop code cleaner
     private double radius;
 
     private SinglePath<N4> _single_sigma_best;
+    /** Shared with other solvers running in parallel, may be null. */
+    private SharedBest<N4> _shared;
 
     static boolean PARTIAL = true;
 
-    public RRTStar7(T model, Sample<N4> sample, KDNode<Node<N4>> T_a, KDNode<Node<N4>> T_b) {
+    public RRTStar7(T model, Sample<N4> sample, FlatKDTree<N4, Node<N4>> T_a, FlatKDTree<N4, Node<N4>> T_b) {
         _model = model;
         _sample = sample;
         _T_a = T_a;
@@ -84,11 +86,18 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
             System.out.println("step");
         int edges = 0;
 
-        boolean timeForward = same(_T_a.getValue().getState(), _model.initial());
+        boolean timeForward = same(_T_a.root().getState(), _model.initial());
 
         // alpha
         Matrix<N4, N1> x_rand = SampleState();
 
+        if (BranchAndBound.prune(_shared, (a, b) -> tOptimal(a, b, MAX_U),
+                _T_a.root().getState(), _T_b.root().getState(), x_rand, timeForward)) {
+            if (DEBUG)
+                System.out.println("pruned");
+            return 0;
+        }
+
         // x_n
         KDNearNode<Node<N4>> x_nearestA = BangBangNearest(x_rand, _T_a, timeForward);
         if (x_nearestA == null) {
@@ -372,6 +381,8 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
                         _single_sigma_best = sp;
                     }
                 }
+                if (_shared != null)
+                    _shared.offer(sp);
                 // bail so that we can stop looking
                 return -1;
             }
@@ -381,8 +392,13 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
         return edges;
     }
 
+    @Override
+    public void setShared(SharedBest<N4> shared) {
+        _shared = shared;
+    }
+
     public void SwapTrees() {
-        KDNode<Node<N4>> tmp = _T_a;
+        FlatKDTree<N4, Node<N4>> tmp = _T_a;
         _T_a = _T_b;
         _T_b = tmp;
     }
@@ -486,8 +502,8 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
             System.out.println("p2 " + p_2);
         // either p_1 or p_2 are the initial tree
         //
-        // boolean root1 = same(_T_a.getValue().getState(), p_1.getRoot());
-        boolean root1 = same(_T_a.getValue().getState(), p_1.getFirstLink().x_i);
+        // boolean root1 = same(_T_a.root().getState(), p_1.getRoot());
+        boolean root1 = same(_T_a.root().getState(), p_1.getFirstLink().x_i);
         if (!root1) {
             // swap them
             SinglePath<N4> tmp = p_1;
@@ -535,30 +551,31 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
      * nodes are swapped.
      * 
      * @param xNew     the goal state (x xdot y ydot)
-     * @param rootNode the tree to look through
+     * @param tree     the tree to look through
      * @return the nearest node, which will be earlier than xNew if time is forward,
      *         and later if time is reversed.
      */
-    KDNearNode<Node<N4>> BangBangNearest(Matrix<N4, N1> xNew, KDNode<Node<N4>> rootNode, boolean timeForward) {
-        // For now, use the Near function, which uses the "radius". Maybe
+    KDNearNode<Node<N4>> BangBangNearest(Matrix<N4, N1> xNew, FlatKDTree<N4, Node<N4>> tree, boolean timeForward) {
+        // For now, use the radius query, which uses the "radius". Maybe
         // it would be better to choose top-N-near, or use a different radius,
         // or whatever.
-        ArrayList<NearNode<N4>> nodes = Near(xNew, rootNode);
+        int count = tree.near(xNew, radius);
         double tMin = Double.MAX_VALUE;
         Node<N4> bestNode = null;
-        for (NearNode<N4> node : nodes) {
+        for (int i = 0; i < count; ++i) {
+            Node<N4> node = tree.nearValue(i);
             // rescore each node.
             double tOptimal;
             if (timeForward) {
                 // time forward means xNew is in the future
-                tOptimal = tOptimal(node.node.getState(), xNew, MAX_U);
+                tOptimal = tOptimal(node.getState(), xNew, MAX_U);
             } else {
                 // time backward means xNew is in the past
-                tOptimal = tOptimal(xNew, node.node.getState(), MAX_U);
+                tOptimal = tOptimal(xNew, node.getState(), MAX_U);
             }
             if (tOptimal < tMin) {
                 tMin = tOptimal;
-                bestNode = node.node;
+                bestNode = node;
             }
         }
         if (tMin == Double.MAX_VALUE) {
@@ -1289,30 +1306,33 @@ public class RRTStar7<T extends Arena<N4>> implements Solver<N4> {
      * Return a list of nearby nodes, using the KDTree metric, which may not
      * actually contain the nearest nodes in non-Euclidean spaces.
      */
-    ArrayList<NearNode<N4>> Near(Matrix<N4, N1> x_new, KDNode<Node<N4>> rootNode) {
-        ArrayList<NearNode<N4>> nearNodes = new ArrayList<>();
-        KDTree.near(_model, rootNode, x_new, radius, (node, dist) -> nearNodes.add(new NearNode<>(node, dist)));
+    ArrayList<NearNode<N4>> Near(Matrix<N4, N1> x_new, FlatKDTree<N4, Node<N4>> tree) {
+        int count = tree.near(x_new, radius);
+        ArrayList<NearNode<N4>> nearNodes = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            nearNodes.add(new NearNode<>(tree.nearValue(i), tree.nearDist(i)));
+        }
         return nearNodes;
     }
 
     /** Add the node link.target to the tree, with an edge from source to target. */
-    Node<N4> InsertNode(LocalLink<N4> link, KDNode<Node<N4>> rootNode) {
+    Node<N4> InsertNode(LocalLink<N4> link, FlatKDTree<N4, Node<N4>> tree) {
         Graph.newLink(link.get_source(), link.get_target(), link.get_linkDist());
-        KDTree.insert(_model, rootNode, link.get_target());
+        tree.insert(link.get_target());
         return link.get_target();
     }
 
     @Override
     public List<Node<N4>> getNodesA() {
         ArrayList<Node<N4>> allNodes = new ArrayList<>();
-        allNodes.addAll(KDTree.values(_T_a));
+        allNodes.addAll(_T_a.values());
         return allNodes;
     }
 
     @Override
     public List<Node<N4>> getNodesB() {
         ArrayList<Node<N4>> allNodes = new ArrayList<>();
-        allNodes.addAll(KDTree.values(_T_b));
+        allNodes.addAll(_T_b.values());
         return allNodes;
     }
 
@@ -21,9 +21,9 @@ import org.team100.lib.graph.LocalLink;
 import org.team100.lib.graph.NearNode;
 import org.team100.lib.graph.Node;
 import org.team100.lib.index.KDNearNode;
-import org.team100.lib.index.KDNode;
-import org.team100.lib.index.KDTree;
+import org.team100.lib.index.FlatKDTree;
 import org.team100.lib.math.ShootingSolver;
+import org.team100.lib.planner.SharedBest;
 import org.team100.lib.planner.Solver;
 import org.team100.lib.random.MersenneTwister;
 import org.team100.lib.space.Path;
@@ -85,9 +85,9 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
     private final Matrix<N4, N1> max;
 
     /** Initially, tree grown from initial, but is swapped repeatedly */
-    private KDNode<Node<N4>> _T_a;
+    private FlatKDTree<N4, Node<N4>> _T_a;
     /** Initially, tree grown from goal, but is swapped repeatedly */
-    private KDNode<Node<N4>> _T_b;
+    private FlatKDTree<N4, Node<N4>> _T_b;
 
     // mutable loop variables to make the loop code cleaner
     private int stepNo;
@@ -95,8 +95,10 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
     // TODO remove
     private Path<N4> _sigma_best;
     private SinglePath<N4> _single_sigma_best;
+    /** Shared with other solvers running in parallel, may be null. */
+    private SharedBest<N4> _shared;
 
-    public RRTStar8(T model, Sample<N4> sample, double gamma, KDNode<Node<N4>> T_a, KDNode<Node<N4>> T_b) {
+    public RRTStar8(T model, Sample<N4> sample, double gamma, FlatKDTree<N4, Node<N4>> T_a, FlatKDTree<N4, Node<N4>> T_b) {
         if (gamma < 1.0) {
             throw new IllegalArgumentException("invalid gamma, must be >= 1.0");
         }
@@ -143,11 +145,15 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
             System.out.println("step");
         int edges = 0;
 
-        boolean timeForward = same(_T_a.getValue().getState(), _model.initial());
+        boolean timeForward = same(_T_a.root().getState(), _model.initial());
 
         // alpha
         Matrix<N4, N1> x_rand = SampleState();
 
+        if (BranchAndBound.prune(_shared, (a, b) -> tOptimal(a, b, MAX_U),
+                _T_a.root().getState(), _T_b.root().getState(), x_rand, timeForward))
+            return 0;
+
         // x_n
         KDNearNode<Node<N4>> x_nearestA = BangBangNearest(x_rand, _T_a, timeForward);
         if (x_nearestA == null)
@@ -326,6 +332,8 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
                         _sigma_best = p;
                     }
                 }
+                if (_shared != null)
+                    _shared.offer(p);
                 // TODO replace above with this
                 SinglePath<N4> sp = GenerateSinglePath(freeEndA, freeEndB);
                 if (_single_sigma_best == null) {
@@ -337,6 +345,8 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
                         _single_sigma_best = sp;
                     }
                 }
+                if (_shared != null)
+                    _shared.offer(sp);
 
                 // bail so that we can stop looking
                 return -1;
@@ -420,8 +430,13 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
         return edges;
     }
 
+    @Override
+    public void setShared(SharedBest<N4> shared) {
+        _shared = shared;
+    }
+
     public void SwapTrees() {
-        KDNode<Node<N4>> tmp = _T_a;
+        FlatKDTree<N4, Node<N4>> tmp = _T_a;
         _T_a = _T_b;
         _T_b = tmp;
     }
@@ -537,8 +552,8 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
             System.out.println("p2 " + p_2);
         // either p_1 or p_2 are the initial tree
         //
-        // boolean root1 = same(_T_a.getValue().getState(), p_1.getRoot());
-        boolean root1 = same(_T_a.getValue().getState(), p_1.getFirstLink().x_i);
+        // boolean root1 = same(_T_a.root().getState(), p_1.getRoot());
+        boolean root1 = same(_T_a.root().getState(), p_1.getFirstLink().x_i);
         if (!root1) {
             // swap them
             SinglePath<N4> tmp = p_1;
@@ -601,26 +616,27 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
      * nodes are swapped.
      * 
      * @param xNew     the goal state (x xdot y ydot)
-     * @param rootNode the tree to look through
+     * @param tree     the tree to look through
      */
-    KDNearNode<Node<N4>> BangBangNearest(Matrix<N4, N1> xNew, KDNode<Node<N4>> rootNode, boolean timeForward) {
-        // For now, use the Near function, which uses the "radius". Maybe
+    KDNearNode<Node<N4>> BangBangNearest(Matrix<N4, N1> xNew, FlatKDTree<N4, Node<N4>> tree, boolean timeForward) {
+        // For now, use the radius query, which uses the "radius". Maybe
         // it would be better to choose top-N-near, or use a different radius,
         // or whatever.
-        ArrayList<NearNode<N4>> nodes = Near(xNew, rootNode);
+        int count = tree.near(xNew, radius);
         double tMin = Double.MAX_VALUE;
         Node<N4> bestNode = null;
-        for (NearNode<N4> node : nodes) {
+        for (int i = 0; i < count; ++i) {
+            Node<N4> node = tree.nearValue(i);
             // rescore each node.
             double tOptimal;
             if (timeForward) {
-                tOptimal = tOptimal(node.node.getState(), xNew, MAX_U);
+                tOptimal = tOptimal(node.getState(), xNew, MAX_U);
             } else {
-                tOptimal = tOptimal(xNew, node.node.getState(), MAX_U);
+                tOptimal = tOptimal(xNew, node.getState(), MAX_U);
             }
             if (tOptimal < tMin) {
                 tMin = tOptimal;
-                bestNode = node.node;
+                bestNode = node;
             }
         }
         if (tMin == Double.MAX_VALUE)
@@ -924,10 +940,9 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
             if (DEBUG)
                 System.out.println("sample");
             // applied to a random point in the tree
-            List<Node<N4>> nodes = KDTree.values(_T_a);
-            int nodect = nodes.size();
+            int nodect = _T_a.size();
             int nodeidx = random.nextInt(nodect);
-            Node<N4> node_rand = nodes.get(nodeidx);
+            Node<N4> node_rand = _T_a.get(nodeidx);
             // persuade the tree to be longer
             if (node_rand.getOutgoingCount() >= MAX_CHILDREN) {
                 // maybe add anyway?
@@ -1022,20 +1037,21 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
                 // for now just use Euclidean distance.
                 // note this will find the parent so make sure the step
                 // size is larger than the buffer size
-                KDNearNode<Node<N4>> n = KDTree.nearest(_model, _T_a, newConfig);
-                if (n != null) {
+                int nearest = _T_a.nearest(newConfig);
+                if (nearest >= 0) {
+                    Matrix<N4, N1> n = _T_a.get(nearest).getState();
                     // look only at spatial dimensions; it's ok for there to be lots of
                     // points at the same velocity.
-                    double newDist = Math.sqrt(Math.pow(x_new1 - n._nearest.getState().get(0, 0), 2) +
-                            Math.pow(x_new3 - n._nearest.getState().get(2, 0), 2));
+                    double newDist = Math.sqrt(Math.pow(x_new1 - n.get(0, 0), 2) +
+                            Math.pow(x_new3 - n.get(2, 0), 2));
                     if (newDist < BUFFER) {
                         if (DEBUG)
                             System.out.printf(
                                     "reject conflict from %s to %s old [%5.3f %5.3f %5.3f %5.3f] d %5.3f\n",
                                     Util.matStr(xxx),
                                     Util.matStr(newxxx),
-                                    n._nearest.getState().get(0, 0), n._nearest.getState().get(1, 0),
-                                    n._nearest.getState().get(2, 0), n._nearest.getState().get(3, 0),
+                                    n.get(0, 0), n.get(1, 0),
+                                    n.get(2, 0), n.get(3, 0),
                                     newDist);
                         continue;
                     }
@@ -1618,9 +1634,12 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
      * Return a list of nearby nodes, using the KDTree metric, which may not
      * actually contain the nearest nodes in non-Euclidean spaces.
      */
-    ArrayList<NearNode<N4>> Near(Matrix<N4, N1> x_new, KDNode<Node<N4>> rootNode) {
-        ArrayList<NearNode<N4>> nearNodes = new ArrayList<>();
-        KDTree.near(_model, rootNode, x_new, radius, (node, dist) -> nearNodes.add(new NearNode<>(node, dist)));
+    ArrayList<NearNode<N4>> Near(Matrix<N4, N1> x_new, FlatKDTree<N4, Node<N4>> tree) {
+        int count = tree.near(x_new, radius);
+        ArrayList<NearNode<N4>> nearNodes = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            nearNodes.add(new NearNode<>(tree.nearValue(i), tree.nearDist(i)));
+        }
         return nearNodes;
     }
 
@@ -1642,9 +1661,9 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
     }
 
     /** Add the node link.target to the tree, with an edge from source to target. */
-    Node<N4> InsertNode(LocalLink<N4> link, KDNode<Node<N4>> rootNode) {
+    Node<N4> InsertNode(LocalLink<N4> link, FlatKDTree<N4, Node<N4>> tree) {
         Graph.newLink(link.get_source(), link.get_target(), link.get_linkDist());
-        KDTree.insert(_model, rootNode, link.get_target());
+        tree.insert(link.get_target());
         return link.get_target();
     }
 
@@ -1683,14 +1702,14 @@ public class RRTStar8<T extends Arena<N4>> implements Solver<N4> {
     @Override
     public List<Node<N4>> getNodesA() {
         ArrayList<Node<N4>> allNodes = new ArrayList<>();
-        allNodes.addAll(KDTree.values(_T_a));
+        allNodes.addAll(_T_a.values());
         return allNodes;
     }
 
     @Override
     public List<Node<N4>> getNodesB() {
         ArrayList<Node<N4>> allNodes = new ArrayList<>();
-        allNodes.addAll(KDTree.values(_T_b));
+        allNodes.addAll(_T_b.values());
         return allNodes;
     }
 
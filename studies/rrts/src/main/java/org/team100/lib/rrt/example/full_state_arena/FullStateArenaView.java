@@ -27,7 +27,7 @@ import org.team100.lib.example.Arena;
 import org.team100.lib.geom.Obstacle;
 import org.team100.lib.graph.LinkInterface;
 import org.team100.lib.graph.Node;
-import org.team100.lib.index.KDNode;
+import org.team100.lib.index.FlatKDTree;
 import org.team100.lib.planner.Runner;
 import org.team100.lib.random.MersenneTwister;
 import org.team100.lib.rrt.RRTStar7;
@@ -54,10 +54,10 @@ public class FullStateArenaView extends JComponent {
 
     private final NumberFormat _integerFormat = NumberFormat.getIntegerInstance();
 
-    private KDNode<Node<N4>> _T_a;
-    private KDNode<Node<N4>> _T_b;
+    private FlatKDTree<N4, Node<N4>> _T_a;
+    private FlatKDTree<N4, Node<N4>> _T_b;
 
-    public FullStateArenaView(Arena<N4> arena, Runner<N4> rrtStar, KDNode<Node<N4>> T_a, KDNode<Node<N4>> T_b) {
+    public FullStateArenaView(Arena<N4> arena, Runner<N4> rrtStar, FlatKDTree<N4, Node<N4>> T_a, FlatKDTree<N4, Node<N4>> T_b) {
         _rrtStar = rrtStar;
         _robotModel = arena;
         _T_a = T_a;
@@ -77,8 +77,8 @@ public class FullStateArenaView extends JComponent {
 
     public static void run(int ii, JFrame frame) throws InterruptedException, InvocationTargetException {
         final FullStateHolonomicArena arena = new FullStateHolonomicArena(ii);
-        KDNode<Node<N4>> T_a = new KDNode<>(new Node<>(arena.initial()));
-        KDNode<Node<N4>> T_b = new KDNode<>(new Node<>(arena.goal()));
+        FlatKDTree<N4, Node<N4>> T_a = new FlatKDTree<>(arena, new Node<>(arena.initial()));
+        FlatKDTree<N4, Node<N4>> T_b = new FlatKDTree<>(arena, new Node<>(arena.goal()));
         int seed = new Random().nextInt();
         System.out.printf("seed %d\n", seed);
         final RRTStar7<FullStateHolonomicArena> solver = new RRTStar7<>(arena,
@@ -107,10 +107,10 @@ public class FullStateArenaView extends JComponent {
         // solver.step();
         // RRTStar7.DEBUG = true;
         // System.out.println("before");
-        // printTree(T_a.getValue(), 0);
+        // printTree(T_a.root(), 0);
         // solver.step();
         // System.out.println("after");
-        // printTree(T_a.getValue(), 0);
+        // printTree(T_a.root(), 0);
 
         SinglePath<N4> bestSinglePath = runner.getBestSinglePath();
         if (bestSinglePath == null) {
@@ -209,10 +209,10 @@ public class FullStateArenaView extends JComponent {
 
     private static final boolean renderTree = true;
 
-    void renderEnd(Graphics2D g, KDNode<Node<N4>> tree) {
+    void renderEnd(Graphics2D g, FlatKDTree<N4, Node<N4>> tree) {
         g.setColor(Color.ORANGE);
-        double x = tree.getValue().getState().get(0, 0);
-        double y = tree.getValue().getState().get(2, 0);
+        double x = tree.root().getState().get(0, 0);
+        double y = tree.root().getState().get(2, 0);
         double r = 0.2;
         Ellipse2D.Double a = new Ellipse2D.Double(x - r, y - r, 2 * r, 2 * r);
         g.fill(a);
@@ -265,8 +265,8 @@ public class FullStateArenaView extends JComponent {
         renderEnd(g, _T_a);
         renderEnd(g, _T_b);
 
-        renderTree(g, _T_a.getValue(), Color.GREEN);
-        renderTree(g, _T_b.getValue(), Color.RED);
+        renderTree(g, _T_a.root(), Color.GREEN);
+        renderTree(g, _T_b.root(), Color.RED);
     }
 
     void printPaths(Path<N4> path) {
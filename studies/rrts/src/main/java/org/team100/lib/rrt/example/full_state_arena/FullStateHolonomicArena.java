@@ -108,6 +108,15 @@ public class FullStateHolonomicArena implements Arena<N4> {
         return start.minus(end).normF();
     }
 
+    @Override
+    public double dist(double[] states, int offset, double[] end) {
+        double d0 = states[offset] - end[0];
+        double d1 = states[offset + 1] - end[1];
+        double d2 = states[offset + 2] - end[2];
+        double d3 = states[offset + 3] - end[3];
+        return Math.sqrt(d0 * d0 + d1 * d1 + d2 * d2 + d3 * d3);
+    }
+
     @Override
     public void setStepNo(int stepNo) {
         // this.stepNo = stepNo;
@@ -0,0 +1,175 @@
+package org.team100.lib.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.graph.Node;
+import org.team100.lib.space.Point;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
+public class TestFlatKDTree {
+    private static class MyKDModel implements KDModel<N2> {
+        @Override
+        public Matrix<N2, N1> getMin() {
+            return VecBuilder.fill(0, 0);
+        }
+
+        @Override
+        public Matrix<N2, N1> getMax() {
+            return VecBuilder.fill(1, 1);
+        }
+
+        @Override
+        public double dist(Matrix<N2, N1> start, Matrix<N2, N1> end) {
+            return Math.sqrt(Math.pow(start.get(0, 0) - end.get(0, 0), 2)
+                    + Math.pow(start.get(1, 0) - end.get(1, 0), 2));
+        }
+
+        @Override
+        public Matrix<N2, N1> steer(KDNearNode<Node<N2>> x_nearest, Matrix<N2, N1> newConfig) {
+            throw new UnsupportedOperationException("Unimplemented method 'steer'");
+        }
+
+        @Override
+        public void setStepNo(int stepNo) {
+        }
+
+        @Override
+        public void setRadius(double radius) {
+        }
+    }
+
+    static class MyPoint implements Point<N2> {
+        private final Matrix<N2, N1> _config;
+
+        public MyPoint(double x, double y) {
+            _config = VecBuilder.fill(x, y);
+        }
+
+        @Override
+        public Matrix<N2, N1> getState() {
+            return _config;
+        }
+    }
+
+    /** The flat tree should agree with the linked tree. */
+    @Test
+    void testSameAsKDTree() {
+        KDModel<N2> m = new MyKDModel();
+        Random random = new Random(0);
+        MyPoint root = new MyPoint(0.5, 0.5);
+        KDNode<MyPoint> rootNode = new KDNode<>(root);
+        FlatKDTree<N2, MyPoint> tree = new FlatKDTree<>(m, root);
+        // more than the initial capacity
+        for (int i = 0; i < 2000; ++i) {
+            MyPoint p = new MyPoint(random.nextDouble(), random.nextDouble());
+            KDTree.insert(m, rootNode, p);
+            tree.insert(p);
+        }
+        assertEquals(2001, tree.size());
+        assertEquals(new HashSet<>(KDTree.values(rootNode)), new HashSet<>(tree.values()));
+
+        for (int i = 0; i < 100; ++i) {
+            Matrix<N2, N1> target = VecBuilder.fill(random.nextDouble(), random.nextDouble());
+
+            KDNearNode<MyPoint> expected = KDTree.nearest(m, rootNode, target);
+            int actual = tree.nearest(target);
+            assertSame(expected._nearest, tree.get(actual));
+            assertEquals(expected._dist, tree.nearestDist(), 1e-9);
+
+            Set<MyPoint> expectedNear = new HashSet<>();
+            KDTree.near(m, rootNode, target, 0.1, (v, d) -> expectedNear.add(v));
+            int count = tree.near(target, 0.1);
+            Set<MyPoint> actualNear = new HashSet<>();
+            for (int j = 0; j < count; ++j) {
+                actualNear.add(tree.nearValue(j));
+                assertEquals(m.dist(tree.nearValue(j).getState(), target), tree.nearDist(j), 1e-9);
+            }
+            assertEquals(expectedNear, actualNear);
+        }
+    }
+
+    @Test
+    void testKNearest() {
+        KDModel<N2> m = new MyKDModel();
+        Random random = new Random(0);
+        FlatKDTree<N2, MyPoint> tree = new FlatKDTree<>(m, new MyPoint(0.5, 0.5));
+        List<MyPoint> points = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            points.add(new MyPoint(random.nextDouble(), random.nextDouble()));
+        }
+        tree.addAll(points);
+        points.add(tree.root());
+
+        double[] target = new double[] { 0.3, 0.7 };
+        Matrix<N2, N1> targetMatrix = VecBuilder.fill(0.3, 0.7);
+        int[] index = new int[5];
+        double[] dist = new double[5];
+        assertEquals(5, tree.kNearest(target, 5, index, dist));
+
+        // brute force
+        points.sort((a, b) -> Double.compare(
+                m.dist(a.getState(), targetMatrix),
+                m.dist(b.getState(), targetMatrix)));
+        for (int i = 0; i < 5; ++i) {
+            assertSame(points.get(i), tree.get(index[i]));
+            assertEquals(m.dist(points.get(i).getState(), targetMatrix), dist[i], 1e-9);
+        }
+    }
+
+    @Test
+    void testKNearestSmallTree() {
+        KDModel<N2> m = new MyKDModel();
+        FlatKDTree<N2, MyPoint> tree = new FlatKDTree<>(m, new MyPoint(0.5, 0.5));
+        tree.insert(new MyPoint(0.25, 0.25));
+        int[] index = new int[5];
+        double[] dist = new double[5];
+        assertEquals(2, tree.kNearest(new double[] { 0, 0 }, 5, index, dist));
+        assertEquals(1, index[0]);
+        assertEquals(0, index[1]);
+    }
+
+    @Test
+    void testKNearestZero() {
+        KDModel<N2> m = new MyKDModel();
+        FlatKDTree<N2, MyPoint> tree = new FlatKDTree<>(m, new MyPoint(0.5, 0.5));
+        tree.insert(new MyPoint(0.25, 0.25));
+        assertEquals(0, tree.kNearest(new double[] { 0, 0 }, 0, new int[0], new double[0]));
+    }
+
+    @Test
+    void testRebuild() {
+        KDModel<N2> m = new MyKDModel();
+        Random random = new Random(0);
+        FlatKDTree<N2, MyPoint> tree = new FlatKDTree<>(m, new MyPoint(0.5, 0.5));
+        for (int i = 0; i < 300; ++i) {
+            tree.insert(new MyPoint(random.nextDouble(), random.nextDouble()));
+        }
+        Matrix<N2, N1> target = VecBuilder.fill(0.1, 0.9);
+        MyPoint before = tree.get(tree.nearest(target));
+        int nearBefore = tree.near(target, 0.2);
+        Set<MyPoint> valuesBefore = new HashSet<>(tree.values());
+
+        tree.rebuild();
+
+        assertEquals(301, tree.size());
+        assertEquals(valuesBefore, new HashSet<>(tree.values()));
+        assertSame(before, tree.get(tree.nearest(target)));
+        assertEquals(nearBefore, tree.near(target, 0.2));
+        // still works after rebuild
+        tree.insert(new MyPoint(0.1, 0.9));
+        assertEquals(0.1, tree.get(tree.nearest(target)).getState().get(0, 0), 1e-9);
+        assertEquals(0, tree.nearestDist(), 1e-9);
+    }
+}
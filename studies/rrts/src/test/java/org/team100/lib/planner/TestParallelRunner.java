@@ -0,0 +1,115 @@
+package org.team100.lib.planner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.graph.Node;
+import org.team100.lib.space.Path;
+import org.team100.lib.space.SinglePath;
+
+import edu.wpi.first.math.numbers.N2;
+
+public class TestParallelRunner {
+
+    /** Finds one path, with cost derived from the seed, and then stops. */
+    private static class FakeSolver implements Solver<N2> {
+        private final double _cost;
+        private SharedBest<N2> _shared;
+        private int _steps;
+
+        FakeSolver(int seed) {
+            _cost = 1 + Math.abs(seed % 100);
+        }
+
+        @Override
+        public void setStepNo(int stepNo) {
+        }
+
+        @Override
+        public int step() {
+            _steps++;
+            if (_steps < 10)
+                return 1;
+            _shared.offer(new Path<>(_cost, new ArrayList<>(), new ArrayList<>()));
+            return -1;
+        }
+
+        @Override
+        public List<Node<N2>> getNodesA() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Node<N2>> getNodesB() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Path<N2> getBestPath() {
+            return null;
+        }
+
+        @Override
+        public SinglePath<N2> getBestSinglePath() {
+            return null;
+        }
+
+        @Override
+        public void setShared(SharedBest<N2> shared) {
+            _shared = shared;
+        }
+    }
+
+    @Test
+    void testSharedBest() {
+        SharedBest<N2> best = new SharedBest<>();
+        assertNull(best.getBestPath());
+        assertEquals(Double.MAX_VALUE, best.bound());
+        assertTrue(best.offer(new Path<>(3, new ArrayList<>(), new ArrayList<>())));
+        assertEquals(3, best.bound());
+        // worse path is ignored
+        assertFalse(best.offer(new Path<>(4, new ArrayList<>(), new ArrayList<>())));
+        assertEquals(3, best.bound());
+        assertTrue(best.offer(new Path<>(2, new ArrayList<>(), new ArrayList<>())));
+        assertEquals(2, best.bound());
+        assertEquals(2, best.getBestPath().getDistance());
+    }
+
+    @Test
+    void testParallel() {
+        List<FakeSolver> solvers = new ArrayList<>();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ParallelRunner<N2> runner = new ParallelRunner<>(seed -> {
+            FakeSolver s = new FakeSolver(seed) {
+                @Override
+                public int step() {
+                    threads.add(Thread.currentThread());
+                    return super.step();
+                }
+            };
+            solvers.add(s);
+            return s;
+        }, 4, 0);
+        assertEquals(4, runner.size());
+        runner.runForDurationMS(1000);
+        runner.close();
+
+        // every solver ran, on the pool
+        double min = Double.MAX_VALUE;
+        for (FakeSolver s : solvers) {
+            assertEquals(10, s._steps);
+            min = Math.min(min, s._cost);
+        }
+        assertFalse(threads.contains(Thread.currentThread()));
+        // the best of them wins
+        assertEquals(min, runner.getBestPath().getDistance());
+    }
+}
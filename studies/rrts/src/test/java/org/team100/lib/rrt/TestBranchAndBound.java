@@ -0,0 +1,84 @@
+package org.team100.lib.rrt;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.graph.Node;
+import org.team100.lib.index.FlatKDTree;
+import org.team100.lib.planner.ParallelRunner;
+import org.team100.lib.planner.SharedBest;
+import org.team100.lib.rrt.example.full_state_arena.FullStateHolonomicArena;
+import org.team100.lib.space.Path;
+import org.team100.lib.space.Sample;
+import org.team100.lib.space.SinglePath;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N4;
+
+public class TestBranchAndBound {
+    private static final double MAX_U = 2.5;
+
+    @Test
+    void testPrune() {
+        FullStateHolonomicArena arena = new FullStateHolonomicArena();
+        Matrix<N4, N1> init = arena.initial();
+        Matrix<N4, N1> goal = arena.goal();
+        double best = RRTStar7.tOptimal(init, goal, MAX_U);
+
+        SharedBest<N4> shared = new SharedBest<>();
+        // the far corner, past the goal
+        Matrix<N4, N1> far = new Matrix<>(Nat.N4(), Nat.N1(), new double[] { 0, 0, 8, 0 });
+        // nothing to prune against yet
+        assertFalse(BranchAndBound.prune(shared, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                init, goal, far, true));
+        assertFalse(BranchAndBound.prune(null, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                init, goal, far, true));
+
+        // a path half again slower than the straight shot
+        shared.offer(new Path<>(best * 1.5, new ArrayList<>(), new ArrayList<>()));
+
+        // stopping halfway costs sqrt(2) times the straight shot, which could
+        // still help
+        Matrix<N4, N1> x_rand = init.plus(goal).times(0.5);
+        assertFalse(BranchAndBound.prune(shared, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                init, goal, x_rand, true));
+        // same thing with the trees swapped
+        assertFalse(BranchAndBound.prune(shared, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                goal, init, x_rand, false));
+
+        // a sample out of the way can't
+        assertTrue(BranchAndBound.prune(shared, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                init, goal, far, true));
+        assertTrue(BranchAndBound.prune(shared, (a, b) -> RRTStar7.tOptimal(a, b, MAX_U),
+                goal, init, far, false));
+    }
+
+    /** Two real solvers pruning against each other still find a valid path. */
+    @Test
+    void testParallelSolvers() {
+        ParallelRunner<N4> runner = new ParallelRunner<>(seed -> {
+            FullStateHolonomicArena arena = new FullStateHolonomicArena();
+            FlatKDTree<N4, Node<N4>> T_a = new FlatKDTree<>(arena, new Node<>(arena.initial()));
+            FlatKDTree<N4, Node<N4>> T_b = new FlatKDTree<>(arena, new Node<>(arena.goal()));
+            RRTStar7<FullStateHolonomicArena> solver = new RRTStar7<>(
+                    arena, new Sample<>(arena, seed), T_a, T_b);
+            solver.setRadius(6);
+            return solver;
+        }, 2, 0);
+        runner.runForDurationMS(2000);
+        runner.close();
+
+        SinglePath<N4> best = runner.getBestSinglePath();
+        assertNotNull(best);
+        // no path beats the obstacle-free optimum, so the bound is admissible.
+        FullStateHolonomicArena arena = new FullStateHolonomicArena();
+        double lowerBound = RRTStar7.tOptimal(arena.initial(), arena.goal(), MAX_U);
+        assertTrue(best.getDistance() >= lowerBound - 1e-6);
+    }
+}
@@ -1,7 +1,7 @@
 package org.team100.lib.sway.controller;
 
+import org.team100.lib.sway.math.Linearization;
 import org.team100.lib.sway.math.RandomVector;
-import org.team100.lib.sway.math.Jacobian;
 import org.team100.lib.sway.math.Variance;
 import org.team100.lib.sway.system.NonlinearPlant;
 
@@ -15,14 +15,19 @@ import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.system.Discretization;
 
 /**
- * Fixed gain linearized around zero, cribbed from LQR.
+ * LQR gain for a linearization of the plant, cribbed from LQR.
  */
 public class GainCalculator<States extends Num, Inputs extends Num, Outputs extends Num> {
+    private final Linearization<States, Inputs, Outputs> m_linearization;
+    private final Matrix<States, States> m_Q;
+    private final Matrix<Inputs, Inputs> m_R;
+    private final double m_dtSeconds;
     private final Matrix<Inputs, States> m_K;
 
     /**
      * Calculate LQR gain linearized around zero. I don't think it's worth the
      * trouble to make K sensitive to x, since all our systems are well behaved.
+     * If it is, use calculate() instead.
      * 
      * This is all cribbed from WPI code, I don't really understand what it's doing.
      * 
@@ -34,17 +39,31 @@ public class GainCalculator<States extends Num, Inputs extends Num, Outputs exte
             Vector<States> qelms,
             Vector<Inputs> relms,
             double dtSeconds) {
+        m_linearization = new Linearization<>(plant);
+        m_Q = StateSpaceUtil.makeCostMatrix(qelms);
+        m_R = StateSpaceUtil.makeCostMatrix(relms);
+        m_dtSeconds = dtSeconds;
         Matrix<Inputs, N1> kUZero = new Matrix<>(plant.inputs(), Nat.N1());
-        Matrix<States, States> m_Q = StateSpaceUtil.makeCostMatrix(qelms);
-        Matrix<Inputs, Inputs> m_R = StateSpaceUtil.makeCostMatrix(relms);
         RandomVector<States> x = new RandomVector<>(new Matrix<>(plant.states(), Nat.N1()),
                 Variance.zero(plant.states()));
-        Matrix<States, States> A = Jacobian.numericalJacobianX(plant.states(), plant.states(), plant::f,
-                x, kUZero);
-        Matrix<States, Inputs> B = Jacobian.numericalJacobianU(plant.states(), plant.inputs(), plant::f,
-                x, kUZero);
+        m_K = calculate(x, kUZero);
+    }
+
+    /** Gain linearized around zero. */
+    public Matrix<Inputs, States> getK() {
+        return m_K;
+    }
+
+    /**
+     * Gain linearized around the operating point (x,u). This is cheap enough to
+     * run every loop if the plant supplies analytic Jacobians, or if the
+     * operating point doesn't move much.
+     */
+    public Matrix<Inputs, States> calculate(RandomVector<States> x, Matrix<Inputs, N1> u) {
+        Matrix<States, States> A = m_linearization.A(x, u);
+        Matrix<States, Inputs> B = m_linearization.B(x, u);
 
-        var discABPair = Discretization.discretizeAB(A, B, dtSeconds);
+        var discABPair = Discretization.discretizeAB(A, B, m_dtSeconds);
         var discA = discABPair.getFirst();
         var discB = discABPair.getSecond();
 
@@ -60,15 +79,11 @@ public class GainCalculator<States extends Num, Inputs extends Num, Outputs exte
         var S = DARE.dare(discA, discB, m_Q, m_R);
 
         // K = (B^TSB + R) ^-1 B^TSA
-        m_K = discB
+        return discB
                 .transpose()
                 .times(S)
                 .times(discB)
                 .plus(m_R)
                 .solve(discB.transpose().times(S).times(discA));
     }
-
-    public Matrix<Inputs, States> getK() {
-        return m_K;
-    }
 }
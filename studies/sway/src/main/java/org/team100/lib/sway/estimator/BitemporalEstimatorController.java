@@ -54,6 +54,12 @@ import edu.wpi.first.math.numbers.N1;
  */
 public class BitemporalEstimatorController<States extends Num, Inputs extends Num, Outputs extends Num> {
     private static final boolean kDebug = false;
+    /** Replay can start from a checkpoint this often, between measurements. */
+    private static final double kCheckpointIntervalS = 0.1;
+    /** Measurements older than this, relative to the newest one, are dropped. */
+    private static final double kMaxReplayAgeS = 1.0;
+    /** Replay at most this many measurements per loop. */
+    private static final int kMaxReplayCount = 100;
 
     public final RandomVector<States> m_initialState;
     public final Matrix<Inputs, N1> m_initialControl;
@@ -62,6 +68,9 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
     public final BitemporalBuffer<RandomVector<Outputs>> m_measurements;
     // we rewrite recent state history as needed.
     public final EditableHistory<RandomVector<States>> m_estimates;
+    // predicted states between estimates, so replay can start closer to each
+    // measurement. these are rewritten along with the estimates.
+    public final EditableHistory<RandomVector<States>> m_checkpoints;
     // control history is immutable.
     public final History<Matrix<Inputs, N1>> m_control_history;
     public final ExtrapolatingEstimator<States, Inputs, Outputs> m_predictor;
@@ -71,8 +80,13 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
     public final InversionFeedforward<States, Inputs, Outputs> m_feedforward;
     public final FeedbackControl<States, Inputs, Outputs> m_feedback;
 
+    // returned when there's no history, made once to avoid garbage.
+    private final Entry<Double, RandomVector<States>> m_initialStateEntry;
+    private final Entry<Double, Matrix<Inputs, N1>> m_initialControlEntry;
+
     // the last recordTime we've seen from the buffer
     private long recordTime;
+    private int m_dropped;
 
     /**
      * @param system         plant dynamics
@@ -92,6 +106,7 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
         m_reference = reference;
         m_measurements = new BitemporalBuffer<>(1000);
         m_estimates = new EditableHistory<>(1000);
+        m_checkpoints = new EditableHistory<>(1000);
         m_control_history = new History<>(1000);
         m_predictor = new ExtrapolatingEstimator<>(system);
         m_pointEstimator = new PointEstimator<>(system);
@@ -99,6 +114,8 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
         m_pooling = new VarianceWeightedLinearPooling<>();
         m_feedforward = new InversionFeedforward<>(system);
         m_feedback = new FeedbackControl<>(system, K);
+        m_initialStateEntry = Map.entry(0.0, m_initialState);
+        m_initialControlEntry = Map.entry(0.0, m_initialControl);
     }
 
     /**
@@ -112,18 +129,34 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
     /**
      * Updates the state history with any measurements that are pending.
      * 
+     * Replay starts from the latest estimate or checkpoint before each
+     * measurement, so late measurements don't require integrating all the way
+     * from the previous measurement.
+     * 
+     * To keep the work per loop bounded, measurements more than kMaxReplayAgeS
+     * older than the newest one, or beyond the newest kMaxReplayCount, are
+     * dropped if they haven't been replayed already.
+     * 
      * @return the number of measurements found to replay
      */
     public int replay(long currentSystemTimeMicrosec) {
         double earliestMeasurementSec = m_measurements.earliestValidTimeForRecordsAfter(recordTime);
+        long previousRecordTime = recordTime;
         recordTime = currentSystemTimeMicrosec;
+        if (earliestMeasurementSec == Double.MAX_VALUE)
+            return 0;
+
+        double startSec = replayStart(earliestMeasurementSec);
+        if (startSec > earliestMeasurementSec)
+            m_dropped += countDropped(previousRecordTime, startSec);
 
         // we need to replay all the measurements since then
         NavigableMap<Double, Entry<Long, RandomVector<Outputs>>> todo = m_measurements
-                .validTailMap(earliestMeasurementSec);
+                .validTailMap(startSec);
 
         // we don't need the old estimates, we're going to redo them all
-        m_estimates.trim(earliestMeasurementSec);
+        m_estimates.trim(startSec);
+        m_checkpoints.trim(startSec);
 
         // loop through the measurements to replay, in valid-time order.
         int replayCount = 0;
@@ -134,10 +167,7 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
             // find the time of the measurement
             double measurementTime = measurementEntry.getKey();
             // find the most-recent state earlier than the measurement
-            Entry<Double, RandomVector<States>> entry = m_estimates.floor(measurementTime);
-            if (entry == null) {
-                entry = Map.entry(0.0, m_initialState);
-            }
+            Entry<Double, RandomVector<States>> entry = priorState(measurementTime);
             double stateTimeS = entry.getKey();
             RandomVector<States> priorState = entry.getValue();
             if (kDebug)
@@ -146,7 +176,7 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
             // this is the control in use at the time of the prior state
             Entry<Double, Matrix<Inputs, N1>> historicalUEntry = m_control_history.floor(stateTimeS);
             if (historicalUEntry == null)
-                historicalUEntry = Map.entry(0.0, m_initialControl);
+                historicalUEntry = m_initialControlEntry;
             Matrix<Inputs, N1> historical_u = historicalUEntry.getValue();
             if (kDebug)
                 System.out.println("found u " + historical_u);
@@ -158,16 +188,12 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
             for (Entry<Double, Matrix<Inputs, N1>> uEntry : uEntries.entrySet()) {
                 // integrate the prior state and the prior u up to the new u
                 double endS = uEntry.getKey();
-                double integrationSpanS = endS - stateTimeS;
                 if (kDebug)
                     System.out
                             .println("tween integrating from " + stateTimeS + " to " + endS + " u " + historical_u);
                 if (kDebug)
                     System.out.println("tween prior state " + priorState.x.get(0, 0));
-                priorState = m_predictor.predictWithNoise(
-                        priorState,
-                        historical_u,
-                        integrationSpanS);
+                priorState = integrate(priorState, historical_u, stateTimeS, endS);
                 if (kDebug)
                     System.out.println("tween estimate position " + priorState.x.get(0, 0));
 
@@ -182,11 +208,11 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
                         "replay integrating from " + stateTimeS + " to " + measurementTime + " u " + historical_u);
             if (kDebug)
                 System.out.println("replay prior state " + priorState.x.get(0, 0));
-            double stateToMeasurementS = measurementTime - stateTimeS;
-            RandomVector<States> predictedState = m_predictor.predictWithNoise(
+            RandomVector<States> predictedState = integrate(
                     priorState,
                     historical_u,
-                    stateToMeasurementS);
+                    stateTimeS,
+                    measurementTime);
             if (kDebug)
                 System.out.println("replay estimate " + predictedState.x.get(0, 0));
 
@@ -205,13 +231,83 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
         return replayCount;
     }
 
+    /** Total number of new measurements dropped because they were too old. */
+    public int getDropped() {
+        return m_dropped;
+    }
+
+    /**
+     * The valid time to replay from: the earliest new measurement, unless that
+     * would be too much work.
+     */
+    private double replayStart(double earliestMeasurementSec) {
+        NavigableMap<Double, Entry<Long, RandomVector<Outputs>>> all = m_measurements
+                .validTailMap(earliestMeasurementSec);
+        if (all.isEmpty())
+            return earliestMeasurementSec;
+        double startSec = Math.max(earliestMeasurementSec, all.lastKey() - kMaxReplayAgeS);
+        // walk back from the newest to find the oldest we have time for.
+        int count = 0;
+        for (Double validTime : all.descendingKeySet()) {
+            if (validTime < startSec)
+                break;
+            if (++count == kMaxReplayCount)
+                return Math.max(startSec, validTime);
+        }
+        return startSec;
+    }
+
+    /** Count the new records earlier than the replay start. */
+    private int countDropped(long previousRecordTime, double startSec) {
+        int dropped = 0;
+        for (Entry<Double, RandomVector<Outputs>> e : m_measurements.recordTailMap(previousRecordTime).values()) {
+            if (e.getKey() < startSec)
+                dropped++;
+        }
+        return dropped;
+    }
+
+    /** The most-recent estimate or checkpoint at or before the time. */
+    private Entry<Double, RandomVector<States>> priorState(double timeS) {
+        Entry<Double, RandomVector<States>> estimate = m_estimates.floor(timeS);
+        Entry<Double, RandomVector<States>> checkpoint = m_checkpoints.floor(timeS);
+        if (checkpoint != null && (estimate == null || checkpoint.getKey() > estimate.getKey()))
+            return checkpoint;
+        if (estimate != null)
+            return estimate;
+        return m_initialStateEntry;
+    }
+
+    /**
+     * Integrates with constant u from startS to endS, recording a checkpoint at
+     * each multiple of kCheckpointIntervalS along the way.
+     */
+    private RandomVector<States> integrate(
+            RandomVector<States> state,
+            Matrix<Inputs, N1> u,
+            double startS,
+            double endS) {
+        double checkpointS = (Math.floor(startS / kCheckpointIntervalS) + 1) * kCheckpointIntervalS;
+        if (checkpointS <= startS) {
+            // rounding
+            checkpointS += kCheckpointIntervalS;
+        }
+        while (checkpointS < endS) {
+            state = m_predictor.predictWithNoise(state, u, checkpointS - startS);
+            m_checkpoints.put(checkpointS, state);
+            startS = checkpointS;
+            checkpointS += kCheckpointIntervalS;
+        }
+        return m_predictor.predictWithNoise(state, u, endS - startS);
+    }
+
     /**
      * Predicts the state for the current instant.
      */
     public RandomVector<States> predictNow(double currentTimeSec) {
         Entry<Double, RandomVector<States>> entry = m_estimates.floor(currentTimeSec);
         if (entry == null)
-            entry = Map.entry(0.0, m_initialState);
+            entry = m_initialStateEntry;
 
         double stateTimeS = entry.getKey();
         RandomVector<States> priorState = entry.getValue();
@@ -220,7 +316,7 @@ public class BitemporalEstimatorController<States extends Num, Inputs extends Nu
 
         Entry<Double, Matrix<Inputs, N1>> priorUEntry = m_control_history.floor(stateTimeS);
         if (priorUEntry == null)
-            priorUEntry = Map.entry(0.0, m_initialControl);
+            priorUEntry = m_initialControlEntry;
         Matrix<Inputs, N1> priorU = priorUEntry.getValue();
         // integrate to the current time with the previous u
         double timeToNow = currentTimeSec - stateTimeS;
@@ -0,0 +1,91 @@
+package org.team100.lib.sway.math;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.team100.lib.sway.system.NonlinearPlant;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Num;
+import edu.wpi.first.math.numbers.N1;
+
+/**
+ * Jacobians of the plant dynamics, A = df/dx and B = df/du.
+ *
+ * Uses the plant's analytic Jacobians if it has them. Otherwise the numerical
+ * Jacobians are cached by operating point, quantized into buckets, so nearby
+ * operating points share one finite-difference computation.
+ */
+public class Linearization<States extends Num, Inputs extends Num, Outputs extends Num> {
+    /** Width of each operating-point bucket, in state and input units. */
+    private static final double kBucketWidth = 0.01;
+    private static final int kCapacity = 1000;
+
+    private final NonlinearPlant<States, Inputs, Outputs> m_plant;
+    private final Map<Key, Matrix<States, States>> m_A;
+    private final Map<Key, Matrix<States, Inputs>> m_B;
+
+    public Linearization(NonlinearPlant<States, Inputs, Outputs> plant) {
+        m_plant = plant;
+        m_A = lru();
+        m_B = lru();
+    }
+
+    /** df/dx at (x,u). */
+    public Matrix<States, States> A(RandomVector<States> x, Matrix<Inputs, N1> u) {
+        Matrix<States, States> A = m_plant.dfdx(x, u);
+        if (A != null)
+            return A;
+        return m_A.computeIfAbsent(new Key(x.x, u),
+                k -> Jacobian.numericalJacobianX(m_plant.states(), m_plant.states(), m_plant::f, x, u));
+    }
+
+    /** df/du at (x,u). */
+    public Matrix<States, Inputs> B(RandomVector<States> x, Matrix<Inputs, N1> u) {
+        Matrix<States, Inputs> B = m_plant.dfdu(x, u);
+        if (B != null)
+            return B;
+        return m_B.computeIfAbsent(new Key(x.x, u),
+                k -> Jacobian.numericalJacobianU(m_plant.states(), m_plant.inputs(), m_plant::f, x, u));
+    }
+
+    /** Least-recently-used eviction keeps the cache bounded. */
+    private static <V> Map<Key, V> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                return size() > kCapacity;
+            }
+        };
+    }
+
+    /** Operating point quantized to buckets. */
+    private static class Key {
+        private final long[] m_buckets;
+
+        Key(Matrix<?, N1> x, Matrix<?, N1> u) {
+            int xRows = x.getNumRows();
+            int uRows = u.getNumRows();
+            m_buckets = new long[xRows + uRows];
+            for (int i = 0; i < xRows; ++i) {
+                m_buckets[i] = Math.round(x.get(i, 0) / kBucketWidth);
+            }
+            for (int i = 0; i < uRows; ++i) {
+                m_buckets[xRows + i] = Math.round(u.get(i, 0) / kBucketWidth);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            return Arrays.equals(m_buckets, ((Key) obj).m_buckets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(m_buckets);
+        }
+    }
+}
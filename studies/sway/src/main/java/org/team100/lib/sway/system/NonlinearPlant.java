@@ -27,6 +27,22 @@ public interface NonlinearPlant<States extends Num, Inputs extends Num, Outputs
     /** State evolution */
     RandomVector<States> f(RandomVector<States> x, Matrix<Inputs, N1> u);
 
+    /**
+     * Jacobian of f with respect to x, at (x,u), if the plant knows it, or null,
+     * which means use a numerical Jacobian. See Linearization.
+     */
+    default Matrix<States, States> dfdx(RandomVector<States> x, Matrix<Inputs, N1> u) {
+        return null;
+    }
+
+    /**
+     * Jacobian of f with respect to u, at (x,u), if the plant knows it, or null,
+     * which means use a numerical Jacobian. See Linearization.
+     */
+    default Matrix<States, Inputs> dfdu(RandomVector<States> x, Matrix<Inputs, N1> u) {
+        return null;
+    }
+
     /** Inverse of f with respect to u, for feedforward. */
     Matrix<Inputs, N1> finvWrtU(RandomVector<States> x, RandomVector<States> xdot);
 
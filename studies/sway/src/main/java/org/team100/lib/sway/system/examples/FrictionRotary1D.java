@@ -48,6 +48,16 @@ public class FrictionRotary1D extends Rotary1D {
         return new RandomVector<>(xdotx, new Variance<>(xdotP));
     }
 
+    @Override
+    public Matrix<N2, N2> dfdx(RandomVector<N2> x, Matrix<N1, N1> u) {
+        return new Matrix<>(Nat.N2(), Nat.N2(), new double[] { 0, 1, 0, -1 });
+    }
+
+    @Override
+    public Matrix<N2, N1> dfdu(RandomVector<N2> x, Matrix<N1, N1> u) {
+        return VecBuilder.fill(0, 1);
+    }
+
     @Override
     public Matrix<N1, N1> finvWrtU(RandomVector<N2> x, RandomVector<N2> xdot) {
         double a = xdot.x.get(1, 0);
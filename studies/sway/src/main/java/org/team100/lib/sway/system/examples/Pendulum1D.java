@@ -48,6 +48,20 @@ public class Pendulum1D extends Rotary1D {
         return new RandomVector<>(xdotx, new Variance<>(xdotP));
     }
 
+    /**
+     * the x jacobian is [0 1 ; sin(p) 0]
+     */
+    @Override
+    public Matrix<N2, N2> dfdx(RandomVector<N2> x, Matrix<N1, N1> u) {
+        double p = x.x.get(0, 0);
+        return new Matrix<>(Nat.N2(), Nat.N2(), new double[] { 0, 1, Math.sin(p), 0 });
+    }
+
+    @Override
+    public Matrix<N2, N1> dfdu(RandomVector<N2> x, Matrix<N1, N1> u) {
+        return VecBuilder.fill(0, 1);
+    }
+
     @Override
     public Matrix<N1, N1> finvWrtU(RandomVector<N2> x, RandomVector<N2> xdot) {
         double a = xdot.x.get(1, 0);
@@ -162,4 +162,63 @@ class BitemporalEstimatorControllerTest {
             assertEquals(actual_a, reference.getRDot(t).get(1, 0), 0.04);
         }
     }
+
+    /**
+     * Late measurements replay only what's after them, and measurements too old to
+     * replay are dropped.
+     */
+    @Test
+    void testLateMeasurements() {
+        WhiteNoiseVector<N2> wx = WhiteNoiseVector.noise2(0, 0);
+        MeasurementUncertainty<N2> vx = MeasurementUncertainty.for2(0.01, 0.1);
+        NonlinearPlant<N2, N1, N2> system = new DoubleIntegratorCartesian1D(wx, vx);
+        Variance<N2> px = Variance.from2StdDev(.01, .01);
+        RandomVector<N2> initialState = new RandomVector<>(VecBuilder.fill(0, 1), px);
+        Matrix<N1, N1> initialControl = VecBuilder.fill(0);
+        Reference<N2> reference = new Reference<>() {
+            @Override
+            public Matrix<N2, N1> getR(double tSec) {
+                return VecBuilder.fill(tSec, 1);
+            }
+
+            @Override
+            public Matrix<N2, N1> getRDot(double tSec) {
+                return VecBuilder.fill(1, 0);
+            }
+        };
+        Matrix<N1, N2> K = VecBuilder.fill(0, 0).transpose();
+        BitemporalEstimatorController<N2, N1, N2> controller = new BitemporalEstimatorController<>(
+                system, initialState, initialControl, reference, K);
+
+        // measurements every 0.25 s, on time, constant velocity.
+        long recordTime = 0;
+        for (int i = 1; i <= 8; ++i) {
+            double t = 0.25 * i;
+            recordTime += 1;
+            controller.acceptMeasurement(recordTime, t, new RandomVector<>(VecBuilder.fill(t, 1), px));
+            assertEquals(1, controller.replay(recordTime));
+            controller.recordHistory(t, initialControl);
+        }
+        // checkpoints fill the gaps between measurements
+        assertEquals(8, controller.m_estimates.size());
+        assertEquals(true, controller.m_checkpoints.size() >= 8);
+
+        // a late measurement replays itself and the three after it.
+        recordTime += 1;
+        controller.acceptMeasurement(recordTime, 1.3, new RandomVector<>(VecBuilder.fill(1.3, 1), px));
+        assertEquals(4, controller.replay(recordTime));
+        assertEquals(0, controller.getDropped());
+
+        // a measurement much older than the newest one is dropped,
+        // and only the window is replayed.
+        recordTime += 1;
+        controller.acceptMeasurement(recordTime, 0.3, new RandomVector<>(VecBuilder.fill(0.3, 1), px));
+        assertEquals(6, controller.replay(recordTime));
+        assertEquals(1, controller.getDropped());
+
+        // the estimate is still right.
+        RandomVector<N2> prediction = controller.predictNow(2.5);
+        assertEquals(2.5, prediction.x.get(0, 0), 0.001);
+        assertEquals(1, prediction.x.get(1, 0), 0.001);
+    }
 }
@@ -0,0 +1,153 @@
+package org.team100.lib.sway.math;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.sway.system.NonlinearPlant;
+import org.team100.lib.sway.system.examples.DoubleIntegratorCartesian1D;
+import org.team100.lib.sway.system.examples.Pendulum1D;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
+class LinearizationTest {
+    private static final double kDelta = 0.001;
+    private static final boolean kPrint = false;
+
+    /** Pendulum without analytic Jacobians, counting calls to f. */
+    private static class NumericPendulum extends Pendulum1D {
+        int fCount;
+
+        NumericPendulum() {
+            super(WhiteNoiseVector.noise2(0.015, 0.17), MeasurementUncertainty.for2(0.01, 0.1));
+        }
+
+        @Override
+        public RandomVector<N2> f(RandomVector<N2> xmat, Matrix<N1, N1> umat) {
+            fCount++;
+            return super.f(xmat, umat);
+        }
+
+        @Override
+        public Matrix<N2, N2> dfdx(RandomVector<N2> x, Matrix<N1, N1> u) {
+            return null;
+        }
+
+        @Override
+        public Matrix<N2, N1> dfdu(RandomVector<N2> x, Matrix<N1, N1> u) {
+            return null;
+        }
+    }
+
+    /** The analytic Jacobians should match the numerical ones. */
+    @Test
+    void testAnalyticMatchesNumeric() {
+        WhiteNoiseVector<N2> w = WhiteNoiseVector.noise2(0.015, 0.17);
+        MeasurementUncertainty<N2> v = MeasurementUncertainty.for2(0.01, 0.1);
+        NonlinearPlant<N2, N1, N2> pendulum = new Pendulum1D(w, v);
+        NonlinearPlant<N2, N1, N2> integrator = new DoubleIntegratorCartesian1D(w, v);
+        for (double p = -3; p < 3; p += 0.5) {
+            RandomVector<N2> x = new RandomVector<>(VecBuilder.fill(p, 1), Variance.zero2());
+            Matrix<N1, N1> u = VecBuilder.fill(2);
+            for (NonlinearPlant<N2, N1, N2> plant : List.of(pendulum, integrator)) {
+                assertArrayEquals(
+                        Jacobian.numericalJacobianX(Nat.N2(), Nat.N2(), plant::f, x, u).getData(),
+                        plant.dfdx(x, u).getData(), kDelta);
+                assertArrayEquals(
+                        Jacobian.numericalJacobianU(Nat.N2(), Nat.N1(), plant::f, x, u).getData(),
+                        plant.dfdu(x, u).getData(), kDelta);
+            }
+        }
+    }
+
+    /** Nearby operating points share one numerical Jacobian. */
+    @Test
+    void testCache() {
+        NumericPendulum plant = new NumericPendulum();
+        Linearization<N2, N1, N2> linearization = new Linearization<>(plant);
+        Matrix<N1, N1> u = VecBuilder.fill(0);
+
+        RandomVector<N2> x = new RandomVector<>(VecBuilder.fill(1, 0), Variance.zero2());
+        Matrix<N2, N2> A = linearization.A(x, u);
+        assertArrayEquals(new double[] { 0, 1, Math.sin(1), 0 }, A.getData(), kDelta);
+        int misses = plant.fCount;
+
+        // same bucket, no new evaluations of f
+        RandomVector<N2> near = new RandomVector<>(VecBuilder.fill(1.001, 0), Variance.zero2());
+        assertArrayEquals(A.getData(), linearization.A(near, u).getData(), 1e-9);
+        assertEquals(misses, plant.fCount);
+
+        // different bucket
+        RandomVector<N2> far = new RandomVector<>(VecBuilder.fill(1.5, 0), Variance.zero2());
+        assertArrayEquals(new double[] { 0, 1, Math.sin(1.5), 0 },
+                linearization.A(far, u).getData(), kDelta);
+        assertEquals(2 * misses, plant.fCount);
+
+        assertArrayEquals(new double[] { 0, 1 }, linearization.B(x, u).getData(), kDelta);
+    }
+
+    /**
+     * Compares analytic, numerical, and cached Jacobians: all three agree. The
+     * timings are only printed, since they depend on the machine.
+     */
+    @Test
+    void testBenchmark() {
+        WhiteNoiseVector<N2> w = WhiteNoiseVector.noise2(0.015, 0.17);
+        MeasurementUncertainty<N2> v = MeasurementUncertainty.for2(0.01, 0.1);
+        NonlinearPlant<N2, N1, N2> analytic = new Pendulum1D(w, v);
+        Linearization<N2, N1, N2> cached = new Linearization<>(new NumericPendulum());
+        Matrix<N1, N1> u = VecBuilder.fill(0);
+        // operating points wander slowly, as they would in a control loop
+        int n = 100000;
+        @SuppressWarnings("unchecked")
+        RandomVector<N2>[] xs = new RandomVector[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = new RandomVector<>(VecBuilder.fill(Math.sin(i * 1e-4), 0), Variance.zero2());
+        }
+
+        // agreement, outside the timed loops
+        for (int i = 0; i < n; i += 100) {
+            double[] expected = analytic.dfdx(xs[i], u).getData();
+            assertArrayEquals(expected,
+                    Jacobian.numericalJacobianX(Nat.N2(), Nat.N2(), analytic::f, xs[i], u).getData(),
+                    kDelta);
+            // the cache keeps the (numerical) Jacobian at the first x it sees in
+            // each bucket, which may be almost a whole bucket width (0.01) away,
+            // and the slope of sin is at most 1.
+            assertArrayEquals(expected, cached.A(xs[i], u).getData(), 0.011);
+        }
+
+        double sum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < n; ++i) {
+            sum += analytic.dfdx(xs[i], u).get(1, 0);
+        }
+        long analyticNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < n; ++i) {
+            sum += Jacobian.numericalJacobianX(Nat.N2(), Nat.N2(), analytic::f, xs[i], u).get(1, 0);
+        }
+        long numericNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < n; ++i) {
+            sum += cached.A(xs[i], u).get(1, 0);
+        }
+        long cachedNs = System.nanoTime() - start;
+
+        if (kPrint) {
+            System.out.printf("analytic %6.0f ns/op%n", (double) analyticNs / n);
+            System.out.printf("numeric  %6.0f ns/op%n", (double) numericNs / n);
+            System.out.printf("cached   %6.0f ns/op%n", (double) cachedNs / n);
+            System.out.printf("sum %f%n", sum);
+        }
+    }
+}